@@ -4,8 +4,12 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.concurrentfileprocessor.metrics.ProcessingMetrics;
+import com.concurrentfileprocessor.runner.BenchmarkRunner;
+import com.concurrentfileprocessor.runner.GenerateRunner;
 import com.concurrentfileprocessor.runner.GuiRunner;
 import com.concurrentfileprocessor.runner.HeadlessRunner;
+import com.concurrentfileprocessor.runner.WorkerRunner;
 
 /**
  * main entry point for the concurrent file processor application
@@ -23,17 +27,32 @@ public class ConcurrentFileProcessor {
 
     // directory path where output file will be saved
     public static String outputFilePath;
+
+    // tuning options for processing runs
+    public static ProcessorSettings settings = new ProcessorSettings();
+
+    // live progress of the current run, registered once over JMX so it is never replaced
+    public static final ProcessingMetrics metrics = new ProcessingMetrics();
     
     /**
      * main method that initializes the application and launches either GUI or headless mode
-     * @param args command line arguments use --headless for terminal mode or nothing for gui mode
+     * @param args command line arguments use --headless for terminal mode or nothing for gui mode, followed by optional --name=value settings
+     * --generate writes a synthetic corpus and --benchmark processes one repeatedly to measure throughput
+     * --worker is used by the shard coordinator to start the processes it splits the input between
      */
     public static void main(String[] args) {
-        fileStats = new FileStats(null, null, null);
-        fileStats = fileStats.refreshFileStats();
+        settings = ProcessorSettings.fromArguments(args);
+        fileStats = FileStats.create(settings);
         initFileDetails();
+        ProcessingMetrics.register(metrics);
         if (args.length > 0 && args[0].equals("--headless")) {
             HeadlessRunner.run();
+        } else if (args.length > 0 && args[0].equals("--generate")) {
+            GenerateRunner.run();
+        } else if (args.length > 0 && args[0].equals("--benchmark")) {
+            BenchmarkRunner.run();
+        } else if (args.length > 0 && args[0].equals("--worker")) {
+            WorkerRunner.run();
         } else {
             GuiRunner.launch();
         }
@@ -1,7 +1,20 @@
 package com.concurrentfileprocessor;
 
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.settings;
+import com.concurrentfileprocessor.counts.HeapWordCounts;
+import com.concurrentfileprocessor.counts.WordCounts;
+import com.concurrentfileprocessor.metrics.ProcessingMetrics;
+import com.concurrentfileprocessor.processor.FileProcessor;
+import com.concurrentfileprocessor.processor.OutputWriter;
+import com.concurrentfileprocessor.processor.PartialResults;
+import com.concurrentfileprocessor.processor.WordTable;
+import com.concurrentfileprocessor.processor.WordTokenizer.WordSink;
 
 /**
  * data model class that holds processed file statistics
@@ -9,43 +22,147 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class FileStats {
     // store word counts for each word in the files
-    public ConcurrentHashMap<String, Integer> wordCount;
+    public WordCounts wordCount;
     
     // counter for total characters across all files
-    public AtomicInteger characterCount;
+    public AtomicLong characterCount;
     
     // counter for total lines across all files
-    public AtomicInteger lineCount;
+    public AtomicLong lineCount;
     
     // total number of files processed
     public int numberOfFiles;
+
+    // files stopped by a time limit and left out of every other total
+    public int filesLeftOut;
+
+    // charset the files counted into these statistics are decoded with
+    public Charset charset;
+
+    // true once the run these statistics are counted in has been cancelled, the global run unless set otherwise
+    public BooleanSupplier cancelled = FileProcessor::isCancelled;
+
+    // live metrics of the run these statistics are counted in, the process-wide metrics unless set otherwise
+    public ProcessingMetrics metrics = ConcurrentFileProcessor.metrics;
     
 
     /**
      * constructor
-     * @param wordCount map of words and their counts
+     * @param wordCount store of words and their counts
      * @param characterCount total character count
      * @param lineCount total line count
      */
-    public FileStats(ConcurrentHashMap<String, Integer> wordCount, AtomicInteger characterCount, AtomicInteger lineCount) {
+    public FileStats(WordCounts wordCount, AtomicLong characterCount, AtomicLong lineCount) {
         this.wordCount = wordCount;
         this.characterCount = characterCount;
         this.lineCount = lineCount;
+        this.charset = settings.charset;
+    }
+
+    /**
+     * constructor for statistics that share the counters, charset, cancel flag and live metrics of others
+     * @param shared statistics whose counters are updated
+     */
+    public FileStats(FileStats shared) {
+        this(shared.wordCount, shared.characterCount, shared.lineCount);
+        this.charset = shared.charset;
+        this.cancelled = shared.cancelled;
+        this.metrics = shared.metrics;
+    }
+
+    /**
+     * constructor for statistics kept in a heap map
+     * @param wordCount map of words and their counts
+     * @param characterCount total character count
+     * @param lineCount total line count
+     */
+    public FileStats(ConcurrentHashMap<String, Integer> wordCount, AtomicLong characterCount, AtomicLong lineCount) {
+        this(new HeapWordCounts(wordCount), characterCount, lineCount);
+    }
+
+    /**
+     * creates empty statistics using the word store and charset selected in the settings
+     * @param settings settings naming the word store and charset to use
+     * @return new FileStats object with all statistics at zero
+     */
+    public static FileStats create(ProcessorSettings settings) {
+        FileStats stats = new FileStats(WordCounts.create(settings), new AtomicLong(0), new AtomicLong(0));
+        stats.charset = settings.charset;
+        return stats;
     }
 
     /**
      * resets all statistics to zero
+     * releases the old word store, which may hold memory outside the heap
      * @return the reset FileStats object
      */
     public FileStats refreshFileStats(){
-        // create new instance with null parameters
-        FileStats stats = new FileStats(null, null, null);
-        
-        // initialize all collections to empty/zero state
-        stats.wordCount = new ConcurrentHashMap<>();
-        stats.characterCount = new AtomicInteger(0);
-        stats.lineCount = new AtomicInteger(0);
-        
-        return stats;
+        if (wordCount != null) {
+            wordCount.close();
+        }
+        return create(settings);
+    }
+
+    /**
+     * creates the sink a task's tokenizer counts words through
+     * when the word store has a fixed budget, the table is merged and emptied whenever it reaches the store's limit,
+     * so a task with a huge vocabulary cannot grow without bound either
+     * @param words the task's private table
+     * @return sink that adds each word to the table
+     */
+    public WordSink localSink(WordTable words) {
+        int limit = wordCount.maxLocalWords();
+        if (limit == Integer.MAX_VALUE) {
+            return words::add;
+        }
+        return (word, length, hash) -> {
+            words.add(word, length, hash);
+            if (words.size() >= limit) {
+                merge(words, 0, 0);
+                words.clear();
+            }
+        };
+    }
+
+    /**
+     * takes the totals and most frequent words counted so far, while tasks may still be merging into them
+     * reads the counters and the word store without holding up the merges, so it can be called while a run goes on
+     * the file counts and elapsed time come from the live metrics of the run these statistics are counted in
+     * @param top number of most frequent words to include
+     * @return the partial results
+     */
+    public PartialResults snapshot(int top) {
+        return new PartialResults(metrics.getElapsedSeconds(), metrics.getFilesCompleted(), metrics.getFilesTotal(),
+            characterCount.get(), lineCount.get(), wordCount.sizeEstimate(), wordCount.maxError(),
+            OutputWriter.liveTopEntries(wordCount, top));
+    }
+
+    /**
+     * called by tasks between reads, so they stop part way through a file instead of reading it to the end
+     * @throws InterruptedIOException if the run was cancelled
+     */
+    public void checkStopped() throws InterruptedIOException {
+        if (cancelled.getAsBoolean()) {
+            throw new InterruptedIOException("Processing cancelled");
+        }
+    }
+
+    /**
+     * called by a task whose read failed part way through a file, once whatever it read before the failure
+     * has been merged, the run keeps those partial results but they must not be reused as the whole file's
+     */
+    public void readFailed() {}
+
+    /**
+     * folds the results of one finished task into the shared statistics
+     * the task counts privately, so each counter is touched once per task instead of once per word
+     * @param words word counts collected by the task
+     * @param characters number of characters counted by the task
+     * @param lines number of lines counted by the task
+     */
+    public void merge(WordTable words, long characters, long lines) {
+        wordCount.merge(words);
+        characterCount.addAndGet(characters);
+        lineCount.addAndGet(lines);
     }
 }
@@ -0,0 +1,438 @@
+package com.concurrentfileprocessor;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.concurrentfileprocessor.processor.WordTokenizer;
+
+/**
+ * tuning options for a processing run
+ * defaults suit the GUI, headless mode can override them with --name=value arguments
+ */
+public class ProcessorSettings implements Cloneable {
+    // files larger than this are split into byte ranges processed in parallel, 0 disables splitting
+    public long chunkSize = 64L * 1024 * 1024;
+
+    // where word counts are stored while processing
+    public WordStore wordStore = WordStore.HEAP;
+
+    // charset of the input text, UTF-8 or a single byte charset that extends ASCII
+    public Charset charset = StandardCharsets.UTF_8;
+
+    // number of words the top words store keeps counts for
+    public int topWords = 10_000;
+
+    // megabytes the spill store's tables may hold before it writes counts out to temporary files
+    public int spillBudgetMb = 256;
+
+    // directory the spill store writes its temporary files to, empty for the system temporary directory
+    public String spillDirectory = "";
+
+    // headless mode searches subdirectories of the working directory as well
+    public boolean recursive = false;
+
+    // comma separated globs headless mode takes files matching, and leaves out files or directories matching
+    public String include = "*.txt,*.gz,*.tgz,*.zip,*.tar";
+    public String exclude = "";
+
+    // file per-file results are cached in between runs so unchanged files are skipped, empty disables the cache
+    public String cacheFile = "";
+
+    // compare file contents by CRC32C hash instead of modification time to decide whether a file changed
+    public boolean cacheHash = false;
+
+    // file a binary snapshot of the results is written to after each run, empty writes none
+    public String snapshotFile = "";
+
+    // number of most frequent words headless mode prints about once a second while a run is in progress, 0 prints none
+    public int liveTop = 0;
+
+    // file headless mode saves a flight recording of the run to before printing where the time went, empty records none
+    public String recordFile = "";
+
+    // how file tasks are run when the pipeline is off
+    public ExecutorStrategy executor = ExecutorStrategy.WORK_STEALING;
+
+    // worker threads of the work-stealing pool, 0 starts one per core
+    public int threads = 0;
+
+    // most files the virtual thread strategy keeps open at once
+    public int maxOpenFiles = 256;
+
+    // seconds a file may take once started before it is stopped and left out of the results, 0 for no limit
+    public int fileTimeoutSeconds = 0;
+
+    // seconds the whole run may take before files still running are stopped and left out, 0 for no limit
+    public int runTimeoutSeconds = 0;
+
+    // order files are handed to the workers in
+    public SchedulePolicy schedule = SchedulePolicy.LARGEST_FIRST;
+
+    // threads reading files ahead of the tokenizers, 0 reads and tokenizes each file on the same thread
+    public int pipelineReaders = 0;
+
+    // threads tokenizing the buffers filled by the readers
+    public int pipelineParsers = Runtime.getRuntime().availableProcessors();
+
+    // size of each buffer passed from the readers to the tokenizers
+    public int pipelineBufferSize = 1024 * 1024;
+
+    // number of filled buffers that can wait for a tokenizer before the readers block
+    public int pipelineQueueDepth = 16;
+
+    // order words are listed in the output file
+    public OutputOrder outputOrder = OutputOrder.UNSORTED;
+
+    // number of most frequent words listed in the output file, 0 lists every word
+    public int outputTop = 0;
+
+    // encoding of the output file
+    public OutputFormat outputFormat = OutputFormat.TEXT;
+
+    // worker processes headless mode splits the input between, 0 or 1 processes everything in this process
+    public int shards = 0;
+
+    // times a failed shard is started again before the run gives up
+    public int shardRetries = 2;
+
+    // maximum heap of each worker process in megabytes, 0 leaves it to the JVM
+    public int shardHeapMb = 0;
+
+    // seconds a worker process may run before it is killed and its shard counted as failed, 0 for no limit
+    public int shardTimeoutSeconds = 0;
+
+    // file listing the input files of a worker process, one path per line
+    public String shardList = "";
+
+    // directory the corpus generator writes to and the benchmark reads from
+    public String corpusDirectory = "corpus";
+
+    // number of files in a generated corpus
+    public int corpusFiles = 100;
+
+    // mean size of a generated file in bytes
+    public long corpusFileSize = 1024L * 1024;
+
+    // how the sizes of generated files vary around the mean
+    public SizeDistribution corpusSizes = SizeDistribution.LOG_NORMAL;
+
+    // number of distinct words a generated corpus draws from
+    public int corpusVocabulary = 100_000;
+
+    // Zipf exponent of the word frequencies, the word of rank r is drawn with weight 1 / r^exponent
+    public double corpusZipfExponent = 1.0;
+
+    // characters after which a generated line is ended
+    public int corpusLineLength = 80;
+
+    // seed of a generated corpus, the same seed and options always give the same files
+    public long corpusSeed = 42;
+
+    // runs the benchmark makes before the measured ones so the JIT has compiled the hot paths
+    public int benchmarkWarmups = 1;
+
+    // measured runs the benchmark makes
+    public int benchmarkRuns = 3;
+
+    // CSV file each measured benchmark run is appended to, empty appends nowhere
+    public String benchmarkResults = "";
+
+    // --name=value arguments the settings were built from, passed on to worker processes
+    public List<String> arguments = new ArrayList<>();
+
+    /**
+     * backing stores available for word counts
+     */
+    public enum WordStore {
+        // ConcurrentHashMap on the heap
+        HEAP,
+        // primitive open addressing table in direct memory
+        OFF_HEAP,
+        // approximate counts for the most frequent words in a fixed amount of memory
+        TOP_WORDS,
+        // exact counts within a memory budget, spilling sorted runs to temporary files
+        SPILL
+    }
+
+    /**
+     * ways of running one task per file
+     */
+    public enum ExecutorStrategy {
+        // fork/join pool with one thread per core
+        WORK_STEALING,
+        // one virtual thread per file, needs Java 21 or newer
+        VIRTUAL
+    }
+
+    /**
+     * orders files can be scheduled in
+     */
+    public enum SchedulePolicy {
+        // the order the files were listed or chosen in
+        SUBMISSION,
+        // biggest files first so no large file is left running alone at the end
+        LARGEST_FIRST,
+        // smallest files first so the first results arrive sooner
+        SMALLEST_FIRST
+    }
+
+    /**
+     * orders words can be listed in the output file
+     */
+    public enum OutputOrder {
+        // the order the word store holds them in, the fastest to write
+        UNSORTED,
+        // most frequent first
+        FREQUENCY,
+        // alphabetical by word
+        ALPHABETICAL
+    }
+
+    /**
+     * ways the sizes of generated files can vary
+     */
+    public enum SizeDistribution {
+        // every file has the mean size
+        FIXED,
+        // sizes spread evenly between half and one and a half times the mean
+        UNIFORM,
+        // mostly small files and a few large ones, like most real collections
+        LOG_NORMAL
+    }
+
+    /**
+     * encodings the output file can be written in
+     */
+    public enum OutputFormat {
+        // totals followed by one "word: count" line per word
+        TEXT,
+        // a word,count header row followed by one row per word, without the totals
+        CSV,
+        // a JSON object with the totals followed by one object per word, one per line
+        JSON_LINES,
+        // totals and words with varint lengths and counts
+        BINARY
+    }
+
+    /**
+     * builds settings from command line arguments, ignoring the mode argument
+     * @param args command line arguments such as --chunk-size-mb=128
+     * @return settings with every recognised option applied
+     */
+    public static ProcessorSettings fromArguments(String[] args) {
+        ProcessorSettings settings = new ProcessorSettings();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                continue;
+            }
+            String name = arg.substring(2, separator);
+            String value = arg.substring(separator + 1);
+            try {
+                settings.apply(name, value);
+                settings.arguments.add(arg);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Ignoring " + arg + ": " + e.getMessage());
+            }
+        }
+        return settings;
+    }
+
+    /**
+     * copies the settings, so a job keeps the options it was given while the originals change
+     * @return a copy sharing nothing mutable with these settings
+     */
+    public ProcessorSettings copy() {
+        try {
+            ProcessorSettings copy = (ProcessorSettings) super.clone();
+            copy.arguments = new ArrayList<>(arguments);
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * applies a single named option
+     * @param name option name without the leading dashes
+     * @param value option value
+     * @throws IllegalArgumentException if the option is unknown or the value is invalid
+     */
+    private void apply(String name, String value) {
+        switch (name) {
+            case "chunk-size-mb":
+                chunkSize = Long.parseLong(value) * 1024 * 1024;
+                break;
+            case "word-store":
+                wordStore = WordStore.valueOf(value.toUpperCase().replace('-', '_'));
+                break;
+            case "charset":
+                Charset named = Charset.forName(value);
+                if (!WordTokenizer.isSupported(named)) {
+                    throw new IllegalArgumentException("must be UTF-8 or a single byte charset that extends ASCII");
+                }
+                charset = named;
+                break;
+            case "top-words":
+                topWords = parseCount(value, 1);
+                break;
+            case "spill-budget-mb":
+                spillBudgetMb = parseCount(value, 1);
+                break;
+            case "spill-dir":
+                spillDirectory = value;
+                break;
+            case "recursive":
+                recursive = parseBoolean(value);
+                break;
+            case "include":
+                include = value;
+                break;
+            case "exclude":
+                exclude = value;
+                break;
+            case "cache":
+                cacheFile = value;
+                break;
+            case "cache-hash":
+                cacheHash = parseBoolean(value);
+                break;
+            case "snapshot":
+                snapshotFile = value;
+                break;
+            case "live-top":
+                liveTop = parseCount(value, 0);
+                break;
+            case "record":
+                recordFile = value;
+                break;
+            case "executor":
+                executor = ExecutorStrategy.valueOf(value.toUpperCase().replace('-', '_'));
+                break;
+            case "threads":
+                threads = parseCount(value, 0);
+                break;
+            case "max-open-files":
+                maxOpenFiles = parseCount(value, 1);
+                break;
+            case "file-timeout-seconds":
+                fileTimeoutSeconds = parseCount(value, 0);
+                break;
+            case "run-timeout-seconds":
+                runTimeoutSeconds = parseCount(value, 0);
+                break;
+            case "schedule":
+                schedule = SchedulePolicy.valueOf(value.toUpperCase().replace('-', '_'));
+                break;
+            case "pipeline-readers":
+                pipelineReaders = parseCount(value, 0);
+                break;
+            case "pipeline-parsers":
+                pipelineParsers = parseCount(value, 1);
+                break;
+            case "pipeline-buffer-kb":
+                int kilobytes = parseCount(value, 1);
+                if (kilobytes > 1024 * 1024) {
+                    throw new IllegalArgumentException("must be at most 1048576");
+                }
+                pipelineBufferSize = kilobytes * 1024;
+                break;
+            case "pipeline-queue-depth":
+                pipelineQueueDepth = parseCount(value, 1);
+                break;
+            case "sort":
+                outputOrder = OutputOrder.valueOf(value.toUpperCase().replace('-', '_'));
+                break;
+            case "top":
+                outputTop = parseCount(value, 0);
+                break;
+            case "format":
+                outputFormat = OutputFormat.valueOf(value.toUpperCase().replace('-', '_'));
+                break;
+            case "shards":
+                shards = parseCount(value, 0);
+                break;
+            case "shard-retries":
+                shardRetries = parseCount(value, 0);
+                break;
+            case "shard-heap-mb":
+                shardHeapMb = parseCount(value, 0);
+                break;
+            case "shard-timeout-seconds":
+                shardTimeoutSeconds = parseCount(value, 0);
+                break;
+            case "shard-list":
+                shardList = value;
+                break;
+            case "corpus-dir":
+                corpusDirectory = value;
+                break;
+            case "corpus-files":
+                corpusFiles = parseCount(value, 1);
+                break;
+            case "corpus-file-kb":
+                corpusFileSize = parseCount(value, 1) * 1024L;
+                break;
+            case "corpus-sizes":
+                corpusSizes = SizeDistribution.valueOf(value.toUpperCase().replace('-', '_'));
+                break;
+            case "corpus-vocabulary":
+                corpusVocabulary = parseCount(value, 1);
+                break;
+            case "corpus-zipf-exponent":
+                double exponent = Double.parseDouble(value);
+                if (!(exponent >= 0 && exponent <= 10)) {
+                    throw new IllegalArgumentException("must be between 0 and 10");
+                }
+                corpusZipfExponent = exponent;
+                break;
+            case "corpus-line-length":
+                corpusLineLength = parseCount(value, 1);
+                break;
+            case "corpus-seed":
+                corpusSeed = Long.parseLong(value);
+                break;
+            case "benchmark-warmups":
+                benchmarkWarmups = parseCount(value, 0);
+                break;
+            case "benchmark-runs":
+                benchmarkRuns = parseCount(value, 1);
+                break;
+            case "benchmark-results":
+                benchmarkResults = value;
+                break;
+            default:
+                throw new IllegalArgumentException("unknown option");
+        }
+    }
+
+    /**
+     * parses a count option
+     * @param value option value
+     * @param minimum smallest allowed count
+     * @return the parsed count
+     * @throws IllegalArgumentException if the value is not a number or is below the minimum
+     */
+    private static int parseCount(String value, int minimum) {
+        int count = Integer.parseInt(value);
+        if (count < minimum) {
+            throw new IllegalArgumentException("must be at least " + minimum);
+        }
+        return count;
+    }
+
+    /**
+     * parses a true or false option
+     * @param value option value
+     * @return the parsed value
+     * @throws IllegalArgumentException if the value is neither true nor false
+     */
+    private static boolean parseBoolean(String value) {
+        if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException("must be true or false");
+        }
+        return Boolean.parseBoolean(value);
+    }
+}
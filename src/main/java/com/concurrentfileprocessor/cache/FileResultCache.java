@@ -0,0 +1,387 @@
+package com.concurrentfileprocessor.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+import com.concurrentfileprocessor.FileStats;
+import com.concurrentfileprocessor.processor.WordTable;
+
+/**
+ * on-disk cache of per-file results so unchanged files are not tokenized again on the next run
+ * a file is unchanged when its path and size match and either its modification time or, when hashing is on,
+ * its CRC32C content hash matches the cached one
+ * the cache records the charset its files were read in, a run reading them in another charset starts afresh
+ * a run copies the results it reuses and appends the ones it computes to a new cache file,
+ * which replaces the old one when the run finishes, so deleted files drop out
+ * only the index of the old cache is kept in memory, cached words are read back when a file is reused
+ */
+public class FileResultCache implements AutoCloseable {
+    // identifies a cache file and its layout, version 2 keeps non-ASCII letters,
+    // version 3 records the charset and splits words on punctuation outside ASCII
+    private static final int MAGIC = 0x43465043;
+    private static final int VERSION = 3;
+
+    // where the cache lives and the file the next cache is written to
+    private final File cacheFile;
+    private final File newCacheFile;
+
+    // true to compare content hashes instead of modification times
+    private final boolean hashContents;
+
+    // name of the charset files are read in, as written in the cache header
+    private final byte[] charsetName;
+
+    // entries of the previous cache by absolute path
+    private final Map<String, Entry> index = new HashMap<>();
+
+    // previous cache for reading reused results, null when there was none
+    private final FileChannel oldCache;
+
+    // new cache being written, one record at a time
+    private final DataOutputStream newCache;
+
+    // files reused from and added to the cache this run
+    public final AtomicLong hits = new AtomicLong();
+    public final AtomicLong misses = new AtomicLong();
+    public final AtomicLong bytesSkipped = new AtomicLong();
+
+    /**
+     * a file's key and where its records are in the previous cache
+     * a file split into chunks has one record per chunk
+     */
+    private static class Entry {
+        final long size;
+        final long modified;
+        final long hash;
+        final List<long[]> records = new ArrayList<>();
+
+        Entry(long size, long modified, long hash) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * a file looked up in the cache
+     * holds its current key, and its cached records when it has not changed
+     */
+    public class Lookup {
+        public final File file;
+        public final long size;
+        private final long modified;
+        private final long hash;
+        private final Entry entry;
+
+        // records the recorder encoded for the file, written to the new cache by commit, guarded by this lookup
+        private final List<byte[]> recorded = new ArrayList<>();
+
+        // set when a read of the file failed part way, so its results are not cached
+        private volatile boolean failed;
+
+        private Lookup(File file, long size, long modified, long hash, Entry entry) {
+            this.file = file;
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+            this.entry = entry;
+        }
+
+        /**
+         * @return true if the cached results can be used instead of processing the file
+         */
+        public boolean isHit() {
+            return entry != null;
+        }
+
+        /**
+         * merges the cached results into the statistics and carries them over to the new cache
+         * every record is read before anything is merged, so a failed read leaves the statistics untouched
+         * @param fileStats statistics object to update
+         * @throws IOException if the previous cache cannot be read
+         */
+        public void replay(FileStats fileStats) throws IOException {
+            List<ByteBuffer> buffers = new ArrayList<>();
+            for (long[] record : entry.records) {
+                ByteBuffer buffer = ByteBuffer.allocate((int) record[1]);
+                while (buffer.hasRemaining()) {
+                    if (oldCache.read(buffer, record[0] + buffer.position()) < 0) {
+                        throw new EOFException("cache ends inside a record");
+                    }
+                }
+                buffers.add(buffer);
+            }
+            for (ByteBuffer buffer : buffers) {
+                mergeRecord(buffer.flip(), fileStats);
+                append(buffer.array());
+            }
+            hits.incrementAndGet();
+            bytesSkipped.addAndGet(size);
+        }
+
+        /**
+         * wraps the statistics so every result merged for this file is also recorded for the cache,
+         * the records are written by commit once the file has been processed
+         * @param fileStats statistics object to update
+         * @return statistics sharing the same totals that record what is merged into them
+         */
+        public FileStats recorder(FileStats fileStats) {
+            misses.incrementAndGet();
+            return new FileStats(fileStats) {
+                @Override
+                public void merge(WordTable words, long characters, long lines) {
+                    super.merge(words, characters, lines);
+                    try {
+                        byte[] record = encode(Lookup.this, words, characters, lines);
+                        synchronized (Lookup.this) {
+                            recorded.add(record);
+                        }
+                    } catch (IOException e) {
+                        System.err.println("Could not cache " + file + ": " + e.getMessage());
+                        failed = true;
+                    }
+                }
+
+                @Override
+                public void readFailed() {
+                    failed = true;
+                }
+            };
+        }
+
+        /**
+         * writes what the recorder recorded to the new cache, unless a read of the file failed part way,
+         * so the next run processes the file again rather than reusing part of it as the whole
+         */
+        public synchronized void commit() {
+            try {
+                if (!failed) {
+                    for (byte[] record : recorded) {
+                        append(record);
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Could not cache " + file + ": " + e.getMessage());
+            }
+            recorded.clear();
+        }
+    }
+
+    /**
+     * opens a cache, reading the index of the previous one if there is a usable one
+     * @param cacheFile file the cache is kept in
+     * @param hashContents true to compare content hashes instead of modification times
+     * @param charset charset the files are read in, a cache written for another one is not used
+     * @throws IOException if the new cache cannot be created
+     */
+    public FileResultCache(File cacheFile, boolean hashContents, Charset charset) throws IOException {
+        this.cacheFile = cacheFile;
+        this.newCacheFile = new File(cacheFile.getPath() + ".tmp");
+        this.hashContents = hashContents;
+        this.charsetName = charset.name().getBytes(StandardCharsets.UTF_8);
+        this.oldCache = cacheFile.isFile() && readIndex() ? FileChannel.open(cacheFile.toPath()) : null;
+
+        newCache = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(newCacheFile), 1 << 16));
+        newCache.writeInt(MAGIC);
+        newCache.writeInt(VERSION);
+        newCache.writeInt(charsetName.length);
+        newCache.write(charsetName);
+    }
+
+    /**
+     * reads the key of a file and finds its cached results if it has not changed
+     * @param file the file to look up
+     * @return the lookup, which is a hit if the cached results can be used
+     */
+    public Lookup lookup(File file) {
+        long size = file.length();
+        long modified = file.lastModified();
+        long hash = 0;
+        if (hashContents) {
+            try {
+                hash = hash(file);
+            } catch (IOException e) {
+                // unreadable files are processed normally, which reports the error
+                return new Lookup(file, size, modified, hash, null);
+            }
+        }
+
+        Entry entry = oldCache == null ? null : index.get(file.getAbsolutePath());
+        boolean unchanged = entry != null && entry.size == size
+            && (hashContents ? entry.hash == hash : entry.modified == modified);
+        return new Lookup(file, size, modified, hash, unchanged ? entry : null);
+    }
+
+    /**
+     * @return hits, misses and hit rate of this run
+     */
+    public String report() {
+        long total = hits.get() + misses.get();
+        return String.format("Cache: reused %d of %d files (%.1f%% hit rate), skipped %d MB",
+            hits.get(), total, total == 0 ? 0 : hits.get() * 100.0 / total, bytesSkipped.get() / (1024 * 1024));
+    }
+
+    /**
+     * finishes the new cache and replaces the previous one with it
+     * @throws IOException if the cache cannot be written or moved
+     */
+    @Override
+    public void close() throws IOException {
+        if (oldCache != null) {
+            oldCache.close();
+        }
+        newCache.close();
+        Files.move(newCacheFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * drops the new cache and keeps the previous one, for a run whose results were thrown away
+     * files interrupted part way may have recorded partial results, so nothing of the run is kept
+     * @throws IOException if the cache files cannot be closed or deleted
+     */
+    public void discard() throws IOException {
+        if (oldCache != null) {
+            oldCache.close();
+        }
+        newCache.close();
+        Files.deleteIfExists(newCacheFile.toPath());
+    }
+
+    /**
+     * writes a record to the new cache
+     */
+    private synchronized void append(byte[] record) throws IOException {
+        newCache.writeInt(record.length);
+        newCache.write(record);
+    }
+
+    /**
+     * reads the key and record positions of every file in the previous cache
+     * @return false if the previous cache is missing, damaged or from another version
+     */
+    private boolean readIndex() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                System.err.println("Ignoring cache " + cacheFile + " from another version");
+                return false;
+            }
+            byte[] charset = new byte[in.readInt()];
+            in.readFully(charset);
+            if (!Arrays.equals(charset, charsetName)) {
+                System.err.println("Ignoring cache " + cacheFile + " written for charset "
+                    + new String(charset, StandardCharsets.UTF_8));
+                return false;
+            }
+            long position = 12 + charset.length;
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return true;
+                }
+                byte[] path = new byte[in.readInt()];
+                in.readFully(path);
+                Entry key = new Entry(in.readLong(), in.readLong(), in.readLong());
+                in.skipNBytes(length - 4 - path.length - 24);
+
+                Entry entry = index.computeIfAbsent(new String(path, StandardCharsets.UTF_8), p -> key);
+                entry.records.add(new long[] {position + 4, length});
+                position += 4 + length;
+            }
+        } catch (IOException e) {
+            System.err.println("Ignoring damaged cache " + cacheFile + ": " + e.getMessage());
+            index.clear();
+            return false;
+        }
+    }
+
+    /**
+     * encodes one task's results for a file
+     * the layout is path, size, modification time, hash, characters, lines and word count,
+     * followed by the length, bytes and count of each word
+     */
+    private static byte[] encode(Lookup lookup, WordTable words, long characters, long lines) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + words.size() * 16);
+        DataOutputStream out = new DataOutputStream(bytes);
+        byte[] path = lookup.file.getAbsolutePath().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(path.length);
+        out.write(path);
+        out.writeLong(lookup.size);
+        out.writeLong(lookup.modified);
+        out.writeLong(lookup.hash);
+        out.writeLong(characters);
+        out.writeLong(lines);
+        out.writeInt(words.size());
+        IOException[] failure = new IOException[1];
+        words.forEach((word, offset, length, count) -> {
+            try {
+                out.writeInt(length);
+                out.write(word, offset, length);
+                out.writeLong(count);
+            } catch (IOException e) {
+                failure[0] = e;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * merges an encoded record into the statistics
+     */
+    private static void mergeRecord(ByteBuffer record, FileStats fileStats) {
+        record.position(record.getInt() + 4 + 24);
+        long characters = record.getLong();
+        long lines = record.getLong();
+        int wordCount = record.getInt();
+
+        WordTable words = new WordTable();
+        byte[] array = record.array();
+        for (int i = 0; i < wordCount; i++) {
+            int length = record.getInt();
+            words.add(array, record.position(), length, record.getLong(record.position() + length));
+            record.position(record.position() + length + 8);
+        }
+        fileStats.merge(words, characters, lines);
+    }
+
+    /**
+     * computes the CRC32C of a file's contents
+     */
+    private static long hash(File file) throws IOException {
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        try (FileChannel channel = FileChannel.open(file.toPath())) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,136 @@
+package com.concurrentfileprocessor.corpus;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+/**
+ * throughput, heap and GC figures of one run over a corpus
+ * peak heap is the sum of each heap pool's peak during the run, which can be a little above the true peak
+ * when pools peak at different times, and GC figures are summed over every collector of the JVM
+ */
+public class BenchmarkRun {
+    // bytes in a megabyte, as in every other size option
+    private static final double MEGABYTE = 1024.0 * 1024;
+
+    // files and bytes the run processed
+    public final int files;
+    public final long bytes;
+
+    // wall clock time of the run
+    public long elapsedNanos;
+
+    // highest heap use during the run
+    public long peakHeapBytes;
+
+    // collections during the run and the time they took
+    public long gcCount;
+    public long gcMillis;
+
+    // System.nanoTime() and collector totals when the run started
+    private final long start;
+    private final long startGcCount;
+    private final long startGcMillis;
+
+    /**
+     * constructor, reads the collector totals at the start of the run
+     */
+    private BenchmarkRun(int files, long bytes) {
+        this.files = files;
+        this.bytes = bytes;
+        long[] gc = gcTotals();
+        startGcCount = gc[0];
+        startGcMillis = gc[1];
+        start = System.nanoTime();
+    }
+
+    /**
+     * resets the heap peaks and starts timing a run
+     * @param files number of files the run processes
+     * @param bytes number of bytes in those files
+     * @return the run, to be finished once processing is done
+     */
+    public static BenchmarkRun start(int files, long bytes) {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+        return new BenchmarkRun(files, bytes);
+    }
+
+    /**
+     * stops timing the run and reads the heap peaks and collector totals
+     */
+    public void finish() {
+        elapsedNanos = System.nanoTime() - start;
+        long[] gc = gcTotals();
+        gcCount = gc[0] - startGcCount;
+        gcMillis = gc[1] - startGcMillis;
+        peakHeapBytes = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peakHeapBytes += pool.getPeakUsage().getUsed();
+            }
+        }
+    }
+
+    /**
+     * @return megabytes processed per second
+     */
+    public double megabytesPerSecond() {
+        return bytes / MEGABYTE / seconds();
+    }
+
+    /**
+     * @return files processed per second
+     */
+    public double filesPerSecond() {
+        return files / seconds();
+    }
+
+    /**
+     * @return peak heap use in megabytes
+     */
+    public double peakHeapMegabytes() {
+        return peakHeapBytes / MEGABYTE;
+    }
+
+    /**
+     * @return elapsed time in milliseconds
+     */
+    public long elapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+
+    /**
+     * @return the figures of the run on one line
+     */
+    @Override
+    public String toString() {
+        return String.format("%d files, %.1f MB in %d ms, %.1f MB/s, %.1f files/s, peak heap %.1f MB, %d GCs taking %d ms",
+            files, bytes / MEGABYTE, elapsedMillis(), megabytesPerSecond(), filesPerSecond(), peakHeapMegabytes(),
+            gcCount, gcMillis);
+    }
+
+    /**
+     * elapsed time in seconds, never zero
+     */
+    private double seconds() {
+        return Math.max(1, elapsedNanos) / 1e9;
+    }
+
+    /**
+     * @return collections and milliseconds spent collecting since the JVM started, summed over every collector
+     */
+    private static long[] gcTotals() {
+        long[] totals = new long[2];
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            // collectors report -1 when a figure is not available
+            totals[0] += Math.max(0, collector.getCollectionCount());
+            totals[1] += Math.max(0, collector.getCollectionTime());
+        }
+        return totals;
+    }
+}
@@ -0,0 +1,313 @@
+package com.concurrentfileprocessor.corpus;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.concurrentfileprocessor.ProcessorSettings;
+import com.concurrentfileprocessor.ProcessorSettings.ExecutorStrategy;
+import com.concurrentfileprocessor.ProcessorSettings.SizeDistribution;
+import com.concurrentfileprocessor.processor.ThreadDelegator;
+
+/**
+ * generates reproducible text corpora from a seed
+ * word frequencies follow a Zipf distribution so a few hot words dominate like in real text,
+ * and the same seed and options always give the same bytes on any machine
+ */
+public class CorpusGenerator {
+    // file in the corpus directory recording the options the corpus was generated with
+    public static final String MANIFEST = "corpus.properties";
+
+    // letters generated words are made of
+    public static final String ASCII_LETTERS = "abcdefghijklmnopqrstuvwxyz";
+
+    // changes whenever the generator would write different bytes for the same options
+    private static final int VERSION = 1;
+
+    // spread of log-normal file sizes, about a quarter of the files are under a third of the mean
+    private static final double LOG_NORMAL_SIGMA = 1.0;
+
+    // UTF-8 bytes of each word of the vocabulary, most frequent first
+    private final byte[][] words;
+
+    // characters in each word, counted towards the line length
+    private final int[] wordLengths;
+
+    // running totals of the word weights, searched to draw a word
+    private final double[] cumulative;
+
+    // characters after which a line is ended
+    private final int lineLength;
+
+    /**
+     * builds the vocabulary, drawing the words from the given random source
+     * @param random source of the words, left ready to draw the text from
+     * @param vocabularySize number of distinct words
+     * @param zipfExponent the word of rank r is drawn with weight 1 / r^exponent, 0 draws every word equally
+     * @param lineLength characters after which a line is ended
+     * @param letters the letters words are made of, at least two
+     */
+    public CorpusGenerator(Random random, int vocabularySize, double zipfExponent, int lineLength, String letters) {
+        this.lineLength = lineLength;
+        int[] alphabet = letters.codePoints().toArray();
+        words = new byte[vocabularySize][];
+        wordLengths = new int[vocabularySize];
+        for (int i = 0; i < vocabularySize; i++) {
+            String word = randomWord(random, i, alphabet);
+            words[i] = word.getBytes(StandardCharsets.UTF_8);
+            wordLengths[i] = word.length();
+        }
+
+        cumulative = new double[vocabularySize];
+        double total = 0;
+        for (int i = 0; i < vocabularySize; i++) {
+            total += 1.0 / Math.pow(i + 1, zipfExponent);
+            cumulative[i] = total;
+        }
+    }
+
+    /**
+     * generates text in memory
+     * @param size number of bytes to generate, the last character may be cut in half
+     * @param random source the words are drawn from
+     * @return the generated text as UTF-8 bytes
+     */
+    public byte[] text(int size, Random random) {
+        ByteArrayOutputStream text = new ByteArrayOutputStream(size);
+        try {
+            write(text, size, random);
+        } catch (IOException e) {
+            // a ByteArrayOutputStream never throws
+            throw new UncheckedIOException(e);
+        }
+        return text.toByteArray();
+    }
+
+    /**
+     * writes words separated by spaces, ending a line once it is longer than the line length
+     * @param out stream to write to
+     * @param size number of bytes to write, the last character may be cut in half
+     * @param random source the words are drawn from
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(OutputStream out, long size, Random random) throws IOException {
+        double total = cumulative[cumulative.length - 1];
+        long written = 0;
+        int column = 0;
+        while (written < size) {
+            int index = pick(random.nextDouble() * total);
+            int length = (int) Math.min(words[index].length, size - written);
+            out.write(words[index], 0, length);
+            written += length;
+
+            column += wordLengths[index] + 1;
+            boolean endLine = column > lineLength;
+            if (endLine) {
+                column = 0;
+            }
+            if (written < size) {
+                out.write(endLine ? '\n' : ' ');
+                written++;
+            }
+        }
+    }
+
+    /**
+     * writes the corpus described by the settings to its directory, in parallel on the work-stealing pool
+     * a directory whose manifest and files already match the settings is left as it is,
+     * otherwise files left from an earlier corpus are deleted first
+     * @param settings the corpus options
+     * @return the files of the corpus
+     * @throws IOException if the directory or a file cannot be written
+     */
+    public static List<File> generate(ProcessorSettings settings) throws IOException {
+        File directory = new File(settings.corpusDirectory);
+        Random random = new Random(settings.corpusSeed);
+        CorpusGenerator generator = new CorpusGenerator(random, settings.corpusVocabulary, settings.corpusZipfExponent,
+            settings.corpusLineLength, ASCII_LETTERS);
+
+        // every size and seed is drawn before any file is written so the order files are written in does not matter
+        int digits = String.valueOf(settings.corpusFiles - 1).length();
+        List<File> files = new ArrayList<>();
+        long[] sizes = new long[settings.corpusFiles];
+        long[] seeds = new long[settings.corpusFiles];
+        long totalBytes = 0;
+        for (int i = 0; i < settings.corpusFiles; i++) {
+            files.add(new File(directory, String.format("corpus-%0" + digits + "d.txt", i)));
+            sizes[i] = fileSize(settings.corpusSizes, settings.corpusFileSize, random);
+            seeds[i] = random.nextLong();
+            totalBytes += sizes[i];
+        }
+
+        Properties manifest = manifest(settings, totalBytes);
+        if (manifest.equals(readManifest(directory)) && matchSizes(files, sizes)) {
+            System.out.printf("Corpus in %s is up to date, %d files, %d bytes%n", directory, files.size(), totalBytes);
+            return files;
+        }
+
+        Files.createDirectories(directory.toPath());
+        deleteCorpus(directory);
+        System.out.printf("Generating %d files, %d bytes in %s%n", files.size(), totalBytes, directory);
+        ExecutorService executor = ThreadDelegator.createExecutor(ExecutorStrategy.WORK_STEALING);
+        try {
+            List<Future<?>> writes = new ArrayList<>();
+            for (int i = 0; i < files.size(); i++) {
+                File file = files.get(i);
+                long size = sizes[i];
+                long seed = seeds[i];
+                writes.add(executor.submit(() -> {
+                    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 64 * 1024)) {
+                        generator.write(out, size, new Random(seed));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> write : writes) {
+                write.get();
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while generating the corpus");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // written last, so a corpus whose generation was cut short is generated again
+        try (OutputStream out = new FileOutputStream(new File(directory, MANIFEST))) {
+            manifest.store(out, "generated corpus, delete to generate again");
+        }
+        return files;
+    }
+
+    /**
+     * draws the size of a file
+     * @param distribution how sizes vary around the mean
+     * @param mean mean size in bytes
+     * @param random source of the size
+     * @return size in bytes, at least 1
+     */
+    static long fileSize(SizeDistribution distribution, long mean, Random random) {
+        switch (distribution) {
+            case UNIFORM:
+                return Math.max(1, Math.round(mean * (0.5 + random.nextDouble())));
+            case LOG_NORMAL:
+                // the -sigma^2/2 shift keeps the mean of the distribution at the requested mean
+                double scale = Math.exp(LOG_NORMAL_SIGMA * random.nextGaussian() - LOG_NORMAL_SIGMA * LOG_NORMAL_SIGMA / 2);
+                return Math.max(1, Math.round(mean * scale));
+            default:
+                return mean;
+        }
+    }
+
+    /**
+     * @return the options a corpus was generated with, every one of which changes its bytes
+     */
+    private static Properties manifest(ProcessorSettings settings, long totalBytes) {
+        Properties manifest = new Properties();
+        manifest.setProperty("version", String.valueOf(VERSION));
+        manifest.setProperty("seed", String.valueOf(settings.corpusSeed));
+        manifest.setProperty("files", String.valueOf(settings.corpusFiles));
+        manifest.setProperty("file-bytes", String.valueOf(settings.corpusFileSize));
+        manifest.setProperty("sizes", settings.corpusSizes.name());
+        manifest.setProperty("vocabulary", String.valueOf(settings.corpusVocabulary));
+        manifest.setProperty("zipf-exponent", String.valueOf(settings.corpusZipfExponent));
+        manifest.setProperty("line-length", String.valueOf(settings.corpusLineLength));
+        manifest.setProperty("total-bytes", String.valueOf(totalBytes));
+        return manifest;
+    }
+
+    /**
+     * @return the manifest of a directory, empty if it has none
+     */
+    private static Properties readManifest(File directory) throws IOException {
+        Properties manifest = new Properties();
+        File file = new File(directory, MANIFEST);
+        if (file.isFile()) {
+            try (InputStream in = new FileInputStream(file)) {
+                manifest.load(in);
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * @return whether every file exists with its planned size
+     */
+    private static boolean matchSizes(List<File> files, long[] sizes) {
+        for (int i = 0; i < files.size(); i++) {
+            if (files.get(i).length() != sizes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * deletes the manifest and the files of an earlier corpus, leaving anything else in the directory
+     */
+    private static void deleteCorpus(File directory) throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (name.equals(MANIFEST) || name.matches("corpus-\\d+\\.txt")) {
+                Files.delete(file.toPath());
+            }
+        }
+    }
+
+    /**
+     * builds a distinct word for the given index with a random prefix
+     */
+    private static String randomWord(Random random, int index, int[] alphabet) {
+        StringBuilder word = new StringBuilder();
+        int length = 2 + random.nextInt(7);
+        for (int i = 0; i < length; i++) {
+            word.appendCodePoint(alphabet[random.nextInt(alphabet.length)]);
+        }
+
+        // append the index in the base of the alphabet so every word is distinct
+        int remaining = index;
+        do {
+            word.appendCodePoint(alphabet[remaining % alphabet.length]);
+            remaining /= alphabet.length;
+        } while (remaining > 0);
+        return word.toString();
+    }
+
+    /**
+     * binary search for the first cumulative weight at or above the target
+     */
+    private int pick(double target) {
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,104 @@
+package com.concurrentfileprocessor.counts;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ObjLongConsumer;
+
+import com.concurrentfileprocessor.processor.WordTable;
+
+/**
+ * word counts kept in a ConcurrentHashMap on the heap
+ * simplest store and the default, but every distinct word costs a String, a boxed Long and a map node
+ * a store created on a map of int counts keeps updating that map, and fails a merge that would overflow an int
+ * rather than wrapping the count
+ */
+public class HeapWordCounts implements WordCounts {
+    // word counts for each word in the files, null when the store was created on a map of int counts
+    private final ConcurrentHashMap<String, Long> wordCount;
+
+    // map of int counts the store was created on, null otherwise
+    private final ConcurrentHashMap<String, Integer> intWordCount;
+
+    /**
+     * constructor for an empty store
+     */
+    public HeapWordCounts() {
+        this.wordCount = new ConcurrentHashMap<>();
+        this.intWordCount = null;
+    }
+
+    /**
+     * constructor for a store that reads and merges into a map of int counts
+     * @param wordCount map the counts are read from and merged into
+     */
+    public HeapWordCounts(ConcurrentHashMap<String, Integer> wordCount) {
+        this.wordCount = null;
+        this.intWordCount = wordCount;
+    }
+
+    /**
+     * merges one entry per distinct word, the map locks only the bin being updated
+     * @throws ArithmeticException if the store was created on a map of int counts and a count overflows an int
+     */
+    @Override
+    public void merge(WordTable words) {
+        if (wordCount != null) {
+            words.forEach((bytes, offset, length, count) ->
+                wordCount.merge(new String(bytes, offset, length, StandardCharsets.UTF_8), count, Long::sum));
+        } else {
+            words.forEach((bytes, offset, length, count) -> intWordCount.merge(
+                new String(bytes, offset, length, StandardCharsets.UTF_8), Math.toIntExact(count), Math::addExact));
+        }
+    }
+
+    @Override
+    public long get(String word) {
+        if (wordCount != null) {
+            Long count = wordCount.get(word);
+            return count == null ? 0 : count;
+        }
+        Integer count = intWordCount.get(word);
+        return count == null ? 0 : count;
+    }
+
+    @Override
+    public int size() {
+        return wordCount != null ? wordCount.size() : intWordCount.size();
+    }
+
+    @Override
+    public void forEach(ObjLongConsumer<String> consumer) {
+        if (wordCount != null) {
+            wordCount.forEach(consumer::accept);
+        } else {
+            intWordCount.forEach(consumer::accept);
+        }
+    }
+
+    /**
+     * stores are equal when they hold the same words with the same counts, whatever map backs them
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof HeapWordCounts) || ((HeapWordCounts) other).size() != size()) {
+            return false;
+        }
+        HeapWordCounts counts = (HeapWordCounts) other;
+        boolean[] equal = {true};
+        forEach((word, count) -> equal[0] &= counts.get(word) == count);
+        return equal[0];
+    }
+
+    @Override
+    public int hashCode() {
+        // the same as the hash code of a Map<String, Long> holding the counts
+        int[] hash = {0};
+        forEach((word, count) -> hash[0] += word.hashCode() ^ Long.hashCode(count));
+        return hash[0];
+    }
+
+    @Override
+    public String toString() {
+        return wordCount != null ? wordCount.toString() : intWordCount.toString();
+    }
+}
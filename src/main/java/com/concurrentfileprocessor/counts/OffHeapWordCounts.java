@@ -0,0 +1,349 @@
+package com.concurrentfileprocessor.counts;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ObjLongConsumer;
+
+import com.concurrentfileprocessor.processor.WordTable;
+
+/**
+ * open addressing word count table stored in direct ByteBuffers outside the heap
+ * each slot is a single long pointing into an append-only arena that holds the word's primitive long count
+ * followed by its UTF-8 bytes, so a distinct word costs a fraction of the heap store and the garbage collector
+ * never has to trace it
+ * merges take a single lock, which is cheap because tasks merge once per task rather than once per word
+ * direct memory is capped by -XX:MaxDirectMemorySize, which defaults to the maximum heap size
+ */
+public class OffHeapWordCounts implements WordCounts {
+    private static final int SLOT_BYTES = 8;
+    private static final int INITIAL_CAPACITY = 1 << 12;
+
+    // slots are split into pages so the table can grow past the 2 GB limit of a single buffer
+    private static final int SLOT_PAGE_SHIFT = 24;
+    private static final long SLOT_PAGE_MASK = (1L << SLOT_PAGE_SHIFT) - 1;
+
+    // arena pages hold the counts and word bytes, a word never spans two pages
+    // pages start small and double up to the maximum so small runs do not reserve much direct memory
+    private static final int ARENA_PAGE_SHIFT = 26;
+    private static final int ARENA_PAGE_SIZE = 1 << ARENA_PAGE_SHIFT;
+    private static final int FIRST_ARENA_PAGE_SIZE = 64 * 1024;
+
+    // a slot holds the arena address in the low 40 bits, 23 bits of the hash above it and an occupied flag on top
+    private static final int TAG_SHIFT = 40;
+    private static final long ADDRESS_MASK = (1L << TAG_SHIFT) - 1;
+    private static final long OCCUPIED = 1L << 63;
+
+    // words shorter than this store their length in one byte after the count
+    private static final int LONG_LENGTH_MARKER = 0xFF;
+
+    // words read per lock by forEachLive, merges can run in between
+    private static final int LIVE_SLICE = 4096;
+
+    // slot pages and the number of slots across all of them, always a power of two
+    private ByteBuffer[] slotPages;
+    private long capacity;
+
+    // arena pages, the last one is being filled
+    private final List<ByteBuffer> arenaPages = new ArrayList<>();
+
+    // number of distinct words in the table
+    private int size;
+
+    // reused when a key has to be read back out of the arena
+    private byte[] scratch = new byte[64];
+
+    /**
+     * constructor for an empty table
+     */
+    public OffHeapWordCounts() {
+        slotPages = allocateSlots(INITIAL_CAPACITY);
+        capacity = INITIAL_CAPACITY;
+    }
+
+    /**
+     * merges a task's table while holding the table lock
+     */
+    @Override
+    public synchronized void merge(WordTable words) {
+        words.forEach(this::add);
+    }
+
+    @Override
+    public synchronized long get(String word) {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        long address = find(bytes, 0, bytes.length, hash(bytes, 0, bytes.length), false);
+        return address < 0 ? 0 : arenaPage(address).getLong(arenaPosition(address));
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void forEach(ObjLongConsumer<String> consumer) {
+        for (long slot = 0; slot < capacity; slot++) {
+            long reference = slotAt(slotPages, slot);
+            if (reference != 0) {
+                long address = reference & ADDRESS_MASK;
+                int length = readKey(address);
+                long count = arenaPage(address).getLong(arenaPosition(address));
+                consumer.accept(new String(scratch, 0, length, StandardCharsets.UTF_8), count);
+            }
+        }
+    }
+
+    /**
+     * walks the append-only arena a slice at a time, holding the table lock only while a slice is copied out
+     * every word is stored in the arena exactly once and never moves, so no word is passed twice even when
+     * the slots grow between slices
+     */
+    @Override
+    public void forEachLive(ObjLongConsumer<String> consumer) {
+        String[] words = new String[LIVE_SLICE];
+        long[] counts = new long[LIVE_SLICE];
+        int page = 0;
+        int position = 0;
+        int read;
+        do {
+            read = 0;
+            synchronized (this) {
+                while (read < LIVE_SLICE && page < arenaPages.size()) {
+                    ByteBuffer buffer = arenaPages.get(page);
+                    if (position >= buffer.position()) {
+                        if (page == arenaPages.size() - 1) {
+                            break;
+                        }
+                        page++;
+                        position = 0;
+                        continue;
+                    }
+                    int length = readKey(((long) page << ARENA_PAGE_SHIFT) | position);
+                    words[read] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+                    counts[read] = buffer.getLong(position);
+                    read++;
+                    position += 8 + (length < LONG_LENGTH_MARKER ? 1 : 5) + length;
+                }
+            }
+            for (int i = 0; i < read; i++) {
+                consumer.accept(words[i], counts[i]);
+            }
+        } while (read == LIVE_SLICE);
+    }
+
+    /**
+     * drops the buffers so their memory can be freed
+     */
+    @Override
+    public synchronized void close() {
+        slotPages = allocateSlots(1);
+        capacity = 1;
+        arenaPages.clear();
+        size = 0;
+    }
+
+    /**
+     * adds a count to a word, inserting it if it is not in the table yet
+     */
+    private void add(byte[] bytes, int offset, int length, long count) {
+        long address = find(bytes, offset, length, hash(bytes, offset, length), true);
+        ByteBuffer page = arenaPage(address);
+        int position = arenaPosition(address);
+        page.putLong(position, page.getLong(position) + count);
+    }
+
+    /**
+     * probes for a word's slot
+     * @param insert true to store the word with a count of zero when it is missing
+     * @return arena address of the word, or -1 if it is missing and insert is false
+     */
+    private long find(byte[] bytes, int offset, int length, int hash, boolean insert) {
+        long tag = tag(hash);
+        long slot = slotFor(hash, capacity);
+        while (true) {
+            long reference = slotAt(slotPages, slot);
+            if (reference == 0) {
+                if (!insert) {
+                    return -1;
+                }
+                long address = store(bytes, offset, length);
+                slotPages[(int) (slot >>> SLOT_PAGE_SHIFT)].putLong(slotPosition(slot), OCCUPIED | tag << TAG_SHIFT | address);
+                size++;
+
+                // keep the load factor at or below three quarters
+                if (size > capacity / 4 * 3) {
+                    grow();
+                }
+                return address;
+            }
+            long address = reference & ADDRESS_MASK;
+            if ((reference & ~OCCUPIED) >>> TAG_SHIFT == tag && keyEquals(address, bytes, offset, length)) {
+                return address;
+            }
+            slot = (slot + 1) & (capacity - 1);
+        }
+    }
+
+    /**
+     * appends a zero count and a word's length and bytes to the arena
+     * @return arena address of the stored word
+     */
+    private long store(byte[] bytes, int offset, int length) {
+        int recordLength = 8 + (length < LONG_LENGTH_MARKER ? 1 : 5) + length;
+        ByteBuffer page = arenaPages.isEmpty() ? null : arenaPages.get(arenaPages.size() - 1);
+        if (page == null || page.remaining() < recordLength) {
+            int pageSize = (int) Math.min(ARENA_PAGE_SIZE, (long) FIRST_ARENA_PAGE_SIZE << Math.min(arenaPages.size(), 16));
+            page = ByteBuffer.allocateDirect(Math.max(pageSize, recordLength));
+            arenaPages.add(page);
+        }
+        long address = ((long) (arenaPages.size() - 1) << ARENA_PAGE_SHIFT) | page.position();
+        page.putLong(0L);
+        if (length < LONG_LENGTH_MARKER) {
+            page.put((byte) length);
+        } else {
+            page.put((byte) LONG_LENGTH_MARKER);
+            page.putInt(length);
+        }
+        page.put(bytes, offset, length);
+        return address;
+    }
+
+    /**
+     * compares the word stored at an arena address with the given bytes
+     */
+    private boolean keyEquals(long address, byte[] bytes, int offset, int length) {
+        ByteBuffer page = arenaPage(address);
+        int position = arenaPosition(address) + 8;
+        int storedLength = page.get(position) & 0xFF;
+        position++;
+        if (storedLength == LONG_LENGTH_MARKER) {
+            storedLength = page.getInt(position);
+            position += 4;
+        }
+        if (storedLength != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (page.get(position + i) != bytes[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * copies the word stored at an arena address into the scratch array
+     * @return length of the word
+     */
+    private int readKey(long address) {
+        ByteBuffer page = arenaPage(address);
+        int position = arenaPosition(address) + 8;
+        int length = page.get(position) & 0xFF;
+        position++;
+        if (length == LONG_LENGTH_MARKER) {
+            length = page.getInt(position);
+            position += 4;
+        }
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        page.get(position, scratch, 0, length);
+        return length;
+    }
+
+    /**
+     * doubles the number of slots and reinserts every word
+     */
+    private void grow() {
+        long newCapacity = capacity * 2;
+        ByteBuffer[] newPages = allocateSlots(newCapacity);
+        for (long slot = 0; slot < capacity; slot++) {
+            long reference = slotAt(slotPages, slot);
+            if (reference == 0) {
+                continue;
+            }
+            int length = readKey(reference & ADDRESS_MASK);
+            long newSlot = slotFor(hash(scratch, 0, length), newCapacity);
+            while (slotAt(newPages, newSlot) != 0) {
+                newSlot = (newSlot + 1) & (newCapacity - 1);
+            }
+            newPages[(int) (newSlot >>> SLOT_PAGE_SHIFT)].putLong(slotPosition(newSlot), reference);
+        }
+        slotPages = newPages;
+        capacity = newCapacity;
+    }
+
+    /**
+     * @return the arena page holding an address
+     */
+    private ByteBuffer arenaPage(long address) {
+        return arenaPages.get((int) (address >>> ARENA_PAGE_SHIFT));
+    }
+
+    /**
+     * @return the position of an address within its arena page
+     */
+    private static int arenaPosition(long address) {
+        return (int) (address & (ARENA_PAGE_SIZE - 1));
+    }
+
+    /**
+     * @return the reference stored in a slot, 0 when the slot is empty
+     */
+    private static long slotAt(ByteBuffer[] pages, long slot) {
+        return pages[(int) (slot >>> SLOT_PAGE_SHIFT)].getLong(slotPosition(slot));
+    }
+
+    /**
+     * @return the position of a slot within its page
+     */
+    private static int slotPosition(long slot) {
+        return (int) (slot & SLOT_PAGE_MASK) * SLOT_BYTES;
+    }
+
+    /**
+     * allocates zeroed slot pages for the given number of slots
+     */
+    private static ByteBuffer[] allocateSlots(long slots) {
+        long slotsPerPage = Math.min(slots, 1L << SLOT_PAGE_SHIFT);
+        ByteBuffer[] pages = new ByteBuffer[(int) (slots / slotsPerPage)];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = ByteBuffer.allocateDirect((int) slotsPerPage * SLOT_BYTES);
+        }
+        return pages;
+    }
+
+    /**
+     * hashes word bytes, mixing well enough for the low bits to pick a slot and the high bits to be a tag
+     */
+    private static int hash(byte[] bytes, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+
+        // murmur3 finalizer
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    /**
+     * @return the first slot to probe for a hash in a table of the given capacity
+     */
+    private static long slotFor(int hash, long capacity) {
+        return (hash & 0xFFFFFFFFL) & (capacity - 1);
+    }
+
+    /**
+     * @return the high 23 bits of a hash, stored next to the address so most mismatches skip the arena
+     */
+    private static long tag(int hash) {
+        return (hash >>> 9) & 0x7FFFFFL;
+    }
+}
@@ -0,0 +1,752 @@
+package com.concurrentfileprocessor.counts;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.ObjLongConsumer;
+
+import com.concurrentfileprocessor.processor.WordTable;
+import com.concurrentfileprocessor.snapshot.SnapshotReader;
+import com.concurrentfileprocessor.snapshot.SnapshotWriter;
+
+/**
+ * exact word counts kept within a memory budget by spilling sorted runs to temporary files
+ * words are split by hash between partitions, each counted in its own table, and whenever the tables together
+ * outgrow the budget the largest one is written out in snapshot format, sorted by its bytes, and emptied
+ * reading the counts merges each partition's runs and table as sorted streams, adding up a word's counts one
+ * word at a time, so the whole vocabulary is never held in memory and the output is streamed as it is merged
+ * a partition with too many runs merges its smallest ones into one, so a read never opens more than a few runs
+ * listing the words by count sorts them a budget's worth at a time into runs of their own and merges those
+ * counting the distinct words exactly takes a pass over the runs, so live readers get a running estimate instead
+ * merges take a single lock, which is cheap because tasks merge once per task rather than once per word
+ */
+public class SpillingWordCounts implements WordCounts {
+    // number of partitions, a spill writes out one of them
+    private static final int PARTITIONS = 16;
+
+    // most distinct words a task collects before merging, so task tables stay small next to the budget
+    private static final int LOCAL_WORDS = 64 * 1024;
+
+    // words merged between checks of the budget, so a single large merge cannot overshoot it by much
+    private static final int BUDGET_CHECK = 4096;
+
+    // most runs a partition keeps, one more and its smallest runs are merged into one
+    static final int MAX_RUNS = 16;
+
+    // most bytes the partition tables may hold together
+    private final long budgetBytes;
+
+    // directory the run directory is created in, null for the system temporary directory
+    private final File parent;
+
+    // directory holding the runs, created by the first spill
+    private File directory;
+
+    // in-memory counts and spilled runs of each partition
+    private final WordTable[] tables = new WordTable[PARTITIONS];
+    private final List<List<File>> runs = new ArrayList<>(PARTITIONS);
+
+    // number of runs written so far
+    private int spills;
+
+    // number of runs written by listings by count so far
+    private int countRuns;
+
+    // words merged since the budget was last checked
+    private int sinceCheck;
+
+    // number of merges so far, and the merge count at which the distinct words were last counted
+    private long merges;
+    private long countedAt = -1;
+    private int countedSize;
+
+    // estimate of the distinct words merged so far, for live readers once spilling has started
+    private final DistinctWordEstimate estimate = new DistinctWordEstimate();
+
+    // walks and lookups reading runs right now, and runs merged away meanwhile, deleted once none are reading
+    private int readers;
+    private final List<File> retired = new ArrayList<>();
+
+    // set once the store is closed and its runs deleted
+    private boolean closed;
+
+    /**
+     * constructor for an empty store
+     * @param budgetBytes most bytes the in-memory tables may hold before a partition is spilled
+     * @param parent directory to keep the runs in, null for the system temporary directory
+     */
+    public SpillingWordCounts(long budgetBytes, File parent) {
+        this.budgetBytes = budgetBytes;
+        this.parent = parent;
+        for (int i = 0; i < PARTITIONS; i++) {
+            tables[i] = new WordTable();
+            runs.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * merges a task's table into the partitions, spilling whenever they outgrow the budget
+     * @throws UncheckedIOException if a run cannot be written
+     */
+    @Override
+    public synchronized void merge(WordTable words) {
+        words.forEach((bytes, offset, length, count) -> {
+            tables[partition(bytes, offset, length)].add(bytes, offset, length, count);
+            estimate.add(bytes, offset, length);
+            if (++sinceCheck == BUDGET_CHECK) {
+                keepWithinBudget();
+            }
+        });
+        keepWithinBudget();
+        merges++;
+    }
+
+    @Override
+    public long get(String word) {
+        byte[] target = word.getBytes(StandardCharsets.UTF_8);
+        long[] total = new long[1];
+        List<File> partitionRuns;
+        synchronized (this) {
+            int partition = partition(target, 0, target.length);
+            tables[partition].forEach((bytes, offset, length, count) -> {
+                if (Arrays.equals(bytes, offset, offset + length, target, 0, target.length)) {
+                    total[0] += count;
+                }
+            });
+            partitionRuns = new ArrayList<>(runs.get(partition));
+            readers++;
+        }
+        try {
+            for (File run : partitionRuns) {
+                try (SnapshotReader reader = new SnapshotReader(run)) {
+                    while (reader.next()) {
+                        int order = Arrays.compareUnsigned(reader.word(), 0, reader.wordLength(),
+                            target, 0, target.length);
+                        if (order >= 0) {
+                            if (order == 0) {
+                                total[0] += reader.count();
+                            }
+                            break;
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        } finally {
+            endRead();
+        }
+        return total[0];
+    }
+
+    /**
+     * counts the distinct words by merging the runs once spilling has started, reusing the count until the next merge
+     * meant for the output once a run is over, live readers should call sizeEstimate instead
+     */
+    @Override
+    public int size() {
+        long version;
+        synchronized (this) {
+            if (spills == 0) {
+                int size = 0;
+                for (WordTable table : tables) {
+                    size += table.size();
+                }
+                return size;
+            }
+            if (countedAt == merges) {
+                return countedSize;
+            }
+            version = merges;
+        }
+        int[] size = new int[1];
+        walk((bytes, offset, length, count) -> size[0]++);
+        synchronized (this) {
+            countedAt = version;
+            countedSize = size[0];
+        }
+        return size[0];
+    }
+
+    /**
+     * counts the distinct words exactly until spilling starts, then estimates them unless an exact count taken
+     * since the last merge can be reused
+     */
+    @Override
+    public synchronized int sizeEstimate() {
+        if (spills == 0) {
+            int size = 0;
+            for (WordTable table : tables) {
+                size += table.size();
+            }
+            return size;
+        }
+        return countedAt == merges ? countedSize : (int) Math.min(Integer.MAX_VALUE, estimate.estimate());
+    }
+
+    /**
+     * passes every word and its count, partition by partition and sorted by their bytes within a partition
+     * @throws UncheckedIOException if a run cannot be read
+     */
+    @Override
+    public void forEach(ObjLongConsumer<String> consumer) {
+        walk((bytes, offset, length, count) ->
+            consumer.accept(new String(bytes, offset, length, StandardCharsets.UTF_8), count));
+    }
+
+    /**
+     * passes every word's bytes and count in the order of forEach, without decoding the words
+     * @param consumer receives each word, its bytes only valid during the call
+     * @throws UncheckedIOException if a run cannot be read
+     */
+    public void forEachEntry(WordTable.EntryConsumer consumer) {
+        walk(consumer);
+    }
+
+    /**
+     * passes every word's bytes and count in ascending order of their bytes across all partitions,
+     * merging the runs and sorted copies of the tables of every partition at once, so a snapshot can be written
+     * straight from the store without holding the vocabulary in memory
+     * @param consumer receives each word, its bytes only valid during the call
+     * @throws UncheckedIOException if a run cannot be read
+     */
+    public void forEachSorted(WordTable.EntryConsumer consumer) {
+        List<SortedWords> sources = new ArrayList<>();
+        List<File> allRuns = new ArrayList<>();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            for (int partition = 0; partition < PARTITIONS; partition++) {
+                sources.add(new SortedTable(tables[partition]));
+                allRuns.addAll(runs.get(partition));
+            }
+            readers++;
+        }
+        try {
+            mergeRuns(sources, allRuns, consumer);
+        } catch (IOException e) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+            }
+            throw new UncheckedIOException(e);
+        } finally {
+            endRead();
+        }
+    }
+
+    /**
+     * passes every word's bytes and count, highest count first and in ascending order of their bytes among equal
+     * counts, taking the words a budget's worth at a time from a walk, sorting each batch by count into a run
+     * of its own and merging the runs, so the whole vocabulary is never held in memory
+     * the batch being sorted takes up to the budget on top of the tables, so a listing needs about twice the budget
+     * @param consumer receives each word, its bytes only valid during the call
+     * @throws UncheckedIOException if a run cannot be read or written
+     */
+    public void forEachByCount(WordTable.EntryConsumer consumer) {
+        List<File> sorted = new ArrayList<>();
+        WordTable[] batch = {new WordTable()};
+        try {
+            walk((bytes, offset, length, count) -> {
+                batch[0].add(bytes, offset, length, count);
+                if (batch[0].memoryBytes() >= budgetBytes) {
+                    try {
+                        sorted.add(writeCountRun(batch[0]));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    batch[0] = new WordTable();
+                }
+            });
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+            }
+            if (sorted.isEmpty()) {
+                batch[0].forEachByCount(consumer);
+                return;
+            }
+            sorted.add(writeCountRun(batch[0]));
+            batch[0] = null;
+            mergeCountRuns(sorted, consumer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            for (File run : sorted) {
+                run.delete();
+            }
+        }
+    }
+
+    @Override
+    public int maxLocalWords() {
+        return LOCAL_WORDS;
+    }
+
+    /**
+     * deletes the runs and drops the tables
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (int i = 0; i < PARTITIONS; i++) {
+            tables[i] = new WordTable();
+            for (File run : runs.get(i)) {
+                run.delete();
+            }
+            runs.get(i).clear();
+        }
+        for (File run : retired) {
+            run.delete();
+        }
+        retired.clear();
+        if (directory != null) {
+            directory.delete();
+        }
+    }
+
+    /**
+     * @return number of runs written so far
+     */
+    public synchronized int spills() {
+        return spills;
+    }
+
+    /**
+     * @return number of runs listings by count have sorted their words into so far, none for a listing whose words
+     * fitted in one batch
+     */
+    public synchronized int countRuns() {
+        return countRuns;
+    }
+
+    /**
+     * merges each partition's runs with its table and passes every word to the consumer
+     * only a sorted copy of one partition's entries is taken under the lock, so merges can carry on meanwhile
+     */
+    private void walk(WordTable.EntryConsumer consumer) {
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            SortedTable table;
+            List<File> partitionRuns;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                table = new SortedTable(tables[partition]);
+                partitionRuns = new ArrayList<>(runs.get(partition));
+                readers++;
+            }
+            try {
+                mergeRuns(List.of(table), partitionRuns, consumer);
+            } catch (IOException e) {
+                synchronized (this) {
+                    if (closed) {
+                        return;
+                    }
+                }
+                throw new UncheckedIOException(e);
+            } finally {
+                endRead();
+            }
+        }
+    }
+
+    /**
+     * k-way merges sorted tables and runs, adding up the counts of each word before passing it on
+     */
+    private static void mergeRuns(List<? extends SortedWords> tables, List<File> partitionRuns,
+            WordTable.EntryConsumer consumer) throws IOException {
+        List<SortedWords> sources = new ArrayList<>(tables.size() + partitionRuns.size());
+        try {
+            sources.addAll(tables);
+            for (File run : partitionRuns) {
+                sources.add(new RunWords(new SnapshotReader(run)));
+            }
+            PriorityQueue<SortedWords> heads = new PriorityQueue<>(sources.size(),
+                (a, b) -> Arrays.compareUnsigned(a.word(), a.offset(), a.offset() + a.wordLength(),
+                    b.word(), b.offset(), b.offset() + b.wordLength()));
+            for (SortedWords source : sources) {
+                if (source.next()) {
+                    heads.add(source);
+                }
+            }
+
+            byte[] word = new byte[64];
+            while (!heads.isEmpty()) {
+                SortedWords first = heads.poll();
+                int length = first.wordLength();
+                if (word.length < length) {
+                    word = new byte[Math.max(length, word.length * 2)];
+                }
+                System.arraycopy(first.word(), first.offset(), word, 0, length);
+                long count = first.count();
+                advance(first, heads);
+
+                while (!heads.isEmpty() && Arrays.equals(heads.peek().word(), heads.peek().offset(),
+                        heads.peek().offset() + heads.peek().wordLength(), word, 0, length)) {
+                    SortedWords same = heads.poll();
+                    count += same.count();
+                    advance(same, heads);
+                }
+                consumer.accept(word, 0, length, count);
+            }
+        } finally {
+            for (SortedWords source : sources) {
+                source.close();
+            }
+        }
+    }
+
+    /**
+     * moves a source to its next word and puts it back in the queue unless it is finished
+     */
+    private static void advance(SortedWords source, PriorityQueue<SortedWords> heads) throws IOException {
+        if (source.next()) {
+            heads.add(source);
+        }
+    }
+
+    /**
+     * spills the largest partitions until the tables fit the budget again
+     */
+    private void keepWithinBudget() {
+        sinceCheck = 0;
+        while (true) {
+            long used = 0;
+            int largest = 0;
+            for (int i = 0; i < PARTITIONS; i++) {
+                used += tables[i].memoryBytes();
+                if (tables[i].memoryBytes() > tables[largest].memoryBytes()) {
+                    largest = i;
+                }
+            }
+            if (used <= budgetBytes || tables[largest].size() == 0) {
+                return;
+            }
+            try {
+                spill(largest);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not spill word counts", e);
+            }
+        }
+    }
+
+    /**
+     * writes a partition's table out as a sorted run and replaces it with an empty table, freeing its memory
+     */
+    private void spill(int partition) throws IOException {
+        File run = newRun("run-" + spills);
+        SortedTable table = new SortedTable(tables[partition]);
+        byte[] word = new byte[64];
+        try (SnapshotWriter writer = new SnapshotWriter(run, 0, 0, 0)) {
+            while (table.next()) {
+                int length = table.wordLength();
+                if (word.length < length) {
+                    word = new byte[Math.max(length, word.length * 2)];
+                }
+                System.arraycopy(table.word(), table.offset(), word, 0, length);
+                writer.write(word, length, table.count());
+            }
+        }
+        runs.get(partition).add(run);
+        tables[partition] = new WordTable();
+        spills++;
+        if (runs.get(partition).size() > MAX_RUNS) {
+            compact(partition);
+        }
+    }
+
+    /**
+     * merges the smallest runs of a partition into one, leaving the largest, so runs of about the same size are
+     * merged with each other and a word is only rewritten a few times however many runs the partition goes through
+     */
+    private void compact(int partition) throws IOException {
+        List<File> partitionRuns = runs.get(partition);
+        List<File> smallest = new ArrayList<>(partitionRuns);
+        smallest.sort(Comparator.comparingLong(File::length));
+        smallest = new ArrayList<>(smallest.subList(0, MAX_RUNS));
+
+        File run = newRun("run-" + spills + "-merged");
+        try (SnapshotWriter writer = new SnapshotWriter(run, 0, 0, 0)) {
+            mergeRuns(List.of(), smallest, (bytes, offset, length, count) -> {
+                try {
+                    writer.write(bytes, offset, length, count);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            run.delete();
+            throw e.getCause();
+        }
+        partitionRuns.removeAll(smallest);
+        partitionRuns.add(run);
+        if (readers == 0) {
+            for (File merged : smallest) {
+                merged.delete();
+            }
+        } else {
+            retired.addAll(smallest);
+        }
+    }
+
+    /**
+     * writes a batch of words sorted by count to a run of its own, each word as its count, length and bytes
+     */
+    private File writeCountRun(WordTable table) throws IOException {
+        File run;
+        synchronized (this) {
+            run = newRun("by-count-" + countRuns++);
+        }
+        try (DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), 1 << 16))) {
+            out.writeInt(table.size());
+            table.forEachByCount((bytes, offset, length, count) -> {
+                try {
+                    out.writeLong(count);
+                    out.writeInt(length);
+                    out.write(bytes, offset, length);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            run.delete();
+            throw e.getCause();
+        }
+        return run;
+    }
+
+    /**
+     * k-way merges runs sorted by count, a word is in only one of them so nothing needs adding up
+     */
+    private static void mergeCountRuns(List<File> sorted, WordTable.EntryConsumer consumer) throws IOException {
+        PriorityQueue<CountRun> heads = new PriorityQueue<>(sorted.size(), (a, b) -> {
+            int byCount = Long.compare(b.count, a.count);
+            return byCount != 0 ? byCount : Arrays.compareUnsigned(a.word, 0, a.length, b.word, 0, b.length);
+        });
+        List<CountRun> open = new ArrayList<>(sorted.size());
+        try {
+            for (File run : sorted) {
+                CountRun source = new CountRun(run);
+                open.add(source);
+                if (source.next()) {
+                    heads.add(source);
+                }
+            }
+            while (!heads.isEmpty()) {
+                CountRun first = heads.poll();
+                consumer.accept(first.word, 0, first.length, first.count);
+                if (first.next()) {
+                    heads.add(first);
+                }
+            }
+        } finally {
+            for (CountRun source : open) {
+                source.in.close();
+            }
+        }
+    }
+
+    /**
+     * @return a new run file in the run directory, which is created by the first run
+     */
+    private File newRun(String name) throws IOException {
+        if (directory == null) {
+            directory = parent == null
+                ? Files.createTempDirectory("word-counts").toFile()
+                : Files.createTempDirectory(parent.toPath(), "word-counts").toFile();
+            directory.deleteOnExit();
+        }
+        File run = new File(directory, name + ".snapshot");
+        // registered after the directory, so it is deleted first if the store is never closed
+        run.deleteOnExit();
+        return run;
+    }
+
+    /**
+     * ends a walk or lookup, deleting the runs merged away while it was reading once no other one is
+     */
+    private synchronized void endRead() {
+        if (--readers == 0) {
+            for (File run : retired) {
+                run.delete();
+            }
+            retired.clear();
+        }
+    }
+
+    /**
+     * @return the partition of a word, taken from the top bits of its hash so the tables' slots stay spread out
+     */
+    private static int partition(byte[] bytes, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        return (hash * 0x9E3779B9) >>> (Integer.SIZE - Integer.numberOfTrailingZeros(PARTITIONS));
+    }
+
+    /**
+     * a source of words in ascending byte order
+     */
+    private interface SortedWords {
+        boolean next() throws IOException;
+
+        byte[] word();
+
+        int offset();
+
+        int wordLength();
+
+        long count();
+
+        default void close() throws IOException {}
+    }
+
+    /**
+     * the words of a spilled run
+     */
+    private static class RunWords implements SortedWords {
+        private final SnapshotReader reader;
+
+        RunWords(SnapshotReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            return reader.next();
+        }
+
+        @Override
+        public byte[] word() {
+            return reader.word();
+        }
+
+        @Override
+        public int offset() {
+            return 0;
+        }
+
+        @Override
+        public int wordLength() {
+            return reader.wordLength();
+        }
+
+        @Override
+        public long count() {
+            return reader.count();
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /**
+     * the words of a run sorted by count
+     */
+    private static class CountRun {
+        private final DataInputStream in;
+        private int remaining;
+        private byte[] word = new byte[64];
+        private int length;
+        private long count;
+
+        CountRun(File run) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(run), 1 << 16));
+            remaining = in.readInt();
+        }
+
+        boolean next() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            count = in.readLong();
+            length = in.readInt();
+            if (word.length < length) {
+                word = new byte[Math.max(length, word.length * 2)];
+            }
+            in.readFully(word, 0, length);
+            return true;
+        }
+    }
+
+    /**
+     * the words of a table in ascending byte order
+     * keeps the table's byte array rather than copying it, existing words are never moved or overwritten,
+     * so the copy stays valid while the table goes on counting
+     */
+    private static class SortedTable implements SortedWords {
+        private byte[] arena;
+        private final int[] offsets;
+        private final int[] lengths;
+        private final long[] counts;
+        private final int[] order;
+        private int position = -1;
+
+        SortedTable(WordTable table) {
+            int size = table.size();
+            offsets = new int[size];
+            lengths = new int[size];
+            counts = new long[size];
+            int[] entry = new int[1];
+            table.forEach((bytes, offset, length, count) -> {
+                arena = bytes;
+                offsets[entry[0]] = offset;
+                lengths[entry[0]] = length;
+                counts[entry[0]] = count;
+                entry[0]++;
+            });
+            order = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            WordTable.sortByBytes(order, arena, offsets, lengths);
+        }
+
+        @Override
+        public boolean next() {
+            return ++position < order.length;
+        }
+
+        @Override
+        public byte[] word() {
+            return arena;
+        }
+
+        @Override
+        public int offset() {
+            return offsets[order[position]];
+        }
+
+        @Override
+        public int wordLength() {
+            return lengths[order[position]];
+        }
+
+        @Override
+        public long count() {
+            return counts[order[position]];
+        }
+    }
+}
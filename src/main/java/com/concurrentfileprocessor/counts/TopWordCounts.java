@@ -0,0 +1,191 @@
+package com.concurrentfileprocessor.counts;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ObjLongConsumer;
+
+import com.concurrentfileprocessor.processor.WordTable;
+
+/**
+ * approximate counts for the most frequent words using the Space-Saving algorithm, in memory fixed by the capacity
+ * keeps a counter for at most capacity words, a new word takes over the counter with the lowest count
+ * and starts from that count, so counts can only be too high and never by more than the lowest count,
+ * which is at most the total number of words divided by the capacity
+ * any word counted more often than the lowest count is guaranteed to be kept
+ * merges take a single lock, which is cheap because tasks merge once per task rather than once per word
+ */
+public class TopWordCounts implements WordCounts {
+    // most words counted at once
+    private final int capacity;
+
+    // counter of each word being counted
+    private final Map<String, Integer> counters;
+
+    // word, estimated count and most the estimate can be too high, for each counter
+    private final String[] words;
+    private final long[] counts;
+    private final long[] errors;
+
+    // counters as a min heap on their count, and the heap position of each counter
+    private final int[] heap;
+    private final int[] positions;
+
+    // counters in use
+    private int size;
+
+    // number of words merged so far, including the ones no longer counted
+    private long total;
+
+    /**
+     * constructor for an empty store
+     * @param capacity most words to keep counts for
+     */
+    public TopWordCounts(int capacity) {
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+        this.words = new String[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.heap = new int[capacity];
+        this.positions = new int[capacity];
+    }
+
+    @Override
+    public synchronized void merge(WordTable table) {
+        table.forEach((bytes, offset, length, count) -> add(new String(bytes, offset, length, StandardCharsets.UTF_8), count));
+    }
+
+    @Override
+    public synchronized long get(String word) {
+        Integer counter = counters.get(word);
+        return counter == null ? 0 : counts[counter];
+    }
+
+    /**
+     * @param word the word to look up
+     * @return most the word's count can be above its true count, or 0 if it is not counted
+     */
+    public synchronized long error(String word) {
+        Integer counter = counters.get(word);
+        return counter == null ? 0 : errors[counter];
+    }
+
+    /**
+     * @return number of words merged so far, including the ones no longer counted
+     */
+    public synchronized long total() {
+        return total;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void forEach(ObjLongConsumer<String> consumer) {
+        for (int counter = 0; counter < size; counter++) {
+            consumer.accept(words[counter], counts[counter]);
+        }
+    }
+
+    @Override
+    public boolean isExact() {
+        return false;
+    }
+
+    /**
+     * the lowest count once every counter is in use, since a replaced word starts from it
+     */
+    @Override
+    public synchronized long maxError() {
+        return size < capacity ? 0 : counts[heap[0]];
+    }
+
+    /**
+     * tasks merge whenever their table holds as many words as this store does
+     */
+    @Override
+    public int maxLocalWords() {
+        return capacity;
+    }
+
+    /**
+     * adds a count to a word, taking over the lowest counter if the word is not counted and none are free
+     */
+    private void add(String word, long count) {
+        total += count;
+        Integer existing = counters.get(word);
+        int counter;
+        if (existing != null) {
+            counter = existing;
+            counts[counter] += count;
+        } else if (size < capacity) {
+            counter = size;
+            heap[size] = counter;
+            positions[counter] = size;
+            size++;
+            words[counter] = word;
+            counts[counter] = count;
+            errors[counter] = 0;
+            counters.put(word, counter);
+            siftUp(positions[counter]);
+            return;
+        } else {
+            counter = heap[0];
+            counters.remove(words[counter]);
+            words[counter] = word;
+            errors[counter] = counts[counter];
+            counts[counter] += count;
+            counters.put(word, counter);
+        }
+        siftDown(positions[counter]);
+    }
+
+    /**
+     * moves a counter towards the root while its count is lower than its parent's
+     */
+    private void siftUp(int position) {
+        int counter = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (counts[heap[parent]] <= counts[counter]) {
+                break;
+            }
+            place(heap[parent], position);
+            position = parent;
+        }
+        place(counter, position);
+    }
+
+    /**
+     * moves a counter away from the root while its count is higher than a child's
+     */
+    private void siftDown(int position) {
+        int counter = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) {
+                child++;
+            }
+            if (counts[counter] <= counts[heap[child]]) {
+                break;
+            }
+            place(heap[child], position);
+            position = child;
+        }
+        place(counter, position);
+    }
+
+    /**
+     * puts a counter at a heap position
+     */
+    private void place(int counter, int position) {
+        heap[position] = counter;
+        positions[counter] = position;
+    }
+}
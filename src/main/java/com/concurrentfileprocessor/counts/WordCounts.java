@@ -0,0 +1,103 @@
+package com.concurrentfileprocessor.counts;
+
+import java.io.File;
+import java.util.function.ObjLongConsumer;
+
+import com.concurrentfileprocessor.ProcessorSettings;
+import com.concurrentfileprocessor.processor.WordTable;
+
+/**
+ * backing store for the word counts held by FileStats
+ * processing merges into it, and the output writer and GUI read from it, only through this interface
+ * implementations must allow several tasks to merge at the same time
+ */
+public interface WordCounts extends AutoCloseable {
+    /**
+     * adds every count in a finished task's table to the store
+     * @param words word counts collected by a single task
+     */
+    void merge(WordTable words);
+
+    /**
+     * @param word the word to look up
+     * @return number of times the word was counted, or 0 if it was never seen
+     */
+    long get(String word);
+
+    /**
+     * @return number of distinct words in the store
+     */
+    int size();
+
+    /**
+     * @return number of distinct words in the store, or an estimate of it where an exact count would need a pass
+     * over words kept on disk, cheap enough to call while a run goes on
+     */
+    default int sizeEstimate() {
+        return size();
+    }
+
+    /**
+     * passes every word and its count to the consumer, in no particular order
+     * @param consumer receives each word and its count
+     */
+    void forEach(ObjLongConsumer<String> consumer);
+
+    /**
+     * passes every word and its count to the consumer while tasks may still be merging, in no particular order
+     * unlike forEach, merges are not held up for the whole walk, so counts may be read at slightly different
+     * moments and words added during the walk may be missed, but no word is passed twice
+     * @param consumer receives each word and its count
+     */
+    default void forEachLive(ObjLongConsumer<String> consumer) {
+        forEach(consumer);
+    }
+
+    /**
+     * @return true if every count is exact, false if the store only keeps estimates for some words
+     */
+    default boolean isExact() {
+        return true;
+    }
+
+    /**
+     * @return most any count can be above the true count, 0 for exact stores
+     */
+    default long maxError() {
+        return 0;
+    }
+
+    /**
+     * @return most distinct words a task should collect before merging them, so a store with a fixed budget
+     * is not undone by the tables tasks count into
+     */
+    default int maxLocalWords() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * releases any memory held outside the heap, the store must not be used afterwards
+     */
+    @Override
+    default void close() {}
+
+    /**
+     * creates an empty store of the kind selected in the settings
+     * @param settings settings naming the store to use
+     * @return new empty store
+     */
+    static WordCounts create(ProcessorSettings settings) {
+        switch (settings.wordStore) {
+            case OFF_HEAP:
+                return new OffHeapWordCounts();
+            case TOP_WORDS:
+                return new TopWordCounts(settings.topWords);
+            case SPILL:
+                return new SpillingWordCounts(settings.spillBudgetMb * 1024L * 1024,
+                    settings.spillDirectory.isEmpty() ? null : new File(settings.spillDirectory));
+            case HEAP:
+            default:
+                return new HeapWordCounts();
+        }
+    }
+}
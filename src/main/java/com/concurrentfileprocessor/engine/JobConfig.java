@@ -0,0 +1,76 @@
+package com.concurrentfileprocessor.engine;
+
+import java.io.File;
+import java.util.List;
+
+import com.concurrentfileprocessor.ProcessorSettings;
+import com.concurrentfileprocessor.processor.FileDiscovery;
+
+/**
+ * what a job processes, where its output goes and the options it runs with
+ * fixed once created, the settings are copied so later changes to them do not reach a job already submitted
+ * a job reads either a list of files or the files a directory walk finds
+ */
+public final class JobConfig {
+    // files to process, or null when a directory walk finds them
+    public final List<File> files;
+
+    // directory walk that finds the files, or null when they are listed
+    public final FileDiscovery discovery;
+
+    // directory and name of the output file, both null to write no output file
+    public final String outputDirectory;
+    public final String outputFilename;
+
+    // options of the job, a copy no one outside the engine holds
+    final ProcessorSettings settings;
+
+    /**
+     * constructor
+     */
+    private JobConfig(List<File> files, FileDiscovery discovery, String outputDirectory, String outputFilename,
+            ProcessorSettings settings) {
+        this.files = files;
+        this.discovery = discovery;
+        this.outputDirectory = outputDirectory;
+        this.outputFilename = outputFilename;
+        this.settings = settings;
+    }
+
+    /**
+     * creates the configuration of a job that processes a list of files and writes no output file
+     * @param files files to process, copied
+     * @param settings options of the job, copied
+     * @return the configuration
+     */
+    public static JobConfig forFiles(List<File> files, ProcessorSettings settings) {
+        return new JobConfig(List.copyOf(files), null, null, null, settings.copy());
+    }
+
+    /**
+     * creates the configuration of a job that processes the files a directory walk finds, as it finds them,
+     * and writes no output file
+     * @param discovery the directory walk that finds the files
+     * @param settings options of the job, copied
+     * @return the configuration
+     */
+    public static JobConfig forDiscovery(FileDiscovery discovery, ProcessorSettings settings) {
+        return new JobConfig(null, discovery, null, null, settings.copy());
+    }
+
+    /**
+     * @param directory directory the output file is written to
+     * @param filename name of the output file
+     * @return the same configuration writing its output file there, in the output format of the settings
+     */
+    public JobConfig withOutput(String directory, String filename) {
+        return new JobConfig(files, discovery, directory, filename, settings);
+    }
+
+    /**
+     * @return a copy of the options the job runs with
+     */
+    public ProcessorSettings settings() {
+        return settings.copy();
+    }
+}
@@ -0,0 +1,72 @@
+package com.concurrentfileprocessor.engine;
+
+import java.util.concurrent.TimeUnit;
+
+import com.concurrentfileprocessor.FileStats;
+import com.concurrentfileprocessor.processor.LoadReport;
+import com.concurrentfileprocessor.processor.PipelineStats;
+import com.concurrentfileprocessor.processor.RunReport;
+
+/**
+ * results of a finished job, its statistics belong to the caller from now on
+ */
+public class JobResult {
+    // statistics of the job, close their word store once done with them
+    public final FileStats stats;
+
+    // files the job found, including any a time limit left out of the statistics
+    public final int filesFound;
+
+    // time from the job starting to its statistics being complete, before the output file was written
+    public final long elapsedNanos;
+
+    // planned against actual load per worker, or null on virtual threads or in the pipeline
+    public final LoadReport loadReport;
+
+    // how the pipeline stages kept up with each other, or null when the pipeline was not used
+    public final PipelineStats pipelineStats;
+
+    // outcome of each file, or null when no time limit was set
+    public final RunReport report;
+
+    // hit rate of the result cache, or null when no cache was used
+    public final String cacheReport;
+
+    /**
+     * constructor
+     * @param stats statistics of the job
+     * @param filesFound files the job found
+     * @param elapsedNanos time the processing took
+     * @param loadReport load per worker, or null
+     * @param pipelineStats pipeline counters, or null
+     * @param report outcome of each file, or null
+     * @param cacheReport hit rate of the result cache, or null
+     */
+    public JobResult(FileStats stats, int filesFound, long elapsedNanos, LoadReport loadReport,
+            PipelineStats pipelineStats, RunReport report, String cacheReport) {
+        this.stats = stats;
+        this.filesFound = filesFound;
+        this.elapsedNanos = elapsedNanos;
+        this.loadReport = loadReport;
+        this.pipelineStats = pipelineStats;
+        this.report = report;
+        this.cacheReport = cacheReport;
+    }
+
+    /**
+     * @return the reports the job produced, each on its own lines, then the file throughput
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (Object part : new Object[] {pipelineStats, cacheReport, loadReport, report}) {
+            if (part != null) {
+                text.append(part).append(System.lineSeparator());
+            }
+        }
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        text.append(String.format("Processed %d files in %d ms (%.0f files/s)", stats.numberOfFiles, elapsedMillis,
+            stats.numberOfFiles * 1000.0 / elapsedMillis));
+        return text.toString();
+    }
+}
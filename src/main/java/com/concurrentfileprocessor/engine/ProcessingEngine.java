@@ -0,0 +1,307 @@
+package com.concurrentfileprocessor.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.metrics;
+import com.concurrentfileprocessor.FileStats;
+import com.concurrentfileprocessor.ProcessorSettings;
+import com.concurrentfileprocessor.ProcessorSettings.ExecutorStrategy;
+import com.concurrentfileprocessor.cache.FileResultCache;
+import com.concurrentfileprocessor.metrics.PhaseEvent;
+import com.concurrentfileprocessor.processor.LoadReport;
+import com.concurrentfileprocessor.processor.OutputWriter;
+import com.concurrentfileprocessor.processor.PipelineStats;
+import com.concurrentfileprocessor.processor.PipelinedDelegator;
+import com.concurrentfileprocessor.processor.RunReport;
+import com.concurrentfileprocessor.processor.ThreadDelegator;
+import com.concurrentfileprocessor.processor.VirtualThreads;
+import com.concurrentfileprocessor.snapshot.Snapshots;
+
+/**
+ * runs processing jobs on one long-lived work-stealing pool, so several jobs can run at once in one JVM
+ * and each job starts on threads and compiled code already warmed up by the ones before it
+ * every job counts into statistics and live metrics of its own with options of its own and touches no global state,
+ * except the process-wide live metrics, which cover every job in progress
+ * the pool is sized when the engine is created, so the threads option of a job is not used,
+ * jobs set to virtual threads share one virtual thread executor instead,
+ * and jobs using the pipeline start reader and tokenizer threads of their own
+ */
+public class ProcessingEngine implements AutoCloseable {
+    // pool every job's file tasks run on
+    private final ForkJoinPool pool;
+
+    // threads each running one job from start to finish, waiting for its tasks without holding up a pool worker
+    private final ExecutorService jobs;
+
+    // executor for jobs set to virtual threads, created by the first one, guarded by this object
+    private ExecutorService virtualThreads;
+
+    // number of jobs in progress, guarded by this object
+    private int activeJobs;
+
+    /**
+     * constructor
+     * @param threads number of threads in the shared pool, 0 for one per core
+     */
+    public ProcessingEngine(int threads) {
+        pool = ThreadDelegator.createPool(threads);
+        jobs = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "processing-job");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * starts a job, it runs alongside any other jobs in progress
+     * @param config what the job processes and how
+     * @return the job, completing with its results or failing with whatever stopped it
+     * @throws RejectedExecutionException if the engine has been closed
+     */
+    public ProcessingJob submit(JobConfig config) {
+        ProcessingJob job = new ProcessingJob(config);
+        jobs.execute(() -> run(job));
+        return job;
+    }
+
+    /**
+     * @return number of threads in the shared pool
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * waits for the jobs in progress to finish, then stops the shared threads
+     * jobs cannot be submitted once the engine is closing
+     */
+    @Override
+    public void close() {
+        jobs.shutdown();
+        try {
+            jobs.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pool.shutdown();
+        synchronized (this) {
+            if (virtualThreads != null) {
+                virtualThreads.shutdown();
+            }
+        }
+    }
+
+    /**
+     * runs a job on the calling thread and completes it
+     * @param job the job
+     */
+    private void run(ProcessingJob job) {
+        jobStarted(job);
+        try {
+            if (!job.isCancelled()) {
+                process(job);
+            }
+            if (job.isCancelled()) {
+                job.discard();
+            }
+        } catch (RuntimeException | Error e) {
+            job.discard();
+            job.completeExceptionally(e);
+        } finally {
+            jobEnded(job);
+        }
+    }
+
+    /**
+     * processes the files of a job, writes its output file and completes it, unless it is cancelled on the way
+     * @param job the job
+     */
+    private void process(ProcessingJob job) {
+        long start = System.nanoTime();
+        JobConfig config = job.config;
+        ProcessorSettings settings = config.settings;
+        FileStats stats = job.stats;
+
+        int found;
+        LoadReport loadReport = null;
+        PipelineStats pipelineStats = null;
+        RunReport report = null;
+        String cacheReport = null;
+        if (settings.pipelineReaders > 0) {
+            // the pipeline reads from a fixed list, so a directory walk is finished before it starts
+            List<File> files = config.files != null ? config.files : listFiles(config);
+            found = files.size();
+            if (found > 0) {
+                if (settings.fileTimeoutSeconds > 0 || settings.runTimeoutSeconds > 0) {
+                    System.err.println("Time limits are not applied to the pipeline, it mixes files in its buffers");
+                }
+                stats.numberOfFiles = found;
+                PhaseEvent processing = PhaseEvent.start("processing");
+                pipelineStats = PipelinedDelegator.process(files, stats, settings);
+                processing.finish();
+            }
+        } else {
+            FileResultCache cache = openCache(settings);
+            report = RunReport.create(settings);
+            job.track(report);
+            ExecutorService executor = executor(settings);
+            PhaseEvent processing = PhaseEvent.start("processing");
+            if (config.files != null) {
+                found = config.files.size();
+                loadReport = ThreadDelegator.delegateTasks(config.files, stats, settings, executor, cache, report);
+            } else {
+                found = ThreadDelegator.delegateDiscoveredTasks(config.discovery, stats, settings, executor, cache,
+                    report);
+            }
+            processing.finish();
+            cacheReport = closeCache(cache, job.isCancelled());
+        }
+        if (job.isCancelled()) {
+            return;
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        if (found > 0) {
+            writeOutput(config, stats);
+        }
+        job.complete(new JobResult(stats, found, elapsedNanos, loadReport, pipelineStats, report, cacheReport));
+    }
+
+    /**
+     * @return executor the file tasks of a job with these settings run on
+     */
+    private synchronized ExecutorService executor(ProcessorSettings settings) {
+        if (settings.executor != ExecutorStrategy.VIRTUAL) {
+            return pool;
+        }
+        if (virtualThreads == null) {
+            virtualThreads = VirtualThreads.newExecutor();
+            if (virtualThreads == null) {
+                System.err.println("Virtual threads need Java 21 or newer, using the work-stealing pool");
+                return pool;
+            }
+        }
+        return virtualThreads;
+    }
+
+    /**
+     * starts the live metrics of a job, the first of a set of overlapping jobs starts the process-wide ones
+     * @param job the job
+     */
+    private synchronized void jobStarted(ProcessingJob job) {
+        if (activeJobs++ == 0) {
+            metrics.startRun(0);
+        }
+        job.metrics().startRun(0);
+        metrics.addJob(job.metrics());
+    }
+
+    /**
+     * ends the live metrics of a job, the last of a set of overlapping jobs ends the process-wide ones
+     * @param job the job
+     */
+    private synchronized void jobEnded(ProcessingJob job) {
+        job.metrics().endRun();
+        metrics.removeJob(job.metrics());
+        if (--activeJobs == 0) {
+            metrics.endRun();
+        }
+    }
+
+    /**
+     * lists every file the directory walk of a job finds
+     * @param config the job's configuration
+     * @return the files, empty if the directory cannot be read
+     */
+    private static List<File> listFiles(JobConfig config) {
+        PhaseEvent phase = PhaseEvent.start("discovery");
+        try {
+            return config.discovery.list();
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            return new ArrayList<>();
+        } finally {
+            phase.finish();
+        }
+    }
+
+    /**
+     * opens the result cache named in a job's settings
+     * @param settings options of the job
+     * @return the cache, or null when it is disabled or cannot be opened
+     */
+    private static FileResultCache openCache(ProcessorSettings settings) {
+        if (settings.cacheFile.isEmpty()) {
+            return null;
+        }
+        PhaseEvent phase = PhaseEvent.start("cache");
+        try {
+            return new FileResultCache(new File(settings.cacheFile), settings.cacheHash, settings.charset);
+        } catch (IOException e) {
+            System.err.println("Processing without cache: " + e.getMessage());
+            return null;
+        } finally {
+            phase.finish();
+        }
+    }
+
+    /**
+     * saves the result cache, or drops what a cancelled job added to it
+     * @param cache the cache, or null when it is disabled
+     * @param cancelled true if the job was cancelled
+     * @return hit rate of the cache, or null when it is disabled or the job was cancelled
+     */
+    private static String closeCache(FileResultCache cache, boolean cancelled) {
+        if (cache == null) {
+            return null;
+        }
+        if (cancelled) {
+            try {
+                cache.discard();
+            } catch (IOException e) {
+                System.err.println("Could not discard cache: " + e.getMessage());
+            }
+            return null;
+        }
+        PhaseEvent phase = PhaseEvent.start("cache");
+        try {
+            cache.close();
+        } catch (IOException e) {
+            System.err.println("Could not save cache: " + e.getMessage());
+        }
+        phase.finish();
+        return cache.report();
+    }
+
+    /**
+     * writes the output file of a job and saves a snapshot if one is configured
+     * @param config the job's configuration
+     * @param stats statistics of the job
+     */
+    private static void writeOutput(JobConfig config, FileStats stats) {
+        ProcessorSettings settings = config.settings;
+        if (config.outputFilename != null) {
+            PhaseEvent output = PhaseEvent.start("output");
+            OutputWriter.outputStatsToFile(config.outputDirectory, config.outputFilename, stats,
+                settings.outputFormat, settings.outputOrder, settings.outputTop);
+            output.finish();
+        }
+        if (!settings.snapshotFile.isEmpty()) {
+            PhaseEvent snapshot = PhaseEvent.start("snapshot");
+            try {
+                Snapshots.save(stats, new File(settings.snapshotFile));
+            } catch (IOException e) {
+                System.err.println("Could not save snapshot: " + e.getMessage());
+            }
+            snapshot.finish();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.concurrentfileprocessor.engine;
+
+import java.util.concurrent.CompletableFuture;
+
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.metrics;
+import com.concurrentfileprocessor.FileStats;
+import com.concurrentfileprocessor.metrics.ProcessingMetrics;
+import com.concurrentfileprocessor.processor.OutputWriter.WordEntry;
+import com.concurrentfileprocessor.processor.PartialResults;
+import com.concurrentfileprocessor.processor.RunReport;
+
+/**
+ * a job submitted to the engine, completing with its results once its statistics are complete and its output
+ * file has been written
+ * cancelling the job completes it straight away, files not started yet are skipped and files being read stop
+ * at their next read, its statistics are then thrown away and no output file is written
+ */
+public class ProcessingJob extends CompletableFuture<JobResult> {
+    // what the job processes and how
+    public final JobConfig config;
+
+    // statistics the job counts into
+    final FileStats stats;
+
+    // report of the job's time limits while it runs, or null
+    private volatile RunReport report;
+
+    // set once the statistics have been thrown away, guarded by this object
+    private boolean discarded;
+
+    /**
+     * constructor
+     * @param config what the job processes and how
+     */
+    ProcessingJob(JobConfig config) {
+        this.config = config;
+        this.stats = FileStats.create(config.settings);
+        this.stats.cancelled = this::isCancelled;
+        this.stats.metrics = metrics.forJob(stats);
+    }
+
+    /**
+     * @return live metrics of the job alone, their updates are added to the process-wide metrics as well
+     */
+    public ProcessingMetrics metrics() {
+        return stats.metrics;
+    }
+
+    /**
+     * takes the totals and most frequent words the job has counted so far
+     * @param top number of most frequent words to include
+     * @return the partial results, empty once the statistics of a cancelled job have been thrown away
+     */
+    public synchronized PartialResults snapshot(int top) {
+        if (discarded) {
+            return new PartialResults(stats.metrics.getElapsedSeconds(), 0, 0, 0, 0, 0, 0, new WordEntry[0]);
+        }
+        return stats.snapshot(top);
+    }
+
+    /**
+     * cancels the job, the job's threads stop in the background
+     * @param mayInterruptIfRunning ignored, tasks are stopped between reads rather than interrupted
+     * @return true if the job was cancelled, false if it had already finished
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        RunReport running = report;
+        if (cancelled && running != null) {
+            running.stopAll();
+        }
+        return cancelled;
+    }
+
+    /**
+     * makes a report the one cancel stops, stopping it straight away if the job was cancelled before it started
+     * @param report report of the job's time limits, or null
+     */
+    void track(RunReport report) {
+        this.report = report;
+        if (report != null && isCancelled()) {
+            report.stopAll();
+        }
+    }
+
+    /**
+     * throws away the statistics of a job that was cancelled or failed, releasing its word store
+     */
+    synchronized void discard() {
+        if (!discarded) {
+            discarded = true;
+            stats.wordCount.close();
+        }
+    }
+}
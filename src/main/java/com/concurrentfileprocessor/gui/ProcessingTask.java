@@ -0,0 +1,167 @@
+package com.concurrentfileprocessor.gui;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.fileStats;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.inputFiles;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.outputFilePath;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.outputFilename;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.settings;
+import com.concurrentfileprocessor.engine.JobConfig;
+import com.concurrentfileprocessor.engine.JobResult;
+import com.concurrentfileprocessor.engine.ProcessingEngine;
+import com.concurrentfileprocessor.engine.ProcessingJob;
+import com.concurrentfileprocessor.metrics.ProcessingMetrics;
+import com.concurrentfileprocessor.processor.LiveResults;
+import com.concurrentfileprocessor.processor.PartialResults;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.concurrent.Task;
+
+/**
+ * runs the selected files as a job on the processing engine and follows it off the JavaFX application thread,
+ * so the window stays responsive
+ * progress is read from the job's live metrics a few times a second rather than pushed once per file,
+ * and the task only keeps the latest progress until the application thread shows it
+ * the totals and most frequent words so far are published about once a second in the same way
+ * succeeds with true when the run finished, or false when it was cancelled
+ */
+public class ProcessingTask extends Task<Boolean> {
+    // time between progress updates
+    private static final long UPDATE_MILLIS = 250;
+
+    // bytes in a megabyte, as in every other size option
+    private static final double MEGABYTE = 1024.0 * 1024;
+
+    // number of most frequent words shown while the run is in progress
+    private static final int LIVE_TOP = 100;
+
+    // engine the run is submitted to
+    private final ProcessingEngine engine;
+
+    // set once the user asked to stop the run
+    private volatile boolean stopRequested;
+
+    // latest partial results, set on the application thread
+    private final ReadOnlyObjectWrapper<PartialResults> partialResults = new ReadOnlyObjectWrapper<>(this,
+        "partialResults");
+
+    // partial results waiting for the application thread, null once it has taken them
+    private final AtomicReference<PartialResults> pendingResults = new AtomicReference<>();
+
+    /**
+     * constructor
+     * @param engine engine the run is submitted to
+     */
+    public ProcessingTask(ProcessingEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * submits the input files with the current settings and reports the job's progress until it ends
+     * the job's statistics replace the global ones the output window shows once it has finished
+     * @return true if the run finished, false if it was cancelled
+     * @throws Exception whatever the processing threw
+     */
+    @Override
+    protected Boolean call() throws Exception {
+        ProcessingJob job = engine.submit(JobConfig.forFiles(inputFiles, settings)
+            .withOutput(outputFilePath, outputFilename));
+        updateMessage("Starting...");
+        LiveResults live = LiveResults.start(LiveResults.INTERVAL_MILLIS, job::snapshot, LIVE_TOP,
+            this::showPartialResults);
+        try {
+            while (true) {
+                if (stopRequested) {
+                    job.cancel(false);
+                }
+                try {
+                    JobResult result = job.get(UPDATE_MILLIS, TimeUnit.MILLISECONDS);
+                    System.out.println(result);
+                    if (fileStats != null) {
+                        fileStats.wordCount.close();
+                    }
+                    fileStats = result.stats;
+                    return true;
+                } catch (CancellationException e) {
+                    System.out.println("Run cancelled, no output written");
+                    return false;
+                } catch (TimeoutException e) {
+                    reportProgress(job.metrics());
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
+        } finally {
+            live.close();
+        }
+    }
+
+    /**
+     * @return the totals and most frequent words of the run so far, refreshed about once a second
+     */
+    public ReadOnlyObjectProperty<PartialResults> partialResultsProperty() {
+        return partialResults.getReadOnlyProperty();
+    }
+
+    /**
+     * asks the run to stop, the task then succeeds with false
+     * the job's threads finish stopping in the background, a new run can start meanwhile since it counts
+     * into statistics of its own
+     */
+    public void stop() {
+        stopRequested = true;
+        updateMessage("Cancelling...");
+    }
+
+    /**
+     * shows the files done, throughput and time left of the run so far
+     * @param metrics live metrics of the job
+     */
+    private void reportProgress(ProcessingMetrics metrics) {
+        if (!metrics.isRunning() || stopRequested) {
+            return;
+        }
+        long total = metrics.getBytesTotal();
+        long read = metrics.getBytesRead();
+        if (total > 0) {
+            updateProgress(read, total);
+        }
+        long remaining = metrics.getSecondsRemaining();
+        updateMessage(String.format("%d of %d files, %.1f MB/s, %s", metrics.getFilesCompleted(),
+            metrics.getFilesTotal(), metrics.getBytesPerSecond() / MEGABYTE,
+            remaining < 0 ? "estimating time left" : "about " + formatSeconds(remaining) + " left"));
+    }
+
+    /**
+     * hands partial results to the application thread, only the latest are kept if it falls behind
+     * @param results the partial results
+     */
+    private void showPartialResults(PartialResults results) {
+        if (stopRequested) {
+            return;
+        }
+        if (pendingResults.getAndSet(results) == null) {
+            Platform.runLater(() -> partialResults.set(pendingResults.getAndSet(null)));
+        }
+    }
+
+    /**
+     * @return a number of seconds as minutes and seconds, or hours and minutes
+     */
+    private static String formatSeconds(long seconds) {
+        if (seconds < 60) {
+            return seconds + " s";
+        }
+        if (seconds < 3600) {
+            return String.format("%d min %d s", seconds / 60, seconds % 60);
+        }
+        return String.format("%d h %d min", seconds / 3600, seconds % 3600 / 60);
+    }
+}
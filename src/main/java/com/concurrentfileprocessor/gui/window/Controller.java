@@ -1,17 +1,33 @@
 package com.concurrentfileprocessor.gui.window;
 
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.settings;
+import com.concurrentfileprocessor.engine.ProcessingEngine;
+
 import javafx.stage.Stage;
 
 /**
  * central controller for managing window navigation
  * handles transitions between different application windows
+ * holds the processing engine every run of the application goes through, so later runs reuse its warm threads
+ * the engine's threads are daemon threads, so it is left running when the application closes
  */
 public class Controller {
+    // engine the windows submit their runs to
+    private final ProcessingEngine engine;
 
     /**
      * constructor
      */
-    public Controller(Stage primaryStage) {}
+    public Controller(Stage primaryStage) {
+        engine = new ProcessingEngine(settings.threads);
+    }
+
+    /**
+     * @return engine the windows submit their runs to
+     */
+    public ProcessingEngine getEngine() {
+        return engine;
+    }
 
     /**
      * shows the start window
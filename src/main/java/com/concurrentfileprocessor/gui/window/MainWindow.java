@@ -1,8 +1,13 @@
 package com.concurrentfileprocessor.gui.window;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import com.concurrentfileprocessor.gui.ProcessingTask;
 import com.concurrentfileprocessor.gui.window.components.EventCreator;
 import com.concurrentfileprocessor.gui.window.components.MainWindowComponents;
-import com.concurrentfileprocessor.processor.FileProcessor;
+import com.concurrentfileprocessor.processor.OutputWriter.WordEntry;
+import com.concurrentfileprocessor.processor.PartialResults;
 
 import javafx.application.Platform;
 import javafx.geometry.Pos;
@@ -40,12 +45,11 @@ public class MainWindow {
         MainWindowComponents components = MainWindowComponents.createMainWindowLabels();
         components = MainWindowComponents.createMainWindowFields(components);
         components = MainWindowComponents.createMainWindowButtons(components, stage);
+        components = MainWindowComponents.createMainWindowProgress(components);
         
-        // set run button action to process files and show output window
-        components.runButton.setOnAction(event -> {
-            FileProcessor.processFiles();
-            controller.showOutputWindow(stage);
-        });
+        // set run button action to process files in the background and show output window once they are done
+        MainWindowComponents finalComponents = components;
+        components.runButton.setOnAction(event -> runTask(finalComponents));
         components.restartButton = EventCreator.addRestartEvent(components.restartButton, controller, stage);
         
         // create all UI panes
@@ -76,6 +80,87 @@ public class MainWindow {
         Platform.runLater(() -> stage.toFront());
     }
 
+    /**
+     * processes the input files on a background task, showing its progress until it ends
+     * shows the output window when the run finishes, or stays on this window when it is cancelled or fails
+     */
+    private void runTask(MainWindowComponents components) {
+        ProcessingTask task = new ProcessingTask(controller.getEngine());
+        components.progressBar.progressProperty().bind(task.progressProperty());
+        components.progressLabel.textProperty().bind(task.messageProperty());
+        components.liveTotalsLabel.setText("");
+        components.liveWordsList.getItems().clear();
+        task.partialResultsProperty().addListener((observable, previous, results) -> {
+            if (results != null) {
+                showPartialResults(components, results);
+            }
+        });
+        components.cancelButton.setOnAction(event -> {
+            components.cancelButton.setDisable(true);
+            task.stop();
+        });
+        setRunning(components, true);
+
+        task.setOnSucceeded(event -> {
+            setRunning(components, false);
+            if (task.getValue()) {
+                controller.showOutputWindow(stage);
+            } else {
+                components.progressLabel.setText("Cancelled, no output was written");
+            }
+        });
+        task.setOnFailed(event -> {
+            setRunning(components, false);
+            components.progressLabel.setText("Processing failed: " + task.getException().getMessage());
+        });
+
+        Thread thread = new Thread(task, "processing-task");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * shows the totals and most frequent words of the run so far
+     */
+    private static void showPartialResults(MainWindowComponents components, PartialResults results) {
+        components.liveTotalsLabel.setText(results.totals());
+        List<String> lines = new ArrayList<>(results.topWords.length);
+        for (WordEntry entry : results.topWords) {
+            lines.add(entry.word + ": " + entry.count);
+        }
+        components.liveWordsList.getItems().setAll(lines);
+    }
+
+    /**
+     * swaps the run button for the cancel button and locks the settings while a run is in progress
+     * the progress bar stays visible after the run so its outcome can be read
+     */
+    private static void setRunning(MainWindowComponents components, boolean running) {
+        if (!running) {
+            components.progressBar.progressProperty().unbind();
+            components.progressLabel.textProperty().unbind();
+        }
+        components.progressBar.setVisible(true);
+        components.progressBar.setManaged(true);
+        components.progressLabel.setVisible(true);
+        components.progressLabel.setManaged(true);
+        components.liveTotalsLabel.setVisible(true);
+        components.liveTotalsLabel.setManaged(true);
+        components.liveWordsList.setVisible(true);
+        components.liveWordsList.setManaged(true);
+        components.cancelButton.setDisable(false);
+        components.cancelButton.setVisible(running);
+        components.cancelButton.setManaged(running);
+        components.runButton.setVisible(!running);
+        components.runButton.setManaged(!running);
+        components.restartButton.setDisable(running);
+        components.inputFileButton.setDisable(running);
+        components.filenameButton.setDisable(running);
+        components.filenameField.setDisable(running);
+        components.outputFormatBox.setDisable(running);
+        components.outputDirectoryButton.setDisable(running);
+    }
+
     /**
      * creates left pane with input file selection controls
      */
@@ -99,8 +184,12 @@ public class MainWindow {
         HBox.setHgrow(components.filenameField, Priority.ALWAYS);
         components.filenameField.setMaxWidth(Double.MAX_VALUE);
         
+        // create container for output format label and selector
+        HBox formatContainer = new HBox(10, components.outputFormatLabel, components.outputFormatBox);
+        formatContainer.setAlignment(Pos.CENTER);
+
         // create right pane with output configuration controls
-        VBox rightPane = new VBox(10, components.outputLabel, components.outputFilenameLabel, filenameContainer, components.outputDirectoryLabel, components.outputDirectoryButton);
+        VBox rightPane = new VBox(10, components.outputLabel, components.outputFilenameLabel, filenameContainer, formatContainer, components.outputDirectoryLabel, components.outputDirectoryButton);
         rightPane.setAlignment(Pos.CENTER);
         rightPane.setMaxWidth(Double.MAX_VALUE);
         return rightPane;
@@ -110,8 +199,12 @@ public class MainWindow {
      * creates bottom pane with navigation buttons
      */
     public VBox createBottomPane(MainWindowComponents components) {
-        // create bottom pane with navigation and action buttons
-        VBox bottomPane = new VBox(20, components.runButton, components.restartButton, components.quitButton);
+        // create bottom pane with progress, navigation and action buttons
+        VBox progressPane = new VBox(5, components.progressBar, components.progressLabel, components.liveTotalsLabel,
+            components.liveWordsList);
+        progressPane.setAlignment(Pos.CENTER);
+        VBox bottomPane = new VBox(20, progressPane, components.runButton, components.cancelButton,
+            components.restartButton, components.quitButton);
         bottomPane.setAlignment(Pos.CENTER);
         return bottomPane;
     }
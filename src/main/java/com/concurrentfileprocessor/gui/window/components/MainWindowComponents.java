@@ -6,11 +6,16 @@ import java.util.List;
 import static com.concurrentfileprocessor.ConcurrentFileProcessor.inputFiles;
 import static com.concurrentfileprocessor.ConcurrentFileProcessor.outputFilePath;
 import static com.concurrentfileprocessor.ConcurrentFileProcessor.outputFilename;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.settings;
+import com.concurrentfileprocessor.ProcessorSettings.OutputFormat;
 
 import javafx.application.Platform;
 import javafx.geometry.Pos;
 import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TextField;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
@@ -37,6 +42,13 @@ public class MainWindowComponents {
     public Button runButton;
     public Button filenameButton;
     public TextField filenameField;
+    public Label outputFormatLabel;
+    public ComboBox<String> outputFormatBox;
+    public ProgressBar progressBar;
+    public Label progressLabel;
+    public Button cancelButton;
+    public Label liveTotalsLabel;
+    public ListView<String> liveWordsList;
 
     /**
      * constructor for main window components
@@ -119,8 +131,23 @@ public class MainWindowComponents {
         );
         
         Platform.runLater(() -> filenameField.requestFocus());
-        
+
+        // create output format selector, named the same way as the headless --format option
+        Label outputFormatLabel = new Label("Output format:");
+        outputFormatLabel.setFont(Font.font("System", 16));
+        outputFormatLabel.setStyle("-fx-text-fill: #374151;");
+        ComboBox<String> outputFormatBox = new ComboBox<>();
+        for (OutputFormat format : OutputFormat.values()) {
+            outputFormatBox.getItems().add(format.name().toLowerCase().replace('_', '-'));
+        }
+        outputFormatBox.setValue(settings.outputFormat.name().toLowerCase().replace('_', '-'));
+        outputFormatBox.setOnAction(event ->
+            settings.outputFormat = OutputFormat.valueOf(outputFormatBox.getValue().toUpperCase().replace('-', '_')));
+        outputFormatBox.setStyle("-fx-font-size: 14px;");
+
         components.filenameField = filenameField;
+        components.outputFormatLabel = outputFormatLabel;
+        components.outputFormatBox = outputFormatBox;
         return components;
     }
 
@@ -209,6 +236,57 @@ public class MainWindowComponents {
         return components;
     }
     
+    /**
+     * creates the progress bar, progress label and cancel button shown while files are processed
+     * they stay hidden until the first run starts
+     */
+    public static MainWindowComponents createMainWindowProgress(MainWindowComponents components){
+        ProgressBar progressBar = new ProgressBar(0);
+        progressBar.setPrefSize(500, 20);
+        progressBar.setVisible(false);
+        progressBar.setManaged(false);
+
+        Label progressLabel = new Label();
+        progressLabel.setFont(Font.font("System", 16));
+        progressLabel.setStyle("-fx-text-fill: #374151;");
+        progressLabel.setVisible(false);
+        progressLabel.setManaged(false);
+
+        Button cancelButton = ButtonCreator.createButton("Cancel", (event) -> {});
+        cancelButton.setFont(Font.font("System", 22));
+        cancelButton.setPrefSize(250, 55);
+        cancelButton.setMinSize(250, 55);
+        cancelButton.setMaxSize(250, 55);
+        cancelButton.setStyle(
+            "-fx-background-color: #dc2626;" +
+            "-fx-text-fill: white;" +
+            "-fx-background-radius: 10;"
+        );
+        cancelButton.setVisible(false);
+        cancelButton.setManaged(false);
+
+        Label liveTotalsLabel = new Label();
+        liveTotalsLabel.setFont(Font.font("System", 14));
+        liveTotalsLabel.setStyle("-fx-text-fill: #374151;");
+        liveTotalsLabel.setVisible(false);
+        liveTotalsLabel.setManaged(false);
+
+        // the most frequent words so far, refreshed while the run is in progress
+        ListView<String> liveWordsList = new ListView<>();
+        liveWordsList.setPrefSize(500, 150);
+        liveWordsList.setMaxWidth(500);
+        liveWordsList.setFocusTraversable(false);
+        liveWordsList.setVisible(false);
+        liveWordsList.setManaged(false);
+
+        components.progressBar = progressBar;
+        components.progressLabel = progressLabel;
+        components.cancelButton = cancelButton;
+        components.liveTotalsLabel = liveTotalsLabel;
+        components.liveWordsList = liveWordsList;
+        return components;
+    }
+
     /**
      * builds a formatted list of filenames for display
      */
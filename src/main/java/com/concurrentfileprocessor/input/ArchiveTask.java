@@ -0,0 +1,105 @@
+package com.concurrentfileprocessor.input;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.concurrentfileprocessor.FileStats;
+
+/**
+ * fork/join task that processes a compressed or archived file
+ * a zip is opened by its central directory and each entry becomes its own task, so entries are decompressed
+ * in parallel, while gzip and tar can only be read in order and are tokenized block by block as they are read
+ */
+public class ArchiveTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    // file to be processed
+    private final File file;
+
+    // what the file holds
+    private final InputKind kind;
+
+    // shared statistics object for results across threads
+    private final FileStats fileStats;
+
+    /**
+     * constructor
+     * @param file the file to process
+     * @param kind what the file holds, as sniffed from its first bytes
+     * @param fileStats shared statistics object
+     */
+    public ArchiveTask(File file, InputKind kind, FileStats fileStats) {
+        this.file = file;
+        this.kind = kind;
+        this.fileStats = fileStats;
+    }
+
+    /**
+     * reads every text stream in the file into the statistics
+     */
+    @Override
+    protected void compute() {
+        try {
+            if (kind == InputKind.BINARY) {
+                InputAdapters.skipBinary(file.getName());
+            } else if (kind == InputKind.ZIP) {
+                processZip();
+            } else {
+                InputAdapters.forEachText(file, (name, text) -> BlockTokenizer.tokenize(name, text, fileStats));
+            }
+        } catch (InterruptedIOException e) {
+            // stopped part way, the statistics drop the blocks already counted
+        } catch (IOException e) {
+            // keep whatever was read before the failure, like FileMetricsCollector does
+            System.err.println(file.getName() + ": " + e.getMessage());
+            fileStats.readFailed();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * forks a task per zip entry and waits for all of them before closing the zip
+     */
+    private void processZip() throws IOException {
+        try (ZipFile zip = new ZipFile(file)) {
+            List<RecursiveAction> entries = new ArrayList<>();
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                if (!entry.isDirectory()) {
+                    entries.add(new RecursiveAction() {
+                        @Override
+                        protected void compute() {
+                            processEntry(zip, entry);
+                        }
+                    });
+                }
+            }
+            invokeAll(entries);
+        }
+    }
+
+    /**
+     * reads one zip entry into the statistics, unwrapping it again if it is compressed or archived itself
+     */
+    private void processEntry(ZipFile zip, ZipEntry entry) {
+        String name = file.getName() + InputAdapters.ENTRY_SEPARATOR + entry.getName();
+        try (InputStream in = zip.getInputStream(entry)) {
+            InputAdapters.forEachText(name, in, (textName, text) -> BlockTokenizer.tokenize(textName, text, fileStats));
+        } catch (InterruptedIOException e) {
+            // stopped part way, the statistics drop the blocks already counted
+        } catch (IOException e) {
+            System.err.println(name + ": " + e.getMessage());
+            fileStats.readFailed();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
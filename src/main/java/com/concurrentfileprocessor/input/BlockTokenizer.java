@@ -0,0 +1,207 @@
+package com.concurrentfileprocessor.input;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.RecursiveAction;
+
+import com.concurrentfileprocessor.FileStats;
+import com.concurrentfileprocessor.metrics.FileEvent;
+import com.concurrentfileprocessor.processor.WordTable;
+import com.concurrentfileprocessor.processor.WordTokenizer;
+
+/**
+ * tokenizes a stream that can only be read in order, such as a decompressed one, on several threads
+ * the calling thread reads and decompresses blocks while each full block is forked off to be tokenized,
+ * so a single large archive keeps every worker busy instead of decompressing and tokenizing in turn
+ * blocks are cut just after a line break the same way the pipeline cuts its buffers, so the totals match reading
+ * the text in one go, and only a few blocks are in flight at once so memory stays bounded
+ * a block holds more than the longest word kept, so a block without whitespace is cut inside its word
+ * and the next block only counts the characters of the rest of it
+ */
+public class BlockTokenizer {
+    // bytes read before a block is handed off
+    public static final int BLOCK_SIZE = 1 << 20;
+
+    /**
+     * fork/join task that tokenizes one block into a private table and merges it
+     */
+    private static class BlockTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        // bytes to tokenize, only the first length are valid
+        private final byte[] data;
+        private final int length;
+
+        // true when the first line was started by the previous block of the same stream
+        private final boolean startsMidLine;
+
+        // true when the first word is the rest of a word the previous block of the same stream ended with
+        private final boolean startsMidWord;
+
+        // shared statistics object for results across threads
+        private final FileStats fileStats;
+
+        // name of the stream, offset of the block in it and the time the reading thread spent filling it
+        private final String name;
+        private final long offset;
+        private final long readNanos;
+
+        BlockTask(byte[] data, int length, boolean startsMidLine, boolean startsMidWord, FileStats fileStats,
+                String name, long offset, long readNanos) {
+            this.data = data;
+            this.length = length;
+            this.startsMidLine = startsMidLine;
+            this.startsMidWord = startsMidWord;
+            this.fileStats = fileStats;
+            this.name = name;
+            this.offset = offset;
+            this.readNanos = readNanos;
+        }
+
+        @Override
+        protected void compute() {
+            FileEvent event = new FileEvent();
+            event.begin();
+            long start = System.nanoTime();
+            WordTable words = new WordTable();
+            WordTokenizer tokenizer = new WordTokenizer(fileStats.localSink(words), fileStats.charset);
+            if (startsMidWord) {
+                tokenizer.continueWord();
+            }
+            tokenizer.feed(data, 0, length);
+            tokenizer.finish();
+            long mergeStart = System.nanoTime();
+            // the previous block already counted the line this one continues
+            fileStats.merge(words, tokenizer.characterCount(), tokenizer.lineCount() - (startsMidLine ? 1 : 0));
+            long mergeNanos = System.nanoTime() - mergeStart;
+            fileStats.metrics.addTokens(tokenizer.wordCount());
+            event.finish(name, offset, length, tokenizer.wordCount(), readNanos, mergeStart - start, mergeNanos);
+        }
+    }
+
+    /**
+     * reads a stream to the end and adds its words, characters and lines to the statistics
+     * a stream that fits in one block is tokenized on the calling thread
+     * @param in stream to read, left open
+     * @param fileStats statistics object to update
+     * @throws IOException if reading fails, blocks read before the failure are still counted
+     */
+    public static void tokenize(InputStream in, FileStats fileStats) throws IOException {
+        tokenize("", in, fileStats);
+    }
+
+    /**
+     * reads a named stream to the end and adds its words, characters and lines to the statistics
+     * @param name name of the stream, recorded in the flight recorder events of its blocks
+     * @param in stream to read, left open
+     * @param fileStats statistics object to update
+     * @throws IOException if reading fails, blocks read before the failure are still counted,
+     * or if the statistics stop the read part way
+     */
+    public static void tokenize(String name, InputStream in, FileStats fileStats) throws IOException {
+        int maxInFlight = 2 * Runtime.getRuntime().availableProcessors();
+        ArrayDeque<BlockTask> inFlight = new ArrayDeque<>();
+        byte[] block = new byte[BLOCK_SIZE];
+        int length = 0;
+        boolean startsMidLine = false;
+        boolean startsMidWord = false;
+        long offset = 0;
+        long readNanos = 0;
+        try {
+            while (true) {
+                fileStats.checkStopped();
+                long readStart = System.nanoTime();
+                int read = in.read(block, length, block.length - length);
+                readNanos += System.nanoTime() - readStart;
+                if (read == -1) {
+                    break;
+                }
+                length += read;
+                if (length < block.length) {
+                    continue;
+                }
+
+                boolean nextStartsMidLine = false;
+                boolean nextStartsMidWord = false;
+                int cut = lastIndexOf(block, length, true) + 1;
+                if (cut == 0) {
+                    cut = lastIndexOf(block, length, false) + 1;
+                    nextStartsMidLine = true;
+                }
+                if (cut == 0) {
+                    // a single word fills the whole block and is longer than the longest word kept
+                    cut = characterStart(block, length);
+                    nextStartsMidWord = true;
+                }
+
+                // reuse the block of the oldest task once too many are waiting
+                byte[] next = inFlight.size() >= maxInFlight ? joinOldest(inFlight) : new byte[BLOCK_SIZE];
+                int tail = length - cut;
+                System.arraycopy(block, cut, next, 0, tail);
+                BlockTask task = new BlockTask(block, cut, startsMidLine, startsMidWord, fileStats, name, offset,
+                    readNanos);
+                task.fork();
+                inFlight.add(task);
+                block = next;
+                length = tail;
+                startsMidLine = nextStartsMidLine;
+                startsMidWord = nextStartsMidWord;
+                offset += cut;
+                readNanos = 0;
+            }
+        } finally {
+            if (length > 0) {
+                new BlockTask(block, length, startsMidLine, startsMidWord, fileStats, name, offset, readNanos).invoke();
+            }
+            while (!inFlight.isEmpty()) {
+                joinOldest(inFlight);
+            }
+        }
+    }
+
+    /**
+     * waits for the oldest task in flight
+     * @return the block it tokenized, free to be read into again
+     */
+    private static byte[] joinOldest(ArrayDeque<BlockTask> inFlight) {
+        BlockTask oldest = inFlight.poll();
+        oldest.join();
+        return oldest.data;
+    }
+
+    /**
+     * finds the last line break, or the last whitespace that cannot be part of a line break
+     * @param lineBreak true to look for '\n' or a '\r' known not to be followed by '\n',
+     *     false for space, tab, vertical tab or form feed
+     * @return index of the byte, or -1 if there is none
+     */
+    private static int lastIndexOf(byte[] block, int length, boolean lineBreak) {
+        for (int i = length - 1; i >= 0; i--) {
+            byte b = block[i];
+            if (lineBreak ? b == '\n' || b == '\r' && i < length - 1
+                    : b == ' ' || b == '\t' || b == 0x0B || b == '\f') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * finds where to cut a full block inside a word, backing off so no UTF-8 character is split
+     * @return index of the first byte left for the next block
+     */
+    private static int characterStart(byte[] block, int length) {
+        for (int i = length - 1; i >= Math.max(1, length - 3); i--) {
+            int b = block[i] & 0xFF;
+            if (b < 0x80) {
+                break;
+            }
+            if (b >= 0xC0) {
+                // a lead byte, its sequence may go on past the end of the block
+                return i;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,112 @@
+package com.concurrentfileprocessor.input;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * unwraps an input into the text streams it holds using only the JDK codecs
+ * a plain input is its own text, gzip is decompressed and looked at again, so a .tar.gz is read as a tar,
+ * and every entry of a zip or tar is looked at the same way, so archives inside archives are read as well
+ * binary inputs and entries are skipped as soon as their first bytes show a NUL
+ */
+public class InputAdapters {
+    // read buffer in front of each stream, also big enough to sniff without reading twice
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // separates an archive name from the name of an entry in messages
+    public static final String ENTRY_SEPARATOR = "!";
+
+    /**
+     * receives each text stream found in an input
+     * the stream is closed by the caller, so it must be read before returning
+     */
+    @FunctionalInterface
+    public interface TextConsumer {
+        void accept(String name, InputStream text) throws IOException, InterruptedException;
+    }
+
+    /**
+     * opens a file and passes each text stream it holds to the consumer in order
+     * @param file file to read
+     * @param consumer receives each text stream
+     * @throws IOException if reading fails
+     * @throws InterruptedException if the consumer is interrupted
+     */
+    public static void forEachText(File file, TextConsumer consumer) throws IOException, InterruptedException {
+        try (InputStream in = new FileInputStream(file)) {
+            forEachText(file.getName(), in, consumer);
+        }
+    }
+
+    /**
+     * passes each text stream held by an input to the consumer in order
+     * @param name name of the input used in messages
+     * @param in the input, left open
+     * @param consumer receives each text stream
+     * @throws IOException if reading fails
+     * @throws InterruptedException if the consumer is interrupted
+     */
+    public static void forEachText(String name, InputStream in, TextConsumer consumer)
+            throws IOException, InterruptedException {
+        BufferedInputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+        buffered.mark(InputKind.SNIFF_BYTES);
+        byte[] header = buffered.readNBytes(InputKind.SNIFF_BYTES);
+        buffered.reset();
+
+        switch (InputKind.sniff(header, header.length)) {
+            case PLAIN:
+                consumer.accept(name, buffered);
+                break;
+            case GZIP:
+                // closing the codec streams frees their native inflater but leaves the input open
+                try (InputStream gzip = new GZIPInputStream(keepOpen(buffered), BUFFER_SIZE)) {
+                    forEachText(name, gzip, consumer);
+                }
+                break;
+            case ZIP:
+                try (ZipInputStream zip = new ZipInputStream(keepOpen(buffered))) {
+                    ZipEntry entry;
+                    while ((entry = zip.getNextEntry()) != null) {
+                        if (!entry.isDirectory()) {
+                            forEachText(name + ENTRY_SEPARATOR + entry.getName(), keepOpen(zip), consumer);
+                        }
+                    }
+                }
+                break;
+            case TAR:
+                TarReader tar = new TarReader(buffered);
+                while (tar.next()) {
+                    forEachText(name + ENTRY_SEPARATOR + tar.name(), tar.entry(), consumer);
+                }
+                break;
+            case BINARY:
+            default:
+                skipBinary(name);
+        }
+    }
+
+    /**
+     * reports an input left out because it is not text
+     * @param name name of the input
+     */
+    public static void skipBinary(String name) {
+        System.err.println("Skipping binary input " + name);
+    }
+
+    /**
+     * wraps a stream so closing the wrapper leaves it open
+     */
+    private static InputStream keepOpen(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public void close() {}
+        };
+    }
+}
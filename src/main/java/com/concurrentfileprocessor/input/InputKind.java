@@ -0,0 +1,85 @@
+package com.concurrentfileprocessor.input;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * what an input holds, told apart by its first bytes rather than its name
+ */
+public enum InputKind {
+    PLAIN,
+    GZIP,
+    ZIP,
+    TAR,
+    BINARY;
+
+    // bytes looked at to tell the kinds apart, a NUL byte anywhere in them marks the input as binary
+    public static final int SNIFF_BYTES = 8 * 1024;
+
+    // offset and value of the magic field in a POSIX or GNU tar header
+    private static final int TAR_MAGIC_OFFSET = 257;
+    private static final byte[] TAR_MAGIC = {'u', 's', 't', 'a', 'r'};
+
+    /**
+     * @param header first bytes of the input
+     * @param length number of valid bytes in the header, fewer than SNIFF_BYTES only for short inputs
+     * @return the kind of the input
+     */
+    public static InputKind sniff(byte[] header, int length) {
+        if (length >= 2 && (header[0] & 0xFF) == 0x1F && (header[1] & 0xFF) == 0x8B) {
+            return GZIP;
+        }
+        if (length >= 4 && header[0] == 'P' && header[1] == 'K'
+                && ((header[2] == 3 && header[3] == 4) || (header[2] == 5 && header[3] == 6)
+                    || (header[2] == 7 && header[3] == 8))) {
+            return ZIP;
+        }
+        if (length >= TAR_MAGIC_OFFSET + TAR_MAGIC.length) {
+            boolean tar = true;
+            for (int i = 0; i < TAR_MAGIC.length && tar; i++) {
+                tar = header[TAR_MAGIC_OFFSET + i] == TAR_MAGIC[i];
+            }
+            if (tar) {
+                return TAR;
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            if (header[i] == 0) {
+                return BINARY;
+            }
+        }
+        return PLAIN;
+    }
+
+    /**
+     * reads the first bytes of an open file to find its kind, leaving the channel position where it was
+     * @param channel the file to look at
+     * @return the kind of the file
+     * @throws IOException if the file cannot be read
+     */
+    public static InputKind sniff(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(SNIFF_BYTES);
+        int read = 0;
+        while (header.hasRemaining() && read != -1) {
+            read = channel.read(header, header.position());
+        }
+        return sniff(header.array(), header.position());
+    }
+
+    /**
+     * reads the first bytes of a file to find its kind
+     * @param file the file to look at
+     * @return the kind of the file
+     * @throws IOException if the file cannot be read
+     */
+    public static InputKind sniff(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] header = new byte[SNIFF_BYTES];
+            return sniff(header, in.readNBytes(header, 0, header.length));
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.concurrentfileprocessor.input;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * streams the regular file entries out of a tar archive in POSIX, GNU or pax layout
+ * only names and sizes are read from the headers, directories, links and devices are skipped
+ * the archive is read strictly in order, so it works just as well on a gzip stream as on a file
+ */
+class TarReader {
+    // headers and entry data come in records of this size
+    private static final int RECORD_SIZE = 512;
+
+    // archive being read
+    private final InputStream in;
+
+    // header of the current entry
+    private final byte[] header = new byte[RECORD_SIZE];
+
+    // bytes of the current entry not read yet, and the padding after them
+    private long remaining;
+    private long padding;
+
+    // name of the current entry
+    private String name;
+
+    /**
+     * constructor
+     * @param in the archive, positioned at its first header
+     */
+    TarReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * moves to the next regular file entry, skipping whatever is left of the current one
+     * @return false once the archive has no more entries
+     * @throws IOException if reading fails or the archive is cut short
+     */
+    boolean next() throws IOException {
+        skipEntry();
+        String longName = null;
+        String paxName = null;
+        long paxSize = -1;
+        while (readHeader()) {
+            char type = (char) header[156];
+            remaining = paxSize >= 0 ? paxSize : parseSize();
+            padding = (RECORD_SIZE - remaining % RECORD_SIZE) % RECORD_SIZE;
+            if (type == 'L') {
+                // GNU long name, the data is the name of the entry that follows
+                longName = trimNul(readData());
+            } else if (type == 'x') {
+                // pax extended header for the entry that follows
+                String records = readData();
+                paxName = paxValue(records, "path");
+                String size = paxValue(records, "size");
+                paxSize = size == null ? -1 : Long.parseLong(size);
+                continue;
+            } else if (type == '0' || type == '\0' || type == '7') {
+                name = paxName != null ? paxName : longName != null ? longName : headerName();
+                return true;
+            } else {
+                skipEntry();
+                longName = null;
+                paxName = null;
+            }
+            paxSize = -1;
+        }
+        return false;
+    }
+
+    /**
+     * @return name of the current entry
+     */
+    String name() {
+        return name;
+    }
+
+    /**
+     * @return the data of the current entry, closing it leaves the archive open
+     */
+    InputStream entry() {
+        return new InputStream() {
+            private final byte[] single = new byte[1];
+
+            @Override
+            public int read() throws IOException {
+                return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                if (remaining == 0) {
+                    return -1;
+                }
+                int read = in.read(buffer, offset, (int) Math.min(length, remaining));
+                if (read == -1) {
+                    throw new EOFException("tar entry " + name + " is cut short");
+                }
+                remaining -= read;
+                return read;
+            }
+
+            @Override
+            public int available() throws IOException {
+                return (int) Math.min(in.available(), remaining);
+            }
+        };
+    }
+
+    /**
+     * reads the next header
+     * @return false at the end of the archive, marked by a zeroed record or the end of the stream
+     */
+    private boolean readHeader() throws IOException {
+        int read = in.readNBytes(header, 0, RECORD_SIZE);
+        if (read == 0) {
+            return false;
+        }
+        if (read < RECORD_SIZE) {
+            throw new EOFException("tar header is cut short");
+        }
+        for (byte b : header) {
+            if (b != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * reads the size field, octal digits or a base-256 number for sizes of 8GB and more
+     */
+    private long parseSize() throws IOException {
+        long size = 0;
+        if ((header[124] & 0x80) != 0) {
+            for (int i = 125; i < 136; i++) {
+                size = (size << 8) | (header[i] & 0xFF);
+            }
+            return size;
+        }
+        for (int i = 124; i < 136; i++) {
+            byte b = header[i];
+            if (b >= '0' && b <= '7') {
+                size = size * 8 + (b - '0');
+            } else if (b != ' ' && b != 0) {
+                throw new IOException("tar header has a damaged size");
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the name field, joined to the prefix field of a POSIX header
+     */
+    private String headerName() {
+        String entryName = field(0, 100);
+        String prefix = field(345, 155);
+        return prefix.isEmpty() ? entryName : prefix + "/" + entryName;
+    }
+
+    /**
+     * @return a NUL terminated header field
+     */
+    private String field(int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * reads the whole data of the current entry as text
+     */
+    private String readData() throws IOException {
+        if (remaining > Integer.MAX_VALUE) {
+            throw new IOException("tar header entry is too large");
+        }
+        byte[] data = in.readNBytes((int) remaining);
+        if (data.length < remaining) {
+            throw new EOFException("tar header entry is cut short");
+        }
+        remaining = 0;
+        skipEntry();
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * skips the unread data of the current entry and its padding
+     */
+    private void skipEntry() throws IOException {
+        in.skipNBytes(remaining + padding);
+        remaining = 0;
+        padding = 0;
+    }
+
+    /**
+     * finds a value in pax records, each written as "length key=value\n"
+     */
+    private static String paxValue(String records, String key) {
+        for (String record : records.split("\n")) {
+            int space = record.indexOf(' ');
+            int equals = record.indexOf('=');
+            if (space > 0 && equals > space && record.substring(space + 1, equals).equals(key)) {
+                return record.substring(equals + 1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * drops the NUL a GNU long name ends with
+     */
+    private static String trimNul(String text) {
+        int end = text.indexOf('\0');
+        return end < 0 ? text : text.substring(0, end);
+    }
+}
@@ -0,0 +1,85 @@
+package com.concurrentfileprocessor.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * flight recorder event for one piece of tokenizing work, a whole file or one range, block or buffer of it
+ * the event's own duration and thread say how long it took and where
+ * archive blocks and pipeline buffers are read ahead by another thread, so their read time is not part of the duration
+ * creating, timing and committing an event is close to free while no recording has it enabled
+ */
+@Name(FileEvent.NAME)
+@Label("File Processed")
+@Category({"Concurrent File Processor"})
+@Description("A file, or a range, block or buffer of one, read, tokenized and merged into the shared statistics")
+@StackTrace(false)
+public class FileEvent extends Event {
+    // name of the event type in a recording
+    public static final String NAME = "com.concurrentfileprocessor.File";
+
+    // file the work came from, archive entries are named after the archive and a '!',
+    // empty for the merge each pipeline tokenizer makes at the end of a run
+    @Label("Path")
+    public String path;
+
+    // byte offset of the work in the file or entry, 0 for whole files
+    @Label("Offset")
+    @DataAmount
+    public long offset;
+
+    // bytes tokenized
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    // words tokenized, counting every occurrence
+    @Label("Tokens")
+    public long tokens;
+
+    // time spent reading, or reading and decompressing, the bytes
+    @Label("Read Time")
+    @Timespan
+    public long readTime;
+
+    // time spent splitting the bytes into words and counting them in a private table
+    @Label("Tokenize Time")
+    @Timespan
+    public long tokenizeTime;
+
+    // time spent merging the private word table into the shared statistics
+    @Label("Merge Time")
+    @Timespan
+    public long mergeTime;
+
+    /**
+     * ends the event and commits it if a recording has it enabled, only filling in the fields then
+     * @param path file the work came from
+     * @param offset byte offset of the work in the file
+     * @param bytes bytes tokenized
+     * @param tokens words tokenized
+     * @param readTime nanoseconds spent reading
+     * @param tokenizeTime nanoseconds spent tokenizing
+     * @param mergeTime nanoseconds spent merging
+     */
+    public void finish(String path, long offset, long bytes, long tokens, long readTime, long tokenizeTime,
+            long mergeTime) {
+        end();
+        if (shouldCommit()) {
+            this.path = path;
+            this.offset = offset;
+            this.bytes = bytes;
+            this.tokens = tokens;
+            this.readTime = readTime;
+            this.tokenizeTime = tokenizeTime;
+            this.mergeTime = mergeTime;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.concurrentfileprocessor.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * flight recorder event for one phase of a processing run, such as discovery, processing or writing the output
+ * phases can overlap, a directory walk runs while the files it found are already being processed
+ */
+@Name(PhaseEvent.NAME)
+@Label("Processing Phase")
+@Category({"Concurrent File Processor"})
+@Description("A phase of a processing run")
+@StackTrace(false)
+public class PhaseEvent extends Event {
+    // name of the event type in a recording
+    public static final String NAME = "com.concurrentfileprocessor.Phase";
+
+    // what the run was doing
+    @Label("Phase")
+    public String phase;
+
+    /**
+     * starts timing a phase
+     * @param phase name of the phase
+     * @return the event, to be finished when the phase ends
+     */
+    public static PhaseEvent start(String phase) {
+        PhaseEvent event = new PhaseEvent();
+        event.phase = phase;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * ends the phase and commits it if a recording has the event enabled
+     */
+    public void finish() {
+        commit();
+    }
+}
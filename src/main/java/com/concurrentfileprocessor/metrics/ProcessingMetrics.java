@@ -0,0 +1,379 @@
+package com.concurrentfileprocessor.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.fileStats;
+import com.concurrentfileprocessor.FileStats;
+
+/**
+ * counters describing the progress of a processing run, exposed over JMX
+ * workers update striped LongAdder counters once per file or buffer, never per word,
+ * so updates from many threads do not contend and only a JMX read sums the stripes
+ * a job of the processing engine counts into metrics of its own, which add every update to the process-wide
+ * metrics as well, so the job's progress is its own while JMX still sees every job in progress
+ */
+public class ProcessingMetrics implements ProcessingMetricsMXBean {
+    // name the metrics are registered under
+    public static final String OBJECT_NAME = "com.concurrentfileprocessor:type=ProcessingMetrics";
+
+    // latency buckets double in size from under 1 ms, the last one holds everything from about 33 seconds up
+    private static final int LATENCY_BUCKETS = 17;
+
+    // files the run has to process, and files finished so far
+    private final LongAdder filesTotal = new LongAdder();
+    private final LongAdder filesCompleted = new LongAdder();
+
+    // size of the files the run has to process
+    private final LongAdder bytesTotal = new LongAdder();
+
+    // bytes processed and words tokenized so far
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder tokens = new LongAdder();
+
+    // threads working on a file right now
+    private final LongAdder activeWorkers = new LongAdder();
+
+    // files finished in each latency bucket
+    private final LongAdder[] latencies = new LongAdder[LATENCY_BUCKETS];
+
+    // System.nanoTime() when the run started and ended, end is 0 while the run is in progress
+    private volatile long startNanos;
+    private volatile long endNanos;
+
+    // metrics every update is also added to, null for the process-wide metrics
+    private final ProcessingMetrics parent;
+
+    // statistics whose distinct words are reported, null to report the global statistics
+    private final FileStats stats;
+
+    // metrics of the jobs in progress, whose distinct words are reported instead of the global statistics
+    private final Set<ProcessingMetrics> jobs = ConcurrentHashMap.newKeySet();
+
+    /**
+     * constructor for the process-wide metrics
+     */
+    public ProcessingMetrics() {
+        this(null, null);
+    }
+
+    /**
+     * constructor
+     * @param parent metrics every update is also added to, or null
+     * @param stats statistics whose distinct words are reported, or null for the global statistics
+     */
+    private ProcessingMetrics(ProcessingMetrics parent, FileStats stats) {
+        this.parent = parent;
+        this.stats = stats;
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            latencies[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * creates the metrics of one job, which add every update to these metrics as well
+     * starting and ending the job's run leaves these metrics as they are
+     * @param stats statistics of the job, whose distinct words the job's metrics report
+     * @return the job's metrics
+     */
+    public ProcessingMetrics forJob(FileStats stats) {
+        return new ProcessingMetrics(this, stats);
+    }
+
+    /**
+     * reports the distinct words of a job in progress, until removeJob
+     * while any job is in progress the distinct words are added up over the jobs, a word several jobs have seen
+     * counts once for each of them
+     * @param job metrics created by forJob
+     */
+    public void addJob(ProcessingMetrics job) {
+        jobs.add(job);
+    }
+
+    /**
+     * stops reporting the distinct words of a job
+     * @param job metrics added with addJob
+     */
+    public void removeJob(ProcessingMetrics job) {
+        jobs.remove(job);
+    }
+
+    /**
+     * registers the metrics with the platform MBean server so JMX consoles can read them
+     * prints a message and carries on if they cannot be registered
+     * @param metrics the metrics to register
+     */
+    public static void register(ProcessingMetrics metrics) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(metrics, name);
+            }
+        } catch (JMException e) {
+            System.err.println("Could not register metrics: " + e.getMessage());
+        }
+    }
+
+    /**
+     * clears every counter and starts timing a run
+     * @param files number of files the run processes, 0 when they are added as a directory walk finds them
+     */
+    public void startRun(long files) {
+        filesTotal.reset();
+        filesTotal.add(files);
+        filesCompleted.reset();
+        bytesTotal.reset();
+        bytesRead.reset();
+        tokens.reset();
+        activeWorkers.reset();
+        for (LongAdder bucket : latencies) {
+            bucket.reset();
+        }
+        endNanos = 0;
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * stops timing the run so the rates stay as they were at its end
+     */
+    public void endRun() {
+        endNanos = System.nanoTime();
+    }
+
+    /**
+     * adds files found after the run started
+     * @param files number of files found
+     */
+    public void addFiles(long files) {
+        filesTotal.add(files);
+        if (parent != null) {
+            parent.addFiles(files);
+        }
+    }
+
+    /**
+     * adds the size of files the run has to process, so its progress can be told in bytes
+     * @param bytes size on disk of the files
+     */
+    public void addBytesTotal(long bytes) {
+        bytesTotal.add(bytes);
+        if (parent != null) {
+            parent.addBytesTotal(bytes);
+        }
+    }
+
+    /**
+     * marks the current thread as working on a file
+     * @return System.nanoTime() to pass to fileFinished
+     */
+    public long fileStarted() {
+        activeWorkers.increment();
+        if (parent != null) {
+            parent.fileStarted();
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * marks a file started with fileStarted as finished and records how long it took
+     * @param start value returned by fileStarted
+     */
+    public void fileFinished(long start) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        activeWorkers.decrement();
+        filesCompleted.increment();
+        latencies[bucket(millis)].increment();
+        if (parent != null) {
+            parent.fileFinished(start);
+        }
+    }
+
+    /**
+     * counts a file that was finished without being processed, such as one replayed from the cache
+     */
+    public void fileSkipped() {
+        filesCompleted.increment();
+        if (parent != null) {
+            parent.fileSkipped();
+        }
+    }
+
+    /**
+     * @param bytes bytes of input processed
+     */
+    public void addBytes(long bytes) {
+        bytesRead.add(bytes);
+        if (parent != null) {
+            parent.addBytes(bytes);
+        }
+    }
+
+    /**
+     * @param words number of words tokenized
+     */
+    public void addTokens(long words) {
+        tokens.add(words);
+        if (parent != null) {
+            parent.addTokens(words);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return startNanos != 0 && endNanos == 0;
+    }
+
+    @Override
+    public double getElapsedSeconds() {
+        if (startNanos == 0) {
+            return 0;
+        }
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        return (end - startNanos) / 1e9;
+    }
+
+    @Override
+    public long getFilesTotal() {
+        return filesTotal.sum();
+    }
+
+    @Override
+    public long getFilesCompleted() {
+        return filesCompleted.sum();
+    }
+
+    @Override
+    public long getFilesRemaining() {
+        return Math.max(0, filesTotal.sum() - filesCompleted.sum());
+    }
+
+    @Override
+    public long getBytesTotal() {
+        return bytesTotal.sum();
+    }
+
+    @Override
+    public long getSecondsRemaining() {
+        long read = bytesRead.sum();
+        double bytesPerSecond = rate(read);
+        if (!isRunning() || bytesPerSecond == 0) {
+            return -1;
+        }
+        return (long) Math.ceil(Math.max(0, bytesTotal.sum() - read) / bytesPerSecond);
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public double getBytesPerSecond() {
+        return rate(bytesRead.sum());
+    }
+
+    @Override
+    public long getTokens() {
+        return tokens.sum();
+    }
+
+    @Override
+    public double getTokensPerSecond() {
+        return rate(tokens.sum());
+    }
+
+    @Override
+    public int getDistinctWords() {
+        if (stats != null) {
+            return stats.wordCount.sizeEstimate();
+        }
+        if (!jobs.isEmpty()) {
+            long words = 0;
+            for (ProcessingMetrics job : jobs) {
+                words += job.getDistinctWords();
+            }
+            return (int) Math.min(Integer.MAX_VALUE, words);
+        }
+        return fileStats == null ? 0 : fileStats.wordCount.sizeEstimate();
+    }
+
+    @Override
+    public int getActiveWorkers() {
+        return (int) activeWorkers.sum();
+    }
+
+    @Override
+    public long[] getFileLatencyBucketMillis() {
+        long[] bounds = new long[LATENCY_BUCKETS];
+        for (int i = 0; i < LATENCY_BUCKETS - 1; i++) {
+            bounds[i] = 1L << i;
+        }
+        bounds[LATENCY_BUCKETS - 1] = -1;
+        return bounds;
+    }
+
+    @Override
+    public long[] getFileLatencyHistogram() {
+        long[] counts = new long[LATENCY_BUCKETS];
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            counts[i] = latencies[i].sum();
+        }
+        return counts;
+    }
+
+    @Override
+    public long getFileLatencyMedianMillis() {
+        return percentile(0.5);
+    }
+
+    @Override
+    public long getFileLatency99thPercentileMillis() {
+        return percentile(0.99);
+    }
+
+    /**
+     * @return the bucket a latency falls in, bucket i holds latencies under 2^i ms
+     */
+    static int bucket(long millis) {
+        return Math.min(64 - Long.numberOfLeadingZeros(millis), LATENCY_BUCKETS - 1);
+    }
+
+    /**
+     * @return upper bound of the bucket holding the given fraction of files, -1 if it is the unbounded bucket
+     */
+    private long percentile(double fraction) {
+        long[] counts = getFileLatencyHistogram();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * fraction);
+        long seen = 0;
+        for (int i = 0; i < LATENCY_BUCKETS - 1; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return 1L << i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the amount per second over the run so far
+     */
+    private double rate(long amount) {
+        double seconds = getElapsedSeconds();
+        return seconds > 0 ? amount / seconds : 0;
+    }
+}
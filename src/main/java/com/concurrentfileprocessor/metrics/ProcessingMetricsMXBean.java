@@ -0,0 +1,92 @@
+package com.concurrentfileprocessor.metrics;
+
+/**
+ * live progress of the current or last processing run, as seen from a JMX console
+ * registered as com.concurrentfileprocessor:type=ProcessingMetrics
+ */
+public interface ProcessingMetricsMXBean {
+    /**
+     * @return true while a run is in progress
+     */
+    boolean isRunning();
+
+    /**
+     * @return seconds since the run started, up to its end once it has finished
+     */
+    double getElapsedSeconds();
+
+    /**
+     * @return files the run has to process, growing while a directory walk is still finding them
+     */
+    long getFilesTotal();
+
+    /**
+     * @return files finished so far, including ones replayed from the cache
+     */
+    long getFilesCompleted();
+
+    /**
+     * @return files found but not finished yet
+     */
+    long getFilesRemaining();
+
+    /**
+     * @return size on disk of the files the run has to process, growing while a directory walk is still finding them
+     */
+    long getBytesTotal();
+
+    /**
+     * @return size on disk of the files finished so far, so compressed files count their compressed size
+     */
+    long getBytesRead();
+
+    /**
+     * @return bytes of finished files per second over the run
+     */
+    double getBytesPerSecond();
+
+    /**
+     * @return seconds until the run finishes at its rate so far, -1 before anything is finished or after the run
+     */
+    long getSecondsRemaining();
+
+    /**
+     * @return words tokenized so far, counting every occurrence
+     */
+    long getTokens();
+
+    /**
+     * @return words tokenized per second over the run
+     */
+    double getTokensPerSecond();
+
+    /**
+     * @return distinct words in the shared word store
+     */
+    int getDistinctWords();
+
+    /**
+     * @return threads working on a file right now
+     */
+    int getActiveWorkers();
+
+    /**
+     * @return upper bound in milliseconds of each latency bucket, the last bucket has no bound and reports -1
+     */
+    long[] getFileLatencyBucketMillis();
+
+    /**
+     * @return number of files whose processing time fell in each latency bucket
+     */
+    long[] getFileLatencyHistogram();
+
+    /**
+     * @return upper bound in milliseconds of the bucket holding the median file, 0 before any file finished
+     */
+    long getFileLatencyMedianMillis();
+
+    /**
+     * @return upper bound in milliseconds of the bucket holding the 99th percentile file, 0 before any file finished
+     */
+    long getFileLatency99thPercentileMillis();
+}
@@ -0,0 +1,158 @@
+package com.concurrentfileprocessor.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * flight recording of a single run, limited to the processor's own events and garbage collections
+ * prints where the time went once the run has finished, the recording file can be opened in JDK Mission Control
+ */
+public class RunRecording {
+    // event type the JVM records for each garbage collection
+    private static final String GC_EVENT = "jdk.GarbageCollection";
+
+    // bytes in a megabyte, as in every other size option
+    private static final double MEGABYTE = 1024.0 * 1024;
+
+    // recording in progress and the file it is written to
+    private final Recording recording;
+    private final File file;
+
+    /**
+     * constructor
+     */
+    private RunRecording(Recording recording, File file) {
+        this.recording = recording;
+        this.file = file;
+    }
+
+    /**
+     * starts recording the processor's events
+     * @param file file the recording is written to when it stops
+     * @return the recording, or null if it could not be started
+     */
+    public static RunRecording start(File file) {
+        Recording recording = new Recording();
+        try {
+            recording.enable(FileEvent.NAME);
+            recording.enable(PhaseEvent.NAME);
+            recording.enable(GC_EVENT);
+            recording.setName("concurrent-file-processor");
+            recording.setToDisk(true);
+            recording.setDestination(file.toPath());
+            recording.start();
+            return new RunRecording(recording, file);
+        } catch (IOException | IllegalStateException | SecurityException e) {
+            System.err.println("Could not start flight recording: " + e.getMessage());
+            recording.close();
+            return null;
+        }
+    }
+
+    /**
+     * stops the recording, writes it to its file and prints the phase breakdown
+     */
+    public void finish() {
+        try {
+            recording.stop();
+            System.out.print(summarize(RecordingFile.readAllEvents(file.toPath())));
+            System.out.println("Flight recording saved to " + file.getPath());
+        } catch (IOException e) {
+            System.err.println("Could not read flight recording: " + e.getMessage());
+        } finally {
+            recording.close();
+        }
+    }
+
+    /**
+     * adds up the recorded events into the time spent in each phase and in each kind of work
+     * @param events events of a recording
+     * @return the breakdown, one item per line
+     */
+    public static String summarize(List<RecordedEvent> events) {
+        Map<String, Long> phases = new LinkedHashMap<>();
+        long readNanos = 0;
+        long tokenizeNanos = 0;
+        long mergeNanos = 0;
+        long bytes = 0;
+        long tokens = 0;
+        int pieces = 0;
+        Set<Long> threads = new HashSet<>();
+        RecordedEvent slowest = null;
+        int collections = 0;
+        long pauseNanos = 0;
+        long longestPauseNanos = 0;
+
+        List<RecordedEvent> sorted = new ArrayList<>(events);
+        sorted.sort(Comparator.comparing(RecordedEvent::getStartTime));
+        for (RecordedEvent event : sorted) {
+            String type = event.getEventType().getName();
+            if (type.equals(PhaseEvent.NAME)) {
+                phases.merge(event.getString("phase"), event.getDuration().toNanos(), Long::sum);
+            } else if (type.equals(FileEvent.NAME)) {
+                readNanos += event.getDuration("readTime").toNanos();
+                tokenizeNanos += event.getDuration("tokenizeTime").toNanos();
+                mergeNanos += event.getDuration("mergeTime").toNanos();
+                bytes += event.getLong("bytes");
+                tokens += event.getLong("tokens");
+                if (event.getThread() != null) {
+                    threads.add(event.getThread().getJavaThreadId());
+                }
+                if (!event.getString("path").isEmpty()) {
+                    pieces++;
+                    if (slowest == null || event.getDuration().compareTo(slowest.getDuration()) > 0) {
+                        slowest = event;
+                    }
+                }
+            } else if (type.equals(GC_EVENT)) {
+                collections++;
+                pauseNanos += event.getDuration("sumOfPauses").toNanos();
+                longestPauseNanos = Math.max(longestPauseNanos, event.getDuration("longestPause").toNanos());
+            }
+        }
+
+        StringBuilder summary = new StringBuilder("Phase breakdown:\n");
+        for (Map.Entry<String, Long> phase : phases.entrySet()) {
+            summary.append(String.format("  %-12s %8d ms%n", phase.getKey(), millis(phase.getValue())));
+        }
+        summary.append(String.format("Work on %d threads over %d files or pieces of files, %.1f MB, %d tokens:%n",
+            threads.size(), pieces, bytes / MEGABYTE, tokens));
+        long work = Math.max(1, readNanos + tokenizeNanos + mergeNanos);
+        summary.append(line("reading", readNanos, work));
+        summary.append(line("tokenizing", tokenizeNanos, work));
+        summary.append(line("merging", mergeNanos, work));
+        if (slowest != null) {
+            summary.append(String.format("Slowest: %s at byte %d, %d ms%n", slowest.getString("path"),
+                slowest.getLong("offset"), millis(slowest.getDuration().toNanos())));
+        }
+        summary.append(String.format("Garbage collection: %d collections, %d ms paused, longest pause %d ms%n",
+            collections, millis(pauseNanos), millis(longestPauseNanos)));
+        return summary.toString();
+    }
+
+    /**
+     * @return one kind of work with its share of all work
+     */
+    private static String line(String name, long nanos, long work) {
+        return String.format("  %-12s %8d ms %5.1f%%%n", name, millis(nanos), 100.0 * nanos / work);
+    }
+
+    /**
+     * @return whole milliseconds in a number of nanoseconds
+     */
+    private static long millis(long nanos) {
+        return Duration.ofNanos(nanos).toMillis();
+    }
+}
@@ -0,0 +1,265 @@
+package com.concurrentfileprocessor.processor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * encodes text and numbers into a reusable byte buffer and writes it to a channel whenever it fills
+ * text is encoded as UTF-8 one char at a time, so nothing is copied into an intermediate String or array
+ * a write failure is kept and thrown by flush, since values often arrive through callbacks that cannot throw
+ */
+public class ByteOutput {
+    // how text is escaped while it is encoded
+    private static final int PLAIN = 0;
+    private static final int JSON = 1;
+    private static final int CSV = 2;
+
+    // most bytes a single char can be encoded as, a JSON escape of a control character
+    private static final int MAX_CHAR_BYTES = 6;
+
+    // hex digits for JSON escapes
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    // destination of the encoded bytes
+    private final WritableByteChannel channel;
+
+    // encoded bytes not yet written, filled through a plain array since per-byte ByteBuffer puts are much slower
+    private final byte[] bytes;
+    private final ByteBuffer buffer;
+    private int position;
+
+    // scratch space for the digits of a number
+    private final byte[] digits = new byte[20];
+
+    // first write failure, later writes are dropped
+    private IOException failure;
+
+    /**
+     * constructor
+     * @param channel channel to write to
+     * @param bufferSize bytes encoded before each write
+     */
+    public ByteOutput(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.bytes = new byte[bufferSize];
+        this.buffer = ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * writes text as UTF-8
+     * @param text the text to write
+     */
+    public void putString(String text) {
+        putText(text, PLAIN);
+    }
+
+    /**
+     * writes text as a quoted JSON string
+     * @param text the text to write
+     */
+    public void putJsonString(String text) {
+        putByte('"');
+        putText(text, JSON);
+        putByte('"');
+    }
+
+    /**
+     * writes text as a CSV field, quoting it only if it holds a comma, quote or line break
+     * @param text the text to write
+     */
+    public void putCsvField(String text) {
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (quote) {
+            putByte('"');
+            putText(text, CSV);
+            putByte('"');
+        } else {
+            putText(text, PLAIN);
+        }
+    }
+
+    /**
+     * writes a number in decimal
+     * @param value the number to write
+     */
+    public void putLong(long value) {
+        ensure(digits.length + 1);
+        if (value < 0) {
+            bytes[position++] = '-';
+            value = -value;
+        }
+        int start = digits.length;
+        do {
+            digits[--start] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        System.arraycopy(digits, start, bytes, position, digits.length - start);
+        position += digits.length - start;
+    }
+
+    /**
+     * writes an unsigned LEB128 varint, seven bits per byte with the high bit set on all but the last
+     * @param value the number to write
+     */
+    public void putVarLong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[position++] = (byte) value;
+    }
+
+    /**
+     * writes four bytes, high byte first
+     * @param value the number to write
+     */
+    public void putInt(int value) {
+        ensure(4);
+        bytes[position++] = (byte) (value >>> 24);
+        bytes[position++] = (byte) (value >>> 16);
+        bytes[position++] = (byte) (value >>> 8);
+        bytes[position++] = (byte) value;
+    }
+
+    /**
+     * writes a single byte, or a single ASCII character
+     * @param value the byte to write
+     */
+    public void putByte(int value) {
+        ensure(1);
+        bytes[position++] = (byte) value;
+    }
+
+    /**
+     * counts the bytes text takes as UTF-8 without encoding it
+     * @param text the text to measure
+     * @return number of bytes putString writes for it
+     */
+    public static int utf8Length(String text) {
+        int length = text.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    bytes += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    // two chars become four bytes
+                    bytes += 2;
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    bytes += 2;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * writes out whatever is in the buffer and reports any earlier write failure
+     * @throws IOException if any write failed
+     */
+    public void flush() throws IOException {
+        drain();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * encodes text as UTF-8 with the given escaping
+     * unpaired surrogates are replaced by '?' the same way String.getBytes does
+     */
+    private void putText(String text, int escape) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            if (bytes.length - position < MAX_CHAR_BYTES) {
+                drain();
+            }
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                if (escape == JSON && (c < 0x20 || c == '"' || c == '\\')) {
+                    putJsonEscape(c);
+                } else if (escape == CSV && c == '"') {
+                    bytes[position++] = '"';
+                    bytes[position++] = '"';
+                } else {
+                    bytes[position++] = (byte) c;
+                }
+            } else if (c < 0x800) {
+                bytes[position++] = (byte) (0xC0 | c >> 6);
+                bytes[position++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                bytes[position++] = (byte) (0xF0 | codePoint >> 18);
+                bytes[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                bytes[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                bytes[position++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                bytes[position++] = '?';
+            } else {
+                bytes[position++] = (byte) (0xE0 | c >> 12);
+                bytes[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                bytes[position++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+    }
+
+    /**
+     * writes the JSON escape for a quote, backslash or control character
+     */
+    private void putJsonEscape(char c) {
+        bytes[position++] = '\\';
+        switch (c) {
+            case '"':
+            case '\\':
+                bytes[position++] = (byte) c;
+                break;
+            case '\n':
+                bytes[position++] = 'n';
+                break;
+            case '\r':
+                bytes[position++] = 'r';
+                break;
+            case '\t':
+                bytes[position++] = 't';
+                break;
+            default:
+                bytes[position++] = 'u';
+                bytes[position++] = '0';
+                bytes[position++] = '0';
+                bytes[position++] = HEX[c >> 4];
+                bytes[position++] = HEX[c & 0xF];
+        }
+    }
+
+    /**
+     * writes out the buffer if fewer than the given number of bytes are free
+     */
+    private void ensure(int count) {
+        if (bytes.length - position < count) {
+            drain();
+        }
+    }
+
+    /**
+     * writes the buffer to the channel and empties it, keeping the first failure
+     */
+    private void drain() {
+        buffer.limit(position).position(0);
+        try {
+            while (failure == null && buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            failure = e;
+        }
+        position = 0;
+    }
+}
@@ -0,0 +1,164 @@
+package com.concurrentfileprocessor.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.RecursiveAction;
+
+import com.concurrentfileprocessor.FileStats;
+import com.concurrentfileprocessor.metrics.FileEvent;
+
+/**
+ * fork/join task that processes a large file as byte ranges in parallel
+ * ranges are cut just after a '\n' so no word or line is split between two tasks,
+ * which keeps the totals identical to processing the file in one go
+ */
+public class FileChunkTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    // how far past the midpoint to look for a line break at a time
+    private static final int SCAN_SIZE = 8 * 1024;
+
+    // file to be processed, only set on the task that owns the channel
+    private final File file;
+
+    // shared channel used for positional reads, null until the owning task opens it
+    private final FileChannel channel;
+
+    // byte range handled by this task
+    private final long start;
+    private final long end;
+
+    // ranges at or below this size are tokenized directly
+    private final long chunkSize;
+
+    // shared statistics object for results across threads
+    private final FileStats fileStats;
+
+    // records the work done by each worker, null when not reporting
+    private final LoadReport loadReport;
+
+    /**
+     * constructor for the task covering the whole file
+     * @param file the file to process
+     * @param fileStats shared statistics object
+     * @param chunkSize largest range tokenized by a single task
+     */
+    public FileChunkTask(File file, FileStats fileStats, long chunkSize) {
+        this(file, fileStats, chunkSize, null);
+    }
+
+    /**
+     * constructor for the task covering the whole file that reports each range's work
+     * @param file the file to process
+     * @param fileStats shared statistics object
+     * @param chunkSize largest range tokenized by a single task
+     * @param loadReport report to record each range against the worker that tokenized it, or null
+     */
+    public FileChunkTask(File file, FileStats fileStats, long chunkSize, LoadReport loadReport) {
+        this(file, null, 0, -1, fileStats, chunkSize, loadReport);
+    }
+
+    /**
+     * constructor for a single byte range
+     */
+    private FileChunkTask(File file, FileChannel channel, long start, long end, FileStats fileStats, long chunkSize,
+            LoadReport loadReport) {
+        this.file = file;
+        this.channel = channel;
+        this.start = start;
+        this.end = end;
+        this.fileStats = fileStats;
+        this.chunkSize = chunkSize;
+        this.loadReport = loadReport;
+    }
+
+    /**
+     * opens the file for the root task, splits large ranges and tokenizes small ones
+     */
+    @Override
+    protected void compute() {
+        if (channel == null) {
+            try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                new FileChunkTask(file, fileChannel, 0, fileChannel.size(), fileStats, chunkSize, loadReport).compute();
+            } catch (InterruptedIOException | ClosedChannelException e) {
+                // stopped part way, the statistics drop the ranges already counted
+            } catch (IOException e) {
+                System.err.println(e.getMessage());
+                fileStats.readFailed();
+            }
+            return;
+        }
+
+        try {
+            long cut = end - start > chunkSize ? findLineBreak(start + (end - start) / 2) : -1;
+            if (cut > start && cut < end) {
+                invokeAll(new FileChunkTask(file, channel, start, cut, fileStats, chunkSize, loadReport),
+                    new FileChunkTask(file, channel, cut, end, fileStats, chunkSize, loadReport));
+            } else {
+                countRange();
+            }
+        } catch (InterruptedIOException | ClosedChannelException e) {
+            // stopped part way, an interrupt during a read closes the channel every range of the file shares
+        } catch (IOException e) {
+            System.err.println(file.getName() + ": " + e.getMessage());
+            fileStats.readFailed();
+        }
+    }
+
+    /**
+     * tokenizes this task's range and adds the results to the shared statistics
+     * @throws IOException if reading fails
+     */
+    private void countRange() throws IOException {
+        long startTime = System.nanoTime();
+        FileEvent event = new FileEvent();
+        event.begin();
+        WordTable words = new WordTable();
+        WordTokenizer tokenizer = new WordTokenizer(fileStats.localSink(words), fileStats.charset);
+        tokenizer.setStopCheck(fileStats::checkStopped);
+        tokenizer.consume(channel, start, end);
+        long mergeStart = System.nanoTime();
+        fileStats.merge(words, tokenizer.characterCount(), tokenizer.lineCount());
+        long mergeNanos = System.nanoTime() - mergeStart;
+        fileStats.metrics.addTokens(tokenizer.wordCount());
+        event.finish(file.getPath(), start, end - start, tokenizer.wordCount(), tokenizer.readNanos(),
+            mergeStart - startTime - tokenizer.readNanos(), mergeNanos);
+        if (loadReport != null) {
+            loadReport.record(end - start, System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * finds the first position after a '\n' at or past the given position and before the end of the range
+     * a range without line breaks is scanned to its end, so the scan stops with the run like a read does
+     * @param from position to start looking
+     * @return position just after the line break, or -1 if the rest of the range has none
+     * @throws IOException if reading fails
+     * @throws InterruptedIOException if the run was cancelled or the file was stopped
+     */
+    private long findLineBreak(long from) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_SIZE);
+        long position = from;
+        while (position < end) {
+            fileStats.checkStopped();
+            buffer.clear();
+            buffer.limit((int) Math.min(SCAN_SIZE, end - position));
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                return -1;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,166 @@
+package com.concurrentfileprocessor.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * finds input files under a directory and hands each one over as soon as it is found
+ * patterns are comma separated globs matched case-insensitively, a pattern without a '/' matches the file name
+ * and one with a '/' matches the path relative to the root directory
+ * directories matching an exclude pattern are skipped entirely
+ * links to files are followed like the files themselves, links to directories are not followed, so the walk
+ * cannot loop, and are reported as skipped
+ */
+public class FileDiscovery {
+    // directory to search
+    private final Path root;
+
+    // true to search subdirectories as well
+    private final boolean recursive;
+
+    // a file must match one include pattern and no exclude pattern
+    private final List<PathMatcher> includes;
+    private final List<PathMatcher> excludes;
+
+    // which patterns match relative paths rather than file names
+    private final List<Boolean> includeByPath = new ArrayList<>();
+    private final List<Boolean> excludeByPath = new ArrayList<>();
+
+    /**
+     * constructor
+     * @param root directory to search
+     * @param recursive true to search subdirectories as well
+     * @param include comma separated globs a file must match one of
+     * @param exclude comma separated globs for files and directories to leave out, may be empty
+     */
+    public FileDiscovery(File root, boolean recursive, String include, String exclude) {
+        this.root = root.toPath();
+        this.recursive = recursive;
+        this.includes = compile(include, includeByPath);
+        this.excludes = compile(exclude, excludeByPath);
+    }
+
+    /**
+     * walks the directory, passing each matching file to the consumer as it is found
+     * unreadable directories, broken links and links to directories are reported and skipped
+     * @param consumer receives each matching file
+     * @return number of files found
+     * @throws IOException if the root directory cannot be read
+     */
+    public int walk(Consumer<File> consumer) throws IOException {
+        int[] found = {0};
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                if (dir.equals(root)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                if (!recursive || matches(excludes, excludeByPath, dir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (attributes.isSymbolicLink()) {
+                    attributes = linkTarget(file);
+                    if (attributes == null) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                }
+                if (attributes.isRegularFile() && matches(includes, includeByPath, file)
+                        && !matches(excludes, excludeByPath, file)) {
+                    found[0]++;
+                    consumer.accept(file.toFile());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                System.err.println("Skipping " + file + ": " + e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return found[0];
+    }
+
+    /**
+     * reads the attributes of what a link points to, reporting links that are broken or point to a directory
+     * @return the attributes, or null if the link is skipped
+     */
+    private static BasicFileAttributes linkTarget(Path link) {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(link, BasicFileAttributes.class);
+        } catch (IOException e) {
+            System.err.println("Skipping broken link " + link + ": " + e.getMessage());
+            return null;
+        }
+        if (attributes.isDirectory()) {
+            System.err.println("Skipping link to directory " + link);
+            return null;
+        }
+        return attributes;
+    }
+
+    /**
+     * collects every matching file into a list
+     * @return the files found
+     * @throws IOException if the root directory cannot be read
+     */
+    public List<File> list() throws IOException {
+        List<File> files = new ArrayList<>();
+        walk(files::add);
+        return files;
+    }
+
+    /**
+     * checks a path against a set of patterns
+     */
+    private boolean matches(List<PathMatcher> matchers, List<Boolean> byPath, Path path) {
+        Path name = Path.of(path.getFileName().toString().toLowerCase());
+        Path relative = null;
+        for (int i = 0; i < matchers.size(); i++) {
+            if (byPath.get(i)) {
+                if (relative == null) {
+                    relative = Path.of(root.relativize(path).toString().replace(File.separatorChar, '/').toLowerCase());
+                }
+                if (matchers.get(i).matches(relative)) {
+                    return true;
+                }
+            } else if (matchers.get(i).matches(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * compiles comma separated globs
+     * @param patterns the globs
+     * @param byPath filled with whether each glob matches relative paths
+     */
+    private static List<PathMatcher> compile(String patterns, List<Boolean> byPath) {
+        List<PathMatcher> matchers = new ArrayList<>();
+        for (String pattern : patterns.split(",")) {
+            pattern = pattern.trim().toLowerCase();
+            if (!pattern.isEmpty()) {
+                matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + pattern));
+                byPath.add(pattern.contains("/"));
+            }
+        }
+        return matchers;
+    }
+}
@@ -1,9 +1,17 @@
 package com.concurrentfileprocessor.processor;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.util.Scanner;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
 
 import com.concurrentfileprocessor.FileStats;
+import com.concurrentfileprocessor.input.ArchiveTask;
+import com.concurrentfileprocessor.input.InputKind;
+import com.concurrentfileprocessor.metrics.FileEvent;
 
 /**
  * task class that processes individual files to collect file statistics
@@ -41,28 +49,58 @@ public class FileMetricsCollector implements Runnable {
 
     /**
      * processes a file and updates statistics
-     * reads file line by line, counts words, characters and lines
+     * streams the raw bytes through a tokenizer, counts words, characters and lines locally then merges them
+     * the first bytes are looked at before tokenizing, so compressed and archived files are unpacked
+     * and binary files are skipped without reading the rest
      * @param file the file to process
      * @param fileStats statistics object to update
      * @throws FileNotFoundException if file cannot be found or read
      */
     public static void countFileComponents(File file, FileStats fileStats) throws FileNotFoundException {
-        try (Scanner scanner = new Scanner(file)) {
-            int fileLineCount = 0;
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-                fileLineCount++;
-                
-                String[] words = line.split("\\s+");
-                for (String word : words) {
-                    String cleanWord = word.toLowerCase().replaceAll("[^a-z]", "");
-                    if (!cleanWord.isEmpty()) {
-                        fileStats.wordCount.merge(cleanWord, 1, Integer::sum);
-                        fileStats.characterCount.addAndGet(cleanWord.length());
-                    }  
-                }
+        // count into a private table and fold it into the shared statistics once at the end
+        WordTable words = new WordTable();
+        WordTokenizer tokenizer = new WordTokenizer(fileStats.localSink(words), fileStats.charset);
+        tokenizer.setStopCheck(fileStats::checkStopped);
+        FileEvent event = new FileEvent();
+        event.begin();
+        long start = System.nanoTime();
+        long headerNanos = 0;
+        long bytes = 0;
+
+        try (FileChannel channel = new FileInputStream(file).getChannel()) {
+            ByteBuffer header = ByteBuffer.allocate(InputKind.SNIFF_BYTES);
+            int read = 0;
+            while (header.hasRemaining() && read != -1) {
+                read = channel.read(header);
+            }
+            headerNanos = System.nanoTime() - start;
+            InputKind kind = InputKind.sniff(header.array(), header.position());
+            if (kind != InputKind.PLAIN) {
+                new ArchiveTask(file, kind, fileStats).invoke();
+                return;
             }
-            fileStats.lineCount.addAndGet(fileLineCount);
+            tokenizer.feed(header.array(), 0, header.position());
+            tokenizer.consume(channel);
+            bytes = channel.position();
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (InterruptedIOException | ClosedByInterruptException e) {
+            // stopped part way, between reads or by an interrupt during one, nothing of the file is counted
+            return;
+        } catch (IOException e) {
+            // keep whatever was read before the failure, like the Scanner did
+            System.err.println(e.getMessage());
+            tokenizer.finish();
+            fileStats.merge(words, tokenizer.characterCount(), tokenizer.lineCount());
+            fileStats.readFailed();
+            return;
         }
+        long mergeStart = System.nanoTime();
+        fileStats.merge(words, tokenizer.characterCount(), tokenizer.lineCount());
+        long mergeNanos = System.nanoTime() - mergeStart;
+        fileStats.metrics.addTokens(tokenizer.wordCount());
+        long readNanos = headerNanos + tokenizer.readNanos();
+        event.finish(file.getPath(), 0, bytes, tokenizer.wordCount(), readNanos, mergeStart - start - readNanos,
+            mergeNanos);
     }
 }
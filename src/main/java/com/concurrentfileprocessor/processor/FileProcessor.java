@@ -1,18 +1,277 @@
 package com.concurrentfileprocessor.processor;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import static com.concurrentfileprocessor.ConcurrentFileProcessor.fileStats;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.inputFiles;
 import static com.concurrentfileprocessor.ConcurrentFileProcessor.outputFilePath;
 import static com.concurrentfileprocessor.ConcurrentFileProcessor.outputFilename;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.settings;
+import com.concurrentfileprocessor.cache.FileResultCache;
+import com.concurrentfileprocessor.metrics.PhaseEvent;
+import com.concurrentfileprocessor.shard.ShardCoordinator;
+import com.concurrentfileprocessor.snapshot.Snapshots;
 
 /**
  * handles the complete file processing workflow
  */
 public class FileProcessor {
+    // true while processFiles or processDiscoveredFiles is running, guarded by the class lock
+    private static boolean running;
+
+    // set by cancel and cleared once the run it stopped has ended
+    private static volatile boolean cancelled;
+
     /**
      * processes all input files concurrently and generates output file
+     * reads on separate threads from tokenizing when pipeline readers are configured
+     * prints the file throughput so execution strategies can be compared on the same input
+     * @return true if the run finished, false if it was cancelled and its results thrown away
+     */
+    public static boolean processFiles(){
+        long start = System.nanoTime();
+        beginRun();
+        try {
+            if (settings.pipelineReaders > 0) {
+                PhaseEvent processing = PhaseEvent.start("processing");
+                PipelineStats stats = PipelinedDelegator.delegateTasks();
+                processing.finish();
+                System.out.println(stats);
+            } else {
+                FileResultCache cache = openCache();
+                RunReport report = RunReport.create(settings);
+                PhaseEvent processing = PhaseEvent.start("processing");
+                LoadReport loadReport = ThreadDelegator.delegateTasks(cache, report);
+                processing.finish();
+                closeCache(cache);
+                if (loadReport != null) {
+                    System.out.println(loadReport);
+                }
+                printReport(report);
+            }
+            if (cancelled) {
+                discardRun();
+                return false;
+            }
+            finishRun(start);
+            return true;
+        } finally {
+            endRun();
+        }
+    }
+
+    /**
+     * processes files as a directory walk finds them and generates output file if any were found
+     * uses the pipeline after the walk when pipeline readers are configured, since it reads from a fixed list
+     * @param discovery the directory walk that finds the files
+     * @return number of files found, or -1 if the run was cancelled
+     */
+    public static int processDiscoveredFiles(FileDiscovery discovery) {
+        long start = System.nanoTime();
+        beginRun();
+        try {
+            if (settings.pipelineReaders > 0) {
+                listFiles(discovery);
+                if (inputFiles.isEmpty()) {
+                    return 0;
+                }
+                PhaseEvent processing = PhaseEvent.start("processing");
+                PipelineStats stats = PipelinedDelegator.delegateTasks();
+                processing.finish();
+                System.out.println(stats);
+            } else {
+                FileResultCache cache = openCache();
+                // the directory walk is recorded as its own phase, overlapping this one
+                PhaseEvent processing = PhaseEvent.start("processing");
+                RunReport report = RunReport.create(settings);
+                int found = ThreadDelegator.delegateDiscoveredTasks(discovery, cache, report);
+                processing.finish();
+                closeCache(cache);
+                if (found == 0) {
+                    return 0;
+                }
+                printReport(report);
+            }
+            if (cancelled) {
+                discardRun();
+                return -1;
+            }
+            finishRun(start);
+            return fileStats.numberOfFiles;
+        } finally {
+            endRun();
+        }
+    }
+
+    /**
+     * splits the files a directory walk finds between worker processes and merges their results
+     * writes the output file only if every shard succeeded
+     * @param discovery the directory walk that finds the files
+     * @return number of files found, or -1 if a shard failed
+     */
+    public static int processShardedFiles(FileDiscovery discovery) {
+        long start = System.nanoTime();
+        listFiles(discovery);
+        if (inputFiles.isEmpty()) {
+            return 0;
+        }
+
+        List<ShardCoordinator.Shard> shards;
+        PhaseEvent sharding = PhaseEvent.start("shards");
+        try {
+            shards = new ShardCoordinator(settings).run(inputFiles, fileStats);
+        } catch (IOException e) {
+            System.err.println("Could not start shards: " + e.getMessage());
+            shards = null;
+        }
+        sharding.finish();
+        if (shards == null) {
+            System.err.println("Sharded run failed, no output written");
+            return -1;
+        }
+        finishRun(start);
+        return fileStats.numberOfFiles;
+    }
+
+    /**
+     * stops the run in progress from another thread, its results are thrown away and no output file is written
+     * files not started yet are skipped and files being read stop at their next read,
+     * does nothing when no run is in progress, so a late cancel cannot stop the next run
+     */
+    public static synchronized void cancel() {
+        if (!running) {
+            return;
+        }
+        cancelled = true;
+        ThreadDelegator.cancel();
+        PipelinedDelegator.cancel();
+    }
+
+    /**
+     * @return true if the run in progress has been cancelled
+     */
+    public static boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * marks a run as in progress so it can be cancelled
+     */
+    private static synchronized void beginRun() {
+        running = true;
+    }
+
+    /**
+     * marks the run as ended and forgets whether it was cancelled
+     */
+    private static synchronized void endRun() {
+        running = false;
+        cancelled = false;
+    }
+
+    /**
+     * lists every file a directory walk finds into the global input files
+     * @param discovery the directory walk that finds the files
+     */
+    private static void listFiles(FileDiscovery discovery) {
+        PhaseEvent phase = PhaseEvent.start("discovery");
+        try {
+            inputFiles = discovery.list();
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            inputFiles = new ArrayList<>();
+        }
+        phase.finish();
+    }
+
+    /**
+     * opens the result cache named in the settings
+     * the pipeline mixes files in its buffers, so it cannot record per-file results and never uses the cache
+     * @return the cache, or null when it is disabled or cannot be opened
+     */
+    private static FileResultCache openCache() {
+        if (settings.cacheFile.isEmpty()) {
+            return null;
+        }
+        PhaseEvent phase = PhaseEvent.start("cache");
+        try {
+            return new FileResultCache(new File(settings.cacheFile), settings.cacheHash, settings.charset);
+        } catch (IOException e) {
+            System.err.println("Processing without cache: " + e.getMessage());
+            return null;
+        } finally {
+            phase.finish();
+        }
+    }
+
+    /**
+     * saves the result cache and prints its hit rate, or drops what a cancelled run added to it
+     * @param cache the cache, or null when it is disabled
+     */
+    private static void closeCache(FileResultCache cache) {
+        if (cache == null) {
+            return;
+        }
+        if (cancelled) {
+            try {
+                cache.discard();
+            } catch (IOException e) {
+                System.err.println("Could not discard cache: " + e.getMessage());
+            }
+            return;
+        }
+        PhaseEvent phase = PhaseEvent.start("cache");
+        try {
+            cache.close();
+        } catch (IOException e) {
+            System.err.println("Could not save cache: " + e.getMessage());
+        }
+        phase.finish();
+        System.out.println(cache.report());
+    }
+
+    /**
+     * prints which files the time limits left out of the statistics
+     * @param report the run report, or null when no time limit was set
+     */
+    private static void printReport(RunReport report) {
+        if (report != null && !cancelled) {
+            System.out.println(report);
+        }
+    }
+
+    /**
+     * throws away the statistics of a cancelled run, so the next run starts from empty statistics
+     * files interrupted part way may have merged some of their words, so no part of the run can be trusted
+     */
+    private static void discardRun() {
+        fileStats = fileStats.refreshFileStats();
+        System.out.println("Run cancelled, no output written");
+    }
+
+    /**
+     * prints the file throughput, writes the output file and saves a snapshot if one is configured
+     * @param start System.nanoTime() when processing started
      */
-    public static void processFiles(){
-        ThreadDelegator.delegateTasks();
+    private static void finishRun(long start) {
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        System.out.printf("Processed %d files in %d ms (%.0f files/s)%n",
+            fileStats.numberOfFiles, elapsedMillis, fileStats.numberOfFiles * 1000.0 / elapsedMillis);
+        PhaseEvent output = PhaseEvent.start("output");
         OutputWriter.outputStatsToFile(outputFilePath, outputFilename,fileStats);
+        output.finish();
+        if (!settings.snapshotFile.isEmpty()) {
+            PhaseEvent snapshot = PhaseEvent.start("snapshot");
+            try {
+                Snapshots.save(fileStats, new File(settings.snapshotFile));
+            } catch (IOException e) {
+                System.err.println("Could not save snapshot: " + e.getMessage());
+            }
+            snapshot.finish();
+        }
     }
 }
@@ -0,0 +1,100 @@
+package com.concurrentfileprocessor.processor;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.concurrentfileprocessor.ProcessorSettings.SchedulePolicy;
+
+/**
+ * input files in the order they will be handed to the workers, with their sizes read once up front
+ * a file's size stands in for the cost of processing it
+ */
+public class FileSchedule {
+    // policy the files were ordered by
+    public final SchedulePolicy policy;
+
+    // files in scheduling order
+    public final List<File> files;
+
+    // size of each file in the same order
+    public final long[] sizes;
+
+    /**
+     * constructor
+     */
+    private FileSchedule(SchedulePolicy policy, List<File> files, long[] sizes) {
+        this.policy = policy;
+        this.files = files;
+        this.sizes = sizes;
+    }
+
+    /**
+     * reads the size of every file and orders them by the policy
+     * files with the same size keep their original order
+     * @param files files to schedule
+     * @param policy order to schedule them in
+     * @return the ordered schedule
+     */
+    public static FileSchedule create(List<File> files, SchedulePolicy policy) {
+        int count = files.size();
+        long[] sizes = new long[count];
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            sizes[i] = files.get(i).length();
+            order[i] = i;
+        }
+
+        if (policy == SchedulePolicy.LARGEST_FIRST) {
+            Arrays.sort(order, Comparator.comparingLong((Integer i) -> sizes[i]).reversed());
+        } else if (policy == SchedulePolicy.SMALLEST_FIRST) {
+            Arrays.sort(order, Comparator.comparingLong((Integer i) -> sizes[i]));
+        }
+
+        List<File> orderedFiles = new ArrayList<>(count);
+        long[] orderedSizes = new long[count];
+        for (int i = 0; i < count; i++) {
+            orderedFiles.add(files.get(order[i]));
+            orderedSizes[i] = sizes[order[i]];
+        }
+        return new FileSchedule(policy, orderedFiles, orderedSizes);
+    }
+
+    /**
+     * predicts how many bytes each worker will process
+     * simulates workers taking the next task as soon as they are free, with time proportional to size,
+     * files larger than the chunk size count as the equal halves FileChunkTask splits them into
+     * @param workers number of workers
+     * @param chunkSize chunk size from the settings, 0 when files are not split
+     * @return planned bytes for each worker, busiest first
+     */
+    public long[] plan(int workers, long chunkSize) {
+        PriorityQueue<long[]> loads = new PriorityQueue<>(Comparator.comparingLong((long[] load) -> load[0]));
+        for (int i = 0; i < workers; i++) {
+            loads.add(new long[1]);
+        }
+
+        for (long size : sizes) {
+            int pieces = 1;
+            if (chunkSize > 0 && size > chunkSize) {
+                while ((size + pieces - 1) / pieces > chunkSize) {
+                    pieces *= 2;
+                }
+            }
+            for (int piece = 0; piece < pieces; piece++) {
+                long[] load = loads.poll();
+                load[0] += size / pieces + (piece < size % pieces ? 1 : 0);
+                loads.add(load);
+            }
+        }
+
+        long[] planned = new long[workers];
+        for (int i = workers - 1; i >= 0; i--) {
+            planned[i] = loads.poll()[0];
+        }
+        return planned;
+    }
+}
@@ -0,0 +1,111 @@
+package com.concurrentfileprocessor.processor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.fileStats;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.metrics;
+
+/**
+ * takes partial results of the run in progress on a thread of its own and passes them to a listener
+ * snapshots are only taken while a run is in progress, and the time between them grows when a large vocabulary
+ * makes each one slow, so the snapshots never take more than a tenth of one thread away from the workers
+ */
+public class LiveResults implements AutoCloseable {
+    // time between snapshots when they are quick
+    public static final long INTERVAL_MILLIS = 1000;
+
+    // snapshots take at most one part in this many of the snapshot thread's time
+    private static final int TIME_SHARE = 10;
+
+    // thread taking the snapshots
+    private final Thread thread;
+
+    // set once the snapshots should stop
+    private volatile boolean closed;
+
+    /**
+     * constructor
+     */
+    private LiveResults(long intervalMillis, IntFunction<PartialResults> source, int top,
+            Consumer<PartialResults> listener) {
+        thread = new Thread(() -> takeSnapshots(intervalMillis, source, top, listener), "live-results");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * starts taking a snapshot about once a second
+     * @param top number of most frequent words in each snapshot
+     * @param listener receives each snapshot on the snapshot thread
+     * @return the running snapshots, to be closed once the run is over
+     */
+    public static LiveResults start(int top, Consumer<PartialResults> listener) {
+        return start(INTERVAL_MILLIS, top, listener);
+    }
+
+    /**
+     * starts taking snapshots
+     * @param intervalMillis shortest time between snapshots
+     * @param top number of most frequent words in each snapshot
+     * @param listener receives each snapshot on the snapshot thread
+     * @return the running snapshots, to be closed once the run is over
+     */
+    public static LiveResults start(long intervalMillis, int top, Consumer<PartialResults> listener) {
+        return start(intervalMillis, count -> fileStats.snapshot(count), top, listener);
+    }
+
+    /**
+     * starts taking snapshots of statistics other than the global ones, such as those of an engine job
+     * @param intervalMillis shortest time between snapshots
+     * @param source takes a snapshot with the given number of most frequent words
+     * @param top number of most frequent words in each snapshot
+     * @param listener receives each snapshot on the snapshot thread
+     * @return the running snapshots, to be closed once the run is over
+     */
+    public static LiveResults start(long intervalMillis, IntFunction<PartialResults> source, int top,
+            Consumer<PartialResults> listener) {
+        LiveResults live = new LiveResults(intervalMillis, source, top, listener);
+        live.thread.start();
+        return live;
+    }
+
+    /**
+     * stops taking snapshots and waits for the listener to finish with the last one
+     */
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * takes snapshots from the source until closed
+     */
+    private void takeSnapshots(long intervalMillis, IntFunction<PartialResults> source, int top,
+            Consumer<PartialResults> listener) {
+        long delayMillis = intervalMillis;
+        while (!closed) {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (closed || !metrics.isRunning()) {
+                continue;
+            }
+            long start = System.nanoTime();
+            PartialResults results = source.apply(top);
+            long tookMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            delayMillis = Math.max(intervalMillis, tookMillis * (TIME_SHARE - 1));
+            if (!closed) {
+                listener.accept(results);
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.concurrentfileprocessor.processor;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.concurrentfileprocessor.ProcessorSettings.SchedulePolicy;
+
+/**
+ * planned against actual load for each worker of a run
+ * tasks record the bytes they processed and how long it took against the thread they ran on
+ */
+public class LoadReport {
+    // policy the files were ordered by
+    public final SchedulePolicy policy;
+
+    // planned bytes for each worker, busiest first
+    public final long[] plannedBytes;
+
+    // bytes and busy nanoseconds for each worker thread, each entry is only written by its own thread
+    private final Map<Thread, long[]> actual = new ConcurrentHashMap<>();
+
+    /**
+     * constructor
+     * @param policy policy the files were ordered by
+     * @param plannedBytes planned bytes for each worker, busiest first
+     */
+    public LoadReport(SchedulePolicy policy, long[] plannedBytes) {
+        this.policy = policy;
+        this.plannedBytes = plannedBytes;
+    }
+
+    /**
+     * adds finished work to the current thread's load
+     * @param bytes number of bytes processed
+     * @param nanos time taken
+     */
+    public void record(long bytes, long nanos) {
+        long[] load = actual.computeIfAbsent(Thread.currentThread(), thread -> new long[2]);
+        load[0] += bytes;
+        load[1] += nanos;
+    }
+
+    /**
+     * @return bytes and busy nanoseconds for each worker, busiest first
+     */
+    public long[][] actualLoads() {
+        long[][] loads = actual.values().toArray(new long[0][]);
+        Arrays.sort(loads, Comparator.comparingLong((long[] load) -> load[0]).reversed());
+        return loads;
+    }
+
+    /**
+     * @return one line per worker comparing planned and actual bytes, busiest first
+     */
+    @Override
+    public String toString() {
+        long[][] loads = actualLoads();
+        StringBuilder report = new StringBuilder("Schedule " + policy.name().toLowerCase().replace('_', '-')
+            + " on " + plannedBytes.length + " workers");
+        for (int i = 0; i < Math.max(plannedBytes.length, loads.length); i++) {
+            long planned = i < plannedBytes.length ? plannedBytes[i] : 0;
+            long[] load = i < loads.length ? loads[i] : new long[2];
+            report.append(String.format("%nWorker %d: planned %.1f MB, actual %.1f MB in %d ms", i + 1,
+                planned / (1024.0 * 1024), load[0] / (1024.0 * 1024), TimeUnit.NANOSECONDS.toMillis(load[1])));
+        }
+        return report.toString();
+    }
+}
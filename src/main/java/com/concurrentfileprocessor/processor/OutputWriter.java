@@ -1,35 +1,340 @@
 package com.concurrentfileprocessor.processor;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
 
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.settings;
 import com.concurrentfileprocessor.FileStats;
+import com.concurrentfileprocessor.ProcessorSettings.OutputFormat;
+import com.concurrentfileprocessor.ProcessorSettings.OutputOrder;
+import com.concurrentfileprocessor.counts.SpillingWordCounts;
+import com.concurrentfileprocessor.counts.WordCounts;
 
 /**
  * task class for writing file processing results to output file
- * handles formatting and writing of statistics to text files
+ * each format encodes the report straight into a large byte buffer that is written through a file channel
+ * whenever it fills, so no line is built as a String and the writer never flushes per line
  */
 public class OutputWriter {
+    // bytes encoded before each write to the channel
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    // most frequent first, alphabetical among equal counts
+    private static final Comparator<WordEntry> BY_FREQUENCY =
+        Comparator.comparingLong((WordEntry entry) -> entry.count).reversed().thenComparing(entry -> entry.word);
+
+    // alphabetical by word
+    private static final Comparator<WordEntry> ALPHABETICAL = Comparator.comparing(entry -> entry.word);
+
+    // identifies a binary output file and its layout
+    public static final int BINARY_MAGIC = 0x43465052;
+    public static final int BINARY_VERSION = 1;
+
     /**
-     * writes all collected file statistics to an output file
-     * creates a formatted report with file counts, character counts, line counts and word frequencies
+     * encodes the parts of the report for one output format
+     */
+    public interface ReportEncoder {
+        /**
+         * writes whatever comes before the words
+         * @param out destination of the encoded bytes
+         * @param fileStats statistics being written
+         */
+        void header(ByteOutput out, FileStats fileStats);
+
+        /**
+         * writes one word and its count
+         * @param out destination of the encoded bytes
+         * @param word the word
+         * @param count number of times the word was counted
+         */
+        void entry(ByteOutput out, String word, long count);
+
+        /**
+         * writes whatever comes after the words
+         * @param out destination of the encoded bytes
+         */
+        default void footer(ByteOutput out) {}
+    }
+
+    /**
+     * the original report, totals and then "word: count" lines
+     */
+    private static final ReportEncoder TEXT = new ReportEncoder() {
+        @Override
+        public void header(ByteOutput out, FileStats fileStats) {
+            putLine(out, "Number of files: ", fileStats.numberOfFiles);
+            putLine(out, "Total character count: ", fileStats.characterCount.get());
+            putLine(out, "Total line count: ", fileStats.lineCount.get());
+            putLine(out, "Total word count: ", fileStats.wordCount.size());
+            if (!fileStats.wordCount.isExact()) {
+                out.putString("Approximate word counts: each count is at most ");
+                out.putLong(fileStats.wordCount.maxError());
+                out.putString(" too high, and no word counted more often than that is missing\n");
+            }
+            if (fileStats.filesLeftOut > 0) {
+                putLine(out, "Files left out after timing out or being cancelled: ", fileStats.filesLeftOut);
+            }
+        }
+
+        @Override
+        public void entry(ByteOutput out, String word, long count) {
+            out.putString(word);
+            out.putByte(':');
+            out.putByte(' ');
+            out.putLong(count);
+            out.putByte('\n');
+        }
+
+        private void putLine(ByteOutput out, String label, long value) {
+            out.putString(label);
+            out.putLong(value);
+            out.putByte('\n');
+        }
+    };
+
+    /**
+     * a header row and one row per word, fields quoted only when they need it
+     */
+    private static final ReportEncoder CSV = new ReportEncoder() {
+        @Override
+        public void header(ByteOutput out, FileStats fileStats) {
+            out.putString("word,count\n");
+        }
+
+        @Override
+        public void entry(ByteOutput out, String word, long count) {
+            out.putCsvField(word);
+            out.putByte(',');
+            out.putLong(count);
+            out.putByte('\n');
+        }
+    };
+
+    /**
+     * an object with the totals, then one object per word
+     */
+    private static final ReportEncoder JSON_LINES = new ReportEncoder() {
+        @Override
+        public void header(ByteOutput out, FileStats fileStats) {
+            out.putString("{\"files\":");
+            out.putLong(fileStats.numberOfFiles);
+            out.putString(",\"characters\":");
+            out.putLong(fileStats.characterCount.get());
+            out.putString(",\"lines\":");
+            out.putLong(fileStats.lineCount.get());
+            out.putString(",\"words\":");
+            out.putLong(fileStats.wordCount.size());
+            if (!fileStats.wordCount.isExact()) {
+                out.putString(",\"maxError\":");
+                out.putLong(fileStats.wordCount.maxError());
+            }
+            if (fileStats.filesLeftOut > 0) {
+                out.putString(",\"filesLeftOut\":");
+                out.putLong(fileStats.filesLeftOut);
+            }
+            out.putString("}\n");
+        }
+
+        @Override
+        public void entry(ByteOutput out, String word, long count) {
+            out.putString("{\"word\":");
+            out.putJsonString(word);
+            out.putString(",\"count\":");
+            out.putLong(count);
+            out.putString("}\n");
+        }
+    };
+
+    /**
+     * magic number, version, then files, characters, lines, distinct words and maximum error as varints,
+     * then each word as a varint byte length, its UTF-8 bytes and a varint count, ended by a zero length
+     */
+    private static final ReportEncoder BINARY = new ReportEncoder() {
+        @Override
+        public void header(ByteOutput out, FileStats fileStats) {
+            out.putInt(BINARY_MAGIC);
+            out.putByte(BINARY_VERSION);
+            out.putVarLong(fileStats.numberOfFiles);
+            out.putVarLong(fileStats.characterCount.get());
+            out.putVarLong(fileStats.lineCount.get());
+            out.putVarLong(fileStats.wordCount.size());
+            out.putVarLong(fileStats.wordCount.maxError());
+        }
+
+        @Override
+        public void entry(ByteOutput out, String word, long count) {
+            out.putVarLong(ByteOutput.utf8Length(word));
+            out.putString(word);
+            out.putVarLong(count);
+        }
+
+        @Override
+        public void footer(ByteOutput out) {
+            out.putVarLong(0);
+        }
+    };
+
+    /**
+     * a word and its count taken out of the word store for sorting
+     */
+    public static class WordEntry {
+        public final String word;
+        public final long count;
+
+        WordEntry(String word, long count) {
+            this.word = word;
+            this.count = count;
+        }
+    }
+
+    /**
+     * writes all collected file statistics to an output file in the order and with the limit from the settings
      * @param outputFilePath directory where output file will be created
      * @param outputFilename name of the output file
      * @param fileStats statistics object containing all collected data
      */
     public static void outputStatsToFile(String outputFilePath, String outputFilename, FileStats fileStats) {
-        try (PrintWriter writer = new PrintWriter(outputFilePath + File.separator + outputFilename)) {
-            writer.println("Number of files: " + fileStats.numberOfFiles);
-            writer.println("Total character count: " + fileStats.characterCount.get());
-            writer.println("Total line count: " + fileStats.lineCount.get());    
-            writer.println("Total word count: " + fileStats.wordCount.size());
-
-            for (String word : fileStats.wordCount.keySet()) {
-                writer.println(word + ": " + fileStats.wordCount.get(word));
+        outputStatsToFile(outputFilePath, outputFilename, fileStats, settings.outputFormat, settings.outputOrder,
+            settings.outputTop);
+    }
+
+    /**
+     * writes all collected file statistics to an output file
+     * creates a report with file counts, character counts, line counts and word frequencies in the given format
+     * notes the error bound when the word store only keeps approximate counts
+     * a spilling store lists every word in order straight from its runs rather than sorting them on the heap,
+     * comparing words by their UTF-8 bytes, that is by code point, so characters outside the basic plane come after
+     * those from U+E000 to U+FFFF rather than before them as in the String order of the other stores
+     * @param outputFilePath directory where output file will be created
+     * @param outputFilename name of the output file
+     * @param fileStats statistics object containing all collected data
+     * @param format encoding of the file
+     * @param order order to list the words in
+     * @param top number of most frequent words to list, 0 lists every word
+     */
+    public static void outputStatsToFile(String outputFilePath, String outputFilename, FileStats fileStats,
+            OutputFormat format, OutputOrder order, int top) {
+        try (FileChannel channel = FileChannel.open(Path.of(outputFilePath, outputFilename),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteOutput out = new ByteOutput(channel, BUFFER_SIZE);
+            ReportEncoder encoder = encoder(format);
+            encoder.header(out, fileStats);
+            if (order == OutputOrder.UNSORTED && top == 0) {
+                // entry iteration straight from the store, nothing is copied
+                fileStats.wordCount.forEach((word, count) -> encoder.entry(out, word, count));
+            } else if (top == 0 && fileStats.wordCount instanceof SpillingWordCounts) {
+                // the vocabulary may not fit in memory, so it is streamed in order from the store
+                SpillingWordCounts store = (SpillingWordCounts) fileStats.wordCount;
+                WordTable.EntryConsumer write = (bytes, offset, length, count) ->
+                    encoder.entry(out, new String(bytes, offset, length, StandardCharsets.UTF_8), count);
+                if (order == OutputOrder.ALPHABETICAL) {
+                    store.forEachSorted(write);
+                } else {
+                    store.forEachByCount(write);
+                }
+            } else {
+                for (WordEntry entry : orderedEntries(fileStats.wordCount, order, top)) {
+                    encoder.entry(out, entry.word, entry.count);
+                }
             }
-        } catch (FileNotFoundException e) {
-            System.err.println(e.getMessage());
+            encoder.footer(out);
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Could not write " + e.getMessage());
+        } catch (UncheckedIOException e) {
+            System.err.println("Could not write " + e.getCause().getMessage());
         }
     }
+
+    /**
+     * @param format an output format
+     * @return the encoder that writes it
+     */
+    public static ReportEncoder encoder(OutputFormat format) {
+        switch (format) {
+            case CSV:
+                return CSV;
+            case JSON_LINES:
+                return JSON_LINES;
+            case BINARY:
+                return BINARY;
+            case TEXT:
+            default:
+                return TEXT;
+        }
+    }
+
+    /**
+     * takes the words out of a store in the requested order
+     * with a limit, only that many entries are kept in a heap while the store is read, so the whole vocabulary
+     * is never sorted, without one every word is sorted with a parallel sort
+     * @param counts store to read
+     * @param order order to list the words in, unsorted lists a limited selection most frequent first
+     * @param top number of most frequent words to keep, 0 keeps every word
+     * @return the words in order
+     */
+    public static WordEntry[] orderedEntries(WordCounts counts, OutputOrder order, int top) {
+        Comparator<WordEntry> comparator = order == OutputOrder.ALPHABETICAL ? ALPHABETICAL : BY_FREQUENCY;
+        WordEntry[] entries;
+        if (top > 0) {
+            entries = keepTop(counts::forEach, top);
+            Arrays.sort(entries, comparator);
+        } else {
+            // sized from the estimate, an exact size can take a pass over a spilling store
+            List<WordEntry> all = new ArrayList<>(counts.sizeEstimate());
+            counts.forEach((word, count) -> all.add(new WordEntry(word, count)));
+            entries = all.toArray(new WordEntry[0]);
+            if (order != OutputOrder.UNSORTED) {
+                Arrays.parallelSort(entries, comparator);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * takes the most frequent words out of a store that tasks may still be merging into, without holding them up
+     * @param counts store to read
+     * @param top number of most frequent words to keep
+     * @return the words, most frequent first
+     */
+    public static WordEntry[] liveTopEntries(WordCounts counts, int top) {
+        if (top == 0) {
+            return new WordEntry[0];
+        }
+        WordEntry[] entries = keepTop(counts::forEachLive, top);
+        Arrays.sort(entries, BY_FREQUENCY);
+        return entries;
+    }
+
+    /**
+     * keeps only the most frequent words in a heap while the words are read, so the whole vocabulary is never sorted
+     * @param words walk over the words of a store
+     * @param top number of most frequent words to keep, more than 0
+     * @return the words kept, in no particular order
+     */
+    private static WordEntry[] keepTop(Consumer<ObjLongConsumer<String>> words, int top) {
+        // the head of the heap is the least frequent word kept so far
+        PriorityQueue<WordEntry> kept = new PriorityQueue<>(top + 1, BY_FREQUENCY.reversed());
+        words.accept((word, count) -> {
+            if (kept.size() < top) {
+                kept.add(new WordEntry(word, count));
+            } else if (count > kept.peek().count
+                    || (count == kept.peek().count && word.compareTo(kept.peek().word) < 0)) {
+                kept.poll();
+                kept.add(new WordEntry(word, count));
+            }
+        });
+        return kept.toArray(new WordEntry[0]);
+    }
 }
@@ -0,0 +1,76 @@
+package com.concurrentfileprocessor.processor;
+
+import com.concurrentfileprocessor.processor.OutputWriter.WordEntry;
+
+/**
+ * totals and most frequent words of a run that is still going, taken by FileStats.snapshot
+ * the values are read one after another while tasks keep merging, so they can be a few files apart from each
+ * other, they settle into the final results once the run is over
+ */
+public class PartialResults {
+    // seconds since the run started
+    public final double elapsedSeconds;
+
+    // files finished so far and files of the run, the total grows while a directory walk is still finding them
+    public final long filesCompleted;
+    public final long filesTotal;
+
+    // characters and lines counted so far
+    public final long characters;
+    public final long lines;
+
+    // distinct words counted so far
+    public final int distinctWords;
+
+    // most any listed count can be above the true count, 0 for exact word stores
+    public final long maxError;
+
+    // the most frequent words so far, most frequent first
+    public final WordEntry[] topWords;
+
+    /**
+     * constructor
+     * @param elapsedSeconds seconds since the run started
+     * @param filesCompleted files finished so far
+     * @param filesTotal files of the run found so far
+     * @param characters characters counted so far
+     * @param lines lines counted so far
+     * @param distinctWords distinct words counted so far
+     * @param maxError most any listed count can be too high
+     * @param topWords the most frequent words so far, most frequent first
+     */
+    public PartialResults(double elapsedSeconds, long filesCompleted, long filesTotal, long characters, long lines,
+            int distinctWords, long maxError, WordEntry[] topWords) {
+        this.elapsedSeconds = elapsedSeconds;
+        this.filesCompleted = filesCompleted;
+        this.filesTotal = filesTotal;
+        this.characters = characters;
+        this.lines = lines;
+        this.distinctWords = distinctWords;
+        this.maxError = maxError;
+        this.topWords = topWords;
+    }
+
+    /**
+     * @return the totals on one line
+     */
+    public String totals() {
+        return String.format("%d of %d files, %d characters, %d lines, %d distinct words", filesCompleted,
+            filesTotal, characters, lines, distinctWords);
+    }
+
+    /**
+     * @return the elapsed time and totals, then one "word: count" line per listed word
+     */
+    @Override
+    public String toString() {
+        StringBuilder results = new StringBuilder(String.format("[%.0f s] %s", elapsedSeconds, totals()));
+        if (maxError > 0) {
+            results.append(String.format(", counts at most %d too high", maxError));
+        }
+        for (WordEntry entry : topWords) {
+            results.append(String.format("%n  %s: %d", entry.word, entry.count));
+        }
+        return results.toString();
+    }
+}
@@ -0,0 +1,78 @@
+package com.concurrentfileprocessor.processor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * counters describing how the stages of a pipelined run kept up with each other
+ * readers stalling means the tokenizers are the bottleneck, tokenizers stalling means the reads are
+ */
+public class PipelineStats {
+    // size of each stage and of the queue between them
+    public final int readerThreads;
+    public final int parserThreads;
+    public final int queueCapacity;
+
+    // bytes read and buffers handed from the readers to the tokenizers
+    public final AtomicLong bytesRead = new AtomicLong();
+    public final AtomicLong buffersQueued = new AtomicLong();
+
+    // time readers spent blocked waiting for a free buffer or for room in the queue
+    public final AtomicLong readerStallNanos = new AtomicLong();
+
+    // time tokenizers spent blocked waiting for a filled buffer
+    public final AtomicLong parserStallNanos = new AtomicLong();
+
+    // queue depth seen each time a buffer was queued, summed for the average
+    public final AtomicLong queueDepthTotal = new AtomicLong();
+    public final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    // true when the run was interrupted, so files were left unread and the statistics are incomplete
+    public volatile boolean incomplete;
+
+    /**
+     * constructor
+     * @param readerThreads number of reader threads
+     * @param parserThreads number of tokenizer threads
+     * @param queueCapacity number of filled buffers the queue can hold
+     */
+    public PipelineStats(int readerThreads, int parserThreads, int queueCapacity) {
+        this.readerThreads = readerThreads;
+        this.parserThreads = parserThreads;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * records the queue depth after a buffer was queued
+     * @param depth number of buffers waiting in the queue
+     */
+    public void recordQueueDepth(int depth) {
+        buffersQueued.incrementAndGet();
+        queueDepthTotal.addAndGet(depth);
+        maxQueueDepth.accumulateAndGet(depth, Math::max);
+    }
+
+    /**
+     * @return average number of buffers waiting when one was queued
+     */
+    public double averageQueueDepth() {
+        long buffers = buffersQueued.get();
+        return buffers == 0 ? 0 : (double) queueDepthTotal.get() / buffers;
+    }
+
+    /**
+     * @return summary of the counters, one line per stage, then a warning if the run was interrupted
+     */
+    @Override
+    public String toString() {
+        String summary = String.format("Pipeline readers: %d, stalled %d ms in total%n"
+                + "Pipeline tokenizers: %d, stalled %d ms in total%n"
+                + "Pipeline queue: %d buffers, %d MB, average depth %.1f of %d, max %d",
+            readerThreads, TimeUnit.NANOSECONDS.toMillis(readerStallNanos.get()),
+            parserThreads, TimeUnit.NANOSECONDS.toMillis(parserStallNanos.get()),
+            buffersQueued.get(), bytesRead.get() / (1024 * 1024), averageQueueDepth(), queueCapacity,
+            maxQueueDepth.get());
+        return incomplete ? summary + String.format("%nPipeline interrupted, the results are incomplete") : summary;
+    }
+}
@@ -0,0 +1,430 @@
+package com.concurrentfileprocessor.processor;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.fileStats;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.inputFiles;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.metrics;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.settings;
+import com.concurrentfileprocessor.FileStats;
+import com.concurrentfileprocessor.ProcessorSettings;
+import com.concurrentfileprocessor.input.InputAdapters;
+import com.concurrentfileprocessor.input.InputKind;
+import com.concurrentfileprocessor.metrics.FileEvent;
+
+/**
+ * alternative to ThreadDelegator that reads and tokenizes on separate threads
+ * a few reader threads fill fixed-size buffers and hand them through a bounded queue to the tokenizer threads,
+ * so slow reads overlap with tokenizing instead of leaving a core idle
+ * buffers come from a fixed pool, so readers block once the tokenizers fall behind and memory stays bounded
+ */
+public class PipelinedDelegator {
+    // queued once per tokenizer after the last file has been read
+    private static final Block END = new Block(0);
+
+    // reader threads of the run in progress, so cancel can stop them from another thread
+    private static volatile ExecutorService runningReaders;
+
+    /**
+     * a buffer moving between the stages
+     * buffers are cut just after a line break so each one can be tokenized on its own,
+     * a line longer than a buffer is cut after a space instead and the next buffer is marked as continuing it,
+     * a word longer than a buffer grows it up to the longest word kept and is then cut short,
+     * the next buffer is marked as continuing the word and only counts its characters
+     */
+    private static class Block {
+        // bytes read from a file, only the first length are valid
+        byte[] data;
+        int length;
+
+        // size of the buffer in the pool, a buffer grown for a long word goes back to it once tokenized
+        final int size;
+
+        // true when the first line in this buffer was started by the previous buffer of the same file
+        boolean startsMidLine;
+
+        // true when the first word in this buffer is the rest of a word the previous buffer ended with
+        boolean startsMidWord;
+
+        // file the bytes came from, their offset in it and the time the reader spent filling the buffer
+        String name;
+        long offset;
+        long readNanos;
+
+        Block(int size) {
+            this.size = size;
+            data = new byte[size];
+        }
+    }
+
+    /**
+     * processes the global input files into the global statistics
+     * @return counters describing how the stages kept up with each other
+     */
+    public static PipelineStats delegateTasks() {
+        if (settings.fileTimeoutSeconds > 0 || settings.runTimeoutSeconds > 0) {
+            System.err.println("Time limits are not applied to the pipeline, it mixes files in its buffers");
+        }
+        fileStats.numberOfFiles = inputFiles.size();
+        metrics.startRun(0);
+        PipelineStats stats = process(inputFiles, fileStats, settings);
+        metrics.endRun();
+        return stats;
+    }
+
+    /**
+     * reads and tokenizes files on separate thread pools, reading files in the order of the schedule policy
+     * files are counted in the live metrics of the statistics, which the caller starts and ends
+     * @param files files to process
+     * @param fileStats statistics object to update
+     * @param settings pool sizes, buffer size and queue depth
+     * @return counters describing how the stages kept up with each other
+     */
+    public static PipelineStats process(List<File> files, FileStats fileStats, ProcessorSettings settings) {
+        int readers = settings.pipelineReaders;
+        int parsers = settings.pipelineParsers;
+        PipelineStats stats = new PipelineStats(readers, parsers, settings.pipelineQueueDepth);
+        fileStats.metrics.addFiles(files.size());
+
+        // each reader holds at most two buffers and each tokenizer one, the rest can wait in the queue
+        ArrayBlockingQueue<Block> filled = new ArrayBlockingQueue<>(settings.pipelineQueueDepth);
+        int poolSize = settings.pipelineQueueDepth + 2 * readers + parsers;
+        ArrayBlockingQueue<Block> free = new ArrayBlockingQueue<>(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            free.add(new Block(settings.pipelineBufferSize));
+        }
+
+        ExecutorService readerPool = Executors.newFixedThreadPool(readers);
+        ExecutorService parserPool = Executors.newFixedThreadPool(parsers);
+        runningReaders = readerPool;
+        AtomicInteger nextFile = new AtomicInteger();
+        FileSchedule schedule = FileSchedule.create(files, settings.schedule);
+        fileStats.metrics.addBytesTotal(Arrays.stream(schedule.sizes).sum());
+        List<File> orderedFiles = schedule.files;
+        for (int i = 0; i < readers; i++) {
+            readerPool.submit(() -> readFiles(orderedFiles, nextFile, free, filled, stats, fileStats));
+        }
+        for (int i = 0; i < parsers; i++) {
+            parserPool.submit(() -> tokenizeBlocks(free, filled, fileStats, stats));
+        }
+
+        readerPool.shutdown();
+        boolean interrupted = awaitTermination(readerPool);
+        try {
+            for (int i = 0; i < parsers; i++) {
+                filled.put(END);
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+            parserPool.shutdownNow();
+        }
+        parserPool.shutdown();
+        interrupted |= awaitTermination(parserPool);
+        runningReaders = null;
+        if (interrupted) {
+            stats.incomplete = true;
+            Thread.currentThread().interrupt();
+        }
+        return stats;
+    }
+
+    /**
+     * waits for every task of a pool to end, an interrupt stops the tasks instead of the wait,
+     * so no tokenizer is still merging into the statistics once the run returns
+     * @return true if the wait was interrupted
+     */
+    private static boolean awaitTermination(ExecutorService pool) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+                    return interrupted;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * stops the run in progress by interrupting its readers
+     * the tokenizers finish the buffers already queued and then stop as they would at the end of the input
+     */
+    static void cancel() {
+        ExecutorService readerPool = runningReaders;
+        if (readerPool != null) {
+            readerPool.shutdownNow();
+        }
+    }
+
+    /**
+     * reader loop, takes files until none are left or the run is cancelled
+     */
+    private static void readFiles(List<File> files, AtomicInteger nextFile, ArrayBlockingQueue<Block> free,
+            ArrayBlockingQueue<Block> filled, PipelineStats stats, FileStats fileStats) {
+        BooleanSupplier cancelled = fileStats.cancelled;
+        try {
+            int index;
+            while (!cancelled.getAsBoolean() && (index = nextFile.getAndIncrement()) < files.size()) {
+                // a file counts as finished once it is read, its last buffers may still be waiting for a tokenizer
+                File file = files.get(index);
+                long start = fileStats.metrics.fileStarted();
+                try {
+                    readFile(file, free, filled, stats, cancelled);
+                } finally {
+                    fileStats.metrics.addBytes(file.length());
+                    fileStats.metrics.fileFinished(start);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * reads one file into buffers and queues them
+     * compressed and archived files are unpacked on the reader thread, each text stream in them read on its own
+     * @throws InterruptedException if interrupted while waiting on a queue
+     */
+    private static void readFile(File file, ArrayBlockingQueue<Block> free, ArrayBlockingQueue<Block> filled,
+            PipelineStats stats, BooleanSupplier cancelled) throws InterruptedException {
+        try {
+            InputKind kind;
+            try (FileChannel channel = new FileInputStream(file).getChannel()) {
+                kind = InputKind.sniff(channel);
+                if (kind == InputKind.PLAIN) {
+                    readChannel(file.getPath(), channel, free, filled, stats, cancelled);
+                }
+            }
+            if (kind == InputKind.BINARY) {
+                InputAdapters.skipBinary(file.getName());
+            } else if (kind != InputKind.PLAIN) {
+                InputAdapters.forEachText(file,
+                    (name, text) -> readChannel(name, Channels.newChannel(text), free, filled, stats, cancelled));
+            }
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    /**
+     * reads a channel to the end into buffers and queues them, stopping early if the run is cancelled
+     * @throws InterruptedException if interrupted while waiting on a queue
+     */
+    private static void readChannel(String name, ReadableByteChannel channel, ArrayBlockingQueue<Block> free,
+            ArrayBlockingQueue<Block> filled, PipelineStats stats, BooleanSupplier cancelled)
+            throws InterruptedException {
+        Block block = takeFree(free, stats);
+        block.name = name;
+        try {
+            while (!cancelled.getAsBoolean()) {
+                if (block.length == block.data.length) {
+                    block = handOff(block, free, filled, stats);
+                }
+                long start = System.nanoTime();
+                int read = channel.read(ByteBuffer.wrap(block.data, block.length, block.data.length - block.length));
+                block.readNanos += System.nanoTime() - start;
+                if (read == -1) {
+                    break;
+                }
+                block.length += read;
+                stats.bytesRead.addAndGet(read);
+            }
+        } catch (IOException e) {
+            // keep whatever was read before the failure, like FileMetricsCollector does
+            System.err.println(e.getMessage());
+        }
+
+        if (block.length > 0) {
+            queue(block, filled, stats);
+        } else {
+            release(block, free);
+        }
+    }
+
+    /**
+     * queues the complete lines of a full buffer and moves the rest into a fresh buffer
+     * @return buffer to keep reading into
+     * @throws InterruptedException if interrupted while waiting on a queue
+     */
+    private static Block handOff(Block block, ArrayBlockingQueue<Block> free, ArrayBlockingQueue<Block> filled,
+            PipelineStats stats) throws InterruptedException {
+        boolean midLine = false;
+        boolean midWord = false;
+        int cut = lastIndexOf(block, true) + 1;
+        if (cut == 0) {
+            cut = lastIndexOf(block, false) + 1;
+            midLine = true;
+        }
+        if (cut == 0) {
+            // a single word fills the whole buffer, it grows until the word ends or reaches the longest word kept,
+            // the buffer holds the start of the word since it begins after a separator or at the start of the file
+            if (!block.startsMidWord && block.data.length < WordTokenizer.MAX_WORD_BYTES) {
+                block.data = Arrays.copyOf(block.data, Math.min(block.data.length * 2, WordTokenizer.MAX_WORD_BYTES));
+                return block;
+            }
+            cut = characterStart(block);
+            midWord = true;
+        }
+
+        Block next = takeFree(free, stats);
+        int tail = block.length - cut;
+        if (next.data.length <= tail) {
+            next.data = new byte[block.data.length];
+        }
+        System.arraycopy(block.data, cut, next.data, 0, tail);
+        next.length = tail;
+        next.startsMidLine = midLine;
+        next.startsMidWord = midWord;
+        next.name = block.name;
+        next.offset = block.offset + cut;
+        block.length = cut;
+        queue(block, filled, stats);
+        return next;
+    }
+
+    /**
+     * finds the last line break, or the last whitespace that cannot be part of a line break
+     * @param lineBreak true to look for '\n' or a '\r' known not to be followed by '\n',
+     *     false for space, tab, vertical tab or form feed
+     * @return index of the byte, or -1 if there is none
+     */
+    private static int lastIndexOf(Block block, boolean lineBreak) {
+        for (int i = block.length - 1; i >= 0; i--) {
+            byte b = block.data[i];
+            if (lineBreak ? b == '\n' || b == '\r' && i < block.length - 1
+                    : b == ' ' || b == '\t' || b == 0x0B || b == '\f') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * finds where to cut a full buffer inside a word, backing off so no UTF-8 character is split
+     * @return index of the first byte left for the next buffer
+     */
+    private static int characterStart(Block block) {
+        for (int i = block.length - 1; i >= Math.max(1, block.length - 3); i--) {
+            int b = block.data[i] & 0xFF;
+            if (b < 0x80) {
+                break;
+            }
+            if (b >= 0xC0) {
+                // a lead byte, its sequence may go on past the end of the buffer
+                return i;
+            }
+        }
+        return block.length;
+    }
+
+    /**
+     * tokenizer loop, counts buffers into a private table until the end marker and merges it once
+     */
+    private static void tokenizeBlocks(ArrayBlockingQueue<Block> free, ArrayBlockingQueue<Block> filled,
+            FileStats fileStats, PipelineStats stats) {
+        WordTable words = new WordTable();
+        WordTokenizer.WordSink sink = fileStats.localSink(words);
+        long characters = 0;
+        long lines = 0;
+        try {
+            while (true) {
+                Block block = filled.poll();
+                if (block == null) {
+                    long start = System.nanoTime();
+                    block = filled.take();
+                    stats.parserStallNanos.addAndGet(System.nanoTime() - start);
+                }
+                if (block == END) {
+                    break;
+                }
+
+                FileEvent event = new FileEvent();
+                event.begin();
+                long start = System.nanoTime();
+                WordTokenizer tokenizer = new WordTokenizer(sink, fileStats.charset);
+                if (block.startsMidWord) {
+                    tokenizer.continueWord();
+                }
+                tokenizer.feed(block.data, 0, block.length);
+                tokenizer.finish();
+                characters += tokenizer.characterCount();
+                fileStats.metrics.addTokens(tokenizer.wordCount());
+
+                // each tokenizer merges once when the run ends, so no merge time belongs to a single buffer
+                event.finish(block.name, block.offset, block.length, tokenizer.wordCount(), block.readNanos,
+                    System.nanoTime() - start, 0);
+
+                // the previous buffer already counted the line this one continues
+                lines += tokenizer.lineCount() - (block.startsMidLine ? 1 : 0);
+                release(block, free);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // recorded as work on no bytes so the merge still shows in the flight recorder totals
+        FileEvent event = new FileEvent();
+        event.begin();
+        long mergeStart = System.nanoTime();
+        fileStats.merge(words, characters, lines);
+        event.finish("", 0, 0, 0, 0, 0, System.nanoTime() - mergeStart);
+    }
+
+    /**
+     * returns a buffer to the pool, shrinking it back to its pool size if it grew for a long word
+     */
+    private static void release(Block block, ArrayBlockingQueue<Block> free) {
+        if (block.data.length != block.size) {
+            block.data = new byte[block.size];
+        }
+        free.add(block);
+    }
+
+    /**
+     * takes an empty buffer from the pool, waiting if the tokenizers still hold them all
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static Block takeFree(ArrayBlockingQueue<Block> free, PipelineStats stats) throws InterruptedException {
+        Block block = free.poll();
+        if (block == null) {
+            long start = System.nanoTime();
+            block = free.take();
+            stats.readerStallNanos.addAndGet(System.nanoTime() - start);
+        }
+        block.length = 0;
+        block.startsMidLine = false;
+        block.startsMidWord = false;
+        block.offset = 0;
+        block.readNanos = 0;
+        return block;
+    }
+
+    /**
+     * hands a filled buffer to the tokenizers, waiting if the queue is full
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static void queue(Block block, ArrayBlockingQueue<Block> filled, PipelineStats stats)
+            throws InterruptedException {
+        if (!filled.offer(block)) {
+            long start = System.nanoTime();
+            filled.put(block);
+            stats.readerStallNanos.addAndGet(System.nanoTime() - start);
+        }
+        stats.recordQueueDepth(filled.size());
+    }
+}
@@ -0,0 +1,483 @@
+package com.concurrentfileprocessor.processor;
+
+import java.io.File;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.concurrentfileprocessor.FileStats;
+import com.concurrentfileprocessor.ProcessorSettings;
+import com.concurrentfileprocessor.counts.SpillingWordCounts;
+
+/**
+ * outcome of each file of a run with a time limit
+ * a file's words are held back until the file has been read in full and then added to the statistics at once,
+ * so a file stopped part way leaves nothing in the totals and is listed here instead
+ * with a word store on a memory budget, a file holding back more words than a task may collect goes on in a
+ * spill store of its own, so holding a large file back does not undo the budget
+ * a file past its deadline is stopped by a watchdog as well as between reads, so a read stuck on a slow device
+ * is interrupted rather than holding up the run
+ */
+public class RunReport {
+    /**
+     * what happened to a file
+     */
+    public enum Outcome {
+        // read in full and counted
+        COMPLETED,
+        // stopped by the file or run time limit while it was being read, not counted
+        TIMED_OUT,
+        // never started because the run time limit was reached first, not counted
+        CANCELLED
+    }
+
+    // how often a run waiting for its tasks looks whether only tasks stuck on timed out files are left
+    private static final long SETTLE_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    // times out files that run past their deadline and interrupts their reads, shared by every report
+    private static final ScheduledThreadPoolExecutor WATCHDOG = createWatchdog();
+
+    // longest a file may take once started, 0 for no limit
+    private final long fileTimeoutNanos;
+
+    // directory files holding back too many words spill to, null for the system temporary directory
+    private final File spillDirectory;
+
+    // System.nanoTime() when the run started and how long it may take, 0 for no limit
+    private final long startNanos;
+    private final long runTimeoutNanos;
+
+    // every file of the run, in the order the workers were given them
+    private final Queue<TrackedFile> files = new ConcurrentLinkedQueue<>();
+
+    // files hold the read lock while they are added to the statistics, stopAll takes the write lock,
+    // so once the run has been stopped no file is half way through being added
+    private final ReentrantReadWriteLock commits = new ReentrantReadWriteLock();
+
+    // set once the run time limit has been reached, files tracked after that never start
+    private volatile boolean stopped;
+
+    // files tracked without an outcome yet
+    private final AtomicInteger unsettled = new AtomicInteger();
+
+    /**
+     * constructor
+     * @param fileTimeoutNanos longest a file may take once started, 0 for no limit
+     * @param runTimeoutNanos longest the run may take from now, 0 for no limit
+     */
+    public RunReport(long fileTimeoutNanos, long runTimeoutNanos) {
+        this(fileTimeoutNanos, runTimeoutNanos, null);
+    }
+
+    /**
+     * constructor
+     * @param fileTimeoutNanos longest a file may take once started, 0 for no limit
+     * @param runTimeoutNanos longest the run may take from now, 0 for no limit
+     * @param spillDirectory directory files holding back too many words spill to, null for the system one
+     */
+    public RunReport(long fileTimeoutNanos, long runTimeoutNanos, File spillDirectory) {
+        this.fileTimeoutNanos = fileTimeoutNanos;
+        this.runTimeoutNanos = runTimeoutNanos;
+        this.spillDirectory = spillDirectory;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * creates the report for a run with the time limits from the settings
+     * @param settings settings holding the file and run time limits and the spill directory
+     * @return the report, or null when neither limit is set so files are counted as they are read
+     */
+    public static RunReport create(ProcessorSettings settings) {
+        if (settings.fileTimeoutSeconds == 0 && settings.runTimeoutSeconds == 0) {
+            return null;
+        }
+        return new RunReport(TimeUnit.SECONDS.toNanos(settings.fileTimeoutSeconds),
+            TimeUnit.SECONDS.toNanos(settings.runTimeoutSeconds),
+            settings.spillDirectory.isEmpty() ? null : new File(settings.spillDirectory));
+    }
+
+    /**
+     * adds a file to the run, a file added after the run time limit is cancelled straight away
+     * @param file the file
+     * @param target statistics sharing the counters of the ones the file is eventually added to
+     * @return statistics to process the file into
+     */
+    public TrackedFile track(File file, FileStats target) {
+        TrackedFile tracked = new TrackedFile(file, target);
+        unsettled.incrementAndGet();
+        files.add(tracked);
+        if (stopped || isPastRunTimeout()) {
+            tracked.settle(Outcome.CANCELLED);
+        }
+        return tracked;
+    }
+
+    /**
+     * @return nanoseconds left until the run time limit, Long.MAX_VALUE when there is none
+     */
+    public long remainingNanos() {
+        if (runTimeoutNanos == 0) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, runTimeoutNanos - (System.nanoTime() - startNanos));
+    }
+
+    /**
+     * @return true once the run time limit has been reached
+     */
+    public boolean isPastRunTimeout() {
+        return runTimeoutNanos != 0 && System.nanoTime() - startNanos >= runTimeoutNanos;
+    }
+
+    /**
+     * @return true once every file tracked so far has an outcome, so the run need not wait for tasks still
+     *     stuck on the reads of files that timed out
+     */
+    public boolean isSettled() {
+        return unsettled.get() == 0;
+    }
+
+    /**
+     * @return nanoseconds a run may wait for its tasks before looking at isOverdue again,
+     *     Long.MAX_VALUE when only the tasks finishing end the wait
+     */
+    public long nextCheckNanos() {
+        long remaining = remainingNanos();
+        return fileTimeoutNanos == 0 ? remaining : Math.min(remaining, SETTLE_CHECK_NANOS);
+    }
+
+    /**
+     * @return true once the run should stop waiting for its tasks and call stopAll, because the run time limit
+     *     has been reached or every file has an outcome while some tasks are still stuck on files that timed out
+     */
+    public boolean isOverdue() {
+        return isPastRunTimeout() || isSettled();
+    }
+
+    /**
+     * stops every file without an outcome, files being read time out and files not started are cancelled
+     * the reads of files timing out are interrupted
+     * waits for files already being added to the statistics, after that the statistics no longer change
+     */
+    public void stopAll() {
+        commits.writeLock().lock();
+        try {
+            stopped = true;
+            for (TrackedFile file : files) {
+                file.stop(file.started ? Outcome.TIMED_OUT : Outcome.CANCELLED);
+            }
+        } finally {
+            commits.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param outcome an outcome
+     * @return number of files with that outcome
+     */
+    public int count(Outcome outcome) {
+        int count = 0;
+        for (TrackedFile file : files) {
+            if (file.outcome.get() == outcome) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return files that were stopped and left out of the statistics, in the order the workers were given them
+     */
+    public List<TrackedFile> leftOut() {
+        List<TrackedFile> leftOut = new ArrayList<>();
+        for (TrackedFile file : files) {
+            Outcome outcome = file.outcome.get();
+            if (outcome == Outcome.TIMED_OUT || outcome == Outcome.CANCELLED) {
+                leftOut.add(file);
+            }
+        }
+        return leftOut;
+    }
+
+    /**
+     * @return the number of files with each outcome, then one line per file left out of the statistics
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder(String.format("Files: %d completed, %d timed out, %d cancelled",
+            count(Outcome.COMPLETED), count(Outcome.TIMED_OUT), count(Outcome.CANCELLED)));
+        for (TrackedFile file : leftOut()) {
+            report.append(String.format("%n  %s: %s", file.outcome.get().name().toLowerCase().replace('_', ' '),
+                file.file.getPath()));
+        }
+        return report.toString();
+    }
+
+    /**
+     * @return the single daemon thread that times out files, dropping the checks of files that finished in time
+     */
+    private static ScheduledThreadPoolExecutor createWatchdog() {
+        ScheduledThreadPoolExecutor watchdog = new ScheduledThreadPoolExecutor(1, task -> {
+            Thread thread = new Thread(task, "file-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog.setRemoveOnCancelPolicy(true);
+        return watchdog;
+    }
+
+    /**
+     * statistics a single file is processed into, holding its words back until it has been read in full
+     * every piece of the file, whole, split into ranges or unpacked from an archive, merges into the same staging
+     * table, and the table is added to the target in one merge only if the file finished within its time limit
+     */
+    public class TrackedFile extends FileStats {
+        // the file
+        public final File file;
+
+        // statistics the file is added to once it has been read in full
+        private volatile FileStats target;
+
+        // outcome of the file, null while it has not started or is still being read
+        private final AtomicReference<Outcome> outcome = new AtomicReference<>();
+
+        // set when a worker starts the file, and System.nanoTime() by which it has to be finished
+        private volatile boolean started;
+        private volatile long deadline;
+
+        // words, characters and lines merged so far, guarded by this object
+        private WordTable staged;
+        private long characters;
+        private long lines;
+
+        // words held back beyond what a task may collect, when the word store has a memory budget,
+        // null until the staging table first outgrows that, guarded by this object
+        private SpillingWordCounts overflow;
+
+        // thread reading the file, the watchdog's check of its deadline, and whether the thread was interrupted
+        // to stop it, all guarded by this object and cleared once the thread is done with the file
+        private Thread reader;
+        private ScheduledFuture<?> watchdog;
+        private boolean interrupted;
+
+        /**
+         * constructor
+         * shares the target's counters and charset, so anything reading them sees the run's totals
+         */
+        private TrackedFile(File file, FileStats target) {
+            super(target);
+            this.file = file;
+            this.target = target;
+        }
+
+        /**
+         * passes a failed read on to the statistics the file is added to, such as a cache recorder
+         */
+        @Override
+        public void readFailed() {
+            target.readFailed();
+        }
+
+        /**
+         * starts the file's time limit on the calling thread, which has to call release once done with the file
+         * @param target statistics the file is added to once it has been read in full, such as a cache recorder
+         * @return false if the file was stopped before it started and should not be read
+         */
+        public boolean start(FileStats target) {
+            this.target = target;
+            long now = System.nanoTime();
+            long timeout = fileTimeoutNanos == 0 ? Long.MAX_VALUE : fileTimeoutNanos;
+            if (runTimeoutNanos != 0) {
+                timeout = Math.min(timeout, runTimeoutNanos - (now - startNanos));
+            }
+            deadline = timeout == Long.MAX_VALUE ? 0 : now + timeout;
+            started = true;
+            synchronized (this) {
+                release();
+                if (outcome.get() != null) {
+                    return false;
+                }
+                reader = Thread.currentThread();
+                if (deadline != 0) {
+                    watchdog = WATCHDOG.schedule(() -> stop(Outcome.TIMED_OUT), Math.max(0, timeout),
+                        TimeUnit.NANOSECONDS);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * ends the calling thread's work on the file, cancelling its deadline check
+         * clears the interrupt a stop left on the thread, so it does not reach the next task the thread runs
+         */
+        public synchronized void release() {
+            if (outcome.get() != null && outcome.get() != Outcome.COMPLETED) {
+                dropStaged();
+            }
+            if (watchdog != null) {
+                watchdog.cancel(false);
+                watchdog = null;
+            }
+            if (reader == Thread.currentThread() && interrupted) {
+                Thread.interrupted();
+            }
+            reader = null;
+            interrupted = false;
+        }
+
+        /**
+         * @return the file's outcome, null while it is still being read
+         */
+        public Outcome outcome() {
+            return outcome.get();
+        }
+
+        /**
+         * stops the file once it has run out of time, in addition to checking for a cancelled run
+         * @throws InterruptedIOException if the run was cancelled or the file was stopped
+         */
+        @Override
+        public void checkStopped() throws InterruptedIOException {
+            super.checkStopped();
+            if (deadline != 0 && System.nanoTime() - deadline >= 0) {
+                settle(Outcome.TIMED_OUT);
+            }
+            if (outcome.get() != null) {
+                throw new InterruptedIOException(file.getPath() + " " + outcome.get().name().toLowerCase());
+            }
+        }
+
+        /**
+         * gives the file an outcome unless it already has one
+         * @param outcome the outcome
+         * @return true if the file had no outcome before
+         */
+        private boolean settle(Outcome outcome) {
+            if (!this.outcome.compareAndSet(null, outcome)) {
+                return false;
+            }
+            unsettled.decrementAndGet();
+            return true;
+        }
+
+        /**
+         * stops the file unless it already has an outcome, interrupting the thread reading it
+         * an interrupted channel read fails straight away, which a check between reads cannot do for a stuck read
+         * @param outcome outcome of the stopped file
+         */
+        private synchronized void stop(Outcome outcome) {
+            if (!settle(outcome)) {
+                return;
+            }
+            dropStaged();
+            if (reader != null && !interrupted) {
+                interrupted = true;
+                reader.interrupt();
+            }
+        }
+
+        /**
+         * throws away the words held back for a file that will not be counted, deleting any it spilled
+         */
+        private synchronized void dropStaged() {
+            staged = null;
+            if (overflow != null) {
+                overflow.close();
+                overflow = null;
+            }
+        }
+
+        /**
+         * holds a piece of the file's results back until the file is finished
+         * a piece arriving after the file was stopped is dropped
+         * the first piece is kept as it is when the word store never reuses a task's table, so a file read
+         * in one piece is not copied, later pieces are copied into it
+         * with a word store on a memory budget, the copy moves to a spill store of the file's own whenever it
+         * reaches the number of words a task may collect
+         * @param words word counts collected by the task
+         * @param characters number of characters counted by the task
+         * @param lines number of lines counted by the task
+         */
+        @Override
+        public synchronized void merge(WordTable words, long characters, long lines) {
+            if (outcome.get() != null) {
+                return;
+            }
+            if (staged == null && wordCount.maxLocalWords() == Integer.MAX_VALUE) {
+                staged = words;
+            } else {
+                if (staged == null) {
+                    staged = new WordTable();
+                }
+                WordTable into = staged;
+                words.forEach((bytes, offset, length, count) -> into.add(bytes, offset, length, count));
+                int limit = wordCount.maxLocalWords();
+                if (limit != Integer.MAX_VALUE && staged.size() >= limit) {
+                    if (overflow == null) {
+                        overflow = new SpillingWordCounts(staged.memoryBytes(), spillDirectory);
+                    }
+                    overflow.merge(staged);
+                    staged.clear();
+                }
+            }
+            this.characters += characters;
+            this.lines += lines;
+        }
+
+        /**
+         * adds words that went to the spill store to the target in tables no larger than a task's,
+         * then deletes the spill store
+         */
+        private void mergeOverflow() {
+            if (staged != null) {
+                overflow.merge(staged);
+            }
+            int limit = wordCount.maxLocalWords();
+            WordTable batch = new WordTable();
+            overflow.forEachEntry((bytes, offset, length, count) -> {
+                batch.add(bytes, offset, length, count);
+                if (batch.size() >= limit) {
+                    target.merge(batch, 0, 0);
+                    batch.clear();
+                }
+            });
+            target.merge(batch, characters, lines);
+            overflow.close();
+            overflow = null;
+        }
+
+        /**
+         * adds the file's results to the target if it finished within its time limit
+         * releases the file first, so a stop can no longer interrupt the thread once the file is being counted
+         * @return true if the file was counted
+         */
+        public boolean commit() {
+            release();
+            commits.readLock().lock();
+            try {
+                if (!settle(Outcome.COMPLETED)) {
+                    return false;
+                }
+                synchronized (this) {
+                    if (overflow != null) {
+                        mergeOverflow();
+                    } else if (staged != null || characters != 0 || lines != 0) {
+                        target.merge(staged == null ? new WordTable() : staged, characters, lines);
+                    }
+                    staged = null;
+                }
+                return true;
+            } finally {
+                commits.readLock().unlock();
+            }
+        }
+    }
+}
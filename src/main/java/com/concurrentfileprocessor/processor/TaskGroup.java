@@ -0,0 +1,90 @@
+package com.concurrentfileprocessor.processor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the tasks of one run on an executor shared with other runs
+ * the executor cannot be shut down to wait for the run, so the group counts its own tasks instead
+ */
+class TaskGroup implements Executor {
+    // executor the tasks run on
+    private final ExecutorService executor;
+
+    // tasks submitted and not finished yet, guarded by this object
+    private int pending;
+
+    /**
+     * constructor
+     * @param executor executor the tasks run on, shared with other runs
+     */
+    TaskGroup(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * submits a task to the shared executor as part of the group
+     * @param task the task
+     * @throws RejectedExecutionException if the executor has been shut down
+     */
+    @Override
+    public void execute(Runnable task) {
+        synchronized (this) {
+            pending++;
+        }
+        try {
+            executor.submit(() -> {
+                try {
+                    task.run();
+                } finally {
+                    finished();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            finished();
+            throw e;
+        }
+    }
+
+    /**
+     * waits for every task of the group to finish, or until the run time limit or until only tasks stuck on files
+     * that timed out are left
+     * every file still running is then left out, as when a run's own executor is shut down,
+     * and the tasks still running stop at their next read without changing the statistics
+     * an interrupt does not end the wait, since the statistics are only safe to use once the tasks have stopped
+     * @param report report holding the run time limit, or null to wait for every task
+     */
+    synchronized void await(RunReport report) {
+        boolean interrupted = false;
+        while (pending > 0) {
+            try {
+                if (report != null && report.isOverdue()) {
+                    report.stopAll();
+                    break;
+                }
+                long wait = report == null ? Long.MAX_VALUE : report.nextCheckNanos();
+                if (wait == Long.MAX_VALUE) {
+                    wait();
+                } else {
+                    TimeUnit.NANOSECONDS.timedWait(this, wait);
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * counts a task as finished, waking the run once none are left
+     */
+    private synchronized void finished() {
+        if (--pending == 0) {
+            notifyAll();
+        }
+    }
+}
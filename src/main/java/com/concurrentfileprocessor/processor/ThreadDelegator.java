@@ -1,36 +1,548 @@
 package com.concurrentfileprocessor.processor;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
 import static com.concurrentfileprocessor.ConcurrentFileProcessor.fileStats;
 import static com.concurrentfileprocessor.ConcurrentFileProcessor.inputFiles;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.metrics;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.settings;
+import com.concurrentfileprocessor.FileStats;
+import com.concurrentfileprocessor.ProcessorSettings;
+import com.concurrentfileprocessor.ProcessorSettings.ExecutorStrategy;
+import com.concurrentfileprocessor.cache.FileResultCache;
+import com.concurrentfileprocessor.input.ArchiveTask;
+import com.concurrentfileprocessor.input.InputKind;
+import com.concurrentfileprocessor.metrics.PhaseEvent;
+import com.concurrentfileprocessor.metrics.ProcessingMetrics;
 
 /**
  * handles the delegation of file processing tasks to a thread pool
+ * the methods without statistics or settings parameters process the global input files into the global statistics
+ * on a pool of their own, the others run on a pool shared with other runs and touch no global state
+ * besides the live metrics
  */
 public class ThreadDelegator {
+    // most discovered files waiting to be processed before the directory walk pauses
+    private static final int MAX_PENDING_FILES = 10_000;
+
+    // executor of the run in progress, so cancel can stop it from another thread
+    private static volatile ExecutorService running;
+
+    /**
+     * what the tasks of one run share, so a run can use statistics and settings of its own
+     */
+    private static final class Run {
+        // statistics the files are merged into
+        final FileStats target;
+
+        // chunk size and schedule of the run
+        final ProcessorSettings settings;
+
+        // executor the tasks run on
+        final ExecutorService executor;
+
+        // hands a task to the executor, directly or through the run's task group
+        final Executor submit;
+
+        // permits limiting open files when the executor does not, or null for no limit
+        final Semaphore openFiles;
+
+        // cache of per-file results, or null to process every file
+        final FileResultCache cache;
+
+        // report holding the time limits, or null to wait for every file
+        final RunReport report;
+
+        // true once the run has been cancelled, files not started by then are skipped
+        final BooleanSupplier cancelled;
+
+        /**
+         * constructor
+         * virtual threads do not limit how many files are open at once, so a semaphore does
+         * the run is cancelled with the target, whose stop check also ends files part way through
+         */
+        Run(FileStats target, ProcessorSettings settings, ExecutorService executor, Executor submit,
+                FileResultCache cache, RunReport report) {
+            this.target = target;
+            this.settings = settings;
+            this.executor = executor;
+            this.submit = submit;
+            this.openFiles = executor instanceof ForkJoinPool ? null : new Semaphore(settings.maxOpenFiles);
+            this.cache = cache;
+            this.report = report;
+            this.cancelled = target.cancelled;
+        }
+    }
+
     /**
      * creates thread pool and submits file processing tasks for concurrent execution
+     * files are submitted in the order of the configured schedule policy,
+     * files larger than the configured chunk size are split into ranges that run as separate fork/join subtasks
+     * @return planned against actual load per worker, or null when running on virtual threads
+     */
+    public static LoadReport delegateTasks() {
+        return delegateTasks(null);
+    }
+
+    /**
+     * creates thread pool and submits file processing tasks, reusing cached results for unchanged files
+     * @param cache cache of per-file results, or null to process every file
+     * @return planned against actual load per worker, or null when running on virtual threads
+     */
+    public static LoadReport delegateTasks(FileResultCache cache) {
+        return delegateTasks(cache, null);
+    }
+
+    /**
+     * creates thread pool and submits file processing tasks, counting only files that finish within the time limits
+     * files stopped by a limit are left out of the statistics and listed in the run report
+     * @param cache cache of per-file results, or null to process every file
+     * @param report report holding the time limits, or null to wait for every file
+     * @return planned against actual load per worker, or null when running on virtual threads
      */
-    public static void delegateTasks() {
+    public static LoadReport delegateTasks(FileResultCache cache, RunReport report) {
         int numberOfFiles = inputFiles.size();
         fileStats.numberOfFiles = numberOfFiles;
-        
-        // create work-stealing thread pool
-        ExecutorService executor = Executors.newWorkStealingPool();
-        
-        // submit each file for processing in separate thread
-        for (int i = 0; i < numberOfFiles; i++) {
-            executor.submit(new FileMetricsCollector(inputFiles.get(i), fileStats));
-        }
-    
+        metrics.startRun(numberOfFiles);
+
+        ExecutorService executor = start(createExecutor(settings.executor));
+        LoadReport loadReport = submitFiles(new Run(fileStats, settings, executor, executor::submit, cache, report),
+            inputFiles);
+
+        awaitCompletion(executor, report);
+        metrics.endRun();
+        leaveOut(fileStats, report);
+        return loadReport;
+    }
+
+    /**
+     * processes a list of files on a pool shared with other runs, waiting only for this run's own tasks
+     * files are counted in the live metrics of the target, which the caller starts and ends
+     * @param files files to process
+     * @param target statistics the results are merged into, the run stops once their cancelled flag is set
+     * @param settings chunk size, schedule and open file limit of the run
+     * @param pool executor the tasks run on, left running afterwards
+     * @param cache cache of per-file results, or null to process every file
+     * @param report report holding the time limits, or null to wait for every file
+     * @return planned against actual load per worker, or null when running on virtual threads
+     */
+    public static LoadReport delegateTasks(List<File> files, FileStats target, ProcessorSettings settings,
+            ExecutorService pool, FileResultCache cache, RunReport report) {
+        target.numberOfFiles = files.size();
+        target.metrics.addFiles(files.size());
+
+        TaskGroup tasks = new TaskGroup(pool);
+        LoadReport loadReport = submitFiles(new Run(target, settings, pool, tasks, cache, report), files);
+
+        tasks.await(report);
+        leaveOut(target, report);
+        return loadReport;
+    }
+
+    /**
+     * processes files as a directory walk finds them, so processing overlaps with the walk
+     * files run in the order they are found, the schedule policy needs every size up front so it does not apply
+     * @param discovery the directory walk that finds the files
+     * @return number of files found
+     */
+    public static int delegateDiscoveredTasks(FileDiscovery discovery) {
+        return delegateDiscoveredTasks(discovery, null);
+    }
+
+    /**
+     * processes files as a directory walk finds them, reusing cached results for unchanged files
+     * @param discovery the directory walk that finds the files
+     * @param cache cache of per-file results, or null to process every file
+     * @return number of files found
+     */
+    public static int delegateDiscoveredTasks(FileDiscovery discovery, FileResultCache cache) {
+        return delegateDiscoveredTasks(discovery, cache, null);
+    }
+
+    /**
+     * processes files as a directory walk finds them, counting only files that finish within the time limits
+     * files found after the run time limit are listed as cancelled without being read
+     * @param discovery the directory walk that finds the files
+     * @param cache cache of per-file results, or null to process every file
+     * @param report report holding the time limits, or null to wait for every file
+     * @return number of files found
+     */
+    public static int delegateDiscoveredTasks(FileDiscovery discovery, FileResultCache cache, RunReport report) {
+        ExecutorService executor = start(createExecutor(settings.executor));
+        metrics.startRun(0);
+        int numberOfFiles = submitDiscovered(new Run(fileStats, settings, executor, executor::submit, cache, report),
+            discovery);
+
+        awaitCompletion(executor, report);
+        metrics.endRun();
+        fileStats.numberOfFiles = numberOfFiles;
+        leaveOut(fileStats, report);
+        return numberOfFiles;
+    }
+
+    /**
+     * processes files as a directory walk finds them on a pool shared with other runs,
+     * waiting only for this run's own tasks
+     * files are counted in the live metrics of the target, which the caller starts and ends
+     * @param discovery the directory walk that finds the files
+     * @param target statistics the results are merged into, the run stops once their cancelled flag is set
+     * @param settings chunk size and open file limit of the run
+     * @param pool executor the tasks run on, left running afterwards
+     * @param cache cache of per-file results, or null to process every file
+     * @param report report holding the time limits, or null to wait for every file
+     * @return number of files found
+     */
+    public static int delegateDiscoveredTasks(FileDiscovery discovery, FileStats target, ProcessorSettings settings,
+            ExecutorService pool, FileResultCache cache, RunReport report) {
+        TaskGroup tasks = new TaskGroup(pool);
+        int numberOfFiles = submitDiscovered(new Run(target, settings, pool, tasks, cache, report), discovery);
+
+        tasks.await(report);
+        target.numberOfFiles = numberOfFiles;
+        leaveOut(target, report);
+        return numberOfFiles;
+    }
+
+    /**
+     * submits every file of a list in the order of the schedule policy,
+     * files larger than the chunk size are split into ranges that run as separate fork/join subtasks
+     * @param run the run the files belong to
+     * @param files files to process
+     * @return planned against actual load per worker, or null when running on virtual threads
+     */
+    private static LoadReport submitFiles(Run run, List<File> files) {
+        long chunkSize = run.settings.chunkSize;
+
+        // read every file size once and order the files by estimated cost
+        FileSchedule schedule = FileSchedule.create(files, run.settings.schedule);
+        run.target.metrics.addBytesTotal(Arrays.stream(schedule.sizes).sum());
+
+        // one virtual thread per file has no fixed set of workers to report on
+        LoadReport loadReport = null;
+        if (run.executor instanceof ForkJoinPool) {
+            int workers = ((ForkJoinPool) run.executor).getParallelism();
+            loadReport = new LoadReport(schedule.policy, schedule.plan(workers, chunkSize));
+        }
+
+        // submit each file for processing in separate thread, splitting large files into chunks
+        try {
+            for (int i = 0; i < files.size() && !run.cancelled.getAsBoolean(); i++) {
+                run.submit.execute(fileTask(run, schedule.files.get(i), schedule.sizes[i], loadReport));
+            }
+        } catch (RejectedExecutionException e) {
+            // the run was cancelled while files were still being submitted
+        }
+        return loadReport;
+    }
+
+    /**
+     * submits files as a directory walk finds them, in the order they are found
+     * @param run the run the files belong to
+     * @param discovery the directory walk that finds the files
+     * @return number of files found
+     */
+    private static int submitDiscovered(Run run, FileDiscovery discovery) {
+        // bound the files waiting in the executor so a fast walk cannot queue millions of tasks
+        Semaphore pending = new Semaphore(MAX_PENDING_FILES);
+
+        int numberOfFiles = 0;
+        PhaseEvent walk = PhaseEvent.start("discovery");
+        try {
+            numberOfFiles = discovery.walk(file -> {
+                // a cancelled walk still lists the rest of the tree, but nothing more is processed
+                if (run.cancelled.getAsBoolean()) {
+                    return;
+                }
+                long size = file.length();
+                Runnable task = fileTask(run, file, size, null);
+                if (run.report != null && run.report.isPastRunTimeout()) {
+                    return;
+                }
+                run.target.metrics.addFiles(1);
+                run.target.metrics.addBytesTotal(size);
+                pending.acquireUninterruptibly();
+                try {
+                    run.submit.execute(() -> {
+                        try {
+                            task.run();
+                        } finally {
+                            pending.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    pending.release();
+                }
+            });
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        }
+        walk.finish();
+        return numberOfFiles;
+    }
+
+    /**
+     * creates the executor for the chosen strategy
+     * falls back to the work-stealing pool when virtual threads are not available
+     * the pool has the number of threads from the settings, or one per core
+     * @param strategy the execution strategy from the settings
+     * @return executor to submit file tasks to
+     */
+    public static ExecutorService createExecutor(ExecutorStrategy strategy) {
+        if (strategy == ExecutorStrategy.VIRTUAL) {
+            ExecutorService executor = VirtualThreads.newExecutor();
+            if (executor != null) {
+                return executor;
+            }
+            System.err.println("Virtual threads need Java 21 or newer, using the work-stealing pool");
+        }
+
+        return createPool(settings.threads);
+    }
+
+    /**
+     * creates a work-stealing thread pool, same setup as Executors.newWorkStealingPool but typed for fork/join tasks
+     * @param threads number of threads, 0 for one per core
+     * @return the pool
+     */
+    public static ForkJoinPool createPool(int threads) {
+        return new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors(),
+            ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+    }
+
+    /**
+     * creates the task that processes one file, or replays its cached results when it has not changed
+     * the cache lookup runs inside the task so content hashes are computed in parallel,
+     * and the task does nothing if the run is cancelled before it starts
+     * @param run the run the file belongs to, its report tracks the file from now on
+     * @param file the file to process
+     * @param size size of the file
+     * @param loadReport report to record the work in, or null
+     * @return the task
+     */
+    private static Runnable fileTask(Run run, File file, long size, LoadReport loadReport) {
+        FileStats target = run.target;
+        long chunkSize = run.settings.chunkSize;
+        FileResultCache cache = run.cache;
+        RunReport.TrackedFile tracked = run.report == null ? null : run.report.track(file, target);
+        Runnable task;
+        if (cache == null) {
+            task = limit(processTask(file, size, chunkSize, target, loadReport, tracked), run.openFiles);
+        } else {
+            task = limit(() -> {
+                FileResultCache.Lookup lookup = cache.lookup(file);
+                if (lookup.isHit()) {
+                    try {
+                        if (tracked == null) {
+                            lookup.replay(target);
+                        } else if (tracked.start(target)) {
+                            try {
+                                lookup.replay(tracked);
+                                tracked.commit();
+                            } finally {
+                                tracked.release();
+                            }
+                        }
+                        target.metrics.fileSkipped();
+                        return;
+                    } catch (IOException e) {
+                        System.err.println("Reprocessing " + file + ": " + e.getMessage());
+                    }
+                }
+                processTask(file, lookup.size, chunkSize, lookup.recorder(target), loadReport, tracked).run();
+                lookup.commit();
+            }, run.openFiles);
+        }
+        return () -> {
+            if (!run.cancelled.getAsBoolean()) {
+                task.run();
+            }
+        };
+    }
+
+    /**
+     * creates the task that tokenizes one file and counts it in the live metrics
+     * @param file the file to process
+     * @param size size of the file
+     * @param chunkSize files larger than this are split into ranges, 0 disables splitting
+     * @param target statistics object the results are merged into
+     * @param loadReport report to record the work in, or null
+     * @param tracked the file in the run report, or null to merge into the target as the file is read
+     * @return the task
+     */
+    private static Runnable processTask(File file, long size, long chunkSize, FileStats target, LoadReport loadReport,
+            RunReport.TrackedFile tracked) {
+        if (tracked == null) {
+            return measure(tokenizeTask(file, size, chunkSize, target, loadReport), size, target.metrics);
+        }
+        Runnable task = tokenizeTask(file, size, chunkSize, tracked, loadReport);
+        return measure(() -> {
+            if (tracked.start(target)) {
+                try {
+                    task.run();
+                    tracked.commit();
+                } finally {
+                    tracked.release();
+                }
+            }
+        }, size, target.metrics);
+    }
+
+    /**
+     * creates the task that tokenizes one file, splitting it into ranges or unpacking it as needed
+     */
+    private static Runnable tokenizeTask(File file, long size, long chunkSize, FileStats target,
+            LoadReport loadReport) {
+        if (chunkSize > 0 && size > chunkSize) {
+            // invoked on a pool worker the subtasks stay in that pool, on a virtual thread they use the common pool
+            // only plain text can be split into byte ranges, anything else is unpacked as it is read
+            return () -> {
+                InputKind kind;
+                try {
+                    kind = InputKind.sniff(file);
+                } catch (IOException e) {
+                    System.err.println(e.getMessage());
+                    return;
+                }
+                if (kind == InputKind.PLAIN) {
+                    new FileChunkTask(file, target, chunkSize, loadReport).invoke();
+                } else {
+                    record(new ArchiveTask(file, kind, target)::invoke, size, loadReport).run();
+                }
+            };
+        }
+        return record(new FileMetricsCollector(file, target), size, loadReport);
+    }
+
+    /**
+     * stops the run in progress, tasks waiting to run are dropped and running ones are interrupted
+     * an interrupted task stops at its next read, since file channels close when their thread is interrupted
+     */
+    static void cancel() {
+        ExecutorService executor = running;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * makes an executor the one cancel stops, stopping it straight away if the run was cancelled before it started
+     * @param executor the executor of the run
+     * @return the executor
+     */
+    private static ExecutorService start(ExecutorService executor) {
+        running = executor;
+        if (FileProcessor.isCancelled()) {
+            executor.shutdownNow();
+        }
+        return executor;
+    }
+
+    /**
+     * shuts the executor down and waits for the submitted tasks to finish, or until the run time limit
+     * or until only tasks stuck on files that timed out are left
+     * every file still running is then left out, so tasks stuck on a read cannot change the statistics
+     * once the run has moved on to writing them
+     * @param executor the executor of the run
+     * @param report report holding the time limits, or null to wait for every file
+     */
+    private static void awaitCompletion(ExecutorService executor, RunReport report) {
         executor.shutdown();
         try {
-            executor.awaitTermination(30, TimeUnit.MINUTES);
+            while (!executor.awaitTermination(report == null ? Long.MAX_VALUE : report.nextCheckNanos(),
+                    TimeUnit.NANOSECONDS)) {
+                if (report.isOverdue()) {
+                    report.stopAll();
+                    executor.shutdownNow();
+                    break;
+                }
+            }
         } catch (InterruptedException e) {
             executor.shutdownNow();
         }
+        running = null;
+    }
+
+    /**
+     * takes the files the run report left out off the file count of the statistics
+     * @param target statistics of the run
+     * @param report the run report, or null when every file was counted
+     */
+    private static void leaveOut(FileStats target, RunReport report) {
+        if (report != null) {
+            target.filesLeftOut = report.leftOut().size();
+            target.numberOfFiles -= target.filesLeftOut;
+        }
+    }
+
+    /**
+     * wraps a file task so the live metrics count it as active while it runs and record its latency and size
+     * @param task the task to run
+     * @param bytes size of the file the task processes
+     * @param metrics live metrics of the run
+     * @return the wrapped task
+     */
+    private static Runnable measure(Runnable task, long bytes, ProcessingMetrics metrics) {
+        return () -> {
+            long start = metrics.fileStarted();
+            try {
+                task.run();
+            } finally {
+                metrics.addBytes(bytes);
+                metrics.fileFinished(start);
+            }
+        };
+    }
+
+    /**
+     * wraps a task so its time is recorded against the worker that ran it
+     * @param task the task to run
+     * @param bytes size of the file the task processes
+     * @param loadReport report to record in, or null to run without recording
+     * @return the wrapped task
+     */
+    private static Runnable record(Runnable task, long bytes, LoadReport loadReport) {
+        if (loadReport == null) {
+            return task;
+        }
+        return () -> {
+            long start = System.nanoTime();
+            task.run();
+            loadReport.record(bytes, System.nanoTime() - start);
+        };
+    }
+
+    /**
+     * wraps a task so it holds a permit while it runs
+     * @param task the task to run
+     * @param permits permits to take, or null to run without a limit
+     * @return the wrapped task
+     */
+    private static Runnable limit(Runnable task, Semaphore permits) {
+        if (permits == null) {
+            return task;
+        }
+        return () -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        };
     }
 }
@@ -0,0 +1,51 @@
+package com.concurrentfileprocessor.processor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * access to virtual threads when the runtime has them
+ * the project still builds for Java 17, so the Java 21 factory method is looked up at runtime
+ */
+public class VirtualThreads {
+    // Executors.newVirtualThreadPerTaskExecutor, or null when the runtime does not support virtual threads
+    private static final MethodHandle NEW_EXECUTOR = findFactory();
+
+    /**
+     * @return true if the runtime can create virtual threads
+     */
+    public static boolean isSupported() {
+        return NEW_EXECUTOR != null;
+    }
+
+    /**
+     * creates an executor that starts a new virtual thread for each task
+     * @return the executor, or null if the runtime does not support virtual threads
+     */
+    public static ExecutorService newExecutor() {
+        if (NEW_EXECUTOR == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) NEW_EXECUTOR.invokeExact();
+        } catch (Throwable e) {
+            // preview builds can expose the method but refuse to run it
+            return null;
+        }
+    }
+
+    /**
+     * looks up the virtual thread executor factory
+     */
+    private static MethodHandle findFactory() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+}
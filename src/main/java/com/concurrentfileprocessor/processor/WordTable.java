@@ -0,0 +1,267 @@
+package com.concurrentfileprocessor.processor;
+
+import java.util.Arrays;
+
+/**
+ * open addressing table that counts words keyed by their raw bytes
+ * a word's bytes are only copied the first time it is seen, later occurrences just bump a counter
+ * not thread-safe, each task counts into its own table and merges it into the shared totals when done
+ */
+public class WordTable {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // entry index + 1 for each slot, 0 marks an empty slot
+    private int[] slots = new int[INITIAL_CAPACITY];
+
+    // per entry hash, position in the byte arena, length and count
+    private int[] hashes = new int[INITIAL_CAPACITY / 2];
+    private int[] offsets = new int[INITIAL_CAPACITY / 2];
+    private int[] lengths = new int[INITIAL_CAPACITY / 2];
+    private long[] counts = new long[INITIAL_CAPACITY / 2];
+
+    // word bytes stored back to back
+    private byte[] arena = new byte[INITIAL_CAPACITY * 8];
+    private int arenaLength;
+
+    // number of distinct words in the table
+    private int size;
+
+    /**
+     * receives each word in the table
+     * the array is shared by all words so it must be copied if kept
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(byte[] bytes, int offset, int length, long count);
+    }
+
+    /**
+     * counts one occurrence of a word, adding it if it has not been seen yet
+     * @param word bytes of the word
+     * @param length number of bytes in the word
+     * @param hash hash of the word bytes
+     */
+    public void add(byte[] word, int length, int hash) {
+        add(word, 0, length, hash, 1);
+    }
+
+    /**
+     * adds a count to a word read back from stored results, hashing it the same way as the tokenizer
+     * @param word array holding the bytes of the word
+     * @param offset position of the first byte of the word
+     * @param length number of bytes in the word
+     * @param count number of occurrences to add
+     */
+    public void add(byte[] word, int offset, int length, long count) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + word[i];
+        }
+        add(word, offset, length, hash, count);
+    }
+
+    /**
+     * adds a count to a word, adding the word if it has not been seen yet
+     */
+    private void add(byte[] word, int offset, int length, int hash, long count) {
+        int mask = slots.length - 1;
+        int slot = spread(hash) & mask;
+        while (true) {
+            int entry = slots[slot] - 1;
+            if (entry < 0) {
+                insert(slot, word, offset, length, hash, count);
+                return;
+            }
+            if (hashes[entry] == hash && lengths[entry] == length
+                    && Arrays.equals(arena, offsets[entry], offsets[entry] + length, word, offset, offset + length)) {
+                counts[entry] += count;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * @return number of distinct words in the table
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return bytes held by the table's arrays, so a store can keep its tables within a memory budget
+     */
+    public long memoryBytes() {
+        return 4L * slots.length + 20L * hashes.length + arena.length;
+    }
+
+    /**
+     * removes every word, keeping the memory already allocated for reuse
+     */
+    public void clear() {
+        Arrays.fill(slots, 0);
+        size = 0;
+        arenaLength = 0;
+    }
+
+    /**
+     * passes every word and its count to the consumer in insertion order
+     * @param consumer receives the bytes and count of each word
+     */
+    public void forEach(EntryConsumer consumer) {
+        for (int entry = 0; entry < size; entry++) {
+            consumer.accept(arena, offsets[entry], lengths[entry], counts[entry]);
+        }
+    }
+
+    /**
+     * passes every word and its count to the consumer in ascending order of their bytes
+     * @param consumer receives the bytes and count of each word
+     */
+    public void forEachSorted(EntryConsumer consumer) {
+        int[] order = new int[size];
+        for (int entry = 0; entry < size; entry++) {
+            order[entry] = entry;
+        }
+        sortByBytes(order, arena, offsets, lengths);
+        for (int entry : order) {
+            consumer.accept(arena, offsets[entry], lengths[entry], counts[entry]);
+        }
+    }
+
+    /**
+     * passes every word and its count to the consumer, highest count first and in ascending order of their bytes
+     * among equal counts
+     * @param consumer receives the bytes and count of each word
+     */
+    public void forEachByCount(EntryConsumer consumer) {
+        int[] order = new int[size];
+        for (int entry = 0; entry < size; entry++) {
+            order[entry] = entry;
+        }
+        sort(order, (a, b) -> {
+            int byCount = Long.compare(counts[b], counts[a]);
+            return byCount != 0 ? byCount : compare(arena, offsets, lengths, a, b);
+        });
+        for (int entry : order) {
+            consumer.accept(arena, offsets[entry], lengths[entry], counts[entry]);
+        }
+    }
+
+    /**
+     * sorts entry numbers by the bytes of their words, compared as unsigned, with a merge sort on primitive arrays
+     * so sorting a large vocabulary takes eight bytes a word on top of the words themselves
+     * @param order entry numbers to sort
+     * @param arena array holding the bytes of the words
+     * @param offsets position of each entry's word in the arena
+     * @param lengths number of bytes in each entry's word
+     */
+    public static void sortByBytes(int[] order, byte[] arena, int[] offsets, int[] lengths) {
+        sort(order, (a, b) -> compare(arena, offsets, lengths, a, b));
+    }
+
+    /**
+     * compares two entries by their numbers
+     */
+    @FunctionalInterface
+    private interface EntryComparator {
+        int compare(int a, int b);
+    }
+
+    /**
+     * stable merge sort of entry numbers, taking one more array of the same length
+     */
+    private static void sort(int[] order, EntryComparator comparator) {
+        int[] from = order;
+        int[] to = new int[order.length];
+        for (int width = 1; width < order.length; width *= 2) {
+            for (int start = 0; start < order.length; start += 2 * width) {
+                int middle = Math.min(start + width, order.length);
+                int end = Math.min(start + 2 * width, order.length);
+                int left = start;
+                int right = middle;
+                for (int i = start; i < end; i++) {
+                    if (right == end || left < middle && comparator.compare(from[left], from[right]) <= 0) {
+                        to[i] = from[left++];
+                    } else {
+                        to[i] = from[right++];
+                    }
+                }
+            }
+            int[] swap = from;
+            from = to;
+            to = swap;
+        }
+        if (from != order) {
+            System.arraycopy(from, 0, order, 0, order.length);
+        }
+    }
+
+    /**
+     * compares the bytes of two entries' words as unsigned
+     */
+    private static int compare(byte[] arena, int[] offsets, int[] lengths, int a, int b) {
+        return Arrays.compareUnsigned(arena, offsets[a], offsets[a] + lengths[a],
+            arena, offsets[b], offsets[b] + lengths[b]);
+    }
+
+    /**
+     * stores a new word and its count in the given empty slot
+     */
+    private void insert(int slot, byte[] word, int offset, int length, int hash, long count) {
+        if (size == hashes.length) {
+            growEntries();
+        }
+        if (arenaLength + length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaLength + length));
+        }
+        System.arraycopy(word, offset, arena, arenaLength, length);
+
+        int entry = size++;
+        hashes[entry] = hash;
+        offsets[entry] = arenaLength;
+        lengths[entry] = length;
+        counts[entry] = count;
+        arenaLength += length;
+        slots[slot] = entry + 1;
+
+        // keep the load factor at or below one half
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+    }
+
+    /**
+     * doubles the capacity of the per entry arrays
+     */
+    private void growEntries() {
+        int capacity = hashes.length * 2;
+        hashes = Arrays.copyOf(hashes, capacity);
+        offsets = Arrays.copyOf(offsets, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+    }
+
+    /**
+     * doubles the slot array and reinserts every entry
+     */
+    private void rehash() {
+        int[] newSlots = new int[slots.length * 2];
+        int mask = newSlots.length - 1;
+        for (int entry = 0; entry < size; entry++) {
+            int slot = spread(hashes[entry]) & mask;
+            while (newSlots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            newSlots[slot] = entry + 1;
+        }
+        slots = newSlots;
+    }
+
+    /**
+     * mixes the high bits into the low bits used for slot selection
+     */
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
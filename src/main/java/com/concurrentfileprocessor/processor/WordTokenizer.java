@@ -0,0 +1,573 @@
+package com.concurrentfileprocessor.processor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.settings;
+
+/**
+ * single pass byte-level tokenizer for UTF-8 text, or text in a single byte charset that extends ASCII
+ * words are runs of letters split on whitespace, line separators and punctuation outside ASCII,
+ * letters are case folded and kept, combining marks are kept inside a word and everything else is dropped
+ * without splitting the word, so ASCII punctuation and the typographic apostrophe U+2019 join the letters around them
+ * ASCII bytes go through a lookup table without decoding, so English text pays nothing for the Unicode support,
+ * other bytes are decoded straight from the buffer and classified and case folded with the JDK's Character tables
+ * words are passed on as UTF-8 bytes whatever the charset of the input, cut to their first MAX_WORD_BYTES bytes
+ * not thread-safe, each task owns its own tokenizer
+ */
+public class WordTokenizer {
+    // size of the buffer used when reading from a channel
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    // longest word passed on, the letters of a longer word past it are counted as characters but not kept
+    public static final int MAX_WORD_BYTES = 64 * 1024;
+
+    // lowercase letter for each ASCII byte, or 0 when the byte is not a letter
+    private static final byte[] LETTERS = new byte[128];
+
+    // code point of each byte from 0x80 up for every single byte charset used so far
+    private static final Map<Charset, int[]> DECODE_TABLES = new ConcurrentHashMap<>();
+
+    static {
+        for (int c = 'a'; c <= 'z'; c++) {
+            LETTERS[c] = (byte) c;
+            LETTERS[c - 'a' + 'A'] = (byte) c;
+        }
+    }
+
+    /**
+     * receives each completed word
+     * the array is reused by the tokenizer so it must be copied if kept
+     */
+    @FunctionalInterface
+    public interface WordSink {
+        void accept(byte[] word, int length, int hash);
+    }
+
+    /**
+     * asked between reads whether to carry on, so a long read can be stopped part way
+     */
+    @FunctionalInterface
+    public interface StopCheck {
+        /**
+         * @throws IOException to stop reading, the consume method throws it on
+         */
+        void check() throws IOException;
+    }
+
+    // destination for completed words
+    private final WordSink sink;
+
+    // code point of each byte from 0x80 up, or null to decode UTF-8
+    private final int[] decodeTable;
+
+    // UTF-8 bytes of the word currently being built, and the number of characters in it
+    private byte[] word = new byte[64];
+    private int wordLength;
+    private int wordHash;
+    private int wordCharacters;
+
+    // true once the current word is full, or when it was passed on cut short by the tokenizer of earlier input
+    private boolean truncated;
+
+    // running totals for everything fed so far
+    private long lineTerminators;
+    private long characterCount;
+    private long wordCount;
+
+    // time the consume methods spent waiting on reads
+    private long readNanos;
+
+    // true when the current line has content that has not been terminated yet
+    private boolean lineOpen;
+
+    // true when the previous byte was '\r' so a following '\n' belongs to the same terminator
+    private boolean afterCarriageReturn;
+
+    // continuation bytes still missing from the UTF-8 sequence being decoded, the bits decoded so far
+    // and the smallest code point the sequence may encode, so overlong encodings are dropped
+    private int pending;
+    private int codePoint;
+    private int minimum;
+
+    // read buffer reused between files
+    private ByteBuffer readBuffer;
+
+    // asked before each read of the consume methods, null to always read to the end
+    private StopCheck stopCheck;
+
+    /**
+     * constructor for input in the charset from the settings
+     * @param sink destination for completed words
+     */
+    public WordTokenizer(WordSink sink) {
+        this(sink, settings.charset);
+    }
+
+    /**
+     * constructor
+     * @param sink destination for completed words
+     * @param charset charset of the input, UTF-8 or a single byte charset that extends ASCII
+     * @throws IllegalArgumentException if the charset is not supported
+     */
+    public WordTokenizer(WordSink sink, Charset charset) {
+        if (!isSupported(charset)) {
+            throw new IllegalArgumentException(charset + " is not UTF-8 or a single byte charset that extends ASCII");
+        }
+        this.sink = sink;
+        this.decodeTable = charset.equals(StandardCharsets.UTF_8) ? null
+            : DECODE_TABLES.computeIfAbsent(charset, WordTokenizer::decodeTable);
+    }
+
+    /**
+     * only charsets where every ASCII byte is that ASCII character can be tokenized,
+     * since files are split into ranges and buffers at '\n' bytes and ASCII bytes skip decoding
+     * @param charset the charset to check
+     * @return true for UTF-8 and single byte charsets that extend ASCII
+     */
+    public static boolean isSupported(Charset charset) {
+        if (charset.equals(StandardCharsets.UTF_8)) {
+            return true;
+        }
+        if (!charset.canEncode()) {
+            return false;
+        }
+        CharsetEncoder encoder = charset.newEncoder();
+        if (encoder.maxBytesPerChar() != 1) {
+            return false;
+        }
+        byte[] ascii = new byte[128];
+        for (int i = 0; i < ascii.length; i++) {
+            ascii[i] = (byte) i;
+        }
+        return new String(ascii, charset).equals(new String(ascii, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @param stopCheck asked before each read of the consume methods, so one buffer at most is read after a stop
+     */
+    public void setStopCheck(StopCheck stopCheck) {
+        this.stopCheck = stopCheck;
+    }
+
+    /**
+     * treats the input fed next as the rest of a word another tokenizer already passed on cut short,
+     * its letters count as characters but the word is not passed on again
+     */
+    public void continueWord() {
+        truncated = true;
+    }
+
+    /**
+     * reads a channel to the end and tokenizes everything in it
+     * @param channel channel to read from
+     * @throws IOException if reading fails or the stop check stops it
+     */
+    public void consume(ReadableByteChannel channel) throws IOException {
+        if (readBuffer == null) {
+            readBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+        }
+        while (true) {
+            if (stopCheck != null) {
+                stopCheck.check();
+            }
+            long start = System.nanoTime();
+            int read = channel.read(readBuffer);
+            readNanos += System.nanoTime() - start;
+            if (read == -1) {
+                break;
+            }
+            readBuffer.flip();
+            feed(readBuffer.array(), readBuffer.arrayOffset() + readBuffer.position(), readBuffer.remaining());
+            readBuffer.clear();
+        }
+        finish();
+    }
+
+    /**
+     * reads a byte range of a file with positional reads and tokenizes it
+     * the channel position is not touched, so several tokenizers can share one channel
+     * @param channel channel to read from
+     * @param start first byte of the range
+     * @param end byte after the last byte of the range
+     * @throws IOException if reading fails or the stop check stops it
+     */
+    public void consume(FileChannel channel, long start, long end) throws IOException {
+        if (readBuffer == null) {
+            readBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+        }
+        long position = start;
+        while (position < end) {
+            if (stopCheck != null) {
+                stopCheck.check();
+            }
+            readBuffer.limit((int) Math.min(readBuffer.capacity(), end - position));
+            long startTime = System.nanoTime();
+            int read = channel.read(readBuffer, position);
+            readNanos += System.nanoTime() - startTime;
+            if (read == -1) {
+                break;
+            }
+            position += read;
+            readBuffer.flip();
+            feed(readBuffer.array(), readBuffer.arrayOffset() + readBuffer.position(), readBuffer.remaining());
+            readBuffer.clear();
+        }
+        finish();
+    }
+
+    /**
+     * tokenizes the remaining bytes of a buffer
+     * @param buffer buffer to read, its position is moved to the limit
+     */
+    public void feed(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            feed(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+        } else {
+            byte[] bytes = new byte[Math.min(buffer.remaining(), BUFFER_SIZE)];
+            while (buffer.hasRemaining()) {
+                int length = Math.min(buffer.remaining(), bytes.length);
+                buffer.get(bytes, 0, length);
+                feed(bytes, 0, length);
+            }
+        }
+    }
+
+    /**
+     * tokenizes a range of bytes, words and multi-byte characters may continue into the next call
+     * @param buffer bytes to read
+     * @param offset first byte to read
+     * @param length number of bytes to read
+     */
+    public void feed(byte[] buffer, int offset, int length) {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            int b = buffer[i];
+            if (b >= 0 && pending == 0) {
+                // ASCII fast path, letters are looked up and appended without decoding
+                byte letter = LETTERS[b];
+                if (letter != 0) {
+                    if (hasRoom(1)) {
+                        word[wordLength++] = letter;
+                        wordHash = 31 * wordHash + letter;
+                    }
+                    wordCharacters++;
+                    lineOpen = true;
+                    afterCarriageReturn = false;
+                } else {
+                    acceptAscii(b);
+                }
+            } else {
+                acceptByte(b & 0xFF);
+            }
+        }
+    }
+
+    /**
+     * flushes the last word once all input has been fed
+     */
+    public void finish() {
+        if (pending != 0) {
+            dropSequence();
+        }
+        flushWord();
+    }
+
+    /**
+     * @return number of lines seen, counting an unterminated last line
+     */
+    public long lineCount() {
+        return lineTerminators + (lineOpen ? 1 : 0);
+    }
+
+    /**
+     * @return number of letters and marks across all words seen
+     */
+    public long characterCount() {
+        return characterCount;
+    }
+
+    /**
+     * @return number of words seen, counting every occurrence
+     */
+    public long wordCount() {
+        return wordCount;
+    }
+
+    /**
+     * @return nanoseconds the consume methods spent reading, once per buffer so it costs nothing per byte
+     */
+    public long readNanos() {
+        return readNanos;
+    }
+
+    /**
+     * handles an ASCII byte that is not a letter
+     */
+    private void acceptAscii(int b) {
+        switch (b) {
+            case '\n':
+                if (!afterCarriageReturn) {
+                    endLine();
+                }
+                afterCarriageReturn = false;
+                break;
+            case '\r':
+                endLine();
+                afterCarriageReturn = true;
+                break;
+            case ' ':
+            case '\t':
+            case 0x0B:
+            case '\f':
+                flushWord();
+                lineOpen = true;
+                afterCarriageReturn = false;
+                break;
+            default:
+                // digits and punctuation are dropped without splitting the word
+                lineOpen = true;
+                afterCarriageReturn = false;
+        }
+    }
+
+    /**
+     * handles a byte that is not ASCII, or any byte while a UTF-8 sequence is being decoded
+     */
+    private void acceptByte(int b) {
+        if (decodeTable != null) {
+            acceptCodePoint(decodeTable[b - 0x80]);
+            return;
+        }
+        if (b < 0x80) {
+            // an ASCII byte cuts the sequence short
+            dropSequence();
+            if (LETTERS[b] != 0) {
+                appendCodePoint(LETTERS[b]);
+            } else {
+                acceptAscii(b);
+            }
+            return;
+        }
+        if (b < 0xC0) {
+            if (pending == 0) {
+                // a continuation byte without a lead byte
+                dropCharacter();
+                return;
+            }
+            codePoint = codePoint << 6 | b & 0x3F;
+            if (--pending == 0) {
+                boolean surrogate = codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE;
+                if (codePoint < minimum || surrogate || codePoint > Character.MAX_CODE_POINT) {
+                    dropCharacter();
+                } else {
+                    acceptCodePoint(codePoint);
+                }
+            }
+            return;
+        }
+
+        if (pending != 0) {
+            dropSequence();
+        }
+        if (b >= 0xC2 && b <= 0xDF) {
+            startSequence(b & 0x1F, 1, 0x80);
+        } else if (b >= 0xE0 && b <= 0xEF) {
+            startSequence(b & 0x0F, 2, 0x800);
+        } else if (b >= 0xF0 && b <= 0xF4) {
+            startSequence(b & 0x07, 3, 0x10000);
+        } else {
+            // 0xC0, 0xC1 and 0xF5 up never start a valid sequence
+            dropCharacter();
+        }
+    }
+
+    /**
+     * starts decoding a multi-byte UTF-8 sequence
+     */
+    private void startSequence(int bits, int continuationBytes, int smallest) {
+        codePoint = bits;
+        pending = continuationBytes;
+        minimum = smallest;
+    }
+
+    /**
+     * abandons a sequence that was cut short, it counts as one dropped character like a decoder's replacement
+     */
+    private void dropSequence() {
+        pending = 0;
+        dropCharacter();
+    }
+
+    /**
+     * drops a character that is neither a letter nor a separator, without splitting the word
+     */
+    private void dropCharacter() {
+        lineOpen = true;
+        afterCarriageReturn = false;
+    }
+
+    /**
+     * handles a decoded character outside ASCII
+     * U+0085, U+2028 and U+2029 end a line, the other Unicode space separators and punctuation end a word
+     */
+    private void acceptCodePoint(int c) {
+        afterCarriageReturn = false;
+        if (Character.isLetter(c)) {
+            appendCodePoint(fold(c));
+        } else if ((wordLength > 0 || truncated) && isMark(c)) {
+            appendCodePoint(c);
+        } else if (c == 0x85 || c == 0x2028 || c == 0x2029) {
+            endLine();
+        } else if (Character.isSpaceChar(c) || isPunctuation(c)) {
+            flushWord();
+            lineOpen = true;
+        } else {
+            lineOpen = true;
+        }
+    }
+
+    /**
+     * simple case folding, the lowercase of the uppercase, so for example final sigma and sigma count as one letter
+     */
+    private static int fold(int c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * @return true for punctuation, except U+2019, which is mostly written as an apostrophe inside a word
+     */
+    private static boolean isPunctuation(int c) {
+        switch (Character.getType(c)) {
+            case Character.CONNECTOR_PUNCTUATION:
+            case Character.DASH_PUNCTUATION:
+            case Character.START_PUNCTUATION:
+            case Character.END_PUNCTUATION:
+            case Character.INITIAL_QUOTE_PUNCTUATION:
+            case Character.FINAL_QUOTE_PUNCTUATION:
+            case Character.OTHER_PUNCTUATION:
+                return c != 0x2019;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return true for combining marks, which belong to the letter before them
+     */
+    private static boolean isMark(int c) {
+        int type = Character.getType(c);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK
+            || type == Character.ENCLOSING_MARK;
+    }
+
+    /**
+     * adds a character to the current word as UTF-8
+     */
+    private void appendCodePoint(int c) {
+        // a character past the end of a full word is not kept but still counts
+        if (c < 0x80) {
+            if (hasRoom(1)) {
+                appendByte(c);
+            }
+        } else if (c < 0x800) {
+            if (hasRoom(2)) {
+                appendByte(0xC0 | c >> 6);
+                appendByte(0x80 | c & 0x3F);
+            }
+        } else if (c < 0x10000) {
+            if (hasRoom(3)) {
+                appendByte(0xE0 | c >> 12);
+                appendByte(0x80 | c >> 6 & 0x3F);
+                appendByte(0x80 | c & 0x3F);
+            }
+        } else if (hasRoom(4)) {
+            appendByte(0xF0 | c >> 18);
+            appendByte(0x80 | c >> 12 & 0x3F);
+            appendByte(0x80 | c >> 6 & 0x3F);
+            appendByte(0x80 | c & 0x3F);
+        }
+        wordCharacters++;
+        lineOpen = true;
+    }
+
+    /**
+     * grows the current word so a character fits, or marks it full once the character would take it past the cap
+     * @param bytes UTF-8 length of the character
+     * @return true if the character can be added
+     */
+    private boolean hasRoom(int bytes) {
+        if (!truncated && wordLength + bytes > word.length) {
+            if (wordLength + bytes > MAX_WORD_BYTES) {
+                truncated = true;
+            } else {
+                word = Arrays.copyOf(word, Math.min(word.length * 2, MAX_WORD_BYTES));
+            }
+        }
+        return !truncated;
+    }
+
+    /**
+     * adds one byte to the current word, which has room for it
+     */
+    private void appendByte(int b) {
+        word[wordLength++] = (byte) b;
+        wordHash = 31 * wordHash + (byte) b;
+    }
+
+    /**
+     * ends the current line and the word on it
+     */
+    private void endLine() {
+        flushWord();
+        lineTerminators++;
+        lineOpen = false;
+    }
+
+    /**
+     * passes the current word to the sink if it has any letters, the rest of a word passed on earlier only counts
+     * its characters
+     */
+    private void flushWord() {
+        if (wordLength > 0) {
+            sink.accept(word, wordLength, wordHash);
+            wordCount++;
+        }
+        characterCount += wordCharacters;
+        wordLength = 0;
+        wordHash = 0;
+        wordCharacters = 0;
+        truncated = false;
+    }
+
+    /**
+     * decodes every byte from 0x80 up in a single byte charset, unmappable bytes become U+FFFD and are dropped
+     */
+    private static int[] decodeTable(Charset charset) {
+        CharsetDecoder decoder = charset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        int[] table = new int[128];
+        CharBuffer decoded = CharBuffer.allocate(1);
+        for (int b = 0x80; b <= 0xFF; b++) {
+            decoded.clear();
+            decoder.reset();
+            decoder.decode(ByteBuffer.wrap(new byte[] {(byte) b}), decoded, true);
+            decoder.flush(decoded);
+            table[b - 0x80] = decoded.position() == 0 ? 0xFFFD : decoded.get(0);
+        }
+        return table;
+    }
+}
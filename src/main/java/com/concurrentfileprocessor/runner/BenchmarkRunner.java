@@ -0,0 +1,134 @@
+package com.concurrentfileprocessor.runner;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.fileStats;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.outputFilePath;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.outputFilename;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.settings;
+import com.concurrentfileprocessor.FileStats;
+import com.concurrentfileprocessor.corpus.BenchmarkRun;
+import com.concurrentfileprocessor.corpus.CorpusGenerator;
+import com.concurrentfileprocessor.processor.FileDiscovery;
+import com.concurrentfileprocessor.processor.FileProcessor;
+
+/**
+ * launcher class for benchmarking the whole pipeline on a generated corpus
+ * generates the corpus if its directory does not already hold it, then processes it several times with the
+ * other settings and reports throughput, peak heap and GC time, so runs on the same seed can be compared over time
+ */
+public class BenchmarkRunner {
+    // columns of the results file
+    static final String RESULTS_HEADER = "timestamp,java,cpus,arguments,run,files,bytes,elapsed_ms,mb_per_s,files_per_s,"
+        + "peak_heap_mb,gc_count,gc_ms";
+
+    /**
+     * runs the benchmark, writing each run's output file to a temporary directory that is deleted afterwards
+     * @return the measured runs, empty if the corpus could not be generated or a run failed
+     */
+    public static List<BenchmarkRun> run() {
+        System.out.println("Running benchmark");
+        List<BenchmarkRun> runs = new ArrayList<>();
+        List<File> corpus;
+        File outputDirectory;
+        try {
+            corpus = CorpusGenerator.generate(settings);
+            outputDirectory = Files.createTempDirectory("benchmark").toFile();
+        } catch (IOException e) {
+            System.err.println("Could not generate corpus: " + e.getMessage());
+            return runs;
+        }
+        if (!settings.cacheFile.isEmpty()) {
+            System.out.println("Ignoring --cache so every run processes every file");
+            settings.cacheFile = "";
+        }
+
+        long bytes = 0;
+        for (File file : corpus) {
+            bytes += file.length();
+        }
+        outputFilePath = outputDirectory.getPath();
+        outputFilename = "benchmark_file_stats.txt";
+
+        for (int i = 0; i < settings.benchmarkWarmups + settings.benchmarkRuns; i++) {
+            boolean warmup = i < settings.benchmarkWarmups;
+            fileStats = FileStats.create(settings);
+            // start every run from a collected heap so earlier runs' garbage is not counted against it
+            System.gc();
+
+            BenchmarkRun run = BenchmarkRun.start(corpus.size(), bytes);
+            FileDiscovery discovery = new FileDiscovery(new File(settings.corpusDirectory), false, "corpus-*.txt", "");
+            int processed = settings.shards > 1
+                ? FileProcessor.processShardedFiles(discovery)
+                : FileProcessor.processDiscoveredFiles(discovery);
+            run.finish();
+            fileStats.wordCount.close();
+
+            if (processed != corpus.size()) {
+                System.err.println("Benchmark run processed " + processed + " of " + corpus.size() + " files, stopping");
+                runs.clear();
+                break;
+            }
+            if (warmup) {
+                System.out.println("Warmup " + (i + 1) + ": " + run);
+            } else {
+                runs.add(run);
+                System.out.println("Run " + runs.size() + ": " + run);
+            }
+        }
+
+        new File(outputDirectory, outputFilename).delete();
+        outputDirectory.delete();
+        if (!runs.isEmpty()) {
+            System.out.println("Median: " + median(runs));
+            appendResults(runs);
+        }
+        return runs;
+    }
+
+    /**
+     * @return the run with the median elapsed time, the slower one of the middle two for an even count
+     */
+    static BenchmarkRun median(List<BenchmarkRun> runs) {
+        List<BenchmarkRun> sorted = new ArrayList<>(runs);
+        sorted.sort(Comparator.comparingLong(run -> run.elapsedNanos));
+        return sorted.get(sorted.size() / 2);
+    }
+
+    /**
+     * appends one row per measured run to the results file, writing the header first if the file is new
+     */
+    private static void appendResults(List<BenchmarkRun> runs) {
+        if (settings.benchmarkResults.isEmpty()) {
+            return;
+        }
+        File results = new File(settings.benchmarkResults);
+        boolean writeHeader = !results.exists() || results.length() == 0;
+        try (PrintWriter out = new PrintWriter(new FileWriter(results, true))) {
+            if (writeHeader) {
+                out.println(RESULTS_HEADER);
+            }
+            String timestamp = Instant.now().toString();
+            String arguments = "\"" + String.join(" ", settings.arguments).replace("\"", "\"\"") + "\"";
+            for (int i = 0; i < runs.size(); i++) {
+                BenchmarkRun run = runs.get(i);
+                out.println(String.format(Locale.ROOT, "%s,%s,%d,%s,%d,%d,%d,%d,%.2f,%.2f,%.1f,%d,%d",
+                    timestamp, System.getProperty("java.version"), Runtime.getRuntime().availableProcessors(),
+                    arguments, i + 1, run.files, run.bytes, run.elapsedMillis(), run.megabytesPerSecond(),
+                    run.filesPerSecond(), run.peakHeapMegabytes(), run.gcCount, run.gcMillis));
+            }
+            System.out.println("Appended results to " + results.getPath());
+        } catch (IOException e) {
+            System.err.println("Could not write results: " + e.getMessage());
+        }
+    }
+}
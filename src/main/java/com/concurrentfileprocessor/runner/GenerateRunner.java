@@ -0,0 +1,32 @@
+package com.concurrentfileprocessor.runner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.settings;
+import com.concurrentfileprocessor.corpus.CorpusGenerator;
+
+/**
+ * launcher class for generating a synthetic corpus
+ * writes the files described by the corpus settings without processing them
+ */
+public class GenerateRunner {
+    /**
+     * generates the corpus, exiting with a non-zero code if it cannot be written
+     */
+    public static void run() {
+        try {
+            List<File> files = CorpusGenerator.generate(settings);
+            long bytes = 0;
+            for (File file : files) {
+                bytes += file.length();
+            }
+            System.out.printf("Corpus of %d files, %d bytes in %s%n", files.size(), bytes,
+                new File(settings.corpusDirectory).getAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("Could not generate corpus: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
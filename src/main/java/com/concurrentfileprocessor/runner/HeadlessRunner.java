@@ -1,16 +1,21 @@
 package com.concurrentfileprocessor.runner;
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
 import java.util.Scanner;
 
 import static com.concurrentfileprocessor.ConcurrentFileProcessor.fileStats;
-import static com.concurrentfileprocessor.ConcurrentFileProcessor.inputFiles;
 import static com.concurrentfileprocessor.ConcurrentFileProcessor.outputFilePath;
 import static com.concurrentfileprocessor.ConcurrentFileProcessor.outputFilename;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.settings;
+import com.concurrentfileprocessor.FileStats;
+import com.concurrentfileprocessor.engine.JobConfig;
+import com.concurrentfileprocessor.engine.JobResult;
+import com.concurrentfileprocessor.engine.ProcessingEngine;
+import com.concurrentfileprocessor.engine.ProcessingJob;
+import com.concurrentfileprocessor.metrics.RunRecording;
+import com.concurrentfileprocessor.processor.FileDiscovery;
 import com.concurrentfileprocessor.processor.FileProcessor;
+import com.concurrentfileprocessor.processor.LiveResults;
 
 /**
  * launcher class for headless mode
@@ -19,7 +24,10 @@ import com.concurrentfileprocessor.processor.FileProcessor;
 public class HeadlessRunner {
     /**
      * runs the file processor in headless mode
-     * scans current directory for text files and processes them
+     * searches the current directory for matching files and processes them on a processing engine as they are found,
+     * or splits them between worker processes when shards are configured
+     * records the run and prints where the time went when a recording file is configured
+     * prints the totals and most frequent words so far about once a second when live results are configured
      */
     public static void run() {
         System.out.println("Running in headless mode");
@@ -30,41 +38,73 @@ public class HeadlessRunner {
 
         File inputDirectory = new File(currentDir);
         if (inputDirectory.exists() && inputDirectory.isDirectory()) {
-            inputFiles = getInputFiles(inputDirectory);
-            if (inputFiles.isEmpty()) {
+            RunRecording recording = settings.recordFile.isEmpty()
+                ? null
+                : RunRecording.start(new File(settings.recordFile));
+            FileDiscovery discovery = createDiscovery(inputDirectory);
+            int processed;
+            if (settings.shards > 1) {
+                processed = FileProcessor.processShardedFiles(discovery);
+            } else {
+                processed = processOnEngine(discovery);
+            }
+            if (processed == 0) {
                 System.out.println("No text files found in current directory, ending processing");
-            } else{
-                processAndDisplayResults();
+            } else if (processed > 0) {
+                System.out.println("Loaded " + processed + " input files");
+                displayResults(fileStats);
+            }
+            if (recording != null) {
+                recording.finish();
             }
         }
     }
 
     /**
-     * processes files and displays results to console
+     * processes the files a directory walk finds as a single job on an engine started for it
+     * the job's statistics become the global statistics once it has finished
+     * @param discovery the directory walk that finds the files
+     * @return number of files found
      */
-    private static void processAndDisplayResults() {
-        FileProcessor.processFiles();
-        System.out.println("Total file count: " + fileStats.numberOfFiles);
-        System.out.println("Total character count: " + fileStats.characterCount.get());
-        System.out.println("Total line count: " + fileStats.lineCount.get());
-        System.out.println("Total word count: " + fileStats.wordCount.size());
+    private static int processOnEngine(FileDiscovery discovery) {
+        try (ProcessingEngine engine = new ProcessingEngine(settings.threads)) {
+            ProcessingJob job = engine.submit(JobConfig.forDiscovery(discovery, settings)
+                .withOutput(outputFilePath, outputFilename));
+            LiveResults live = settings.liveTop == 0
+                ? null
+                : LiveResults.start(LiveResults.INTERVAL_MILLIS, job::snapshot, settings.liveTop, System.out::println);
+            JobResult result = job.join();
+            if (live != null) {
+                live.close();
+            }
+            if (result.filesFound > 0) {
+                System.out.println(result);
+            }
+            fileStats = result.stats;
+            return result.filesFound;
+        }
     }
 
     /**
-     * scans directory for text files and returns list of found files
-     * @param directory directory to scan for .txt files
-     * @return list of text files found in directory
+     * displays results to console
+     * @param stats statistics of the run
      */
-    private static List<File> getInputFiles(File directory){
-        ArrayList<File> filesArray = new ArrayList<>();
-        File[] files = directory.listFiles((dir, name) -> name.toLowerCase().endsWith(".txt"));
-            if (files != null) {
-                filesArray.addAll(Arrays.asList(files));
-                System.out.println("Loaded " + filesArray.size() + " input files");
-            }
-        return filesArray;
+    private static void displayResults(FileStats stats) {
+        System.out.println("Total file count: " + stats.numberOfFiles);
+        System.out.println("Total character count: " + stats.characterCount.get());
+        System.out.println("Total line count: " + stats.lineCount.get());
+        System.out.println("Total word count: " + stats.wordCount.size());
     }
-    
+
+    /**
+     * creates the directory walk for the include, exclude and recursive settings
+     * @param directory directory to search
+     * @return the directory walk
+     */
+    private static FileDiscovery createDiscovery(File directory) {
+        return new FileDiscovery(directory, settings.recursive, settings.include, settings.exclude);
+    }
+
     /**
      * prompts user for output filename or uses default
      * @return filename for output file
@@ -0,0 +1,94 @@
+package com.concurrentfileprocessor.runner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.fileStats;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.inputFiles;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.settings;
+import com.concurrentfileprocessor.cache.FileResultCache;
+import com.concurrentfileprocessor.processor.LoadReport;
+import com.concurrentfileprocessor.processor.PipelinedDelegator;
+import com.concurrentfileprocessor.processor.RunReport;
+import com.concurrentfileprocessor.processor.ThreadDelegator;
+import com.concurrentfileprocessor.snapshot.Snapshots;
+
+/**
+ * launcher class for worker processes started by the shard coordinator
+ * processes the files named in the shard list and saves the results as a snapshot instead of an output file
+ * the coordinator passes each worker a cache file of its own when the run has one
+ */
+public class WorkerRunner {
+    /**
+     * runs the file processor as a worker
+     * exits with a non-zero code if the shard list cannot be read or the snapshot cannot be saved
+     */
+    public static void run() {
+        if (settings.shardList.isEmpty() || settings.snapshotFile.isEmpty()) {
+            System.err.println("Worker mode needs --shard-list and --snapshot");
+            System.exit(2);
+        }
+
+        try {
+            inputFiles = new ArrayList<>();
+            for (String path : Files.readAllLines(new File(settings.shardList).toPath())) {
+                if (!path.isEmpty()) {
+                    inputFiles.add(new File(path));
+                }
+            }
+
+            if (settings.pipelineReaders > 0) {
+                System.out.println(PipelinedDelegator.delegateTasks());
+            } else {
+                FileResultCache cache = openCache();
+                RunReport report = RunReport.create(settings);
+                LoadReport loadReport = ThreadDelegator.delegateTasks(cache, report);
+                closeCache(cache);
+                if (loadReport != null) {
+                    System.out.println(loadReport);
+                }
+                if (report != null) {
+                    System.out.println(report);
+                }
+            }
+            Snapshots.save(fileStats, new File(settings.snapshotFile));
+        } catch (IOException e) {
+            System.err.println("Worker failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * opens the shard's result cache, a cache that cannot be opened only costs the worker its hits
+     * @return the cache, or null when the run has none or it cannot be opened
+     */
+    private static FileResultCache openCache() {
+        if (settings.cacheFile.isEmpty()) {
+            return null;
+        }
+        try {
+            return new FileResultCache(new File(settings.cacheFile), settings.cacheHash, settings.charset);
+        } catch (IOException e) {
+            System.err.println("Processing without cache: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * saves the shard's result cache and prints its hit rate, a cache that cannot be saved does not fail the shard
+     * @param cache the cache, or null when the run has none
+     */
+    private static void closeCache(FileResultCache cache) {
+        if (cache == null) {
+            return;
+        }
+        try {
+            cache.close();
+        } catch (IOException e) {
+            System.err.println("Could not save cache: " + e.getMessage());
+        }
+        System.out.println(cache.report());
+    }
+}
@@ -0,0 +1,273 @@
+package com.concurrentfileprocessor.shard;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.concurrentfileprocessor.ConcurrentFileProcessor;
+import com.concurrentfileprocessor.FileStats;
+import com.concurrentfileprocessor.ProcessorSettings;
+import com.concurrentfileprocessor.ProcessorSettings.SchedulePolicy;
+import com.concurrentfileprocessor.processor.FileSchedule;
+import com.concurrentfileprocessor.snapshot.Snapshots;
+
+/**
+ * splits the input files between worker processes on this machine and merges their results
+ * each worker is a separate JVM that processes its shard and saves a snapshot, so no single heap holds
+ * the intermediate state of every file
+ * a shard whose worker fails, runs past the time limit or leaves no snapshot is started again on its own,
+ * up to the retry limit, and the run only merges once every shard has succeeded
+ * with a cache configured each shard keeps a cache file of its own next to it, since workers cannot share one
+ */
+public class ShardCoordinator {
+    // options that only concern the coordinator and are not passed on to the workers
+    private static final Set<String> COORDINATOR_OPTIONS =
+        Set.of("shards", "shard-retries", "shard-heap-mb", "shard-timeout-seconds", "shard-list", "snapshot", "cache");
+
+    // settings of the coordinator, most of which the workers are started with as well
+    private final ProcessorSettings settings;
+
+    // directory holding the file lists, snapshots and logs of the shards
+    private final File workDirectory;
+
+    // snapshot combining the results of every shard, loaded into the statistics once it is complete
+    private final File mergedFile;
+
+    /**
+     * one worker's part of the input
+     */
+    public static class Shard {
+        // position of the shard, from 0
+        public final int index;
+
+        // files the worker processes and their total size
+        public final List<File> files;
+        public final long bytes;
+
+        // the worker's input list, result and console output
+        public final File listFile;
+        public final File snapshotFile;
+        public final File logFile;
+
+        // number of times a worker has been started for the shard
+        public int attempts;
+
+        /**
+         * constructor
+         */
+        Shard(int index, List<File> files, long bytes, File workDirectory) {
+            this.index = index;
+            this.files = files;
+            this.bytes = bytes;
+            this.listFile = new File(workDirectory, "shard-" + index + ".list");
+            this.snapshotFile = new File(workDirectory, "shard-" + index + ".snap");
+            this.logFile = new File(workDirectory, "shard-" + index + ".log");
+        }
+    }
+
+    /**
+     * constructor
+     * @param settings settings of the run, including the number of shards and retries
+     * @throws IOException if the working directory cannot be created
+     */
+    public ShardCoordinator(ProcessorSettings settings) throws IOException {
+        this.settings = settings;
+        this.workDirectory = Files.createTempDirectory("cfp-shards").toFile();
+        this.mergedFile = new File(workDirectory, "merged.snap");
+    }
+
+    /**
+     * processes the files in worker processes and merges their results into the statistics
+     * the statistics are only changed once every shard has succeeded and their snapshots have been combined
+     * into one that reads through, so a damaged shard snapshot fails the run without merging anything
+     * @param files files to process
+     * @param fileStats statistics object to update
+     * @return the shards and their attempts, or null if a shard failed on every attempt or its results could not
+     * be merged
+     */
+    public List<Shard> run(List<File> files, FileStats fileStats) {
+        List<Shard> shards = new ArrayList<>();
+        List<List<File>> split = split(files, settings.shards);
+        for (int i = 0; i < split.size(); i++) {
+            long bytes = 0;
+            for (File file : split.get(i)) {
+                bytes += file.length();
+            }
+            shards.add(new Shard(i, split.get(i), bytes, workDirectory));
+        }
+
+        // one thread per shard only waits on its worker, the work happens in the child processes
+        ExecutorService waiters = Executors.newFixedThreadPool(shards.size());
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (Shard shard : shards) {
+            results.add(waiters.submit(() -> runShard(shard)));
+        }
+        waiters.shutdown();
+
+        boolean succeeded = true;
+        for (Future<Boolean> result : results) {
+            try {
+                succeeded &= result.get();
+            } catch (Exception e) {
+                System.err.println("Shard coordination failed: " + e.getMessage());
+                succeeded = false;
+            }
+        }
+        if (!succeeded) {
+            System.err.println("Shard results kept in " + workDirectory);
+            return null;
+        }
+
+        // the shards are combined on disk first, so a damaged one fails the run before the statistics change
+        List<File> snapshots = new ArrayList<>(shards.size());
+        for (Shard shard : shards) {
+            snapshots.add(shard.snapshotFile);
+        }
+        try {
+            Snapshots.merge(snapshots, mergedFile);
+            Snapshots.load(mergedFile, fileStats);
+        } catch (IOException e) {
+            System.err.println("Could not merge shard results: " + e.getMessage());
+            System.err.println("Shard results kept in " + workDirectory);
+            return null;
+        }
+        deleteWorkDirectory(shards);
+        return shards;
+    }
+
+    /**
+     * splits files into shards of about the same total size
+     * hands the largest remaining file to the shard with the fewest bytes so far
+     * @param files files to split
+     * @param count number of shards wanted
+     * @return the files of each shard, leaving out shards that would be empty
+     */
+    public static List<List<File>> split(List<File> files, int count) {
+        FileSchedule schedule = FileSchedule.create(files, SchedulePolicy.LARGEST_FIRST);
+        List<List<File>> shards = new ArrayList<>();
+        PriorityQueue<long[]> loads = new PriorityQueue<>(
+            Comparator.comparingLong((long[] load) -> load[0]).thenComparingLong(load -> load[1]));
+        for (int i = 0; i < Math.min(Math.max(count, 1), files.size()); i++) {
+            shards.add(new ArrayList<>());
+            loads.add(new long[] {0, i});
+        }
+        for (int i = 0; i < schedule.files.size(); i++) {
+            long[] load = loads.poll();
+            shards.get((int) load[1]).add(schedule.files.get(i));
+            load[0] += schedule.sizes[i];
+            loads.add(load);
+        }
+        return shards;
+    }
+
+    /**
+     * builds the command that starts a worker for a shard
+     * the worker runs this class path on the same Java runtime, with the options this run was started with
+     * @param shard shard the worker processes
+     * @return the command and its arguments
+     */
+    protected List<String> workerCommand(Shard shard) {
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin" + File.separator + "java").getPath());
+        if (settings.shardHeapMb > 0) {
+            command.add("-Xmx" + settings.shardHeapMb + "m");
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ConcurrentFileProcessor.class.getName());
+        command.add("--worker");
+        for (String argument : settings.arguments) {
+            String name = argument.substring(2, argument.indexOf('='));
+            if (!COORDINATOR_OPTIONS.contains(name)) {
+                command.add(argument);
+            }
+        }
+        command.add("--shard-list=" + shard.listFile.getAbsolutePath());
+        command.add("--snapshot=" + shard.snapshotFile.getAbsolutePath());
+        if (!settings.cacheFile.isEmpty()) {
+            command.add("--cache=" + cacheFile(shard).getAbsolutePath());
+        }
+        return command;
+    }
+
+    /**
+     * the cache file of a shard, named after the configured one with the shard's position added
+     * shards are split by size, so a file stays in the same shard and keeps its cache entry while the input
+     * does not change much, and a file that moves is processed again by its new shard
+     * @param shard shard the worker processes
+     * @return the cache file the worker of the shard uses
+     */
+    protected File cacheFile(Shard shard) {
+        return new File(settings.cacheFile + ".shard-" + shard.index);
+    }
+
+    /**
+     * starts workers for a shard until one succeeds or the retries run out
+     * a worker succeeds when it exits normally within the time limit and leaves a snapshot behind
+     */
+    private boolean runShard(Shard shard) throws IOException, InterruptedException {
+        List<String> paths = new ArrayList<>(shard.files.size());
+        for (File file : shard.files) {
+            paths.add(file.getAbsolutePath());
+        }
+        Files.write(shard.listFile.toPath(), paths);
+
+        while (shard.attempts <= settings.shardRetries) {
+            shard.attempts++;
+            Files.deleteIfExists(shard.snapshotFile.toPath());
+            long start = System.nanoTime();
+            Process process = new ProcessBuilder(workerCommand(shard))
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(shard.logFile))
+                .start();
+
+            int exitCode;
+            boolean timedOut = false;
+            try {
+                if (settings.shardTimeoutSeconds > 0) {
+                    timedOut = !process.waitFor(settings.shardTimeoutSeconds, TimeUnit.SECONDS);
+                    if (timedOut) {
+                        process.destroyForcibly();
+                    }
+                }
+                exitCode = process.waitFor();
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                throw e;
+            }
+
+            if (!timedOut && exitCode == 0 && shard.snapshotFile.isFile()) {
+                System.out.printf("Shard %d: %d files, %.1f MB in %d ms%n", shard.index, shard.files.size(),
+                    shard.bytes / (1024.0 * 1024.0), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                return true;
+            }
+            String reason = timedOut ? "was killed after " + settings.shardTimeoutSeconds + " s"
+                : exitCode == 0 ? "left no result" : "exited with code " + exitCode;
+            System.err.printf("Shard %d %s on attempt %d of %d, see %s%n",
+                shard.index, reason, shard.attempts, settings.shardRetries + 1, shard.logFile);
+        }
+        return false;
+    }
+
+    /**
+     * removes the shard files once their results are merged
+     */
+    private void deleteWorkDirectory(List<Shard> shards) {
+        for (Shard shard : shards) {
+            shard.listFile.delete();
+            shard.snapshotFile.delete();
+            shard.logFile.delete();
+        }
+        mergedFile.delete();
+        workDirectory.delete();
+    }
+}
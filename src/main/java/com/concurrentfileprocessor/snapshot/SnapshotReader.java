@@ -0,0 +1,152 @@
+package com.concurrentfileprocessor.snapshot;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * streams a snapshot written by SnapshotWriter one word at a time
+ * the totals are available as soon as the reader is opened
+ */
+public class SnapshotReader implements AutoCloseable {
+    // source stream
+    private final DataInputStream in;
+
+    // totals from the header
+    public final long numberOfFiles;
+    public final long characters;
+    public final long lines;
+
+    // current word and its count
+    private byte[] word = new byte[64];
+    private int wordLength;
+    private long count;
+
+    // number of words read so far
+    private long words;
+
+    // true once the end marker has been read
+    private boolean finished;
+
+    /**
+     * opens a snapshot file and reads the totals
+     * @param file file to read
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public SnapshotReader(File file) throws IOException {
+        this(new FileInputStream(file));
+    }
+
+    /**
+     * starts reading a snapshot from a stream and reads the totals
+     * @param stream stream to read, closed with the reader
+     * @throws IOException if the stream cannot be read or is not a snapshot
+     */
+    public SnapshotReader(InputStream stream) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(stream, 1 << 16));
+        if (in.readInt() != SnapshotWriter.MAGIC) {
+            in.close();
+            throw new IOException("not a snapshot");
+        }
+        int version = in.readUnsignedByte();
+        if (version != SnapshotWriter.VERSION) {
+            in.close();
+            throw new IOException("unsupported snapshot version " + version);
+        }
+        numberOfFiles = readVarLong();
+        characters = readVarLong();
+        lines = readVarLong();
+    }
+
+    /**
+     * moves to the next word
+     * @return false once every word has been read
+     * @throws IOException if the stream cannot be read or is damaged
+     */
+    public boolean next() throws IOException {
+        if (finished) {
+            return false;
+        }
+        int shared = (int) readVarLong();
+        int suffix = (int) readVarLong();
+        if (shared == 0 && suffix == 0) {
+            long expected = readVarLong();
+            if (expected != words) {
+                throw new IOException("snapshot holds " + words + " words but should hold " + expected);
+            }
+            wordLength = 0;
+            finished = true;
+            return false;
+        }
+        if (shared > wordLength) {
+            throw new IOException("damaged snapshot");
+        }
+
+        int length = shared + suffix;
+        if (word.length < length) {
+            word = Arrays.copyOf(word, Math.max(length, word.length * 2));
+        }
+        in.readFully(word, shared, suffix);
+        wordLength = length;
+        count = readVarLong();
+        words++;
+        return true;
+    }
+
+    /**
+     * @return array holding the current word's bytes, reused by the next call to next
+     */
+    public byte[] word() {
+        return word;
+    }
+
+    /**
+     * @return number of bytes in the current word
+     */
+    public int wordLength() {
+        return wordLength;
+    }
+
+    /**
+     * @return the current word as a string
+     */
+    public String wordString() {
+        return new String(word, 0, wordLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return number of times the current word was counted
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * closes the stream
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * reads an unsigned LEB128 varint
+     */
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("damaged snapshot");
+    }
+}
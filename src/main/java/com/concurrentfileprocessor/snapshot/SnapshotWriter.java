@@ -0,0 +1,138 @@
+package com.concurrentfileprocessor.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * streams a binary snapshot of file statistics to a file
+ * the layout is a magic number and version, the totals as varints, then the vocabulary in ascending byte order
+ * with each word stored as the length it shares with the previous word, the rest of its bytes and its count,
+ * and finally an empty word followed by the number of words as a check
+ * words must be written in strictly ascending order, which is what lets snapshots be merged as streams
+ */
+public class SnapshotWriter implements AutoCloseable {
+    // "CFPS" and the layout version, bumped whenever the layout changes
+    static final int MAGIC = 0x43465053;
+    static final int VERSION = 1;
+
+    // destination stream
+    private final DataOutputStream out;
+
+    // previous word, for prefix compression and order checks
+    private byte[] previous = new byte[64];
+    private int previousLength;
+
+    // number of words written
+    private long words;
+
+    /**
+     * opens a snapshot file and writes the totals
+     * @param file file to write
+     * @param numberOfFiles number of files processed
+     * @param characters total character count
+     * @param lines total line count
+     * @throws IOException if the file cannot be written
+     */
+    public SnapshotWriter(File file, long numberOfFiles, long characters, long lines) throws IOException {
+        this(new FileOutputStream(file), numberOfFiles, characters, lines);
+    }
+
+    /**
+     * starts a snapshot on a stream and writes the totals
+     * @param stream stream to write, closed with the writer
+     * @param numberOfFiles number of files processed
+     * @param characters total character count
+     * @param lines total line count
+     * @throws IOException if the stream cannot be written
+     */
+    public SnapshotWriter(OutputStream stream, long numberOfFiles, long characters, long lines) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        writeVarLong(numberOfFiles);
+        writeVarLong(characters);
+        writeVarLong(lines);
+    }
+
+    /**
+     * appends a word and its count
+     * @param word array holding the word's bytes
+     * @param length number of bytes in the word
+     * @param count number of times the word was counted
+     * @throws IOException if the stream cannot be written
+     * @throws IllegalArgumentException if the word is empty or not after the previous word
+     */
+    public void write(byte[] word, int length, long count) throws IOException {
+        write(word, 0, length, count);
+    }
+
+    /**
+     * appends a word held part way through an array and its count
+     * @param word array holding the word's bytes
+     * @param offset position of the first byte of the word
+     * @param length number of bytes in the word
+     * @param count number of times the word was counted
+     * @throws IOException if the stream cannot be written
+     * @throws IllegalArgumentException if the word is empty or not after the previous word
+     */
+    public void write(byte[] word, int offset, int length, long count) throws IOException {
+        if (length == 0) {
+            throw new IllegalArgumentException("words cannot be empty");
+        }
+        int end = offset + length;
+        if (words > 0 && Arrays.compareUnsigned(previous, 0, previousLength, word, offset, end) >= 0) {
+            throw new IllegalArgumentException("words must be written in ascending order");
+        }
+
+        int shared = Arrays.mismatch(previous, 0, previousLength, word, offset, end);
+        if (shared < 0) {
+            shared = length;
+        }
+        writeVarLong(shared);
+        writeVarLong(length - shared);
+        out.write(word, offset + shared, length - shared);
+        writeVarLong(count);
+
+        if (previous.length < length) {
+            previous = Arrays.copyOf(previous, Math.max(length, previous.length * 2));
+        }
+        System.arraycopy(word, offset + shared, previous, shared, length - shared);
+        previousLength = length;
+        words++;
+    }
+
+    /**
+     * @return number of words written so far
+     */
+    public long wordCount() {
+        return words;
+    }
+
+    /**
+     * writes the end marker and word count and closes the stream
+     * @throws IOException if the stream cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        writeVarLong(0);
+        writeVarLong(0);
+        writeVarLong(words);
+        out.close();
+    }
+
+    /**
+     * writes an unsigned LEB128 varint, seven bits per byte with the high bit set on all but the last
+     */
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
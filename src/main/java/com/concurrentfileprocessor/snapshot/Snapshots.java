@@ -0,0 +1,166 @@
+package com.concurrentfileprocessor.snapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.concurrentfileprocessor.FileStats;
+import com.concurrentfileprocessor.counts.SpillingWordCounts;
+import com.concurrentfileprocessor.processor.WordTable;
+
+/**
+ * saves, loads and merges snapshot files
+ */
+public class Snapshots {
+    // words merged into the statistics at a time while loading
+    private static final int LOAD_BATCH = 64 * 1024;
+
+    /**
+     * writes the statistics to a snapshot file
+     * a spilling store is streamed from its sorted merge, any other store is copied into one packed table and its
+     * entries sorted in place, so the statistics should not be changing while they are saved
+     * @param fileStats statistics to save
+     * @param file file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void save(FileStats fileStats, File file) throws IOException {
+        WordTable table = null;
+        if (!(fileStats.wordCount instanceof SpillingWordCounts)) {
+            WordTable copy = new WordTable();
+            fileStats.wordCount.forEach((word, count) -> {
+                byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+                copy.add(bytes, 0, bytes.length, count);
+            });
+            table = copy;
+        }
+
+        try (SnapshotWriter writer = new SnapshotWriter(file, fileStats.numberOfFiles,
+                fileStats.characterCount.get(), fileStats.lineCount.get())) {
+            WordTable.EntryConsumer write = (bytes, offset, length, count) -> {
+                try {
+                    writer.write(bytes, offset, length, count);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            };
+            if (table != null) {
+                table.forEachSorted(write);
+            } else {
+                ((SpillingWordCounts) fileStats.wordCount).forEachSorted(write);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * adds the contents of a snapshot file to the statistics
+     * the file is read through once to check it before anything is merged, so a damaged snapshot leaves the
+     * statistics as they were, then words are merged in batches, so the whole vocabulary is never held twice
+     * only a file changed or failing to read between the two passes can leave the statistics partly updated
+     * @param file snapshot to read
+     * @param fileStats statistics object to update
+     * @throws IOException if the snapshot cannot be read or is damaged
+     */
+    public static void load(File file, FileStats fileStats) throws IOException {
+        verify(file);
+        try (SnapshotReader reader = new SnapshotReader(file)) {
+            WordTable batch = new WordTable();
+            while (reader.next()) {
+                batch.add(reader.word(), 0, reader.wordLength(), reader.count());
+                if (batch.size() == LOAD_BATCH) {
+                    fileStats.merge(batch, 0, 0);
+                    batch = new WordTable();
+                }
+            }
+            fileStats.merge(batch, reader.characters, reader.lines);
+            fileStats.numberOfFiles += (int) reader.numberOfFiles;
+        }
+    }
+
+    /**
+     * reads a snapshot to the end, checking every word and the word count at its end
+     * @param file snapshot to check
+     * @throws IOException if the snapshot cannot be read or is damaged
+     */
+    public static void verify(File file) throws IOException {
+        try (SnapshotReader reader = new SnapshotReader(file)) {
+            while (reader.next()) {
+                // the reader checks each word as it moves on
+            }
+        }
+    }
+
+    /**
+     * combines several snapshots into one, adding up the totals and the counts of words they share
+     * reads every input as a stream, so only one word per input is held in memory at a time
+     * @param inputs snapshots to combine
+     * @param output file to write the combined snapshot to
+     * @return number of distinct words in the combined snapshot
+     * @throws IOException if an input cannot be read or the output cannot be written
+     */
+    public static long merge(List<File> inputs, File output) throws IOException {
+        List<SnapshotReader> readers = new ArrayList<>(inputs.size());
+        try {
+            long files = 0;
+            long characters = 0;
+            long lines = 0;
+            for (File input : inputs) {
+                SnapshotReader reader = new SnapshotReader(input);
+                readers.add(reader);
+                files += reader.numberOfFiles;
+                characters += reader.characters;
+                lines += reader.lines;
+            }
+
+            PriorityQueue<SnapshotReader> heads = new PriorityQueue<>(Math.max(1, readers.size()),
+                (a, b) -> Arrays.compareUnsigned(a.word(), 0, a.wordLength(), b.word(), 0, b.wordLength()));
+            for (SnapshotReader reader : readers) {
+                if (reader.next()) {
+                    heads.add(reader);
+                }
+            }
+
+            try (SnapshotWriter writer = new SnapshotWriter(output, files, characters, lines)) {
+                byte[] word = new byte[64];
+                while (!heads.isEmpty()) {
+                    SnapshotReader first = heads.poll();
+                    int length = first.wordLength();
+                    if (word.length < length) {
+                        word = new byte[Math.max(length, word.length * 2)];
+                    }
+                    System.arraycopy(first.word(), 0, word, 0, length);
+                    long count = first.count();
+                    advance(first, heads);
+
+                    while (!heads.isEmpty() && Arrays.equals(heads.peek().word(), 0, heads.peek().wordLength(),
+                            word, 0, length)) {
+                        SnapshotReader same = heads.poll();
+                        count += same.count();
+                        advance(same, heads);
+                    }
+                    writer.write(word, length, count);
+                }
+                return writer.wordCount();
+            }
+        } finally {
+            for (SnapshotReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * moves a reader to its next word and puts it back in the queue unless it is finished
+     */
+    private static void advance(SnapshotReader reader, PriorityQueue<SnapshotReader> heads) throws IOException {
+        if (reader.next()) {
+            heads.add(reader);
+        }
+    }
+}
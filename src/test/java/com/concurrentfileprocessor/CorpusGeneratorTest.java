@@ -0,0 +1,204 @@
+package com.concurrentfileprocessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.fileStats;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.settings;
+import com.concurrentfileprocessor.corpus.BenchmarkRun;
+import com.concurrentfileprocessor.corpus.CorpusGenerator;
+import com.concurrentfileprocessor.processor.WordTable;
+import com.concurrentfileprocessor.processor.WordTokenizer;
+import com.concurrentfileprocessor.runner.BenchmarkRunner;
+
+/**
+ * test class for the corpus package and the benchmark runner
+ */
+class CorpusGeneratorTest {
+    private File tempDir;
+
+    /**
+     * sets up test environment before each test
+     * @throws IOException if the directory cannot be created
+     */
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("corpustest").toFile();
+        settings.corpusDirectory = new File(tempDir, "corpus").getPath();
+        settings.corpusFiles = 12;
+        settings.corpusFileSize = 4096;
+        settings.corpusVocabulary = 500;
+    }
+
+    /**
+     * cleans up test environment after each test
+     * @throws IOException if a file cannot be deleted
+     */
+    @AfterEach
+    @SuppressWarnings("unused")
+    void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(tempDir.toPath())) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+        settings = new ProcessorSettings();
+    }
+
+    /**
+     * tests that the same seed gives the same files and another seed different ones
+     * @throws IOException if the corpus cannot be written
+     */
+    @Test
+    void testSameSeedSameFiles() throws IOException {
+        List<byte[]> first = contents(CorpusGenerator.generate(settings));
+
+        settings.corpusDirectory = new File(tempDir, "again").getPath();
+        List<byte[]> second = contents(CorpusGenerator.generate(settings));
+
+        settings.corpusDirectory = new File(tempDir, "other").getPath();
+        settings.corpusSeed = 7;
+        List<byte[]> other = contents(CorpusGenerator.generate(settings));
+
+        assertEquals(12, first.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertArrayEquals(first.get(i), second.get(i));
+        }
+        assertFalse(Arrays.equals(first.get(0), other.get(0)));
+    }
+
+    /**
+     * tests that fixed sizes are exact and the other distributions vary around the mean
+     * @throws IOException if the corpus cannot be written
+     */
+    @Test
+    void testSizeDistributions() throws IOException {
+        settings.corpusSizes = ProcessorSettings.SizeDistribution.FIXED;
+        for (File file : CorpusGenerator.generate(settings)) {
+            assertEquals(4096, file.length());
+        }
+
+        settings.corpusSizes = ProcessorSettings.SizeDistribution.UNIFORM;
+        for (File file : CorpusGenerator.generate(settings)) {
+            assertTrue(file.length() >= 2048 && file.length() <= 6144);
+        }
+
+        settings.corpusSizes = ProcessorSettings.SizeDistribution.LOG_NORMAL;
+        settings.corpusFiles = 400;
+        long total = 0;
+        long smallest = Long.MAX_VALUE;
+        long largest = 0;
+        for (File file : CorpusGenerator.generate(settings)) {
+            total += file.length();
+            smallest = Math.min(smallest, file.length());
+            largest = Math.max(largest, file.length());
+        }
+        double mean = total / 400.0;
+        assertTrue(mean > 3000 && mean < 5200, "mean " + mean);
+        assertTrue(smallest < 1024 && largest > 4 * 4096);
+    }
+
+    /**
+     * tests that a corpus already in place is reused and a changed one is replaced, keeping other files
+     * @throws IOException if the corpus cannot be written
+     */
+    @Test
+    void testExistingCorpusReused() throws IOException {
+        List<File> files = CorpusGenerator.generate(settings);
+        File unrelated = new File(settings.corpusDirectory, "notes.txt");
+        Files.writeString(unrelated.toPath(), "keep me");
+        long modified = files.get(0).lastModified();
+        files.get(0).setLastModified(modified - 60_000);
+
+        CorpusGenerator.generate(settings);
+        assertEquals(modified - 60_000, files.get(0).lastModified());
+
+        settings.corpusFiles = 3;
+        CorpusGenerator.generate(settings);
+        assertEquals(4, new File(settings.corpusDirectory).list((dir, name) -> name.endsWith(".txt")).length);
+        assertTrue(unrelated.exists());
+    }
+
+    /**
+     * tests that words follow the Zipf ranks and lines end once they pass the line length
+     */
+    @Test
+    void testZipfWordsAndLines() {
+        Random random = new Random(1);
+        byte[] text = new CorpusGenerator(random, 1000, 1.0, 40, CorpusGenerator.ASCII_LETTERS).text(200_000, random);
+
+        WordTable words = new WordTable();
+        WordTokenizer tokenizer = new WordTokenizer(words::add, StandardCharsets.UTF_8);
+        tokenizer.feed(text, 0, text.length);
+        tokenizer.finish();
+        List<Long> counts = new ArrayList<>();
+        words.forEach((bytes, offset, length, count) -> counts.add(count));
+        counts.sort(Comparator.reverseOrder());
+
+        // with exponent 1 the top word is drawn about twice as often as the second and ten times the tenth
+        double ratio = counts.get(0) / (double) counts.get(9);
+        assertTrue(ratio > 6 && ratio < 15, "ratio " + ratio);
+        for (String line : new String(text, StandardCharsets.UTF_8).split("\n")) {
+            assertTrue(line.length() <= 40 + 20, line);
+        }
+
+        Random flat = new Random(1);
+        byte[] uniform = new CorpusGenerator(flat, 1000, 0.0, 40, CorpusGenerator.ASCII_LETTERS).text(200_000, flat);
+        assertEquals(200_000, uniform.length);
+    }
+
+    /**
+     * tests that the benchmark processes the whole corpus on each run and appends a row per run
+     * @throws IOException if the results file cannot be read
+     */
+    @Test
+    void testBenchmarkRuns() throws IOException {
+        File results = new File(tempDir, "results.csv");
+        settings.benchmarkWarmups = 1;
+        settings.benchmarkRuns = 2;
+        settings.benchmarkResults = results.getPath();
+
+        List<BenchmarkRun> runs = BenchmarkRunner.run();
+        BenchmarkRunner.run();
+
+        assertEquals(2, runs.size());
+        for (BenchmarkRun run : runs) {
+            assertEquals(12, run.files);
+            assertTrue(run.bytes > 0 && run.elapsedNanos > 0 && run.peakHeapBytes > 0);
+        }
+        assertEquals(12, fileStats.numberOfFiles);
+        List<String> lines = Files.readAllLines(results.toPath());
+        assertEquals(5, lines.size());
+        assertTrue(lines.get(0).startsWith("timestamp,"));
+        assertEquals(lines.get(0).split(",").length, lines.get(4).split(",").length);
+    }
+
+    /**
+     * reads every file of a corpus
+     */
+    private static List<byte[]> contents(List<File> files) throws IOException {
+        List<byte[]> contents = new ArrayList<>();
+        for (File file : files) {
+            contents.add(Files.readAllBytes(file.toPath()));
+        }
+        return contents;
+    }
+}
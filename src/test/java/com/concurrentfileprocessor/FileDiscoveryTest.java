@@ -0,0 +1,129 @@
+package com.concurrentfileprocessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.concurrentfileprocessor.processor.FileDiscovery;
+
+/**
+ * test class for FileDiscovery.java file
+ */
+class FileDiscoveryTest {
+    // root of a small directory tree
+    private Path root;
+
+    /**
+     * sets up test environment before each test
+     * creates a.txt, B.TXT, notes.md, sub/c.txt, sub/deeper/d.txt and archive/e.txt
+     * @throws IOException if file creation fails
+     */
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() throws IOException {
+        root = Files.createTempDirectory("discoverytest");
+        for (String name : new String[] {"a.txt", "B.TXT", "notes.md", "sub/c.txt", "sub/deeper/d.txt", "archive/e.txt"}) {
+            Path file = root.resolve(name);
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, "content\n");
+        }
+    }
+
+    /**
+     * cleans up test environment after each test
+     * @throws IOException if a file cannot be deleted
+     */
+    @AfterEach
+    @SuppressWarnings("unused")
+    void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * tests that the default settings only look at the top directory
+     * @throws IOException if the walk fails
+     */
+    @Test
+    void testTopLevelOnly() throws IOException {
+        assertEquals(Set.of("a.txt", "B.TXT"), names(new FileDiscovery(root.toFile(), false, "*.txt", "")));
+    }
+
+    /**
+     * tests searching subdirectories
+     * @throws IOException if the walk fails
+     */
+    @Test
+    void testRecursive() throws IOException {
+        assertEquals(Set.of("a.txt", "B.TXT", "c.txt", "d.txt", "e.txt"),
+            names(new FileDiscovery(root.toFile(), true, "*.txt", "")));
+    }
+
+    /**
+     * tests include and exclude patterns on names and relative paths
+     * @throws IOException if the walk fails
+     */
+    @Test
+    void testIncludeAndExclude() throws IOException {
+        // several include patterns
+        assertEquals(Set.of("a.txt", "B.TXT", "notes.md"), names(new FileDiscovery(root.toFile(), false, "*.txt, *.md", "")));
+
+        // excluding a directory skips everything below it
+        assertEquals(Set.of("a.txt", "B.TXT", "c.txt", "d.txt"),
+            names(new FileDiscovery(root.toFile(), true, "*.txt", "archive")));
+
+        // path patterns match relative to the root
+        assertEquals(Set.of("c.txt", "d.txt"), names(new FileDiscovery(root.toFile(), true, "sub/**", "")));
+        assertEquals(Set.of("a.txt", "B.TXT", "c.txt", "e.txt"),
+            names(new FileDiscovery(root.toFile(), true, "*.txt", "sub/deeper/*")));
+    }
+
+    /**
+     * tests that files are handed over one at a time and counted
+     * @throws IOException if the walk fails
+     */
+    @Test
+    void testWalkCountsFiles() throws IOException {
+        int[] seen = {0};
+        int found = new FileDiscovery(root.toFile(), true, "*.txt", "").walk(file -> seen[0]++);
+        assertEquals(5, found);
+        assertEquals(5, seen[0]);
+    }
+
+    /**
+     * tests that links to files are found like files, while links to directories and broken links are skipped
+     * @throws IOException if the links cannot be created or the walk fails
+     */
+    @Test
+    void testLinks() throws IOException {
+        Files.createSymbolicLink(root.resolve("link.txt"), root.resolve("sub/c.txt"));
+        Files.createSymbolicLink(root.resolve("linked"), root.resolve("sub"));
+        Files.createSymbolicLink(root.resolve("broken.txt"), root.resolve("missing.txt"));
+
+        assertEquals(Set.of("a.txt", "B.TXT", "link.txt"), names(new FileDiscovery(root.toFile(), false, "*.txt", "")));
+        assertEquals(Set.of("a.txt", "B.TXT", "c.txt", "d.txt", "e.txt", "link.txt"),
+            names(new FileDiscovery(root.toFile(), true, "*.txt", "")));
+    }
+
+    /**
+     * lists the names of the files a discovery finds
+     */
+    private static Set<String> names(FileDiscovery discovery) throws IOException {
+        List<File> files = discovery.list();
+        return files.stream().map(File::getName).collect(Collectors.toSet());
+    }
+}
@@ -5,7 +5,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.jupiter.api.AfterEach;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -25,7 +25,7 @@ class FileMetricsCollectorTest {
     private ConcurrentHashMap<String, Integer> wordCount;
     
     // total character count
-    private AtomicInteger totalCharacterCount;
+    private AtomicLong totalCharacterCount;
 
     /**
      * sets up test environment before each test
@@ -43,7 +43,7 @@ class FileMetricsCollectorTest {
         
         // initialize collections
         wordCount = new ConcurrentHashMap<>();
-        totalCharacterCount = new AtomicInteger(0);
+        totalCharacterCount = new AtomicLong(0);
     }
 
     /**
@@ -65,7 +65,7 @@ class FileMetricsCollectorTest {
     @Test
     void testCountFileComponents() throws FileNotFoundException {
         // process the test file and collect metrics
-        FileStats fileStats = new FileStats(wordCount, totalCharacterCount, new AtomicInteger(0));
+        FileStats fileStats = new FileStats(wordCount, totalCharacterCount, new AtomicLong(0));
         FileMetricsCollector.countFileComponents(tempFile, fileStats);
         
         // verify word counts are correct
@@ -97,18 +97,18 @@ class FileMetricsCollectorTest {
         
         // initialize shared collections for concurrent testing
         ConcurrentHashMap<String, Integer> wc = new ConcurrentHashMap<>();
-        AtomicInteger tc = new AtomicInteger(0);
+        AtomicLong tc = new AtomicLong(0);
         
         // create and start two threads to process files concurrently
         Thread t1 = new Thread(() -> {
             try { 
-                FileStats stats1 = new FileStats(wc, tc, new AtomicInteger(0));
+                FileStats stats1 = new FileStats(wc, tc, new AtomicLong(0));
                 FileMetricsCollector.countFileComponents(tempFile1, stats1); 
             } catch (FileNotFoundException ignored) {}
         });
         Thread t2 = new Thread(() -> {
             try { 
-                FileStats stats2 = new FileStats(wc, tc, new AtomicInteger(0));
+                FileStats stats2 = new FileStats(wc, tc, new AtomicLong(0));
                 FileMetricsCollector.countFileComponents(tempFile2, stats2); 
             } catch (FileNotFoundException ignored) {}
         });
@@ -0,0 +1,132 @@
+package com.concurrentfileprocessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.fileStats;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.inputFiles;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.metrics;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.outputFilePath;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.outputFilename;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.settings;
+import com.concurrentfileprocessor.processor.FileProcessor;
+
+/**
+ * test class for FileProcessor.java file, covering cancelled runs
+ */
+class FileProcessorTest {
+    // number of input files, enough that a run is still going when it is cancelled
+    private static final int FILES = 300;
+
+    private File tempDir;
+    private File outputFile;
+
+    /**
+     * sets up test environment before each test
+     * creates a directory of text files and points the output file into it
+     * @throws IOException if file creation fails
+     */
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("processortest").toFile();
+        String text = "alpha beta gamma delta\n".repeat(3000);
+        inputFiles = new ArrayList<>();
+        for (int i = 0; i < FILES; i++) {
+            File file = new File(tempDir, "file" + i + ".txt");
+            Files.writeString(file.toPath(), text);
+            inputFiles.add(file);
+        }
+        outputFilePath = tempDir.getPath();
+        outputFilename = "output.txt";
+        outputFile = new File(tempDir, outputFilename);
+        settings.threads = 1;
+        fileStats = FileStats.create(settings);
+    }
+
+    /**
+     * cleans up test environment after each test
+     */
+    @AfterEach
+    @SuppressWarnings("unused")
+    void tearDown() {
+        for (File file : tempDir.listFiles()) {
+            file.delete();
+        }
+        tempDir.delete();
+        settings = new ProcessorSettings();
+    }
+
+    /**
+     * tests that a cancelled run stops early, writes nothing and leaves empty statistics
+     * @throws Exception if the run fails
+     */
+    @Test
+    void testCancelDuringRun() throws Exception {
+        File cacheFile = new File(tempDir, "results.cache");
+        settings.cacheFile = cacheFile.getPath();
+
+        assertFalse(cancelAfterFirstFile());
+        assertFalse(outputFile.exists());
+        assertFalse(cacheFile.exists());
+        assertFalse(new File(cacheFile.getPath() + ".tmp").exists());
+        assertEquals(0, fileStats.numberOfFiles);
+        assertEquals(0, fileStats.wordCount.size());
+        assertTrue(metrics.getFilesCompleted() < FILES, "completed " + metrics.getFilesCompleted());
+    }
+
+    /**
+     * tests that the pipeline stops reading when its run is cancelled
+     * @throws Exception if the run fails
+     */
+    @Test
+    void testCancelPipelineRun() throws Exception {
+        settings.pipelineReaders = 1;
+        settings.pipelineParsers = 1;
+        settings.pipelineBufferSize = 16 * 1024;
+
+        assertFalse(cancelAfterFirstFile());
+        assertFalse(outputFile.exists());
+        assertEquals(0, fileStats.wordCount.size());
+        assertTrue(metrics.getFilesCompleted() < FILES, "completed " + metrics.getFilesCompleted());
+    }
+
+    /**
+     * tests that cancelling when no run is in progress does not stop the next run
+     */
+    @Test
+    void testCancelBetweenRuns() {
+        FileProcessor.cancel();
+
+        assertTrue(FileProcessor.processFiles());
+        assertTrue(outputFile.exists());
+        assertEquals(FILES, fileStats.numberOfFiles);
+        assertEquals(4, fileStats.wordCount.size());
+    }
+
+    /**
+     * starts a run on another thread and cancels it once its first file is done
+     * @return what the run returned
+     */
+    private boolean cancelAfterFirstFile() throws Exception {
+        FutureTask<Boolean> run = new FutureTask<>(FileProcessor::processFiles);
+        new Thread(run).start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!(metrics.isRunning() && metrics.getFilesCompleted() > 0) && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        FileProcessor.cancel();
+        return run.get(30, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,219 @@
+package com.concurrentfileprocessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.fileStats;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.inputFiles;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.settings;
+import com.concurrentfileprocessor.cache.FileResultCache;
+import com.concurrentfileprocessor.processor.ThreadDelegator;
+import com.concurrentfileprocessor.processor.WordTable;
+
+/**
+ * test class for FileResultCache.java file
+ */
+class FileResultCacheTest {
+    private List<File> tempFiles;
+    private File cacheFile;
+
+    /**
+     * sets up test environment before each test
+     * @throws IOException if file creation fails
+     */
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() throws IOException {
+        tempFiles = new ArrayList<>();
+        tempFiles.add(createFile("apple banana apple\n"));
+        tempFiles.add(createFile("banana orange\nkiwi\n"));
+
+        // large enough to be split into several chunks
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            large.append("line ").append(i).append(" cherry grape\n");
+        }
+        tempFiles.add(createFile(large.toString()));
+        settings.chunkSize = 200;
+
+        cacheFile = File.createTempFile("cachetest", ".cache");
+        cacheFile.delete();
+    }
+
+    /**
+     * cleans up test environment after each test
+     */
+    @AfterEach
+    @SuppressWarnings("unused")
+    void tearDown() {
+        for (File file : tempFiles) {
+            if (file.exists()) file.delete();
+        }
+        cacheFile.delete();
+        settings = new ProcessorSettings();
+    }
+
+    /**
+     * tests that a second run reuses every file and gives the same totals
+     * @throws IOException if the cache cannot be written
+     */
+    @Test
+    void testUnchangedFilesAreReused() throws IOException {
+        FileResultCache first = run(false);
+        FileStats expected = fileStats;
+        assertEquals(0, first.hits.get());
+        assertEquals(3, first.misses.get());
+
+        FileResultCache second = run(false);
+        assertEquals(3, second.hits.get());
+        assertEquals(0, second.misses.get());
+        assertSameTotals(expected, fileStats);
+    }
+
+    /**
+     * tests that a cache written while reading the files in one charset is not reused when reading them in another,
+     * and is reused again once the run has rewritten it
+     * @throws IOException if the cache cannot be written
+     */
+    @Test
+    void testOtherCharsetNotReused() throws IOException {
+        run(false);
+
+        settings.charset = StandardCharsets.ISO_8859_1;
+        FileResultCache other = run(false);
+        assertEquals(0, other.hits.get());
+        assertEquals(3, other.misses.get());
+
+        FileResultCache same = run(false);
+        assertEquals(3, same.hits.get());
+    }
+
+    /**
+     * tests that changed and new files are processed and deleted files drop out of the totals
+     * @throws IOException if a file cannot be written
+     */
+    @Test
+    void testChangedNewAndDeletedFiles() throws IOException {
+        run(false);
+
+        Files.writeString(tempFiles.get(0).toPath(), "apple apple apple plum\n");
+        tempFiles.get(1).delete();
+        tempFiles.remove(1);
+        tempFiles.add(createFile("melon\n"));
+
+        FileResultCache cache = run(false);
+        assertEquals(1, cache.hits.get());
+        assertEquals(2, cache.misses.get());
+        assertSameTotals(processWithoutCache(), fileStats);
+        assertEquals(0, fileStats.wordCount.get("kiwi"));
+
+        // the third run sees the results of the second
+        cache = run(false);
+        assertEquals(3, cache.hits.get());
+        assertSameTotals(processWithoutCache(), fileStats);
+    }
+
+    /**
+     * tests that a file whose read failed part way is left out of the cache, so the next run reads it again
+     * @throws IOException if the cache cannot be written
+     */
+    @Test
+    void testFailedReadNotCached() throws IOException {
+        FileStats target = new FileStats(new ConcurrentHashMap<>(), new AtomicLong(0), new AtomicLong(0));
+        byte[] word = "apple".getBytes(StandardCharsets.UTF_8);
+        FileResultCache cache = new FileResultCache(cacheFile, false, settings.charset);
+        for (int i = 0; i < 2; i++) {
+            FileResultCache.Lookup lookup = cache.lookup(tempFiles.get(i));
+            FileStats recorder = lookup.recorder(target);
+            WordTable words = new WordTable();
+            words.add(word, 0, word.length, 1);
+            recorder.merge(words, word.length, 1);
+            if (i == 0) {
+                recorder.readFailed();
+            }
+            lookup.commit();
+        }
+        cache.close();
+
+        FileResultCache next = new FileResultCache(cacheFile, false, settings.charset);
+        assertFalse(next.lookup(tempFiles.get(0)).isHit());
+        assertTrue(next.lookup(tempFiles.get(1)).isHit());
+        next.discard();
+    }
+
+    /**
+     * tests that hashing ignores touched files but catches edits that keep the size and modification time
+     * @throws IOException if a file cannot be written
+     */
+    @Test
+    void testContentHash() throws IOException {
+        run(true);
+
+        File file = tempFiles.get(0);
+        long modified = file.lastModified();
+        file.setLastModified(modified + 60_000);
+        assertEquals(3, run(true).hits.get());
+
+        Files.writeString(file.toPath(), "apple banana apricot\n");
+        file.setLastModified(modified + 60_000);
+        FileResultCache cache = run(true);
+        assertEquals(2, cache.hits.get());
+        assertEquals(1, fileStats.wordCount.get("apricot"));
+    }
+
+    /**
+     * processes the temp files into fresh statistics using the cache
+     */
+    private FileResultCache run(boolean hash) throws IOException {
+        inputFiles = tempFiles;
+        fileStats = new FileStats(new ConcurrentHashMap<>(), new AtomicLong(0), new AtomicLong(0));
+        FileResultCache cache = new FileResultCache(cacheFile, hash, settings.charset);
+        ThreadDelegator.delegateTasks(cache);
+        cache.close();
+        return cache;
+    }
+
+    /**
+     * processes the temp files into fresh statistics without the cache
+     */
+    private FileStats processWithoutCache() {
+        FileStats cached = fileStats;
+        inputFiles = tempFiles;
+        fileStats = new FileStats(new ConcurrentHashMap<>(), new AtomicLong(0), new AtomicLong(0));
+        ThreadDelegator.delegateTasks();
+        FileStats expected = fileStats;
+        fileStats = cached;
+        return expected;
+    }
+
+    /**
+     * checks every total matches
+     */
+    private static void assertSameTotals(FileStats expected, FileStats actual) {
+        assertEquals(expected.wordCount, actual.wordCount);
+        assertEquals(expected.characterCount.get(), actual.characterCount.get());
+        assertEquals(expected.lineCount.get(), actual.lineCount.get());
+    }
+
+    /**
+     * writes a temporary file
+     */
+    private static File createFile(String content) throws IOException {
+        File file = File.createTempFile("cachetest", ".txt");
+        Files.writeString(file.toPath(), content);
+        return file;
+    }
+}
@@ -0,0 +1,79 @@
+package com.concurrentfileprocessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.concurrentfileprocessor.ProcessorSettings.SchedulePolicy;
+import com.concurrentfileprocessor.processor.FileSchedule;
+
+/**
+ * test class for FileSchedule.java file
+ */
+class FileScheduleTest {
+    // files of 5, 10, 3 and 7 bytes in that order
+    private List<File> tempFiles;
+
+    /**
+     * sets up test environment before each test
+     * @throws IOException if file creation fails
+     */
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() throws IOException {
+        tempFiles = new ArrayList<>();
+        for (int size : new int[] {5, 10, 3, 7}) {
+            File file = File.createTempFile("scheduletest", ".txt");
+            Files.write(file.toPath(), new byte[size]);
+            tempFiles.add(file);
+        }
+    }
+
+    /**
+     * cleans up test environment after each test
+     */
+    @AfterEach
+    @SuppressWarnings("unused")
+    void tearDown() {
+        for (File file : tempFiles) {
+            if (file.exists()) file.delete();
+        }
+    }
+
+    /**
+     * tests each policy's order
+     */
+    @Test
+    void testPolicyOrder() {
+        assertArrayEquals(new long[] {5, 10, 3, 7}, FileSchedule.create(tempFiles, SchedulePolicy.SUBMISSION).sizes);
+        assertArrayEquals(new long[] {10, 7, 5, 3}, FileSchedule.create(tempFiles, SchedulePolicy.LARGEST_FIRST).sizes);
+        assertArrayEquals(new long[] {3, 5, 7, 10}, FileSchedule.create(tempFiles, SchedulePolicy.SMALLEST_FIRST).sizes);
+
+        FileSchedule schedule = FileSchedule.create(tempFiles, SchedulePolicy.LARGEST_FIRST);
+        assertEquals(tempFiles.get(1), schedule.files.get(0));
+        assertEquals(tempFiles.get(2), schedule.files.get(3));
+    }
+
+    /**
+     * tests the planned load of each worker
+     */
+    @Test
+    void testPlan() {
+        // largest first on two workers: 10 + 3 and 7 + 5
+        assertArrayEquals(new long[] {13, 12}, FileSchedule.create(tempFiles, SchedulePolicy.LARGEST_FIRST).plan(2, 0));
+
+        // submission order on two workers: 5 + 3 + 7 and 10
+        assertArrayEquals(new long[] {15, 10}, FileSchedule.create(tempFiles, SchedulePolicy.SUBMISSION).plan(2, 0));
+
+        // a chunk size of 4 splits the 10 byte file into four pieces and the 7 and 5 byte files into two
+        assertArrayEquals(new long[] {14, 11}, FileSchedule.create(tempFiles, SchedulePolicy.LARGEST_FIRST).plan(2, 4));
+    }
+}
@@ -1,12 +1,16 @@
 package com.concurrentfileprocessor;
 
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import org.junit.jupiter.api.Test;
 
+import com.concurrentfileprocessor.processor.WordTable;
+
 /**
  * test class for FileStats.java file
  */
@@ -22,8 +26,8 @@ class FileStatsTest {
         // initialize test data with non-zero values
         ConcurrentHashMap<String, Integer> initialWordCount = new ConcurrentHashMap<>();
         initialWordCount.put("test", 5);
-        AtomicInteger initialCharacterCount = new AtomicInteger(100);
-        AtomicInteger initialLineCount = new AtomicInteger(10); 
+        AtomicLong initialCharacterCount = new AtomicLong(100);
+        AtomicLong initialLineCount = new AtomicLong(10); 
         
         // create FileStats instance with initial test data
         FileStats stats = new FileStats(initialWordCount, initialCharacterCount, initialLineCount);
@@ -39,4 +43,38 @@ class FileStatsTest {
         // verify the refreshed object exists
         assertNotNull(refreshedStats);
     }
+
+    /**
+     * tests that character and line totals past the int range add up without wrapping
+     */
+    @Test
+    void testMergeBeyondIntRange() {
+        FileStats stats = FileStats.create(new ProcessorSettings());
+        stats.merge(new WordTable(), 3_000_000_000L, 2_000_000_000L);
+        stats.merge(new WordTable(), 3_000_000_000L, 2_000_000_000L);
+
+        assertEquals(6_000_000_000L, stats.characterCount.get());
+        assertEquals(4_000_000_000L, stats.lineCount.get());
+    }
+
+    /**
+     * tests that word counts past the int range add up in the default store and are refused by an int map
+     */
+    @Test
+    void testWordCountBeyondIntRange() {
+        byte[] word = "the".getBytes(StandardCharsets.UTF_8);
+        WordTable words = new WordTable();
+        words.add(word, 0, word.length, 2_000_000_000L);
+
+        FileStats stats = FileStats.create(new ProcessorSettings());
+        stats.merge(words, 0, 0);
+        stats.merge(words, 0, 0);
+        assertEquals(4_000_000_000L, stats.wordCount.get("the"));
+
+        ConcurrentHashMap<String, Integer> intCounts = new ConcurrentHashMap<>();
+        FileStats intStats = new FileStats(intCounts, new AtomicLong(0), new AtomicLong(0));
+        intStats.merge(words, 0, 0);
+        assertThrows(ArithmeticException.class, () -> intStats.merge(words, 0, 0));
+        assertEquals(2_000_000_000, intCounts.get("the"));
+    }
 }
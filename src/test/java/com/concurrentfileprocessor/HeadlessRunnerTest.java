@@ -11,6 +11,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import com.concurrentfileprocessor.processor.FileDiscovery;
 import com.concurrentfileprocessor.runner.HeadlessRunner;
 
 /**
@@ -71,19 +72,18 @@ class HeadlessRunnerTest {
     }
 
     /**
-     * tests the getInputFiles method
-     * verifies text file discovery and filtering for non-txt files
+     * tests the createDiscovery method
+     * verifies text file discovery and filtering for non-txt files with the default settings
      * @throws Exception if reflection or method invocation for private method fails
      */
     @Test
-    void testGetInputFiles() throws Exception {
+    void testCreateDiscovery() throws Exception {
         // get private method
-        java.lang.reflect.Method method = HeadlessRunner.class.getDeclaredMethod("getInputFiles", File.class);
+        java.lang.reflect.Method method = HeadlessRunner.class.getDeclaredMethod("createDiscovery", File.class);
         method.setAccessible(true);
         
-        // invoke method
-        @SuppressWarnings("unchecked")
-        List<File> result = (List<File>) method.invoke(null, tempDir);
+        // invoke method and list what it finds
+        List<File> result = ((FileDiscovery) method.invoke(null, tempDir)).list();
         
         // verify the amount of files and if they are txt files
         assertEquals(2, result.size());
@@ -0,0 +1,318 @@
+package com.concurrentfileprocessor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.fileStats;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.inputFiles;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.settings;
+import com.concurrentfileprocessor.input.BlockTokenizer;
+import com.concurrentfileprocessor.input.InputKind;
+import com.concurrentfileprocessor.processor.FileMetricsCollector;
+import com.concurrentfileprocessor.processor.PipelinedDelegator;
+import com.concurrentfileprocessor.processor.ThreadDelegator;
+import com.concurrentfileprocessor.processor.WordTokenizer;
+
+/**
+ * test class for the input package
+ */
+class InputAdaptersTest {
+    // text every archive in these tests holds, 3 lines, 7 words and 37 letters
+    private static final String TEXT = "apple banana\ncherry apple\nbanana apple date\n";
+
+    private List<File> tempFiles;
+
+    /**
+     * sets up test environment before each test
+     */
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() {
+        tempFiles = new ArrayList<>();
+        fileStats = new FileStats(new ConcurrentHashMap<>(), new AtomicLong(0), new AtomicLong(0));
+    }
+
+    /**
+     * cleans up test environment after each test
+     */
+    @AfterEach
+    @SuppressWarnings("unused")
+    void tearDown() {
+        for (File file : tempFiles) {
+            if (file.exists()) file.delete();
+        }
+        settings = new ProcessorSettings();
+    }
+
+    /**
+     * tests that each kind is told apart by its first bytes
+     * @throws IOException if the archives cannot be built
+     */
+    @Test
+    void testSniff() throws IOException {
+        assertEquals(InputKind.PLAIN, sniff(TEXT.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(InputKind.PLAIN, sniff(new byte[0]));
+        assertEquals(InputKind.GZIP, sniff(gzip(TEXT.getBytes(StandardCharsets.UTF_8))));
+        assertEquals(InputKind.ZIP, sniff(zip("a.txt", TEXT)));
+        assertEquals(InputKind.TAR, sniff(tar("a.txt", TEXT)));
+        assertEquals(InputKind.BINARY, sniff(new byte[] {'a', 'b', 0, 'c'}));
+    }
+
+    /**
+     * tests that a gzip file counts the same as the plain text
+     * @throws IOException if the file cannot be written
+     */
+    @Test
+    void testGzipFile() throws IOException {
+        FileMetricsCollector.countFileComponents(createFile(".txt.gz", gzip(TEXT.getBytes(StandardCharsets.UTF_8))),
+            fileStats);
+
+        assertText(1);
+    }
+
+    /**
+     * tests that every text entry of a zip is counted, including a compressed one, and a binary one is skipped
+     * @throws IOException if the file cannot be written
+     */
+    @Test
+    void testZipEntries() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("dir/"));
+            zip.putNextEntry(new ZipEntry("dir/a.txt"));
+            zip.write(TEXT.getBytes(StandardCharsets.UTF_8));
+            zip.putNextEntry(new ZipEntry("b.txt.gz"));
+            zip.write(gzip(TEXT.getBytes(StandardCharsets.UTF_8)));
+            zip.putNextEntry(new ZipEntry("image.png"));
+            zip.write(new byte[] {(byte) 0x89, 'P', 'N', 'G', 0, 0, 'x', 'y'});
+        }
+        FileMetricsCollector.countFileComponents(createFile(".zip", bytes.toByteArray()), fileStats);
+
+        assertText(2);
+    }
+
+    /**
+     * tests that a gzipped tar is unpacked and entries are counted in full, including ones with long names
+     * @throws IOException if the file cannot be written
+     */
+    @Test
+    void testTarGzFile() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(tarEntry("first.txt", TEXT, '0'));
+        bytes.write(tarEntry("sub/", "", '5'));
+        bytes.write(tarEntry("././@LongLink", "sub/" + "n".repeat(150) + ".txt\0", 'L'));
+        bytes.write(tarEntry("sub/nnnn", TEXT, '0'));
+        bytes.write(new byte[1024]);
+        FileMetricsCollector.countFileComponents(createFile(".tgz", gzip(bytes.toByteArray())), fileStats);
+
+        assertText(2);
+    }
+
+    /**
+     * tests that a binary file is left out
+     * @throws IOException if the file cannot be written
+     */
+    @Test
+    void testBinaryFileSkipped() throws IOException {
+        FileMetricsCollector.countFileComponents(createFile(".txt", new byte[] {'w', 'o', 'r', 'd', 0, '\n'}), fileStats);
+
+        assertEquals(0, fileStats.wordCount.size());
+        assertEquals(0, fileStats.lineCount.get());
+    }
+
+    /**
+     * tests that a stream spanning many blocks counts the same as tokenizing it in one go,
+     * with blocks cut between lines and inside a line that is longer than a block
+     * @throws IOException if reading fails
+     */
+    @Test
+    void testBlockTokenizerMatchesPlainText() throws IOException {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 3 * BlockTokenizer.BLOCK_SIZE) {
+            text.append(TEXT);
+        }
+        while (text.length() < 5 * BlockTokenizer.BLOCK_SIZE) {
+            text.append("cherry date ");
+        }
+        text.append("\nend");
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+
+        FileStats plain = new FileStats(new ConcurrentHashMap<>(), new AtomicLong(0), new AtomicLong(0));
+        FileMetricsCollector.countFileComponents(createFile(".txt", bytes), plain);
+        BlockTokenizer.tokenize(new ByteArrayInputStream(bytes), fileStats);
+
+        assertEquals(plain.lineCount.get(), fileStats.lineCount.get());
+        assertEquals(plain.characterCount.get(), fileStats.characterCount.get());
+        assertEquals(plain.wordCount.size(), fileStats.wordCount.size());
+        for (String word : new String[] {"apple", "banana", "cherry", "date", "end"}) {
+            assertEquals(plain.wordCount.get(word), fileStats.wordCount.get(word));
+        }
+    }
+
+    /**
+     * tests that a word longer than a block is cut inside a multi-byte letter without growing the block,
+     * and still counts the same as tokenizing the stream in one go
+     * @throws IOException if reading fails
+     */
+    @Test
+    void testBlockTokenizerWordLongerThanBlock() throws IOException {
+        String text = "start\n" + "x" + "\u00e9".repeat(BlockTokenizer.BLOCK_SIZE) + " tail\r" + "end\r".repeat(9);
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+
+        FileStats plain = new FileStats(new ConcurrentHashMap<>(), new AtomicLong(0), new AtomicLong(0));
+        FileMetricsCollector.countFileComponents(createFile(".txt", bytes), plain);
+        BlockTokenizer.tokenize(new ByteArrayInputStream(bytes), fileStats);
+
+        assertEquals(plain.lineCount.get(), fileStats.lineCount.get());
+        assertEquals(plain.characterCount.get(), fileStats.characterCount.get());
+        assertEquals(plain.wordCount, fileStats.wordCount);
+        assertEquals(1, fileStats.wordCount.get("x" + "\u00e9".repeat(WordTokenizer.MAX_WORD_BYTES / 2 - 1)));
+        assertEquals(9, fileStats.wordCount.get("end"));
+    }
+
+    /**
+     * tests that the thread delegator unpacks large archives instead of splitting them into byte ranges
+     * @throws IOException if the files cannot be written
+     */
+    @Test
+    void testThreadDelegatorWithArchives() throws IOException {
+        settings.chunkSize = 16;
+        inputFiles = List.of(createFile(".gz", gzip(TEXT.getBytes(StandardCharsets.UTF_8))),
+            createFile(".zip", zip("a.txt", TEXT)), createFile(".txt", TEXT.getBytes(StandardCharsets.UTF_8)));
+        ThreadDelegator.delegateTasks();
+
+        assertText(3);
+    }
+
+    /**
+     * tests that the pipeline reader unpacks archives into its buffers
+     * @throws IOException if the files cannot be written
+     */
+    @Test
+    void testPipelineWithArchives() throws IOException {
+        settings.pipelineReaders = 2;
+        settings.pipelineParsers = 2;
+        settings.pipelineBufferSize = 16;
+        settings.pipelineQueueDepth = 2;
+        List<File> files = List.of(createFile(".tar", tar("a.txt", TEXT)),
+            createFile(".zip", zip("a.txt", TEXT)), createFile(".bin", new byte[] {1, 0, 2}));
+        PipelinedDelegator.process(files, fileStats, settings);
+
+        assertText(2);
+    }
+
+    /**
+     * checks the statistics hold the test text the given number of times
+     */
+    private void assertText(int copies) {
+        assertEquals(3 * copies, fileStats.lineCount.get());
+        assertEquals(37 * copies, fileStats.characterCount.get());
+        assertEquals(4, fileStats.wordCount.size());
+        assertEquals(3 * copies, fileStats.wordCount.get("apple"));
+        assertEquals(2 * copies, fileStats.wordCount.get("banana"));
+        assertEquals(copies, fileStats.wordCount.get("cherry"));
+        assertEquals(copies, fileStats.wordCount.get("date"));
+    }
+
+    /**
+     * sniffs an input held in memory
+     */
+    private static InputKind sniff(byte[] bytes) {
+        return InputKind.sniff(bytes, bytes.length);
+    }
+
+    /**
+     * writes bytes to a temporary file removed after the test
+     */
+    private File createFile(String suffix, byte[] bytes) throws IOException {
+        File file = File.createTempFile("inputtest", suffix);
+        Files.write(file.toPath(), bytes);
+        tempFiles.add(file);
+        return file;
+    }
+
+    /**
+     * gzip compresses bytes
+     */
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(bytes);
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * builds a zip holding a single entry
+     */
+    private static byte[] zip(String name, String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry(name));
+            zip.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * builds a tar holding a single entry
+     */
+    private static byte[] tar(String name, String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(tarEntry(name, text, '0'));
+        bytes.write(new byte[1024]);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * builds a POSIX tar header followed by the padded entry data
+     */
+    private static byte[] tarEntry(String name, String text, char type) {
+        byte[] data = text.getBytes(StandardCharsets.UTF_8);
+        byte[] entry = new byte[512 + (data.length + 511) / 512 * 512];
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(nameBytes, 0, entry, 0, nameBytes.length);
+        putOctal(entry, 100, 8, 0644);
+        putOctal(entry, 108, 8, 0);
+        putOctal(entry, 116, 8, 0);
+        putOctal(entry, 124, 12, data.length);
+        putOctal(entry, 136, 12, 0);
+        entry[156] = (byte) type;
+        System.arraycopy("ustar\u000000".getBytes(StandardCharsets.US_ASCII), 0, entry, 257, 8);
+        for (int i = 148; i < 156; i++) {
+            entry[i] = ' ';
+        }
+        int checksum = 0;
+        for (int i = 0; i < 512; i++) {
+            checksum += entry[i] & 0xFF;
+        }
+        putOctal(entry, 148, 7, checksum);
+        System.arraycopy(data, 0, entry, 512, data.length);
+        return entry;
+    }
+
+    /**
+     * writes a zero padded octal header field ended by a NUL
+     */
+    private static void putOctal(byte[] header, int offset, int length, long value) {
+        String digits = String.format("%0" + (length - 1) + "o", value);
+        System.arraycopy(digits.getBytes(StandardCharsets.US_ASCII), 0, header, offset, length - 1);
+    }
+}
@@ -0,0 +1,129 @@
+package com.concurrentfileprocessor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.fileStats;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.metrics;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.settings;
+import com.concurrentfileprocessor.counts.OffHeapWordCounts;
+import com.concurrentfileprocessor.processor.LiveResults;
+import com.concurrentfileprocessor.processor.PartialResults;
+import com.concurrentfileprocessor.processor.WordTable;
+
+/**
+ * test class for LiveResults.java file and the partial results taken by FileStats
+ */
+class LiveResultsTest {
+    /**
+     * sets up test environment before each test
+     * starts from empty statistics
+     */
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() {
+        fileStats = FileStats.create(settings);
+    }
+
+    /**
+     * cleans up test environment after each test
+     */
+    @AfterEach
+    @SuppressWarnings("unused")
+    void tearDown() {
+        metrics.endRun();
+        settings = new ProcessorSettings();
+    }
+
+    /**
+     * tests that a snapshot holds the totals and the most frequent words in order
+     */
+    @Test
+    void testSnapshot() {
+        WordTable words = new WordTable();
+        add(words, "alpha", 5);
+        add(words, "beta", 9);
+        add(words, "gamma", 1);
+        add(words, "delta", 5);
+        fileStats.merge(words, 40, 3);
+
+        PartialResults results = fileStats.snapshot(3);
+
+        assertEquals(40, results.characters);
+        assertEquals(3, results.lines);
+        assertEquals(4, results.distinctWords);
+        assertEquals(3, results.topWords.length);
+        assertEquals("beta", results.topWords[0].word);
+        assertEquals("alpha", results.topWords[1].word);
+        assertEquals("delta", results.topWords[2].word);
+        assertTrue(results.toString().contains("beta: 9"), results.toString());
+        assertEquals(0, fileStats.snapshot(0).topWords.length);
+    }
+
+    /**
+     * tests that the off-heap store passes every word exactly once while reading it in slices across growth
+     */
+    @Test
+    void testOffHeapForEachLive() {
+        try (OffHeapWordCounts counts = new OffHeapWordCounts()) {
+            WordTable words = new WordTable();
+            for (int i = 0; i < 20_000; i++) {
+                add(words, "word" + i, i % 7 + 1);
+            }
+            counts.merge(words);
+
+            Map<String, Long> live = new HashMap<>();
+            counts.forEachLive((word, count) -> assertNull(live.put(word, count), word));
+            Map<String, Long> all = new HashMap<>();
+            counts.forEach(all::put);
+
+            assertEquals(20_000, live.size());
+            assertEquals(all, live);
+        }
+    }
+
+    /**
+     * tests that snapshots are only passed on while a run is in progress and stop once closed
+     * @throws InterruptedException if the wait is interrupted
+     */
+    @Test
+    void testSnapshotsDuringRun() throws InterruptedException {
+        List<PartialResults> received = new CopyOnWriteArrayList<>();
+        LiveResults live = LiveResults.start(10, 5, received::add);
+        Thread.sleep(50);
+        assertTrue(received.isEmpty());
+
+        metrics.startRun(2);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (received.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        live.close();
+        int count = received.size();
+        Thread.sleep(50);
+
+        assertFalse(received.isEmpty());
+        assertEquals(2, received.get(0).filesTotal);
+        assertEquals(count, received.size());
+    }
+
+    /**
+     * adds a word with a count to a table
+     */
+    private static void add(WordTable words, String word, long count) {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        words.add(bytes, 0, bytes.length, count);
+    }
+}
@@ -0,0 +1,129 @@
+package com.concurrentfileprocessor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.concurrentfileprocessor.counts.OffHeapWordCounts;
+import com.concurrentfileprocessor.processor.WordTable;
+
+/**
+ * test class for OffHeapWordCounts.java file
+ */
+class OffHeapWordCountsTest {
+    // table under test
+    private OffHeapWordCounts counts;
+
+    /**
+     * sets up test environment before each test
+     */
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() {
+        counts = new OffHeapWordCounts();
+    }
+
+    /**
+     * releases the table after each test
+     */
+    @AfterEach
+    @SuppressWarnings("unused")
+    void tearDown() {
+        counts.close();
+    }
+
+    /**
+     * tests merging tables and reading counts back
+     */
+    @Test
+    void testMergeAndGet() {
+        counts.merge(table("apple", "banana", "apple"));
+        counts.merge(table("banana", "cherry"));
+
+        assertEquals(3, counts.size());
+        assertEquals(2, counts.get("apple"));
+        assertEquals(2, counts.get("banana"));
+        assertEquals(1, counts.get("cherry"));
+        assertEquals(0, counts.get("durian"));
+    }
+
+    /**
+     * tests that counts survive the table growing and that long words are stored whole
+     */
+    @Test
+    void testGrowthAndLongWords() {
+        String longWord = "x".repeat(1000);
+        WordTable words = new WordTable();
+        for (int i = 0; i < 50_000; i++) {
+            add(words, "word" + i);
+        }
+        add(words, longWord);
+        counts.merge(words);
+        counts.merge(words);
+
+        assertEquals(50_001, counts.size());
+        assertEquals(2, counts.get("word0"));
+        assertEquals(2, counts.get("word49999"));
+        assertEquals(2, counts.get(longWord));
+    }
+
+    /**
+     * tests iterating over every word and count
+     */
+    @Test
+    void testForEach() {
+        counts.merge(table("one", "two", "two", "three", "three", "three"));
+
+        Map<String, Long> seen = new HashMap<>();
+        counts.forEach(seen::put);
+        assertEquals(Map.of("one", 1L, "two", 2L, "three", 3L), seen);
+    }
+
+    /**
+     * tests that merges from several threads are not lost
+     * @throws InterruptedException if a thread is interrupted
+     */
+    @Test
+    void testConcurrentMerges() throws InterruptedException {
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    counts.merge(table("shared", "word" + i));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(101, counts.size());
+        assertEquals(400, counts.get("shared"));
+        assertEquals(4, counts.get("word99"));
+    }
+
+    /**
+     * builds a table with one count per listed word
+     */
+    private static WordTable table(String... words) {
+        WordTable table = new WordTable();
+        for (String word : words) {
+            add(table, word);
+        }
+        return table;
+    }
+
+    /**
+     * adds one occurrence of a word to a table
+     */
+    private static void add(WordTable table, String word) {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        table.add(bytes, bytes.length, word.hashCode());
+    }
+}
@@ -1,11 +1,17 @@
 package com.concurrentfileprocessor;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.jupiter.api.AfterEach;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -14,7 +20,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import static com.concurrentfileprocessor.ConcurrentFileProcessor.outputFilename;
+import com.concurrentfileprocessor.ProcessorSettings.OutputFormat;
+import com.concurrentfileprocessor.ProcessorSettings.OutputOrder;
+import com.concurrentfileprocessor.counts.SpillingWordCounts;
 import com.concurrentfileprocessor.processor.OutputWriter;
+import com.concurrentfileprocessor.processor.WordTable;
 
 /**
  * test class for OutputWriter.java file
@@ -22,7 +32,7 @@ import com.concurrentfileprocessor.processor.OutputWriter;
 public class OutputWriterTest {
     private File tempFile;
     private ConcurrentHashMap<String, Integer> wordCount;
-    private AtomicInteger totalCharacterCount;
+    private AtomicLong totalCharacterCount;
     
     // file stats object for testing
     private FileStats fileStats;
@@ -41,7 +51,7 @@ public class OutputWriterTest {
         wordCount = new ConcurrentHashMap<>();
         wordCount.put("hello", 2);
         wordCount.put("world", 1);
-        totalCharacterCount = new AtomicInteger(15);
+        totalCharacterCount = new AtomicLong(15);
         outputFilename = "test_output_file.txt";
     }
 
@@ -72,7 +82,7 @@ public class OutputWriterTest {
     @Test
     void testOutputWordsToFile() throws IOException {
         // create file stats with test data
-        fileStats = new FileStats(wordCount, totalCharacterCount, new AtomicInteger(0));
+        fileStats = new FileStats(wordCount, totalCharacterCount, new AtomicLong(0));
         fileStats.numberOfFiles = 2;
         
         // write stats to output file
@@ -93,6 +103,198 @@ public class OutputWriterTest {
         assertTrue(lines.contains("world: 1"));
     }
 
+    /**
+     * tests listing words by frequency, alphabetically and limited to the most frequent
+     * @throws IOException if file reading fails
+     */
+    @Test
+    void testSortedAndTopOutput() throws IOException {
+        wordCount.put("apple", 5);
+        wordCount.put("banana", 2);
+        wordCount.put("cherry", 9);
+        fileStats = new FileStats(wordCount, totalCharacterCount, new AtomicLong(0));
+
+        assertEquals(List.of("cherry: 9", "apple: 5", "banana: 2", "hello: 2", "world: 1"),
+            writeWords(OutputOrder.FREQUENCY, 0));
+        assertEquals(List.of("apple: 5", "banana: 2", "cherry: 9", "hello: 2", "world: 1"),
+            writeWords(OutputOrder.ALPHABETICAL, 0));
+        assertEquals(List.of("cherry: 9", "apple: 5", "banana: 2"), writeWords(OutputOrder.FREQUENCY, 3));
+        assertEquals(List.of("apple: 5", "banana: 2", "cherry: 9"), writeWords(OutputOrder.ALPHABETICAL, 3));
+        assertEquals(List.of("cherry: 9", "apple: 5"), writeWords(OutputOrder.UNSORTED, 2));
+        assertEquals(5, writeWords(OutputOrder.UNSORTED, 10).size());
+    }
+
+    /**
+     * tests that a spilling store lists every word in order without taking more than its budget at a time,
+     * giving the same output as the heap store
+     * @throws IOException if file reading fails
+     */
+    @Test
+    void testSpilledStoreSortedWithinBudget() throws IOException {
+        ProcessorSettings spill = ProcessorSettings.fromArguments(
+            new String[] {"--word-store=spill", "--spill-budget-mb=1"});
+        FileStats spilled = FileStats.create(spill);
+        for (int batch = 0; batch < 4; batch++) {
+            WordTable table = new WordTable();
+            for (int i = batch; i < 200_000; i += 4) {
+                byte[] word = ("word" + i).getBytes(StandardCharsets.UTF_8);
+                table.add(word, 0, word.length, i % 97 + 1);
+                wordCount.put("word" + i, i % 97 + 1);
+            }
+            spilled.merge(table, 0, 0);
+        }
+        SpillingWordCounts store = (SpillingWordCounts) spilled.wordCount;
+        assertTrue(store.spills() > 0);
+
+        try {
+            fileStats = new FileStats(wordCount, new AtomicLong(0), new AtomicLong(0));
+            List<String> expectedByFrequency = writeWords(OutputOrder.FREQUENCY, 0);
+            List<String> expectedAlphabetical = writeWords(OutputOrder.ALPHABETICAL, 0);
+
+            fileStats = spilled;
+            List<String> byFrequency = writeWords(OutputOrder.FREQUENCY, 0);
+            // the listing by count sorted a budget's worth of words at a time into several runs
+            assertTrue(store.countRuns() > 1, store.countRuns() + " runs");
+            assertEquals(strip(expectedByFrequency), byFrequency);
+            assertEquals(strip(expectedAlphabetical), writeWords(OutputOrder.ALPHABETICAL, 0));
+        } finally {
+            store.close();
+        }
+    }
+
+    /**
+     * leaves out the words of the shared test data that only the heap store holds
+     */
+    private static List<String> strip(List<String> lines) {
+        List<String> stripped = new ArrayList<>(lines);
+        stripped.remove("hello: 2");
+        stripped.remove("world: 1");
+        return stripped;
+    }
+
+    /**
+     * tests that output larger than the write buffer and non-ASCII words are written intact
+     * @throws IOException if file reading fails
+     */
+    @Test
+    void testLargeOutputAndUnicodeWords() throws IOException {
+        wordCount.put("caf\u00e9", 3);
+        wordCount.put("\u65e5\u672c", 4);
+        wordCount.put("\ud83d\ude00", 5);
+        for (int i = 0; i < 100_000; i++) {
+            wordCount.put("word" + i, i + 1);
+        }
+        fileStats = new FileStats(wordCount, totalCharacterCount, new AtomicLong(0));
+
+        List<String> words = writeWords(OutputOrder.UNSORTED, 0);
+        assertEquals(wordCount.size(), words.size());
+        assertTrue(words.contains("caf\u00e9: 3"));
+        assertTrue(words.contains("\u65e5\u672c: 4"));
+        assertTrue(words.contains("\ud83d\ude00: 5"));
+        assertTrue(words.contains("word99999: 100000"));
+    }
+
+    /**
+     * tests the CSV format, including quoting of fields that need it
+     * @throws IOException if file reading fails
+     */
+    @Test
+    void testCsvFormat() throws IOException {
+        wordCount.put("a,b", 3);
+        wordCount.put("say \"hi\"", 4);
+        fileStats = new FileStats(wordCount, totalCharacterCount, new AtomicLong(0));
+
+        List<String> lines = write(OutputFormat.CSV, OutputOrder.ALPHABETICAL);
+        assertEquals(List.of("word,count", "\"a,b\",3", "hello,2", "\"say \"\"hi\"\"\",4", "world,1"), lines);
+    }
+
+    /**
+     * tests the JSON Lines format, including escaping
+     * @throws IOException if file reading fails
+     */
+    @Test
+    void testJsonLinesFormat() throws IOException {
+        wordCount.put("back\\slash\t\u0001\"", 3);
+        wordCount.put("caf\u00e9", 1);
+        fileStats = new FileStats(wordCount, totalCharacterCount, new AtomicLong(4));
+        fileStats.numberOfFiles = 2;
+
+        List<String> lines = write(OutputFormat.JSON_LINES, OutputOrder.FREQUENCY);
+        assertEquals(List.of(
+            "{\"files\":2,\"characters\":15,\"lines\":4,\"words\":4}",
+            "{\"word\":\"back\\\\slash\\t\\u0001\\\"\",\"count\":3}",
+            "{\"word\":\"hello\",\"count\":2}",
+            "{\"word\":\"caf\u00e9\",\"count\":1}",
+            "{\"word\":\"world\",\"count\":1}"), lines);
+    }
+
+    /**
+     * tests that the binary format reads back to the same totals and counts
+     * @throws IOException if file reading fails
+     */
+    @Test
+    void testBinaryFormat() throws IOException {
+        wordCount.put("\u65e5\u672c", 300);
+        fileStats = new FileStats(wordCount, totalCharacterCount, new AtomicLong(7));
+        fileStats.numberOfFiles = 2;
+
+        String outputDir = tempFile.getParent();
+        OutputWriter.outputStatsToFile(outputDir, outputFilename, fileStats, OutputFormat.BINARY,
+            OutputOrder.UNSORTED, 0);
+        byte[] bytes = Files.readAllBytes(new File(outputDir, outputFilename).toPath());
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        assertEquals(OutputWriter.BINARY_MAGIC, in.readInt());
+        assertEquals(OutputWriter.BINARY_VERSION, in.readUnsignedByte());
+        assertEquals(2, readVarLong(in));
+        assertEquals(15, readVarLong(in));
+        assertEquals(7, readVarLong(in));
+        assertEquals(3, readVarLong(in));
+        assertEquals(0, readVarLong(in));
+
+        Map<String, Long> words = new HashMap<>();
+        for (int length = (int) readVarLong(in); length > 0; length = (int) readVarLong(in)) {
+            byte[] word = new byte[length];
+            in.readFully(word);
+            words.put(new String(word, StandardCharsets.UTF_8), readVarLong(in));
+        }
+        assertEquals(Map.of("hello", 2L, "world", 1L, "\u65e5\u672c", 300L), words);
+        assertEquals(-1, in.read());
+    }
+
+    /**
+     * reads an unsigned LEB128 varint
+     */
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * writes the test statistics in a format and returns every line
+     */
+    private List<String> write(OutputFormat format, OutputOrder order) throws IOException {
+        String outputDir = tempFile.getParent();
+        OutputWriter.outputStatsToFile(outputDir, outputFilename, fileStats, format, order, 0);
+        return Files.readAllLines(new File(outputDir, outputFilename).toPath());
+    }
+
+    /**
+     * writes the test statistics and returns the word lines
+     */
+    private List<String> writeWords(OutputOrder order, int top) throws IOException {
+        String outputDir = tempFile.getParent();
+        OutputWriter.outputStatsToFile(outputDir, outputFilename, fileStats, OutputFormat.TEXT, order, top);
+        List<String> lines = Files.readAllLines(new File(outputDir, outputFilename).toPath());
+        return lines.subList(4, lines.size());
+    }
+
     /**
      * tests exception handling in outputStatsToFile method
      */
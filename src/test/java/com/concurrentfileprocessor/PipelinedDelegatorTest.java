@@ -0,0 +1,158 @@
+package com.concurrentfileprocessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.fileStats;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.inputFiles;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.settings;
+import com.concurrentfileprocessor.processor.FileMetricsCollector;
+import com.concurrentfileprocessor.processor.PipelineStats;
+import com.concurrentfileprocessor.processor.PipelinedDelegator;
+import com.concurrentfileprocessor.processor.WordTokenizer;
+
+/**
+ * test class for PipelinedDelegator.java file
+ */
+class PipelinedDelegatorTest {
+    private List<File> tempFiles;
+
+    /**
+     * sets up test environment before each test
+     * uses tiny buffers so every file is split across many of them
+     * @throws IOException if file creation fails
+     */
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() throws IOException {
+        tempFiles = new ArrayList<>();
+
+        // short lines with mixed line endings
+        tempFiles.add(createFile("pipelinetest1", out -> {
+            for (int i = 0; i < 200; i++) {
+                out.print("Line " + i + " apple, banana;\tcherry" + (i % 3 == 0 ? "\r\n" : "\n"));
+            }
+            out.print("last line without newline");
+        }));
+
+        // one long line with spaces but no line break
+        tempFiles.add(createFile("pipelinetest2", out -> {
+            for (int i = 0; i < 100; i++) {
+                out.print("orange grape ");
+            }
+        }));
+
+        // a word longer than a buffer between short lines
+        tempFiles.add(createFile("pipelinetest3", out -> {
+            out.print("start\n" + "z".repeat(300) + "\nend\n");
+        }));
+
+        // empty file
+        tempFiles.add(createFile("pipelinetest4", out -> { }));
+
+        inputFiles = tempFiles;
+        fileStats = new FileStats(new ConcurrentHashMap<>(), new AtomicLong(0), new AtomicLong(0));
+        settings.pipelineReaders = 2;
+        settings.pipelineParsers = 3;
+        settings.pipelineBufferSize = 64;
+        settings.pipelineQueueDepth = 2;
+    }
+
+    /**
+     * cleans up test environment after each test
+     */
+    @AfterEach
+    @SuppressWarnings("unused")
+    void tearDown() {
+        for (File file : tempFiles) {
+            if (file.exists()) file.delete();
+        }
+
+        // restore default settings
+        settings = new ProcessorSettings();
+    }
+
+    /**
+     * tests that the pipeline gives the same totals as processing each file on one thread
+     * @throws IOException if a file cannot be read
+     */
+    @Test
+    void testPipelineMatchesSequentialProcessing() throws IOException {
+        // process sequentially for the expected totals
+        FileStats expected = new FileStats(new ConcurrentHashMap<>(), new AtomicLong(0), new AtomicLong(0));
+        for (File file : tempFiles) {
+            FileMetricsCollector.countFileComponents(file, expected);
+        }
+
+        PipelinedDelegator.delegateTasks();
+
+        assertEquals(expected.wordCount, fileStats.wordCount);
+        assertEquals(expected.characterCount.get(), fileStats.characterCount.get());
+        assertEquals(expected.lineCount.get(), fileStats.lineCount.get());
+        assertEquals(4, fileStats.numberOfFiles);
+    }
+
+    /**
+     * tests that words past the longest word kept are cut short the same way as when processing on one thread,
+     * even where the cut falls inside a multi-byte letter
+     * @throws IOException if a file cannot be written or read
+     */
+    @Test
+    void testWordsLongerThanKept() throws IOException {
+        tempFiles.add(createFile("pipelinetest5", out -> {
+            out.print("start\n" + "y".repeat(3 * WordTokenizer.MAX_WORD_BYTES) + " tail\n");
+            out.print("x" + "\u00e9".repeat(WordTokenizer.MAX_WORD_BYTES) + "\nend");
+        }));
+        inputFiles = List.of(tempFiles.get(tempFiles.size() - 1));
+        FileStats expected = new FileStats(new ConcurrentHashMap<>(), new AtomicLong(0), new AtomicLong(0));
+        FileMetricsCollector.countFileComponents(inputFiles.get(0), expected);
+
+        PipelinedDelegator.delegateTasks();
+
+        assertEquals(expected.wordCount, fileStats.wordCount);
+        assertEquals(expected.characterCount.get(), fileStats.characterCount.get());
+        assertEquals(expected.lineCount.get(), fileStats.lineCount.get());
+        assertEquals(1, fileStats.wordCount.get("y".repeat(WordTokenizer.MAX_WORD_BYTES)));
+        assertEquals(4 * WordTokenizer.MAX_WORD_BYTES + 13, fileStats.characterCount.get());
+    }
+
+    /**
+     * tests that the stage counters cover every byte and never exceed the queue capacity
+     */
+    @Test
+    void testPipelineStats() {
+        PipelineStats stats = PipelinedDelegator.delegateTasks();
+
+        long totalBytes = 0;
+        for (File file : tempFiles) {
+            totalBytes += file.length();
+        }
+        assertEquals(totalBytes, stats.bytesRead.get());
+        assertTrue(stats.buffersQueued.get() > tempFiles.size());
+        assertTrue(stats.maxQueueDepth.get() <= 2);
+    }
+
+    /**
+     * writes a temporary file
+     */
+    private static File createFile(String prefix, Consumer<PrintWriter> content) throws IOException {
+        File file = File.createTempFile(prefix, ".txt");
+        try (PrintWriter out = new PrintWriter(file, StandardCharsets.UTF_8)) {
+            content.accept(out);
+        }
+        return file;
+    }
+}
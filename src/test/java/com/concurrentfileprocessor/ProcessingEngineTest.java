@@ -0,0 +1,202 @@
+package com.concurrentfileprocessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.time.Duration;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.fileStats;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.metrics;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.settings;
+import com.concurrentfileprocessor.engine.JobConfig;
+import com.concurrentfileprocessor.engine.JobResult;
+import com.concurrentfileprocessor.engine.ProcessingEngine;
+import com.concurrentfileprocessor.engine.ProcessingJob;
+import com.concurrentfileprocessor.processor.FileDiscovery;
+
+/**
+ * test class for ProcessingEngine.java file and the jobs run on it
+ */
+class ProcessingEngineTest {
+    private File tempDir;
+    private ProcessingEngine engine;
+
+    /**
+     * sets up test environment before each test
+     * starts an engine with two threads and empty global statistics
+     * @throws IOException if the directory cannot be created
+     */
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("enginetest").toFile();
+        engine = new ProcessingEngine(2);
+        fileStats = FileStats.create(settings);
+    }
+
+    /**
+     * cleans up test environment after each test
+     */
+    @AfterEach
+    @SuppressWarnings("unused")
+    void tearDown() {
+        engine.close();
+        for (File file : tempDir.listFiles()) {
+            file.delete();
+        }
+        tempDir.delete();
+        settings = new ProcessorSettings();
+    }
+
+    /**
+     * tests that jobs running at once on one engine each count only their own files into their own statistics
+     * @throws IOException if the files cannot be written
+     */
+    @Test
+    void testConcurrentJobs() throws IOException {
+        List<File> first = createFiles("first", 40, "alpha beta\n");
+        List<File> second = createFiles("second", 30, "gamma delta epsilon\ngamma\n");
+
+        ProcessingJob firstJob = engine.submit(JobConfig.forFiles(first, settings));
+        ProcessingJob secondJob = engine.submit(JobConfig.forFiles(second, settings));
+        JobResult firstResult = firstJob.join();
+        JobResult secondResult = secondJob.join();
+
+        assertEquals(40, firstResult.stats.numberOfFiles);
+        assertEquals(40 * 100, firstResult.stats.lineCount.get());
+        assertEquals(2, firstResult.stats.wordCount.size());
+        assertEquals(40 * 100, firstResult.stats.wordCount.get("alpha"));
+
+        assertEquals(30, secondResult.stats.numberOfFiles);
+        assertEquals(30 * 200, secondResult.stats.lineCount.get());
+        assertEquals(3, secondResult.stats.wordCount.size());
+        assertEquals(30 * 200, secondResult.stats.wordCount.get("gamma"));
+
+        assertEquals(40, firstJob.snapshot(0).filesCompleted);
+        assertEquals(30, secondJob.snapshot(0).filesTotal);
+        assertEquals(3, secondJob.metrics().getDistinctWords());
+        assertNotSame(firstResult.stats, secondResult.stats);
+        assertEquals(0, fileStats.wordCount.size());
+        assertEquals(0, fileStats.numberOfFiles);
+    }
+
+    /**
+     * tests that a job found by a directory walk writes its output file with the settings it was submitted with,
+     * not the ones changed afterwards
+     * @throws IOException if the files cannot be written or read
+     */
+    @Test
+    void testDiscoveryJobKeepsSettings() throws IOException {
+        createFiles("file", 5, "alpha beta\n");
+        JobConfig config = JobConfig.forDiscovery(new FileDiscovery(tempDir, false, "*.txt", ""), settings)
+            .withOutput(tempDir.getPath(), "output.out");
+        settings.outputFormat = ProcessorSettings.OutputFormat.CSV;
+
+        JobResult result = engine.submit(config).join();
+
+        assertEquals(5, result.filesFound);
+        assertEquals(5, result.stats.numberOfFiles);
+        assertEquals(ProcessorSettings.OutputFormat.TEXT, config.settings().outputFormat);
+        List<String> lines = Files.readAllLines(new File(tempDir, "output.out").toPath(), StandardCharsets.UTF_8);
+        assertTrue(lines.contains("Total word count: 2"), lines.toString());
+    }
+
+    /**
+     * tests that a job cancelled while it is still finding files completes as cancelled and writes nothing
+     * @throws IOException if the files cannot be written
+     */
+    @Test
+    void testCancelledJob() throws IOException {
+        createFiles("file", 5, "alpha beta\n");
+        CountDownLatch walking = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        FileDiscovery discovery = new FileDiscovery(tempDir, false, "*.txt", "") {
+            @Override
+            public int walk(Consumer<File> consumer) throws IOException {
+                walking.countDown();
+                try {
+                    cancelled.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.walk(consumer);
+            }
+        };
+
+        ProcessingJob job = engine.submit(JobConfig.forDiscovery(discovery, settings)
+            .withOutput(tempDir.getPath(), "output.out"));
+        assertTrue(awaitQuietly(walking));
+        assertTrue(job.cancel(false));
+        cancelled.countDown();
+        engine.close();
+
+        assertTrue(job.isCancelled());
+        assertThrows(CancellationException.class, job::join);
+        assertFalse(new File(tempDir, "output.out").exists());
+    }
+
+    /**
+     * tests that cancelling a job stops a file it is part way through reading, without a time limit set
+     * the file is a sparse 64 GB of text followed by zeros, so reading it to the end would take minutes
+     * @throws IOException if the file cannot be written
+     */
+    @Test
+    void testCancelStopsFileBeingRead() throws IOException {
+        File large = new File(tempDir, "large.txt");
+        try (RandomAccessFile file = new RandomAccessFile(large, "rw")) {
+            file.write("alpha beta\n".repeat(1000).getBytes(StandardCharsets.US_ASCII));
+            file.setLength(64L << 30);
+        }
+
+        ProcessingJob job = engine.submit(JobConfig.forFiles(List.of(large), settings));
+        while (metrics.getActiveWorkers() == 0) {
+            Thread.onSpinWait();
+        }
+        assertTrue(job.cancel(false));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(30), engine::close);
+        assertTrue(job.isCancelled());
+    }
+
+    /**
+     * @return files in the temporary directory each holding the text 100 times
+     */
+    private List<File> createFiles(String prefix, int count, String text) throws IOException {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            File file = new File(tempDir, prefix + i + ".txt");
+            Files.writeString(file.toPath(), text.repeat(100));
+            files.add(file);
+        }
+        return files;
+    }
+
+    /**
+     * @return true once the latch has counted down, false if the wait was interrupted
+     */
+    private static boolean awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+}
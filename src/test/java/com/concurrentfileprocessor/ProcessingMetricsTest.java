@@ -0,0 +1,235 @@
+package com.concurrentfileprocessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.fileStats;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.inputFiles;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.metrics;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.settings;
+import com.concurrentfileprocessor.metrics.ProcessingMetrics;
+import com.concurrentfileprocessor.processor.FileDiscovery;
+import com.concurrentfileprocessor.processor.PipelinedDelegator;
+import com.concurrentfileprocessor.processor.ThreadDelegator;
+
+/**
+ * test class for ProcessingMetrics.java file
+ */
+class ProcessingMetricsTest {
+    // 4 words on 2 lines
+    private static final String TEXT = "alpha beta\nbeta gamma\n";
+
+    private File tempDir;
+    private List<File> files;
+
+    /**
+     * sets up test environment before each test
+     * creates a directory of small text files
+     * @throws IOException if file creation fails
+     */
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("metricstest").toFile();
+        files = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            File file = new File(tempDir, "file" + i + ".txt");
+            Files.writeString(file.toPath(), TEXT.repeat(i + 1));
+            files.add(file);
+        }
+        fileStats = FileStats.create(settings);
+    }
+
+    /**
+     * cleans up test environment after each test
+     */
+    @AfterEach
+    @SuppressWarnings("unused")
+    void tearDown() {
+        for (File file : files) {
+            file.delete();
+        }
+        tempDir.delete();
+        settings = new ProcessorSettings();
+    }
+
+    /**
+     * tests that a thread pool run counts every file, byte and token and leaves no worker active
+     */
+    @Test
+    void testThreadDelegatorRun() {
+        inputFiles = files;
+        ThreadDelegator.delegateTasks();
+
+        assertFinished(5);
+        assertEquals(4 * (1 + 2 + 3 + 4 + 5), metrics.getTokens());
+        assertEquals(3, metrics.getDistinctWords());
+    }
+
+    /**
+     * tests that files found by a directory walk are added to the total as they are found
+     */
+    @Test
+    void testDiscoveredRun() {
+        ThreadDelegator.delegateDiscoveredTasks(new FileDiscovery(tempDir, false, "*.txt", ""));
+
+        assertFinished(5);
+    }
+
+    /**
+     * tests that a split file counts once and its ranges count all of its tokens
+     */
+    @Test
+    void testChunkedFile() {
+        settings.chunkSize = 16;
+        inputFiles = files;
+        ThreadDelegator.delegateTasks();
+
+        assertFinished(5);
+        assertEquals(4 * (1 + 2 + 3 + 4 + 5), metrics.getTokens());
+    }
+
+    /**
+     * tests that the pipeline counts files as they are read and tokens as buffers are tokenized
+     */
+    @Test
+    void testPipelineRun() {
+        settings.pipelineReaders = 2;
+        settings.pipelineParsers = 2;
+        settings.pipelineBufferSize = 16;
+        settings.pipelineQueueDepth = 2;
+        inputFiles = files;
+        PipelinedDelegator.delegateTasks();
+
+        assertFinished(5);
+        assertEquals(4 * (1 + 2 + 3 + 4 + 5), metrics.getTokens());
+    }
+
+    /**
+     * tests that the metrics of jobs sharing a pool count their own files and words, add the files to the
+     * process-wide metrics, and that starting one job leaves the counts of the others as they are
+     */
+    @Test
+    void testJobMetrics() {
+        ProcessingMetrics processWide = new ProcessingMetrics();
+        processWide.startRun(0);
+        FileStats first = jobStats(processWide);
+        FileStats second = jobStats(processWide);
+        ForkJoinPool pool = ThreadDelegator.createPool(2);
+        ThreadDelegator.delegateTasks(files, first, settings, pool, null, null);
+        ThreadDelegator.delegateTasks(files.subList(0, 2), second, settings, pool, null, null);
+        pool.shutdown();
+
+        assertEquals(5, first.metrics.getFilesCompleted());
+        assertEquals(2, second.metrics.getFilesCompleted());
+        assertEquals(7, processWide.getFilesCompleted());
+        assertEquals(4 * (1 + 2 + 3 + 4 + 5 + 1 + 2), processWide.getTokens());
+        assertEquals(5, first.snapshot(0).filesTotal);
+        assertEquals(3, first.metrics.getDistinctWords());
+        assertEquals(6, processWide.getDistinctWords());
+
+        processWide.removeJob(first.metrics);
+        processWide.removeJob(second.metrics);
+        assertEquals(fileStats.wordCount.size(), processWide.getDistinctWords());
+    }
+
+    /**
+     * @return empty statistics of a job counting into metrics of its own, started and added to the given ones
+     */
+    private static FileStats jobStats(ProcessingMetrics processWide) {
+        FileStats stats = FileStats.create(settings);
+        stats.metrics = processWide.forJob(stats);
+        stats.metrics.startRun(0);
+        processWide.addJob(stats.metrics);
+        return stats;
+    }
+
+    /**
+     * tests the latency buckets and the percentiles read from them
+     */
+    @Test
+    void testLatencyHistogram() {
+        ProcessingMetrics latencies = new ProcessingMetrics();
+        latencies.startRun(3);
+        assertEquals(0, latencies.getFileLatencyMedianMillis());
+        // each latency sits mid bucket, so a pause while the test runs does not move it into the next one
+        latencies.fileStarted();
+        latencies.fileFinished(System.nanoTime());
+        latencies.fileStarted();
+        latencies.fileFinished(System.nanoTime() - 2_500_000);
+        latencies.fileStarted();
+        latencies.fileFinished(System.nanoTime() - 3_600_000_000_000L);
+
+        long[] histogram = latencies.getFileLatencyHistogram();
+        assertEquals(1, histogram[0]);
+        assertEquals(1, histogram[2]);
+        assertEquals(1, histogram[histogram.length - 1]);
+        assertEquals(4, latencies.getFileLatencyMedianMillis());
+        assertEquals(-1, latencies.getFileLatency99thPercentileMillis());
+        assertEquals(-1, latencies.getFileLatencyBucketMillis()[histogram.length - 1]);
+        assertEquals(-1, latencies.getSecondsRemaining());
+        latencies.addBytesTotal(3000);
+        latencies.addBytes(1000);
+        assertTrue(latencies.getSecondsRemaining() >= 0);
+        assertEquals(0, latencies.getActiveWorkers());
+        assertEquals(0, latencies.getFilesRemaining());
+    }
+
+    /**
+     * tests that the registered metrics can be read through the platform MBean server
+     * @throws Exception if the MBean cannot be read
+     */
+    @Test
+    void testRegisteredOverJmx() throws Exception {
+        ProcessingMetrics.register(metrics);
+        ProcessingMetrics.register(metrics);
+        inputFiles = files;
+        ThreadDelegator.delegateTasks();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(ProcessingMetrics.OBJECT_NAME);
+        assertEquals(5L, server.getAttribute(name, "FilesCompleted"));
+        assertEquals(false, server.getAttribute(name, "Running"));
+        assertArrayEquals(metrics.getFileLatencyHistogram(), (long[]) server.getAttribute(name, "FileLatencyHistogram"));
+    }
+
+    /**
+     * checks the metrics describe a finished run over the test files
+     */
+    private void assertFinished(int count) {
+        long bytes = 0;
+        for (File file : files) {
+            bytes += file.length();
+        }
+        assertFalse(metrics.isRunning());
+        assertEquals(count, metrics.getFilesTotal());
+        assertEquals(count, metrics.getFilesCompleted());
+        assertEquals(0, metrics.getFilesRemaining());
+        assertEquals(0, metrics.getActiveWorkers());
+        assertEquals(bytes, metrics.getBytesRead());
+        assertEquals(bytes, metrics.getBytesTotal());
+        assertEquals(-1, metrics.getSecondsRemaining());
+        long histogramTotal = 0;
+        for (long bucket : metrics.getFileLatencyHistogram()) {
+            histogramTotal += bucket;
+        }
+        assertEquals(count, histogramTotal);
+        assertTrue(metrics.getElapsedSeconds() > 0);
+    }
+}
@@ -0,0 +1,148 @@
+package com.concurrentfileprocessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.fileStats;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.inputFiles;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.outputFilePath;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.outputFilename;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.settings;
+import com.concurrentfileprocessor.metrics.FileEvent;
+import com.concurrentfileprocessor.metrics.PhaseEvent;
+import com.concurrentfileprocessor.metrics.RunRecording;
+import com.concurrentfileprocessor.processor.FileProcessor;
+
+/**
+ * test class for RunRecording.java file and the flight recorder events
+ */
+class RunRecordingTest {
+    // 4 words on 2 lines
+    private static final String TEXT = "alpha beta\nbeta gamma\n";
+
+    private File tempDir;
+    private File recordingFile;
+
+    /**
+     * sets up test environment before each test
+     * creates a directory of small text files and points the output file into it
+     * @throws IOException if file creation fails
+     */
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("recordingtest").toFile();
+        inputFiles = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            File file = new File(tempDir, "file" + i + ".txt");
+            Files.writeString(file.toPath(), TEXT.repeat(100));
+            inputFiles.add(file);
+        }
+        recordingFile = new File(tempDir, "run.jfr");
+        outputFilePath = tempDir.getPath();
+        outputFilename = "output.txt";
+        fileStats = FileStats.create(settings);
+    }
+
+    /**
+     * cleans up test environment after each test
+     */
+    @AfterEach
+    @SuppressWarnings("unused")
+    void tearDown() {
+        for (File file : tempDir.listFiles()) {
+            file.delete();
+        }
+        tempDir.delete();
+        settings = new ProcessorSettings();
+    }
+
+    /**
+     * tests that a recorded run holds an event per file and per phase and is summarized
+     * @throws IOException if the recording cannot be read
+     */
+    @Test
+    void testRecordedRun() throws IOException {
+        RunRecording recording = RunRecording.start(recordingFile);
+        assertNotNull(recording);
+        FileProcessor.processFiles();
+        recording.finish();
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile.toPath());
+        Set<String> phases = new HashSet<>();
+        long tokens = 0;
+        int files = 0;
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(PhaseEvent.NAME)) {
+                phases.add(event.getString("phase"));
+            } else if (event.getEventType().getName().equals(FileEvent.NAME)) {
+                files++;
+                tokens += event.getLong("tokens");
+                assertEquals(TEXT.length() * 100, event.getLong("bytes"));
+                assertNotNull(event.getThread());
+            }
+        }
+        assertEquals(3, files);
+        assertEquals(3 * 400, tokens);
+        assertTrue(phases.contains("processing") && phases.contains("output"), phases.toString());
+
+        String summary = RunRecording.summarize(events);
+        assertTrue(summary.startsWith("Phase breakdown:"), summary);
+        assertTrue(summary.contains("processing") && summary.contains("tokenizing") && summary.contains("3 files"),
+            summary);
+    }
+
+    /**
+     * tests that split files and pipeline buffers are recorded piece by piece with their offsets
+     * @throws IOException if the recording cannot be read
+     */
+    @Test
+    void testRecordedPieces() throws IOException {
+        settings.chunkSize = 1024;
+        RunRecording recording = RunRecording.start(recordingFile);
+        FileProcessor.processFiles();
+        settings.pipelineReaders = 1;
+        settings.pipelineParsers = 1;
+        settings.pipelineBufferSize = 1024;
+        fileStats = FileStats.create(settings);
+        FileProcessor.processFiles();
+        recording.finish();
+
+        long tokens = 0;
+        Set<Long> offsets = new HashSet<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(recordingFile.toPath())) {
+            if (event.getEventType().getName().equals(FileEvent.NAME)) {
+                tokens += event.getLong("tokens");
+                offsets.add(event.getLong("offset"));
+            }
+        }
+        assertEquals(2 * 3 * 400, tokens);
+        assertTrue(offsets.size() > 2, offsets.toString());
+    }
+
+    /**
+     * tests the summary of a recording without any events
+     */
+    @Test
+    void testEmptySummary() {
+        String summary = RunRecording.summarize(new ArrayList<>());
+
+        assertTrue(summary.contains("0 files or pieces"), summary);
+        assertTrue(summary.contains("0 collections"), summary);
+    }
+}
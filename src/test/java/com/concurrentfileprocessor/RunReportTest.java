@@ -0,0 +1,231 @@
+package com.concurrentfileprocessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.fileStats;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.inputFiles;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.settings;
+import com.concurrentfileprocessor.processor.OutputWriter;
+import com.concurrentfileprocessor.processor.RunReport;
+import com.concurrentfileprocessor.processor.ThreadDelegator;
+import com.concurrentfileprocessor.processor.WordTable;
+
+/**
+ * test class for RunReport.java file and runs with time limits
+ */
+class RunReportTest {
+    // number of input files
+    private static final int FILES = 4;
+
+    private File tempDir;
+
+    /**
+     * sets up test environment before each test
+     * creates a directory of text files with 4 distinct words each
+     * @throws IOException if file creation fails
+     */
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("runreporttest").toFile();
+        inputFiles = new ArrayList<>();
+        for (int i = 0; i < FILES; i++) {
+            File file = new File(tempDir, "file" + i + ".txt");
+            Files.writeString(file.toPath(), "alpha beta gamma delta\n".repeat(100));
+            inputFiles.add(file);
+        }
+        fileStats = FileStats.create(settings);
+    }
+
+    /**
+     * cleans up test environment after each test
+     */
+    @AfterEach
+    @SuppressWarnings("unused")
+    void tearDown() {
+        for (File file : tempDir.listFiles()) {
+            file.delete();
+        }
+        tempDir.delete();
+        settings = new ProcessorSettings();
+    }
+
+    /**
+     * tests that no report is kept unless a time limit is set
+     */
+    @Test
+    void testCreate() {
+        assertNull(RunReport.create(settings));
+
+        settings.fileTimeoutSeconds = 5;
+        assertNotNull(RunReport.create(settings));
+    }
+
+    /**
+     * tests that files finishing within generous limits are all counted as usual
+     */
+    @Test
+    void testAllCompleted() {
+        RunReport report = new RunReport(TimeUnit.MINUTES.toNanos(5), TimeUnit.MINUTES.toNanos(5));
+        ThreadDelegator.delegateTasks(null, report);
+
+        assertEquals(FILES, report.count(RunReport.Outcome.COMPLETED));
+        assertTrue(report.leftOut().isEmpty());
+        assertEquals(FILES, fileStats.numberOfFiles);
+        assertEquals(0, fileStats.filesLeftOut);
+        assertEquals(4, fileStats.wordCount.size());
+        assertEquals(FILES * 100, fileStats.lineCount.get());
+    }
+
+    /**
+     * tests that files running out of their own time limit time out and leave nothing in the statistics
+     * @throws IOException if the output cannot be read
+     */
+    @Test
+    void testFileTimeout() throws IOException {
+        RunReport report = new RunReport(1, 0);
+        ThreadDelegator.delegateTasks(null, report);
+
+        assertEquals(FILES, report.count(RunReport.Outcome.TIMED_OUT));
+        assertEquals(0, fileStats.numberOfFiles);
+        assertEquals(FILES, fileStats.filesLeftOut);
+        assertEquals(0, fileStats.wordCount.size());
+        assertEquals(0, fileStats.lineCount.get());
+        assertTrue(report.toString().contains("timed out: " + inputFiles.get(0).getPath()), report.toString());
+
+        OutputWriter.outputStatsToFile(tempDir.getPath(), "output.txt", fileStats);
+        String output = Files.readString(new File(tempDir, "output.txt").toPath(), StandardCharsets.UTF_8);
+        assertTrue(output.contains("Files left out after timing out or being cancelled: " + FILES), output);
+    }
+
+    /**
+     * tests that files given out after the run time limit are cancelled without being read
+     */
+    @Test
+    void testRunTimeout() {
+        RunReport report = new RunReport(0, 1);
+        ThreadDelegator.delegateTasks(null, report);
+
+        assertEquals(FILES, report.count(RunReport.Outcome.CANCELLED));
+        assertEquals(0, fileStats.numberOfFiles);
+        assertEquals(0, fileStats.wordCount.size());
+    }
+
+    /**
+     * tests that a file stopped by the run limit is left out even when its words were already merged
+     */
+    @Test
+    void testStoppedFileNotCommitted() {
+        RunReport report = new RunReport(0, TimeUnit.MINUTES.toNanos(5));
+        RunReport.TrackedFile tracked = report.track(inputFiles.get(0), fileStats);
+        assertTrue(tracked.start(fileStats));
+        WordTable words = new WordTable();
+        byte[] word = "alpha".getBytes(StandardCharsets.UTF_8);
+        words.add(word, 0, word.length, 3);
+        tracked.merge(words, 5, 1);
+
+        report.stopAll();
+
+        assertFalse(tracked.commit());
+        assertEquals(RunReport.Outcome.TIMED_OUT, tracked.outcome());
+        assertEquals(0, fileStats.wordCount.size());
+        assertEquals(0, fileStats.characterCount.get());
+        assertFalse(report.track(inputFiles.get(1), fileStats).start(fileStats));
+        assertEquals(1, report.count(RunReport.Outcome.CANCELLED));
+    }
+
+    /**
+     * tests that the watchdog times out a file whose read never returns, interrupts the thread stuck on it,
+     * and leaves the thread without an interrupt once it is done with the file
+     * @throws InterruptedException if the test is interrupted while waiting
+     */
+    @Test
+    void testWatchdogInterruptsStuckRead() throws InterruptedException {
+        RunReport report = new RunReport(TimeUnit.MILLISECONDS.toNanos(50), 0);
+        RunReport.TrackedFile tracked = report.track(inputFiles.get(0), fileStats);
+        assertFalse(report.isSettled());
+        CountDownLatch interrupted = new CountDownLatch(1);
+        boolean[] clearedAfterRelease = new boolean[1];
+        Thread reader = new Thread(() -> {
+            assertTrue(tracked.start(fileStats));
+            try {
+                // stands in for a read on a device that stopped answering
+                Thread.sleep(TimeUnit.MINUTES.toMillis(5));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                Thread.currentThread().interrupt();
+            }
+            tracked.release();
+            clearedAfterRelease[0] = !Thread.currentThread().isInterrupted();
+        });
+        reader.start();
+
+        assertTrue(interrupted.await(30, TimeUnit.SECONDS));
+        reader.join();
+        assertEquals(RunReport.Outcome.TIMED_OUT, tracked.outcome());
+        assertTrue(report.isSettled());
+        assertTrue(report.isOverdue());
+        assertTrue(clearedAfterRelease[0]);
+        assertFalse(tracked.commit());
+    }
+
+    /**
+     * tests that with a word store on a memory budget, a file holding back more words than a task may collect
+     * spills them to disk, is counted exactly once committed, and deletes its spill once stopped
+     */
+    @Test
+    void testStagingSpillsOnBudget() {
+        File spill = new File(tempDir, "spill");
+        assertTrue(spill.mkdir());
+        settings.wordStore = ProcessorSettings.WordStore.SPILL;
+        settings.spillDirectory = spill.getPath();
+        settings.fileTimeoutSeconds = 300;
+        FileStats target = FileStats.create(settings);
+        RunReport report = RunReport.create(settings);
+        RunReport.TrackedFile counted = report.track(inputFiles.get(0), target);
+        RunReport.TrackedFile stopped = report.track(inputFiles.get(1), target);
+        assertTrue(counted.start(target));
+        assertTrue(stopped.start(target));
+
+        // each piece holds 50,000 words, half of them also in the piece before
+        for (int piece = 0; piece < 5; piece++) {
+            WordTable words = new WordTable();
+            for (int i = piece * 25_000; i < piece * 25_000 + 50_000; i++) {
+                byte[] word = ("w" + i).getBytes(StandardCharsets.UTF_8);
+                words.add(word, 0, word.length, 1);
+            }
+            counted.merge(words, 10, 1);
+            stopped.merge(words, 10, 1);
+        }
+        assertEquals(2, spill.list().length);
+
+        assertTrue(counted.commit());
+        report.stopAll();
+        stopped.release();
+
+        assertEquals(RunReport.Outcome.TIMED_OUT, stopped.outcome());
+        assertEquals(0, spill.list().length);
+        assertEquals(150_000, target.wordCount.size());
+        assertEquals(1, target.wordCount.get("w0"));
+        assertEquals(2, target.wordCount.get("w30000"));
+        assertEquals(1, target.wordCount.get("w149999"));
+        assertEquals(50, target.characterCount.get());
+        assertEquals(5, target.lineCount.get());
+        target.wordCount.close();
+    }
+}
@@ -0,0 +1,317 @@
+package com.concurrentfileprocessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.fileStats;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.inputFiles;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.settings;
+import com.concurrentfileprocessor.cache.FileResultCache;
+import com.concurrentfileprocessor.processor.ThreadDelegator;
+import com.concurrentfileprocessor.shard.ShardCoordinator;
+import com.concurrentfileprocessor.shard.ShardCoordinator.Shard;
+import com.concurrentfileprocessor.snapshot.SnapshotWriter;
+
+/**
+ * test class for ShardCoordinator.java file
+ */
+class ShardCoordinatorTest {
+    private List<File> tempFiles;
+
+    /**
+     * sets up test environment before each test
+     * @throws IOException if file creation fails
+     */
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() throws IOException {
+        tempFiles = new ArrayList<>();
+        createFile("apple banana apple\n");
+        createFile("banana orange\nkiwi\n");
+        createFile("cherry cherry cherry\ngrape\n\n");
+        createFile("kiwi");
+    }
+
+    /**
+     * cleans up test environment after each test
+     */
+    @AfterEach
+    @SuppressWarnings("unused")
+    void tearDown() {
+        for (File file : tempFiles) {
+            if (file.exists()) file.delete();
+        }
+        settings = new ProcessorSettings();
+    }
+
+    /**
+     * tests that files are split into shards of about the same size
+     */
+    @Test
+    void testSplitBalancesBytes() throws IOException {
+        List<File> files = new ArrayList<>(tempFiles);
+        files.add(createFile("x".repeat(100)));
+        files.add(createFile("x".repeat(60)));
+        files.add(createFile("x".repeat(50)));
+
+        List<List<File>> shards = ShardCoordinator.split(files, 2);
+        assertEquals(2, shards.size());
+        long[] bytes = new long[2];
+        int count = 0;
+        for (int i = 0; i < 2; i++) {
+            for (File file : shards.get(i)) {
+                bytes[i] += file.length();
+                count++;
+            }
+        }
+        assertEquals(files.size(), count);
+        assertEquals(100 + 28 + 19, bytes[0]);
+        assertEquals(60 + 50 + 19 + 4, bytes[1]);
+
+        assertEquals(1, ShardCoordinator.split(files.subList(0, 1), 4).size());
+    }
+
+    /**
+     * tests that worker processes give the same results as processing in this process
+     * @throws IOException if the working directory cannot be created
+     */
+    @Test
+    void testShardedRunMatchesSingleProcess() throws IOException {
+        FileStats expected = processInProcess();
+
+        settings = ProcessorSettings.fromArguments(new String[] {"--headless", "--shards=2", "--chunk-size-mb=0"});
+        FileStats merged = emptyStats();
+        List<Shard> shards = new ShardCoordinator(settings).run(tempFiles, merged);
+
+        assertNotNull(shards);
+        assertEquals(2, shards.size());
+        assertSameTotals(expected, merged);
+    }
+
+    /**
+     * tests that a failed shard is started again without starting the others again
+     * @throws IOException if the working directory cannot be created
+     */
+    @Test
+    void testFailedShardIsRetried() throws IOException {
+        FileStats expected = processInProcess();
+
+        settings = ProcessorSettings.fromArguments(new String[] {"--headless", "--shards=2", "--shard-retries=1"});
+        FileStats merged = emptyStats();
+        List<Shard> shards = new FailingCoordinator(settings, 1).run(tempFiles, merged);
+
+        assertNotNull(shards);
+        assertEquals(2, shards.get(0).attempts);
+        assertEquals(1, shards.get(1).attempts);
+        assertSameTotals(expected, merged);
+    }
+
+    /**
+     * tests that a shard failing on every attempt fails the run and leaves the statistics alone
+     * @throws IOException if the working directory cannot be created
+     */
+    @Test
+    void testShardFailingEveryAttemptFailsRun() throws IOException {
+        settings = ProcessorSettings.fromArguments(new String[] {"--headless", "--shards=2", "--shard-retries=1"});
+        FileStats merged = emptyStats();
+        List<Shard> shards = new FailingCoordinator(settings, 2).run(tempFiles, merged);
+
+        assertNull(shards);
+        assertEquals(0, merged.numberOfFiles);
+        assertEquals(0, merged.wordCount.size());
+    }
+
+    /**
+     * tests that each shard keeps a cache of its own that the next run reuses for every file
+     * @throws IOException if the working directory or a cache cannot be opened
+     */
+    @Test
+    void testShardsKeepCaches() throws IOException {
+        FileStats expected = processInProcess();
+
+        File cacheFile = File.createTempFile("shardtest", ".cache");
+        cacheFile.delete();
+        settings = ProcessorSettings.fromArguments(
+            new String[] {"--headless", "--shards=2", "--cache=" + cacheFile.getAbsolutePath()});
+        List<Shard> shards = new ShardCoordinator(settings).run(tempFiles, emptyStats());
+        assertNotNull(shards);
+
+        FileStats merged = emptyStats();
+        shards = new ShardCoordinator(settings).run(tempFiles, merged);
+        assertNotNull(shards);
+        assertSameTotals(expected, merged);
+        for (Shard shard : shards) {
+            File shardCache = new File(cacheFile.getPath() + ".shard-" + shard.index);
+            FileResultCache cache = new FileResultCache(shardCache, false, settings.charset);
+            for (File file : shard.files) {
+                assertTrue(cache.lookup(file).isHit());
+            }
+            cache.discard();
+            shardCache.delete();
+        }
+    }
+
+    /**
+     * tests that a worker running past the time limit is killed and its shard started again
+     * @throws IOException if the working directory cannot be created
+     */
+    @Test
+    void testHungShardIsKilled() throws IOException {
+        FileStats expected = processInProcess();
+
+        settings = ProcessorSettings.fromArguments(
+            new String[] {"--headless", "--shards=2", "--shard-retries=1", "--shard-timeout-seconds=2"});
+        FileStats merged = emptyStats();
+        List<Shard> shards = new HangingCoordinator(settings).run(tempFiles, merged);
+
+        assertNotNull(shards);
+        assertEquals(2, shards.get(0).attempts);
+        assertEquals(1, shards.get(1).attempts);
+        assertSameTotals(expected, merged);
+    }
+
+    /**
+     * tests that a shard leaving a damaged snapshot fails the run without merging the other shards
+     * @throws IOException if the working directory cannot be created
+     */
+    @Test
+    void testDamagedShardSnapshotLeavesStatsAlone() throws IOException {
+        settings = ProcessorSettings.fromArguments(new String[] {"--headless", "--shards=2", "--shard-retries=0"});
+        FileStats merged = emptyStats();
+        List<Shard> shards = new ShardCoordinator(settings) {
+            @Override
+            protected List<String> workerCommand(Shard shard) {
+                List<String> command = super.workerCommand(shard);
+                if (shard.index == 1) {
+                    command.set(command.indexOf(ConcurrentFileProcessor.class.getName()),
+                        DamagedWorker.class.getName());
+                }
+                return command;
+            }
+        }.run(tempFiles, merged);
+
+        assertNull(shards);
+        assertEquals(0, merged.numberOfFiles);
+        assertEquals(0, merged.wordCount.size());
+        assertEquals(0, merged.characterCount.get());
+    }
+
+    /**
+     * worker that exits normally but leaves a snapshot cut short
+     */
+    static class DamagedWorker {
+        public static void main(String[] args) throws IOException {
+            for (String argument : args) {
+                if (argument.startsWith("--snapshot=")) {
+                    File file = new File(argument.substring("--snapshot=".length()));
+                    try (SnapshotWriter writer = new SnapshotWriter(file, 1, 5, 1)) {
+                        byte[] word = "apple".getBytes(StandardCharsets.UTF_8);
+                        writer.write(word, word.length, 1);
+                    }
+                    byte[] bytes = Files.readAllBytes(file.toPath());
+                    Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 2));
+                }
+            }
+        }
+    }
+
+    /**
+     * coordinator whose first shard hangs on its first attempt by starting a class that only sleeps
+     */
+    private static class HangingCoordinator extends ShardCoordinator {
+        HangingCoordinator(ProcessorSettings settings) throws IOException {
+            super(settings);
+        }
+
+        @Override
+        protected List<String> workerCommand(Shard shard) {
+            List<String> command = super.workerCommand(shard);
+            if (shard.index == 0 && shard.attempts <= 1) {
+                command.set(command.indexOf(ConcurrentFileProcessor.class.getName()), Sleeper.class.getName());
+            }
+            return command;
+        }
+    }
+
+    /**
+     * worker that never finishes
+     */
+    static class Sleeper {
+        public static void main(String[] args) throws InterruptedException {
+            Thread.sleep(600_000);
+        }
+    }
+
+    /**
+     * coordinator whose first shard fails a number of times by starting a class that does not exist
+     */
+    private static class FailingCoordinator extends ShardCoordinator {
+        private final int failures;
+
+        FailingCoordinator(ProcessorSettings settings, int failures) throws IOException {
+            super(settings);
+            this.failures = failures;
+        }
+
+        @Override
+        protected List<String> workerCommand(Shard shard) {
+            List<String> command = super.workerCommand(shard);
+            if (shard.index == 0 && shard.attempts <= failures) {
+                command.set(command.indexOf(ConcurrentFileProcessor.class.getName()), "NoSuchWorker");
+            }
+            return command;
+        }
+    }
+
+    /**
+     * processes the test files in this process
+     */
+    private FileStats processInProcess() {
+        inputFiles = tempFiles;
+        fileStats = emptyStats();
+        ThreadDelegator.delegateTasks();
+        return fileStats;
+    }
+
+    /**
+     * creates empty statistics
+     */
+    private static FileStats emptyStats() {
+        return new FileStats(new ConcurrentHashMap<>(), new AtomicLong(0), new AtomicLong(0));
+    }
+
+    /**
+     * checks that two sets of statistics hold the same results
+     */
+    private static void assertSameTotals(FileStats expected, FileStats actual) {
+        assertEquals(expected.wordCount, actual.wordCount);
+        assertEquals(expected.numberOfFiles, actual.numberOfFiles);
+        assertEquals(expected.characterCount.get(), actual.characterCount.get());
+        assertEquals(expected.lineCount.get(), actual.lineCount.get());
+    }
+
+    /**
+     * creates a temporary file with the given content
+     */
+    private File createFile(String content) throws IOException {
+        File file = File.createTempFile("shardtest", ".txt");
+        Files.writeString(file.toPath(), content);
+        tempFiles.add(file);
+        return file;
+    }
+}
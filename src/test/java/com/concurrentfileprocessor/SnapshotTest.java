@@ -0,0 +1,255 @@
+package com.concurrentfileprocessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.settings;
+import com.concurrentfileprocessor.counts.SpillingWordCounts;
+import com.concurrentfileprocessor.processor.WordTable;
+import com.concurrentfileprocessor.snapshot.SnapshotReader;
+import com.concurrentfileprocessor.snapshot.SnapshotWriter;
+import com.concurrentfileprocessor.snapshot.Snapshots;
+
+/**
+ * test class for the snapshot package
+ */
+class SnapshotTest {
+    private List<File> snapshotFiles;
+
+    /**
+     * sets up test environment before each test
+     */
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() {
+        snapshotFiles = new ArrayList<>();
+    }
+
+    /**
+     * cleans up test environment after each test
+     */
+    @AfterEach
+    @SuppressWarnings("unused")
+    void tearDown() {
+        for (File file : snapshotFiles) {
+            if (file.exists()) file.delete();
+        }
+        settings = new ProcessorSettings();
+    }
+
+    /**
+     * tests that saving and loading gives back the same statistics
+     * @throws IOException if the snapshot cannot be written
+     */
+    @Test
+    void testSaveAndLoadRoundTrip() throws IOException {
+        FileStats original = stats(3, 120, 7, "apple", 3, "apples", 1, "banana", 2, "caf\u00e9", 4, "zebra", 100000);
+        File file = snapshotFile();
+        Snapshots.save(original, file);
+
+        FileStats loaded = stats(0, 0, 0);
+        Snapshots.load(file, loaded);
+        assertEquals(original.wordCount, loaded.wordCount);
+        assertEquals(3, loaded.numberOfFiles);
+        assertEquals(120, loaded.characterCount.get());
+        assertEquals(7, loaded.lineCount.get());
+    }
+
+    /**
+     * tests that the reader returns words in byte order with shared prefixes restored
+     * @throws IOException if the snapshot cannot be written
+     */
+    @Test
+    void testReaderStreamsWordsInOrder() throws IOException {
+        File file = snapshotFile();
+        Snapshots.save(stats(1, 10, 2, "banana", 1, "band", 2, "ban", 3, "a", 4), file);
+
+        List<String> words = new ArrayList<>();
+        try (SnapshotReader reader = new SnapshotReader(file)) {
+            assertEquals(1, reader.numberOfFiles);
+            assertEquals(10, reader.characters);
+            assertEquals(2, reader.lines);
+            while (reader.next()) {
+                words.add(reader.wordString() + "=" + reader.count());
+            }
+        }
+        assertEquals(List.of("a=4", "ban=3", "banana=1", "band=2"), words);
+    }
+
+    /**
+     * tests that merging adds up totals and the counts of shared words
+     * @throws IOException if a snapshot cannot be written
+     */
+    @Test
+    void testMergeCombinesSnapshots() throws IOException {
+        File first = snapshotFile();
+        File second = snapshotFile();
+        File third = snapshotFile();
+        Snapshots.save(stats(1, 10, 2, "apple", 1, "kiwi", 2), first);
+        Snapshots.save(stats(2, 20, 3, "banana", 5, "kiwi", 1), second);
+        Snapshots.save(stats(0, 0, 0), third);
+
+        File merged = snapshotFile();
+        long distinct = Snapshots.merge(List.of(first, second, third), merged);
+        assertEquals(3, distinct);
+
+        FileStats loaded = stats(0, 0, 0);
+        Snapshots.load(merged, loaded);
+        assertEquals(stats(3, 30, 5, "apple", 1, "banana", 5, "kiwi", 3).wordCount, loaded.wordCount);
+        assertEquals(3, loaded.numberOfFiles);
+        assertEquals(30, loaded.characterCount.get());
+        assertEquals(5, loaded.lineCount.get());
+    }
+
+    /**
+     * tests that the writer rejects words out of order and the reader rejects other files
+     * @throws IOException if a file cannot be written
+     */
+    @Test
+    void testInvalidInputIsRejected() throws IOException {
+        File file = snapshotFile();
+        try (SnapshotWriter writer = new SnapshotWriter(file, 0, 0, 0)) {
+            byte[] word = "pear".getBytes(StandardCharsets.UTF_8);
+            writer.write(word, word.length, 1);
+            byte[] earlier = "apple".getBytes(StandardCharsets.UTF_8);
+            assertThrows(IllegalArgumentException.class, () -> writer.write(earlier, earlier.length, 1));
+            assertThrows(IllegalArgumentException.class, () -> writer.write(word, word.length, 1));
+        }
+
+        File other = snapshotFile();
+        Files.writeString(other.toPath(), "not a snapshot");
+        assertThrows(IOException.class, () -> new SnapshotReader(other));
+
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 2));
+        try (SnapshotReader reader = new SnapshotReader(file)) {
+            assertTrue(reader.next());
+            assertThrows(IOException.class, reader::next);
+        }
+    }
+
+    /**
+     * tests that loading a snapshot cut short fails without merging the words before the damage
+     * @throws IOException if the snapshot cannot be written
+     */
+    @Test
+    void testDamagedSnapshotLeavesStatsAlone() throws IOException {
+        ConcurrentHashMap<String, Integer> words = new ConcurrentHashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            words.put("word" + i, i + 1);
+        }
+        File file = snapshotFile();
+        Snapshots.save(new FileStats(words, new AtomicLong(10), new AtomicLong(2)), file);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 100));
+
+        FileStats loaded = stats(1, 5, 1, "word0", 7);
+        assertThrows(IOException.class, () -> Snapshots.verify(file));
+        assertThrows(IOException.class, () -> Snapshots.load(file, loaded));
+        assertEquals(1, loaded.wordCount.size());
+        assertEquals(7, loaded.wordCount.get("word0"));
+        assertEquals(1, loaded.numberOfFiles);
+        assertEquals(5, loaded.characterCount.get());
+    }
+
+    /**
+     * tests that the snapshot is much smaller than the words written out as text
+     * @throws IOException if the snapshot cannot be written
+     */
+    @Test
+    void testPrefixCompression() throws IOException {
+        ConcurrentHashMap<String, Integer> words = new ConcurrentHashMap<>();
+        long textBytes = 0;
+        for (int i = 0; i < 10000; i++) {
+            String word = "prefix" + i;
+            words.put(word, i);
+            textBytes += word.length() + 1 + String.valueOf(i).length() + 1;
+        }
+        File file = snapshotFile();
+        Snapshots.save(new FileStats(words, new AtomicLong(0), new AtomicLong(0)), file);
+        assertTrue(file.length() < textBytes / 2, file.length() + " bytes");
+
+        try (SnapshotReader reader = new SnapshotReader(file)) {
+            int read = 0;
+            while (reader.next()) {
+                assertEquals(words.get(reader.wordString()).longValue(), reader.count());
+                read++;
+            }
+            assertEquals(words.size(), read);
+            assertFalse(reader.next());
+        }
+    }
+
+    /**
+     * tests that a store that has spilled to disk is saved straight from its runs, in order and with every count
+     * @throws IOException if the snapshot cannot be written
+     */
+    @Test
+    void testSaveSpilledStore() throws IOException {
+        SpillingWordCounts store = new SpillingWordCounts(64 * 1024, null);
+        try {
+            for (int round = 0; round < 2; round++) {
+                WordTable table = new WordTable();
+                for (int i = round * 10000; i < 30000 + round * 10000; i++) {
+                    String text = (i % 7 == 0 ? "\u00e9" : "w") + i;
+                    byte[] word = text.getBytes(StandardCharsets.UTF_8);
+                    table.add(word, 0, word.length, i % 5 + 1);
+                }
+                store.merge(table);
+            }
+            assertTrue(store.spills() > 0);
+            FileStats stats = new FileStats(store, new AtomicLong(0), new AtomicLong(0));
+            File file = snapshotFile();
+            Snapshots.save(stats, file);
+
+            try (SnapshotReader reader = new SnapshotReader(file)) {
+                int read = 0;
+                while (reader.next()) {
+                    int i = Integer.parseInt(reader.wordString().substring(1));
+                    assertEquals((i % 5 + 1) * (i >= 10000 && i < 30000 ? 2 : 1), reader.count());
+                    read++;
+                }
+                assertEquals(40000, read);
+            }
+        } finally {
+            store.close();
+        }
+    }
+
+    /**
+     * creates a temporary file deleted after the test
+     */
+    private File snapshotFile() throws IOException {
+        File file = File.createTempFile("snapshottest", ".snap");
+        snapshotFiles.add(file);
+        return file;
+    }
+
+    /**
+     * builds statistics from totals and alternating words and counts
+     */
+    private static FileStats stats(int files, int characters, int lines, Object... wordsAndCounts) {
+        ConcurrentHashMap<String, Integer> words = new ConcurrentHashMap<>();
+        for (int i = 0; i < wordsAndCounts.length; i += 2) {
+            words.put((String) wordsAndCounts[i], (Integer) wordsAndCounts[i + 1]);
+        }
+        FileStats fileStats = new FileStats(words, new AtomicLong(characters), new AtomicLong(lines));
+        fileStats.numberOfFiles = files;
+        return fileStats;
+    }
+}
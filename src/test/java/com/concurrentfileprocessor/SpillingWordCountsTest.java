@@ -0,0 +1,183 @@
+package com.concurrentfileprocessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.fileStats;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.inputFiles;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.settings;
+import com.concurrentfileprocessor.counts.SpillingWordCounts;
+import com.concurrentfileprocessor.processor.OutputWriter;
+import com.concurrentfileprocessor.processor.ThreadDelegator;
+import com.concurrentfileprocessor.processor.WordTable;
+
+/**
+ * test class for SpillingWordCounts.java file
+ */
+class SpillingWordCountsTest {
+    // budget small enough that every test spills many times
+    private static final long BUDGET = 512 * 1024;
+
+    private File tempDir;
+
+    /**
+     * sets up test environment before each test
+     * @throws IOException if the directory cannot be created
+     */
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("spilltest").toFile();
+    }
+
+    /**
+     * cleans up test environment after each test
+     */
+    @AfterEach
+    @SuppressWarnings("unused")
+    void tearDown() {
+        for (File file : tempDir.listFiles()) {
+            file.delete();
+        }
+        tempDir.delete();
+        settings = new ProcessorSettings();
+    }
+
+    /**
+     * tests that counts stay exact when the words spill many times over and shared words are split across runs
+     */
+    @Test
+    void testExactCountsAfterSpilling() {
+        Map<String, Long> expected = new HashMap<>();
+        try (SpillingWordCounts counts = new SpillingWordCounts(BUDGET, tempDir)) {
+            for (int batch = 0; batch < 20; batch++) {
+                WordTable words = new WordTable();
+                for (int i = 0; i < 10_000; i++) {
+                    add(words, word(batch * 10_000 + i), 1, expected);
+                    add(words, word(i % 500), 2, expected);
+                }
+                counts.merge(words);
+            }
+
+            assertTrue(counts.spills() > 10, "spills " + counts.spills());
+            Map<String, Long> actual = new HashMap<>();
+            counts.forEach((word, count) -> assertNull(actual.put(word, count), word));
+            assertEquals(expected, actual);
+            assertEquals(expected.size(), counts.size());
+            assertEquals(expected.get(word(7)), counts.get(word(7)));
+            assertEquals(expected.get(word(123_456)), counts.get(word(123_456)));
+            assertEquals(0, counts.get("missing"));
+        }
+        assertEquals(0, tempDir.listFiles().length);
+    }
+
+    /**
+     * tests that a partition spilled many more times than the runs it keeps merges them and stays exact,
+     * and that the live estimate of the distinct words stays close to the exact count
+     */
+    @Test
+    void testRunsMergedPastLimit() {
+        Map<String, Long> expected = new HashMap<>();
+        try (SpillingWordCounts counts = new SpillingWordCounts(16 * 1024, tempDir)) {
+            for (int batch = 0; batch < 200; batch++) {
+                WordTable words = new WordTable();
+                for (int i = 0; i < 1_000; i++) {
+                    add(words, word(batch * 1_000 + i), 1, expected);
+                    add(words, word(i % 300), 1, expected);
+                }
+                counts.merge(words);
+            }
+
+            assertTrue(counts.spills() > 2 * 16 * 16, "spills " + counts.spills());
+            File[] directories = tempDir.listFiles();
+            assertEquals(1, directories.length);
+            assertTrue(directories[0].listFiles().length <= 16 * 16, directories[0].listFiles().length + " runs");
+            int estimate = counts.sizeEstimate();
+            assertTrue(Math.abs(estimate - expected.size()) < expected.size() / 20, "estimate " + estimate);
+
+            Map<String, Long> actual = new HashMap<>();
+            counts.forEach((word, count) -> assertNull(actual.put(word, count), word));
+            assertEquals(expected, actual);
+            assertEquals(expected.size(), counts.size());
+            assertEquals(expected.size(), counts.sizeEstimate());
+            assertEquals(expected.get(word(42)), counts.get(word(42)));
+        }
+        assertEquals(0, tempDir.listFiles().length);
+    }
+
+    /**
+     * tests a whole run whose vocabulary is many times the budget against the same run counted on the heap
+     * @throws IOException if the files cannot be written or read
+     */
+    @Test
+    void testRunLargerThanBudget() throws IOException {
+        inputFiles = new ArrayList<>();
+        for (int file = 0; file < 10; file++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < 30_000; i++) {
+                text.append(word(file * 30_000 + i)).append(' ').append(word(i % 100)).append('\n');
+            }
+            File input = new File(tempDir, "input" + file + ".txt");
+            Files.writeString(input.toPath(), text);
+            inputFiles.add(input);
+        }
+
+        fileStats = FileStats.create(settings);
+        ThreadDelegator.delegateTasks();
+        Map<String, Long> expected = new HashMap<>();
+        fileStats.wordCount.forEach(expected::put);
+
+        settings.wordStore = ProcessorSettings.WordStore.SPILL;
+        settings.spillBudgetMb = 1;
+        settings.spillDirectory = tempDir.getPath();
+        fileStats = FileStats.create(settings);
+        ThreadDelegator.delegateTasks();
+        assertTrue(((SpillingWordCounts) fileStats.wordCount).spills() > 0);
+        OutputWriter.outputStatsToFile(tempDir.getPath(), "output.txt", fileStats);
+
+        List<String> lines = Files.readAllLines(new File(tempDir, "output.txt").toPath(), StandardCharsets.UTF_8);
+        assertEquals("Total word count: " + expected.size(), lines.get(3));
+        Map<String, Long> actual = new HashMap<>();
+        for (String line : lines.subList(4, lines.size())) {
+            int separator = line.indexOf(": ");
+            actual.put(line.substring(0, separator), Long.parseLong(line.substring(separator + 2)));
+        }
+        assertEquals(300_000, expected.size());
+        assertEquals(expected, actual);
+        fileStats.wordCount.close();
+    }
+
+    /**
+     * @return a distinct lower case word for each number
+     */
+    private static String word(int number) {
+        StringBuilder word = new StringBuilder("w");
+        do {
+            word.append((char) ('a' + number % 26));
+            number /= 26;
+        } while (number > 0);
+        return word.toString();
+    }
+
+    /**
+     * adds a word to a table and to the expected counts
+     */
+    private static void add(WordTable words, String word, long count, Map<String, Long> expected) {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        words.add(bytes, 0, bytes.length, count);
+        expected.merge(word, count, Long::sum);
+    }
+}
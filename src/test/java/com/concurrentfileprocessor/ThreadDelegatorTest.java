@@ -6,7 +6,7 @@ import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.jupiter.api.AfterEach;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -15,6 +15,11 @@ import org.junit.jupiter.api.Test;
 
 import static com.concurrentfileprocessor.ConcurrentFileProcessor.fileStats;
 import static com.concurrentfileprocessor.ConcurrentFileProcessor.inputFiles;
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.settings;
+import com.concurrentfileprocessor.counts.WordCounts;
+import com.concurrentfileprocessor.processor.FileDiscovery;
+import com.concurrentfileprocessor.processor.FileMetricsCollector;
+import com.concurrentfileprocessor.processor.LoadReport;
 import com.concurrentfileprocessor.processor.ThreadDelegator;
 
 /**
@@ -47,7 +52,7 @@ class ThreadDelegatorTest {
         
         // initialize global state for testing
         inputFiles = tempFiles;
-        fileStats = new FileStats(new ConcurrentHashMap<>(), new AtomicInteger(0), new AtomicInteger(0));
+        fileStats = new FileStats(new ConcurrentHashMap<>(), new AtomicLong(0), new AtomicLong(0));
     }
 
     /**
@@ -60,6 +65,9 @@ class ThreadDelegatorTest {
         for (File file : tempFiles) {
             if (file.exists()) file.delete();
         }
+
+        // restore default settings
+        settings = new ProcessorSettings();
     }
 
     /**
@@ -71,10 +79,97 @@ class ThreadDelegatorTest {
         ThreadDelegator.delegateTasks();
         
         // verify word counts from concurrent processing
-        ConcurrentHashMap<String, Integer> wordCount = fileStats.wordCount;
+        WordCounts wordCount = fileStats.wordCount;
         assertEquals(3, wordCount.size());
         assertEquals(3, wordCount.get("apple"));
         assertEquals(2, wordCount.get("banana"));
         assertEquals(1, wordCount.get("orange"));
     }
-} 
+
+    /**
+     * tests that splitting a file into chunks gives the same totals as processing it whole
+     * @throws IOException if file creation fails
+     */
+    @Test
+    void testChunkedFileMatchesSequentialProcessing() throws IOException {
+        // create a file with many short lines and mixed line endings
+        File largeFile = File.createTempFile("threadtestlarge", ".txt");
+        tempFiles.add(largeFile);
+        try (PrintWriter out = new PrintWriter(largeFile)) {
+            for (int i = 0; i < 500; i++) {
+                out.print("Line " + i + " apple, banana;\tcherry" + (i % 3 == 0 ? "\r\n" : "\n"));
+            }
+            out.print("last line without newline");
+        }
+        inputFiles = List.of(largeFile);
+
+        // process sequentially for the expected totals
+        FileStats expected = new FileStats(new ConcurrentHashMap<>(), new AtomicLong(0), new AtomicLong(0));
+        FileMetricsCollector.countFileComponents(largeFile, expected);
+
+        // process in chunks of a few lines each
+        settings.chunkSize = 100;
+        ThreadDelegator.delegateTasks();
+
+        // verify the chunked totals match
+        assertEquals(expected.wordCount, fileStats.wordCount);
+        assertEquals(expected.characterCount.get(), fileStats.characterCount.get());
+        assertEquals(expected.lineCount.get(), fileStats.lineCount.get());
+        assertEquals(501, fileStats.lineCount.get());
+    }
+
+    /**
+     * tests that one virtual thread per file gives the same counts, falling back to the pool on older runtimes
+     */
+    @Test
+    void testVirtualThreadExecutorCountsWords() {
+        settings.executor = ProcessorSettings.ExecutorStrategy.VIRTUAL;
+        settings.maxOpenFiles = 1;
+        ThreadDelegator.delegateTasks();
+
+        WordCounts wordCount = fileStats.wordCount;
+        assertEquals(3, wordCount.size());
+        assertEquals(3, wordCount.get("apple"));
+        assertEquals(2, wordCount.get("banana"));
+        assertEquals(1, wordCount.get("orange"));
+        assertEquals(2, fileStats.lineCount.get());
+    }
+
+    /**
+     * tests that the load report accounts for every byte of every file
+     */
+    @Test
+    void testLoadReportCoversAllFiles() {
+        LoadReport loadReport = ThreadDelegator.delegateTasks();
+
+        long totalBytes = 0;
+        for (File file : tempFiles) {
+            totalBytes += file.length();
+        }
+        long plannedBytes = 0;
+        for (long bytes : loadReport.plannedBytes) {
+            plannedBytes += bytes;
+        }
+        long actualBytes = 0;
+        for (long[] load : loadReport.actualLoads()) {
+            actualBytes += load[0];
+        }
+        assertEquals(totalBytes, plannedBytes);
+        assertEquals(totalBytes, actualBytes);
+    }
+
+    /**
+     * tests processing files as a directory walk finds them
+     */
+    @Test
+    void testDelegateDiscoveredTasks() {
+        File directory = tempFiles.get(0).getParentFile();
+        String include = tempFiles.get(0).getName() + "," + tempFiles.get(1).getName();
+        int found = ThreadDelegator.delegateDiscoveredTasks(new FileDiscovery(directory, false, include, ""));
+
+        assertEquals(2, found);
+        assertEquals(2, fileStats.numberOfFiles);
+        assertEquals(3, fileStats.wordCount.get("apple"));
+        assertEquals(1, fileStats.wordCount.get("orange"));
+    }
+}
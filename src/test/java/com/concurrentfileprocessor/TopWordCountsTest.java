@@ -0,0 +1,173 @@
+package com.concurrentfileprocessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static com.concurrentfileprocessor.ConcurrentFileProcessor.settings;
+import com.concurrentfileprocessor.counts.TopWordCounts;
+import com.concurrentfileprocessor.processor.FileMetricsCollector;
+import com.concurrentfileprocessor.processor.WordTable;
+
+/**
+ * test class for TopWordCounts.java file
+ */
+class TopWordCountsTest {
+    // store under test
+    private TopWordCounts counts;
+
+    /**
+     * sets up test environment before each test
+     */
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() {
+        counts = new TopWordCounts(3);
+    }
+
+    /**
+     * cleans up test environment after each test
+     */
+    @AfterEach
+    @SuppressWarnings("unused")
+    void tearDown() {
+        settings = new ProcessorSettings();
+    }
+
+    /**
+     * tests that counts are exact while there are free counters
+     */
+    @Test
+    void testExactBelowCapacity() {
+        counts.merge(table("apple", "banana", "apple"));
+        counts.merge(table("banana", "apple"));
+
+        assertEquals(2, counts.size());
+        assertEquals(3, counts.get("apple"));
+        assertEquals(2, counts.get("banana"));
+        assertEquals(0, counts.maxError());
+        assertFalse(counts.isExact());
+    }
+
+    /**
+     * tests that a new word takes over the lowest counter and inherits its count as error
+     */
+    @Test
+    void testLowestCounterIsReplaced() {
+        counts.merge(table("a", "a", "a", "a", "b", "b", "b", "c", "c"));
+        counts.merge(table("d"));
+
+        assertEquals(3, counts.size());
+        assertEquals(0, counts.get("c"));
+        assertEquals(3, counts.get("d"));
+        assertEquals(2, counts.error("d"));
+        assertEquals(4, counts.get("a"));
+        assertEquals(3, counts.maxError());
+        assertEquals(10, counts.total());
+    }
+
+    /**
+     * tests the Space-Saving guarantees on a skewed stream with far more distinct words than counters
+     */
+    @Test
+    void testErrorBoundsOnSkewedStream() {
+        TopWordCounts top = new TopWordCounts(100);
+        Random random = new Random(42);
+        long[] trueCounts = new long[5];
+        WordTable table = new WordTable();
+        for (int i = 0; i < 200_000; i++) {
+            String word;
+            if (random.nextInt(2) == 0) {
+                int frequent = random.nextInt(5);
+                trueCounts[frequent]++;
+                word = "frequent" + frequent;
+            } else {
+                word = "noise" + random.nextInt(1_000_000);
+            }
+            byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+            table.add(bytes, 0, bytes.length, 1);
+            if (table.size() == 100) {
+                top.merge(table);
+                table.clear();
+            }
+        }
+        top.merge(table);
+
+        assertEquals(100, top.size());
+        assertEquals(200_000, top.total());
+        assertTrue(top.maxError() <= top.total() / 100);
+        for (int i = 0; i < trueCounts.length; i++) {
+            long estimate = top.get("frequent" + i);
+            assertTrue(estimate >= trueCounts[i]);
+            assertTrue(estimate - top.error("frequent" + i) <= trueCounts[i]);
+            assertTrue(estimate - trueCounts[i] <= top.maxError());
+        }
+    }
+
+    /**
+     * tests that a file with more distinct words than the store holds keeps memory flat and the frequent words
+     * @throws IOException if the file cannot be written
+     */
+    @Test
+    void testCollectorFlushesLargeVocabulary() throws IOException {
+        settings.wordStore = ProcessorSettings.WordStore.TOP_WORDS;
+        settings.topWords = 50;
+        FileStats fileStats = FileStats.create(settings);
+
+        File file = File.createTempFile("topwordstest", ".txt");
+        try (PrintWriter out = new PrintWriter(file)) {
+            for (int i = 0; i < 5000; i++) {
+                out.println("common id" + letters(i) + " common");
+            }
+        }
+        AtomicInteger merges = new AtomicInteger();
+        FileStats counted = new FileStats(fileStats.wordCount, fileStats.characterCount, fileStats.lineCount) {
+            @Override
+            public void merge(WordTable words, long characters, long lines) {
+                assertTrue(words.size() <= 50);
+                merges.incrementAndGet();
+                super.merge(words, characters, lines);
+            }
+        };
+        FileMetricsCollector.countFileComponents(file, counted);
+        file.delete();
+
+        assertTrue(merges.get() > 1);
+        assertEquals(50, fileStats.wordCount.size());
+        assertTrue(fileStats.wordCount.get("common") >= 10000);
+        assertEquals(5000, fileStats.lineCount.get());
+    }
+
+    /**
+     * spells a number with letters, since the tokenizer splits words at digits
+     */
+    private static String letters(int number) {
+        StringBuilder word = new StringBuilder();
+        for (char digit : Integer.toString(number).toCharArray()) {
+            word.append((char) ('a' + digit - '0'));
+        }
+        return word.toString();
+    }
+
+    /**
+     * builds a table from a list of words
+     */
+    private static WordTable table(String... words) {
+        WordTable table = new WordTable();
+        for (String word : words) {
+            byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+            table.add(bytes, 0, bytes.length, 1);
+        }
+        return table;
+    }
+}
@@ -7,7 +7,7 @@ import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.jupiter.api.AfterEach;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -53,7 +53,7 @@ class WordCountProcessorTest {
         
         // initialize global state for testing
         inputFiles = tempFiles;
-        fileStats = new FileStats(new ConcurrentHashMap<>(), new AtomicInteger(0), new AtomicInteger(0));
+        fileStats = new FileStats(new ConcurrentHashMap<>(), new AtomicLong(0), new AtomicLong(0));
         outputFile = File.createTempFile("output", ".txt");
         outputFilePath = outputFile.getParent();
         outputFilename = "test_output_file.txt";
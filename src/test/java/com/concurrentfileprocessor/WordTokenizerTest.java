@@ -0,0 +1,317 @@
+package com.concurrentfileprocessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.concurrentfileprocessor.processor.FileMetricsCollector;
+import com.concurrentfileprocessor.processor.WordTokenizer;
+
+/**
+ * test class for WordTokenizer.java file
+ */
+class WordTokenizerTest {
+    // pieces used to build random input, covering every kind of byte the tokenizer treats specially
+    private static final String[] PIECES = {
+        "Hello", "world", "THE", "a", "don't", "e-mail", "x2y", "42", "!?", "caf\u00e9", "na\u00efve",
+        "\u2019", "\u4e2d\u6587", " ", "  ", "\t", "\u000B", "\f", "\n", "\r", "\r\n", "\n\n",
+        "\u0085", "\u2028", "\u2029", "\u0130stanbul", "\u212Aelvin", "\u00c4", "\u20ac", "\u00a0", "\u001c",
+        "e\u0301", "\u0301", "\u3000", "Stra\u00dfe", "\u039f\u0394\u039f\u03a3", "\u03c2", "\ud83d\ude00",
+        "\u0661\u0662", "\ud801\udc00", "\u65e5\u672c\u8a9e", "\u3002", "\u2014", "\u00ab", "\u00bb", "\u00bf",
+        "\u201c", "\u30fb", "\uff0c", "\u00b7"
+    };
+
+    // temporary test file
+    private File tempFile;
+
+    /**
+     * sets up test environment before each test
+     * @throws IOException if file creation fails
+     */
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() throws IOException {
+        tempFile = File.createTempFile("tokenizertest", ".txt");
+    }
+
+    /**
+     * cleans up test environment after each test
+     */
+    @AfterEach
+    @SuppressWarnings("unused")
+    void tearDown() {
+        if (tempFile != null && tempFile.exists()) {
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * tests line counting for the different line endings
+     */
+    @Test
+    void testLineCounting() {
+        assertEquals(0, tokenize("").lineCount());
+        assertEquals(1, tokenize("one").lineCount());
+        assertEquals(1, tokenize("one\n").lineCount());
+        assertEquals(2, tokenize("one\r\ntwo").lineCount());
+        assertEquals(3, tokenize("one\r\rthree\n").lineCount());
+        assertEquals(3, tokenize("one\u2028two\u0085three").lineCount());
+        assertEquals(2, tokenize("\n\n").lineCount());
+    }
+
+    /**
+     * tests that words are lowercased, filtered and split only on whitespace
+     */
+    @Test
+    void testWordFiltering() {
+        ConcurrentHashMap<String, Integer> words = new ConcurrentHashMap<>();
+        WordTokenizer tokenizer = tokenize("Don't e-MAIL caf\u00e9\tx2y 42 \u0130t", words);
+
+        assertEquals(5, words.size());
+        assertEquals(1, words.get("dont"));
+        assertEquals(1, words.get("email"));
+        assertEquals(1, words.get("caf\u00e9"));
+        assertEquals(1, words.get("xy"));
+        assertEquals(1, words.get("it"));
+        assertEquals(17, tokenizer.characterCount());
+    }
+
+    /**
+     * tests that letters of every script are kept and case folded, and Unicode spaces split words
+     */
+    @Test
+    void testUnicodeLetters() {
+        ConcurrentHashMap<String, Integer> words = new ConcurrentHashMap<>();
+        WordTokenizer tokenizer = tokenize("\u65e5\u672c\u8a9e\u3000\u039f\u0394\u039f\u03a3 \u03bf\u03b4\u03bf\u03c2"
+            + "\u00a0CAF\u00c9 cafe\u0301 \u0301x \ud83d\ude00ok \ud801\udc00", words);
+
+        assertEquals(7, words.size());
+        assertEquals(1, words.get("\u65e5\u672c\u8a9e"));
+        assertEquals(2, words.get("\u03bf\u03b4\u03bf\u03c3"));
+        assertEquals(1, words.get("caf\u00e9"));
+        assertEquals(1, words.get("cafe\u0301"));
+        assertEquals(1, words.get("x"));
+        assertEquals(1, words.get("ok"));
+        assertEquals(1, words.get("\ud801\udc28"));
+        assertEquals(3 + 4 + 4 + 4 + 5 + 1 + 2 + 1, tokenizer.characterCount());
+    }
+
+    /**
+     * tests that punctuation outside ASCII splits words, while the typographic apostrophe is dropped like
+     * the ASCII one
+     */
+    @Test
+    void testUnicodePunctuation() {
+        ConcurrentHashMap<String, Integer> words = new ConcurrentHashMap<>();
+        WordTokenizer tokenizer = tokenize("\u4e2d\u6587\u3002\u65e5\u672c word\u2014word \u00abbonjour\u00bb"
+            + " don\u2019t don't \u00bfqu\u00e9?", words);
+
+        assertEquals(Map.of("\u4e2d\u6587", 1, "\u65e5\u672c", 1, "word", 2, "bonjour", 1, "dont", 2, "qu\u00e9", 1),
+            words);
+        assertEquals(8, tokenizer.wordCount());
+    }
+
+    /**
+     * tests that malformed UTF-8 is dropped like a replacement character without losing the bytes after it
+     */
+    @Test
+    void testMalformedInput() {
+        ConcurrentHashMap<String, Integer> words = new ConcurrentHashMap<>();
+        WordTokenizer tokenizer = new WordTokenizer((word, length, hash) ->
+            words.merge(new String(word, 0, length, StandardCharsets.UTF_8), 1, Integer::sum));
+        byte[] bytes = {'a', (byte) 0xC3, 'b', ' ', (byte) 0x80, 'c', ' ', (byte) 0xC0, (byte) 0xAF, 'd', ' ',
+            (byte) 0xED, (byte) 0xA0, (byte) 0x80, 'e', ' ', (byte) 0xE6, (byte) 0x97};
+        tokenizer.feed(bytes, 0, bytes.length);
+        tokenizer.finish();
+
+        assertEquals(Map.of("ab", 1, "c", 1, "d", 1, "e", 1), words);
+        assertEquals(1, tokenizer.lineCount());
+    }
+
+    /**
+     * tests that a multi-byte character split across two buffers is decoded once
+     */
+    @Test
+    void testCharacterAcrossBuffers() {
+        ConcurrentHashMap<String, Integer> words = new ConcurrentHashMap<>();
+        WordTokenizer tokenizer = new WordTokenizer((word, length, hash) ->
+            words.merge(new String(word, 0, length, StandardCharsets.UTF_8), 1, Integer::sum));
+        byte[] bytes = "\u65e5\u672c caf\u00c9".getBytes(StandardCharsets.UTF_8);
+        for (byte b : bytes) {
+            tokenizer.feed(new byte[] {b}, 0, 1);
+        }
+        tokenizer.finish();
+
+        assertEquals(Map.of("\u65e5\u672c", 1, "caf\u00e9", 1), words);
+        assertEquals(6, tokenizer.characterCount());
+    }
+
+    /**
+     * tests decoding a single byte charset and rejecting charsets that do not extend ASCII
+     */
+    @Test
+    void testSingleByteCharset() {
+        ConcurrentHashMap<String, Integer> words = new ConcurrentHashMap<>();
+        WordTokenizer tokenizer = new WordTokenizer((word, length, hash) ->
+            words.merge(new String(word, 0, length, StandardCharsets.UTF_8), 1, Integer::sum),
+            Charset.forName("windows-1251"));
+        byte[] bytes = "\u041c\u0438\u0440 mir\u00a0\u041c\u0418\u0420".getBytes(Charset.forName("windows-1251"));
+        tokenizer.feed(bytes, 0, bytes.length);
+        tokenizer.finish();
+
+        assertEquals(Map.of("\u043c\u0438\u0440", 2, "mir", 1), words);
+        assertTrue(WordTokenizer.isSupported(StandardCharsets.ISO_8859_1));
+        assertFalse(WordTokenizer.isSupported(StandardCharsets.UTF_16));
+        assertFalse(WordTokenizer.isSupported(Charset.forName("Shift_JIS")));
+    }
+
+    /**
+     * tests that a word split across two buffers is still counted once
+     */
+    @Test
+    void testWordAcrossBuffers() {
+        ConcurrentHashMap<String, Integer> words = new ConcurrentHashMap<>();
+        WordTokenizer tokenizer = new WordTokenizer((word, length, hash) ->
+            words.merge(new String(word, 0, length, StandardCharsets.UTF_8), 1, Integer::sum));
+        byte[] first = "hel".getBytes(StandardCharsets.UTF_8);
+        byte[] second = "lo\r".getBytes(StandardCharsets.UTF_8);
+        byte[] third = "\nthere".getBytes(StandardCharsets.UTF_8);
+        tokenizer.feed(first, 0, first.length);
+        tokenizer.feed(second, 0, second.length);
+        tokenizer.feed(third, 0, third.length);
+        tokenizer.finish();
+
+        assertEquals(1, words.get("hello"));
+        assertEquals(1, words.get("there"));
+        assertEquals(2, tokenizer.lineCount());
+    }
+
+    /**
+     * tests that a word past the longest word kept is passed on cut short with all its letters counted,
+     * and that the rest of such a word fed to another tokenizer is counted without being passed on again
+     */
+    @Test
+    void testLongWordCut() {
+        ConcurrentHashMap<String, Integer> words = new ConcurrentHashMap<>();
+        WordTokenizer tokenizer = new WordTokenizer((word, length, hash) ->
+            words.merge(new String(word, 0, length, StandardCharsets.UTF_8), 1, Integer::sum));
+        String text = "x" + "\u00e9".repeat(WordTokenizer.MAX_WORD_BYTES) + " end";
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        tokenizer.feed(bytes, 0, bytes.length);
+        tokenizer.finish();
+
+        // the cap falls inside a two byte letter, which is left out whole
+        String kept = "x" + "\u00e9".repeat(WordTokenizer.MAX_WORD_BYTES / 2 - 1);
+        assertEquals(Map.of(kept, 1, "end", 1), words);
+        assertEquals(1 + WordTokenizer.MAX_WORD_BYTES + 3, tokenizer.characterCount());
+        assertEquals(2, tokenizer.wordCount());
+
+        WordTokenizer rest = new WordTokenizer((word, length, hash) ->
+            words.merge(new String(word, 0, length, StandardCharsets.UTF_8), 1, Integer::sum));
+        rest.continueWord();
+        byte[] tail = "ing\u0301 more".getBytes(StandardCharsets.UTF_8);
+        rest.feed(tail, 0, tail.length);
+        rest.finish();
+
+        assertEquals(Map.of(kept, 1, "end", 1, "more", 1), words);
+        assertEquals(8, rest.characterCount());
+        assertEquals(1, rest.wordCount());
+    }
+
+    /**
+     * tests that countFileComponents matches a Scanner based reference implementation on random input
+     * @throws IOException if the test file cannot be written
+     */
+    @Test
+    void testMatchesScannerImplementation() throws IOException {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            StringBuilder content = new StringBuilder();
+            int pieces = random.nextInt(60);
+            for (int i = 0; i < pieces; i++) {
+                content.append(PIECES[random.nextInt(PIECES.length)]);
+            }
+            Files.writeString(tempFile.toPath(), content, StandardCharsets.UTF_8);
+
+            ConcurrentHashMap<String, Integer> expectedWords = new ConcurrentHashMap<>();
+            FileStats expected = new FileStats(expectedWords, new AtomicLong(0), new AtomicLong(0));
+            countWithScanner(tempFile, expectedWords, expected);
+            FileStats actual = new FileStats(new ConcurrentHashMap<>(), new AtomicLong(0), new AtomicLong(0));
+            FileMetricsCollector.countFileComponents(tempFile, actual);
+
+            String message = "input: " + content;
+            assertEquals(expected.wordCount, actual.wordCount, message);
+            assertEquals(expected.characterCount.get(), actual.characterCount.get(), message);
+            assertEquals(expected.lineCount.get(), actual.lineCount.get(), message);
+        }
+    }
+
+    /**
+     * tokenizes a string in one go
+     */
+    private static WordTokenizer tokenize(String content) {
+        return tokenize(content, new ConcurrentHashMap<>());
+    }
+
+    /**
+     * tokenizes a string in one go, collecting words into the given map
+     */
+    private static WordTokenizer tokenize(String content, ConcurrentHashMap<String, Integer> words) {
+        WordTokenizer tokenizer = new WordTokenizer((word, length, hash) ->
+            words.merge(new String(word, 0, length, StandardCharsets.UTF_8), 1, Integer::sum));
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        tokenizer.feed(bytes, 0, bytes.length);
+        tokenizer.finish();
+        return tokenizer;
+    }
+
+    /**
+     * the original Scanner + split implementation with the word filter made Unicode aware, kept as the reference
+     * words split on whitespace, Unicode spaces and punctuation outside ASCII other than U+2019,
+     * letters are case folded, marks kept after a letter
+     */
+    private static void countWithScanner(File file, ConcurrentHashMap<String, Integer> wordCount, FileStats fileStats)
+            throws IOException {
+        try (Scanner scanner = new Scanner(file, StandardCharsets.UTF_8)) {
+            int fileLineCount = 0;
+            while (scanner.hasNextLine()) {
+                String line = scanner.nextLine();
+                fileLineCount++;
+
+                String[] words = line.split("[\\s\\p{Z}[\\p{P}&&[^\\x00-\\x7F\u2019]]]+");
+                for (String word : words) {
+                    StringBuilder cleanWord = new StringBuilder();
+                    word.codePoints().forEach(c -> {
+                        if (Character.isLetter(c)) {
+                            cleanWord.appendCodePoint(Character.toLowerCase(Character.toUpperCase(c)));
+                        } else if (cleanWord.length() > 0 && (Character.getType(c) == Character.NON_SPACING_MARK
+                                || Character.getType(c) == Character.COMBINING_SPACING_MARK
+                                || Character.getType(c) == Character.ENCLOSING_MARK)) {
+                            cleanWord.appendCodePoint(c);
+                        }
+                    });
+                    if (cleanWord.length() > 0) {
+                        String clean = cleanWord.toString();
+                        wordCount.merge(clean, 1, Integer::sum);
+                        fileStats.characterCount.addAndGet(clean.codePointCount(0, clean.length()));
+                    }
+                }
+            }
+            fileStats.lineCount.addAndGet(fileLineCount);
+        }
+    }
+}
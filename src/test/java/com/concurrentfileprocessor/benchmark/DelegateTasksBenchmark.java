@@ -0,0 +1,113 @@
+package com.concurrentfileprocessor.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.concurrentfileprocessor.ConcurrentFileProcessor;
+import com.concurrentfileprocessor.FileStats;
+import com.concurrentfileprocessor.ProcessorSettings;
+import com.concurrentfileprocessor.processor.ThreadDelegator;
+
+/**
+ * measures a whole ThreadDelegator.delegateTasks run on files written to disk, reading, tokenizing and merging
+ * the files are read from the page cache after the first iteration, so this measures the CPU side of a run
+ * each operation processes every file, so fileCount x fileSize divided by the score gives MB/s
+ * run with: mvn test-compile exec:exec@benchmarks -Djmh.args="DelegateTasks -p threads=1,2,4 -p fileSize=1048576"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DelegateTasksBenchmark {
+    // worker threads in the pool
+    @Param({"1", "2", "4"})
+    public int threads;
+
+    // number of bytes in each file
+    @Param({"65536", "4194304"})
+    public int fileSize;
+
+    // number of files processed by each operation
+    @Param({"32"})
+    public int fileCount;
+
+    // number of distinct words in each file
+    @Param({"1000", "100000"})
+    public int vocabularySize;
+
+    // where word counts are kept
+    @Param({"heap"})
+    public String wordStore;
+
+    private Path root;
+    private List<File> files;
+
+    /**
+     * writes the files and applies the settings
+     * @throws IOException if a file cannot be written
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("delegatebench");
+        files = new ArrayList<>();
+        for (int i = 0; i < fileCount; i++) {
+            Path file = root.resolve("file" + i + ".txt");
+            Files.write(file, SyntheticCorpus.generate(fileSize, vocabularySize, i));
+            files.add(file.toFile());
+        }
+
+        ProcessorSettings settings = new ProcessorSettings();
+        settings.threads = threads;
+        settings.wordStore = ProcessorSettings.WordStore.valueOf(wordStore.toUpperCase().replace('-', '_'));
+        ConcurrentFileProcessor.settings = settings;
+        ConcurrentFileProcessor.inputFiles = files;
+    }
+
+    /**
+     * deletes the files
+     * @throws IOException if a file cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        for (File file : files) {
+            Files.deleteIfExists(file.toPath());
+        }
+        Files.deleteIfExists(root);
+        ConcurrentFileProcessor.settings = new ProcessorSettings();
+    }
+
+    /**
+     * processes every file into fresh statistics
+     * @param blackhole consumes the results so the work is not optimised away
+     */
+    @Benchmark
+    public void delegateTasks(Blackhole blackhole) {
+        FileStats fileStats = FileStats.create(ConcurrentFileProcessor.settings);
+        ConcurrentFileProcessor.fileStats = fileStats;
+        blackhole.consume(ThreadDelegator.delegateTasks());
+        blackhole.consume(fileStats.wordCount.size());
+        fileStats.wordCount.close();
+    }
+}
@@ -0,0 +1,115 @@
+package com.concurrentfileprocessor.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.concurrentfileprocessor.ConcurrentFileProcessor;
+import com.concurrentfileprocessor.FileStats;
+import com.concurrentfileprocessor.ProcessorSettings;
+import com.concurrentfileprocessor.ProcessorSettings.ExecutorStrategy;
+import com.concurrentfileprocessor.counts.HeapWordCounts;
+import com.concurrentfileprocessor.processor.ThreadDelegator;
+
+/**
+ * compares the work-stealing pool with one virtual thread per file on a directory of many small files
+ * each operation processes the whole directory, so fileCount divided by the score gives files per millisecond
+ * point -p directory at a network share to measure the case virtual threads are meant for,
+ * on runtimes older than Java 21 the virtual strategy falls back to the pool
+ * run with: mvn test-compile exec:exec@benchmarks -Djmh.args="Executor -p fileCount=20000"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutorBenchmark {
+    // execution strategy under test
+    @Param({"work-stealing", "virtual"})
+    public String executor;
+
+    // most files open at once with virtual threads
+    @Param({"256"})
+    public int maxOpenFiles;
+
+    // number of files in the directory
+    @Param({"5000"})
+    public int fileCount;
+
+    // number of bytes in each file
+    @Param({"4096"})
+    public int fileSize;
+
+    // existing directory to write the files into, empty for a new temporary directory
+    @Param({""})
+    public String directory;
+
+    private Path root;
+    private List<File> files;
+
+    /**
+     * writes the files
+     * @throws IOException if a file cannot be written
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = directory.isEmpty() ? Files.createTempDirectory("executorbench")
+            : Files.createTempDirectory(Path.of(directory), "executorbench");
+        files = new ArrayList<>();
+        for (int i = 0; i < fileCount; i++) {
+            Path file = root.resolve("file" + i + ".txt");
+            Files.write(file, SyntheticCorpus.generate(fileSize, 1000, i));
+            files.add(file.toFile());
+        }
+
+        ProcessorSettings settings = new ProcessorSettings();
+        settings.executor = ExecutorStrategy.valueOf(executor.toUpperCase().replace('-', '_'));
+        settings.maxOpenFiles = maxOpenFiles;
+        ConcurrentFileProcessor.settings = settings;
+        ConcurrentFileProcessor.inputFiles = files;
+    }
+
+    /**
+     * deletes the files
+     * @throws IOException if a file cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        for (File file : files) {
+            Files.deleteIfExists(file.toPath());
+        }
+        Files.deleteIfExists(root);
+    }
+
+    /**
+     * processes every file into a fresh FileStats
+     * @return the statistics so the work is not optimised away
+     */
+    @Benchmark
+    public FileStats processDirectory() {
+        FileStats fileStats = new FileStats(new HeapWordCounts(), new AtomicLong(0), new AtomicLong(0));
+        ConcurrentFileProcessor.fileStats = fileStats;
+        ThreadDelegator.delegateTasks();
+        return fileStats;
+    }
+}
@@ -0,0 +1,155 @@
+package com.concurrentfileprocessor.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.concurrentfileprocessor.FileStats;
+import com.concurrentfileprocessor.ProcessorSettings;
+import com.concurrentfileprocessor.processor.WordTable;
+import com.concurrentfileprocessor.processor.WordTokenizer;
+
+/**
+ * measures how counting throughput scales with the number of worker threads
+ * compares merging every word into the shared FileStats against counting locally and merging once per task
+ * each operation processes the whole corpus, so corpus size divided by the score gives MB/s
+ * the local strategy can merge into any word store, for example -p wordStore=heap,off-heap,top-words
+ * run with: mvn test-compile exec:exec@benchmarks -Djmh.args="MergeScaling -p threads=1,2,4,8"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MergeScalingBenchmark {
+    // number of worker threads processing the corpus
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    // shared merges every word into FileStats, local counts per task and merges once
+    @Param({"shared", "local"})
+    public String merge;
+
+    // where the local strategy merges its tables, shared always merges into a ConcurrentHashMap
+    @Param({"heap"})
+    public String wordStore;
+
+    // number of bytes in each simulated file
+    @Param({"1048576"})
+    public int fileSize;
+
+    // number of simulated files in the corpus
+    @Param({"32"})
+    public int fileCount;
+
+    // number of distinct words in the corpus
+    @Param({"10000"})
+    public int vocabularySize;
+
+    private List<byte[]> files;
+    private ExecutorService executor;
+    private ProcessorSettings settings;
+
+    /**
+     * generates the corpus and starts the worker pool
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        files = new ArrayList<>();
+        for (int i = 0; i < fileCount; i++) {
+            files.add(SyntheticCorpus.generate(fileSize, vocabularySize, i));
+        }
+        executor = Executors.newFixedThreadPool(threads);
+        settings = new ProcessorSettings();
+        settings.wordStore = ProcessorSettings.WordStore.valueOf(wordStore.toUpperCase().replace('-', '_'));
+    }
+
+    /**
+     * stops the worker pool
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * counts every file in the corpus into a fresh FileStats
+     * @param blackhole consumes the results so the work is not optimised away
+     * @throws Exception if a task fails
+     */
+    @Benchmark
+    public void countCorpus(Blackhole blackhole) throws Exception {
+        boolean local = merge.equals("local");
+        ConcurrentHashMap<String, Integer> wordCount = new ConcurrentHashMap<>();
+        FileStats fileStats = local ? FileStats.create(settings)
+            : new FileStats(wordCount, new AtomicLong(0), new AtomicLong(0));
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (byte[] file : files) {
+            futures.add(executor.submit(() -> {
+                if (local) {
+                    countLocally(file, fileStats);
+                } else {
+                    countShared(file, wordCount, fileStats);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        blackhole.consume(fileStats.wordCount.size());
+        blackhole.consume(fileStats.characterCount.get());
+        fileStats.wordCount.close();
+    }
+
+    /**
+     * counts into a private table and merges it once, as FileMetricsCollector does
+     */
+    private static void countLocally(byte[] file, FileStats fileStats) {
+        WordTable words = new WordTable();
+        WordTokenizer tokenizer = new WordTokenizer(words::add);
+        tokenizer.feed(file, 0, file.length);
+        tokenizer.finish();
+        fileStats.merge(words, tokenizer.characterCount(), tokenizer.lineCount());
+    }
+
+    /**
+     * merges every word straight into the shared statistics, as FileMetricsCollector used to
+     */
+    private static void countShared(byte[] file, ConcurrentHashMap<String, Integer> wordCount, FileStats fileStats) {
+        WordTokenizer tokenizer = new WordTokenizer((word, length, hash) -> {
+            wordCount.merge(new String(word, 0, length, StandardCharsets.ISO_8859_1), 1, Integer::sum);
+            fileStats.characterCount.addAndGet(length);
+        });
+        tokenizer.feed(file, 0, file.length);
+        tokenizer.finish();
+        fileStats.lineCount.addAndGet((int) tokenizer.lineCount());
+    }
+}
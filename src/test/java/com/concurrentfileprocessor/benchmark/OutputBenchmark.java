@@ -0,0 +1,126 @@
+package com.concurrentfileprocessor.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.concurrentfileprocessor.FileStats;
+import com.concurrentfileprocessor.ProcessorSettings.OutputFormat;
+import com.concurrentfileprocessor.ProcessorSettings.OutputOrder;
+import com.concurrentfileprocessor.processor.OutputWriter;
+
+/**
+ * measures how long writing the output file takes for each format
+ * print-writer is the previous writer, a PrintWriter over the text format, kept as a baseline
+ * divide the file size printed at the end of each trial by the score for the write throughput
+ * run with: mvn test-compile exec:exec@benchmarks -Djmh.args="Output -p words=5000000 -p order=frequency"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OutputBenchmark {
+    // output format under test
+    @Param({"print-writer", "text", "csv", "json-lines", "binary"})
+    public String format;
+
+    // order the words are written in
+    @Param({"unsorted"})
+    public String order;
+
+    // number of distinct words in the statistics
+    @Param({"1000000"})
+    public int words;
+
+    private FileStats fileStats;
+    private Path directory;
+    private String filename;
+
+    /**
+     * fills the statistics with words of realistic length and skewed counts
+     * @throws IOException if the output directory cannot be created
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ConcurrentHashMap<String, Integer> counts = new ConcurrentHashMap<>();
+        Random random = new Random(42);
+        StringBuilder word = new StringBuilder();
+        while (counts.size() < words) {
+            word.setLength(0);
+            int length = 3 + random.nextInt(8);
+            for (int i = 0; i < length; i++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            counts.put(word.toString(), 1 + 1000 / (1 + random.nextInt(1000)));
+        }
+        fileStats = new FileStats(counts, new AtomicLong(Integer.MAX_VALUE), new AtomicLong(1_000_000));
+        fileStats.numberOfFiles = 100;
+
+        directory = Files.createTempDirectory("outputbench");
+        filename = "output." + format;
+    }
+
+    /**
+     * prints the output size and deletes the output
+     * @throws IOException if the file cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Path output = directory.resolve(filename);
+        System.out.printf("%n%s output: %.1f MB%n", format, Files.size(output) / (1024.0 * 1024.0));
+        Files.deleteIfExists(output);
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * writes the output file once
+     * @return the size of the file so the work is not optimised away
+     * @throws IOException if the baseline cannot write the file
+     */
+    @Benchmark
+    public long writeOutput() throws IOException {
+        OutputOrder outputOrder = OutputOrder.valueOf(order.toUpperCase().replace('-', '_'));
+        if (format.equals("print-writer")) {
+            writeWithPrintWriter();
+        } else {
+            OutputFormat outputFormat = OutputFormat.valueOf(format.toUpperCase().replace('-', '_'));
+            OutputWriter.outputStatsToFile(directory.toString(), filename, fileStats, outputFormat, outputOrder, 0);
+        }
+        return new File(directory.toFile(), filename).length();
+    }
+
+    /**
+     * the writer before buffers and formats were added, one String per line through a PrintWriter
+     */
+    private void writeWithPrintWriter() throws IOException {
+        try (PrintWriter writer = new PrintWriter(directory.resolve(filename).toFile())) {
+            writer.println("Number of files: " + fileStats.numberOfFiles);
+            writer.println("Total character count: " + fileStats.characterCount.get());
+            writer.println("Total line count: " + fileStats.lineCount.get());
+            writer.println("Total word count: " + fileStats.wordCount.size());
+            fileStats.wordCount.forEach((word, count) -> writer.println(word + ": " + count));
+        }
+    }
+}
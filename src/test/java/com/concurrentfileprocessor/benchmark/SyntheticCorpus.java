@@ -0,0 +1,40 @@
+package com.concurrentfileprocessor.benchmark;
+
+import java.util.Random;
+
+import com.concurrentfileprocessor.corpus.CorpusGenerator;
+
+/**
+ * builds reproducible in-memory text for the benchmarks
+ * word frequencies follow a Zipf distribution with exponent 1 so a few hot words dominate like in real text
+ */
+public final class SyntheticCorpus {
+    private SyntheticCorpus() {}
+
+    // letters of the default corpus
+    public static final String ASCII_LETTERS = CorpusGenerator.ASCII_LETTERS;
+
+    /**
+     * generates text made of random lowercase words separated by spaces and newlines
+     * @param size number of bytes to generate
+     * @param vocabularySize number of distinct words to draw from
+     * @param seed random seed, the same seed always gives the same text
+     * @return the generated text as ASCII bytes
+     */
+    public static byte[] generate(int size, int vocabularySize, long seed) {
+        return generate(size, vocabularySize, seed, ASCII_LETTERS);
+    }
+
+    /**
+     * generates text made of random words drawn from the given letters, separated by spaces and newlines
+     * @param size number of bytes to generate, the last character may be cut in half
+     * @param vocabularySize number of distinct words to draw from
+     * @param seed random seed, the same seed always gives the same text
+     * @param letters the letters words are made of, at least two
+     * @return the generated text as UTF-8 bytes
+     */
+    public static byte[] generate(int size, int vocabularySize, long seed, String letters) {
+        Random random = new Random(seed);
+        return new CorpusGenerator(random, vocabularySize, 1.0, 80, letters).text(size, random);
+    }
+}
@@ -0,0 +1,119 @@
+package com.concurrentfileprocessor.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.concurrentfileprocessor.processor.WordTable;
+import com.concurrentfileprocessor.processor.WordTokenizer;
+
+/**
+ * measures single-threaded tokenizing throughput on text in different scripts
+ * ascii text only takes the fast path, the other scripts decode nearly every letter
+ * string-decode is the obvious alternative, decoding to a String and classifying each code point, kept as a baseline
+ * the corpus size divided by the score gives MB/s
+ * run with: mvn test-compile exec:exec@benchmarks -Djmh.args="Tokenizer -p text=ascii,cjk"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenizerBenchmark {
+    // script the words are written in
+    @Param({"ascii", "latin", "greek", "cjk"})
+    public String text;
+
+    // tokenizer decodes bytes as it goes, string-decode decodes the whole buffer to a String first
+    @Param({"tokenizer", "string-decode"})
+    public String implementation;
+
+    // number of bytes in the corpus
+    @Param({"16777216"})
+    public int size;
+
+    // number of distinct words in the corpus
+    @Param({"10000"})
+    public int vocabularySize;
+
+    private byte[] corpus;
+
+    /**
+     * generates the corpus
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        String letters;
+        switch (text) {
+            case "latin":
+                // mostly ASCII with an accented letter in about one word in three
+                letters = SyntheticCorpus.ASCII_LETTERS + "\u00e9\u00e8\u00e0\u00fc\u00f6\u00e7\u00f1";
+                break;
+            case "greek":
+                letters = "\u03b1\u03b2\u03b3\u03b4\u03b5\u03b6\u03b7\u03b8\u03b9\u03ba\u03bb\u03bc\u03bd\u03be\u03bf"
+                    + "\u03c0\u03c1\u03c3\u03c4\u03c5\u03c6\u03c7\u03c8\u03c9\u0391\u0392\u0393\u0394";
+                break;
+            case "cjk":
+                StringBuilder ideographs = new StringBuilder();
+                for (int c = 0x4E00; c < 0x4E00 + 2000; c++) {
+                    ideographs.appendCodePoint(c);
+                }
+                letters = ideographs.toString();
+                break;
+            default:
+                letters = SyntheticCorpus.ASCII_LETTERS;
+        }
+        corpus = SyntheticCorpus.generate(size, vocabularySize, 42, letters);
+    }
+
+    /**
+     * tokenizes the whole corpus into a private table
+     * @return number of distinct words so the work is not optimised away
+     */
+    @Benchmark
+    public int tokenize() {
+        WordTable words = new WordTable();
+        if (implementation.equals("string-decode")) {
+            return decodeAndSplit(words);
+        }
+        WordTokenizer tokenizer = new WordTokenizer(words::add, StandardCharsets.UTF_8);
+        tokenizer.feed(corpus, 0, corpus.length);
+        tokenizer.finish();
+        return words.size();
+    }
+
+    /**
+     * decodes the corpus to a String and builds each word from its code points, with the same word rules
+     */
+    private int decodeAndSplit(WordTable words) {
+        String decoded = new String(corpus, StandardCharsets.UTF_8);
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < decoded.length(); ) {
+            int c = decoded.codePointAt(i);
+            i += Character.charCount(c);
+            if (Character.isLetter(c)) {
+                word.appendCodePoint(Character.toLowerCase(Character.toUpperCase(c)));
+            } else if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                if (word.length() > 0) {
+                    byte[] bytes = word.toString().getBytes(StandardCharsets.UTF_8);
+                    words.add(bytes, 0, bytes.length, 1);
+                    word.setLength(0);
+                }
+            }
+        }
+        return words.size();
+    }
+}